@@ -0,0 +1,86 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Defensive copies which are only read, against copies which are written once. Run with {@code -prof gc}
+ * to see the allocation per operation: the read-only copies should allocate the set object and nothing
+ * else, whatever the size of the store.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 250, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 250, timeUnit = TimeUnit.MILLISECONDS)
+public class CloneBenchmark {
+    private static final long SEED = 0x5EED;
+
+    @State(Scope.Thread)
+    public static class Data {
+        // One shape per representation: a few elements, a dense range, and a sparse far-reaching set
+        @Param({"array", "bitset", "roaring"})
+        public String shape = "array";
+
+        NatBitSet set = NatBitSets.of();
+        int probe;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(SEED);
+            NatBitSet set = NatBitSets.of();
+            switch (shape) {
+                case "array":
+                    for (int i = 0; i < 32; i++) {
+                        set.set(random.nextInt(10_000));
+                    }
+                    break;
+                case "bitset":
+                    for (int i = 0; i < 50_000; i++) {
+                        set.set(random.nextInt(100_000));
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < 50_000; i++) {
+                        set.set(random.nextInt(Integer.MAX_VALUE));
+                    }
+                    break;
+            }
+            this.set = set;
+            this.probe = set.lastInt();
+        }
+    }
+
+    @Benchmark
+    public boolean cloneThenRead(Data data) {
+        NatBitSet copy = data.set.clone();
+        return copy.contains(data.probe);
+    }
+
+    @Benchmark
+    public boolean copyOfThenRead(Data data) {
+        NatBitSet copy = NatBitSets.copyOf(data.set);
+        return copy.contains(data.probe);
+    }
+
+    @Benchmark
+    public boolean cloneThenWrite(Data data) {
+        NatBitSet copy = data.set.clone();
+        copy.clear(data.probe);
+        return copy.contains(data.probe);
+    }
+}
@@ -0,0 +1,92 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A set going back and forth across a threshold, optimized after every step as a long-lived set would be
+ * from time to time: across the array cap, and across the density at which words give way to Roaring. The
+ * {@code conversions} counter reports how often the store changed representation per second - run against
+ * the previous revision to compare, where every crossing converted the whole store and back.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 250, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 250, timeUnit = TimeUnit.MILLISECONDS)
+public class HysteresisBenchmark {
+    @State(Scope.Thread)
+    public static class Data {
+        // Which threshold to oscillate around
+        @Param({"array", "density"})
+        public String boundary = "array";
+
+        HybridNatBitSet set = new HybridNatBitSet();
+        // The element whose presence moves the set across the threshold
+        int crossing;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            HybridNatBitSet set = new HybridNatBitSet();
+            if ("array".equals(boundary)) {
+                for (int i = 0; i < HybridNatBitSet.MAXIMAL_ARRAY_SIZE; i++) {
+                    set.set(2 * i);
+                }
+                crossing = 2 * HybridNatBitSet.MAXIMAL_ARRAY_SIZE;
+            } else {
+                // Words of about three times the bytes of a bitmap, four and a half times once the crossing
+                // stretches their span by half
+                for (int i = 0; i < 10_000; i++) {
+                    set.set(48 * i);
+                }
+                crossing = 48 * 15_000;
+            }
+            set.optimize();
+            this.set = set;
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Conversions {
+        public long conversions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            conversions = 0;
+        }
+
+        void observe(Object before, Object after) {
+            if (before.getClass() != after.getClass()) {
+                conversions += 1;
+            }
+        }
+    }
+
+    @Benchmark
+    public int oscillate(Data data, Conversions counter) {
+        HybridNatBitSet set = data.set;
+        Object store = set.store();
+        set.set(data.crossing);
+        counter.observe(store, set.store());
+        store = set.store();
+        set.clear(data.crossing);
+        set.optimize();
+        counter.observe(store, set.store());
+        return set.size();
+    }
+}
@@ -0,0 +1,81 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The parallel bulk operations against their sequential counterparts on two dense, random word backed sets.
+ * Intersecting or joining with the same source again leaves the target as it is, so every invocation does the
+ * same work without resetting the target. Run with {@code -prof gc} to see the copies the parallel path makes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class ParallelWordsBenchmark {
+    private static final long SEED = 0x5EED;
+
+    @State(Scope.Thread)
+    public static class Data {
+        // Just past the point where the parallel path kicks in, and far past it
+        @Param({"65536", "1048576"})
+        public int words = ParallelWords.SEQUENTIAL_WORDS;
+
+        @Param({"and", "or"})
+        public String operation = "and";
+
+        HybridNatBitSet target = new HybridNatBitSet();
+        HybridNatBitSet source = new HybridNatBitSet();
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(SEED);
+            this.target = new HybridNatBitSet(randomWords(random, words));
+            this.source = new HybridNatBitSet(randomWords(random, words));
+        }
+
+        private static BitSet randomWords(Random random, int words) {
+            long[] bits = new long[words];
+            for (int i = 0; i < words; i++) {
+                bits[i] = random.nextLong();
+            }
+            return BitSet.valueOf(bits);
+        }
+    }
+
+    @Benchmark
+    public HybridNatBitSet sequential(Data data) {
+        if ("and".equals(data.operation)) {
+            data.target.and(data.source);
+        } else {
+            data.target.or(data.source);
+        }
+        return data.target;
+    }
+
+    @Benchmark
+    public HybridNatBitSet parallel(Data data) {
+        if ("and".equals(data.operation)) {
+            NatBitSets.parallelAnd(data.target, data.source);
+        } else {
+            NatBitSets.parallelOr(data.target, data.source);
+        }
+        return data.target;
+    }
+}
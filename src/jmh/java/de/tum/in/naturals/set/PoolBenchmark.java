@@ -0,0 +1,101 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The union of a state's successors, as an explicit-state search computes it once per explored state: into
+ * a fresh set, against into a pooled one. Run with {@code -prof gc} to see the allocation per operation:
+ * once warmed up, the pooled variant should allocate next to nothing for arrays and words. Roaring drops its
+ * containers when cleared, so there the pool only saves the set and the bitmap around them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 250, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 250, timeUnit = TimeUnit.MILLISECONDS)
+public class PoolBenchmark {
+    private static final long SEED = 0x5EED;
+    private static final int STATES = 64;
+    private static final int SUCCESSORS = 4;
+
+    @State(Scope.Thread)
+    public static class Data {
+        // Successor sets which stay small, which fill a dense range, and which reach far out
+        @Param({"array", "bitset", "roaring"})
+        public String shape = "array";
+
+        NatBitSet[][] successors = new NatBitSet[0][];
+        NatBitSetPool pool = new NatBitSetPool();
+        int state;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(SEED);
+            NatBitSet[][] successors = new NatBitSet[STATES][SUCCESSORS];
+            for (NatBitSet[] sets : successors) {
+                for (int i = 0; i < SUCCESSORS; i++) {
+                    NatBitSet set = NatBitSets.of();
+                    switch (shape) {
+                        case "array":
+                            for (int j = 0; j < 8; j++) {
+                                set.set(random.nextInt(10_000));
+                            }
+                            break;
+                        case "bitset":
+                            for (int j = 0; j < 2_000; j++) {
+                                set.set(random.nextInt(10_000));
+                            }
+                            break;
+                        default:
+                            for (int j = 0; j < 2_000; j++) {
+                                set.set(random.nextInt(Integer.MAX_VALUE));
+                            }
+                            break;
+                    }
+                    sets[i] = set;
+                }
+            }
+            this.successors = successors;
+        }
+
+        NatBitSet[] next() {
+            state = (state + 1) % STATES;
+            return successors[state];
+        }
+    }
+
+    @Benchmark
+    public int freshUnion(Data data) {
+        NatBitSet union = NatBitSets.of();
+        for (NatBitSet successor : data.next()) {
+            union.or(successor);
+        }
+        return union.size();
+    }
+
+    @Benchmark
+    public int pooledUnion(Data data) {
+        NatBitSet union = data.pool.acquire();
+        for (NatBitSet successor : data.next()) {
+            union.or(successor);
+        }
+        int size = union.size();
+        data.pool.release(union);
+        return size;
+    }
+}
@@ -0,0 +1,343 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import de.tum.in.naturals.Arrays2;
+import de.tum.in.naturals.Thresholds;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Measures where the representations of {@link HybridNatBitSet} cross over on the current machine and
+ * writes the thresholds to pick them by, for {@link Thresholds} to load. Build the benchmark jar and run
+ * this class with the target file as argument, then start the application with
+ * {@code -Dde.tum.in.naturals.thresholds=<file>}:
+ *
+ * <ul>
+ *   <li>the array cap is the largest size at which a sorted array iterates, probes and inserts no slower
+ *       than both words and a Roaring bitmap of the same sparse content,
+ *   <li>the memory slack is how many times slower than words a bitmap is at the largest size, which is
+ *       what the extra memory of words buys,
+ *   <li>the linear search window is the fastest window for searching arrays of a few hundred entries, and
+ *   <li>the Roaring footprint is taken from what copying a bitmap with and without containers allocates.
+ * </ul>
+ *
+ * <p>The benchmarks work on the raw stores rather than on sets, which would change representation under
+ * the measurement.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 250, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 250, timeUnit = TimeUnit.MILLISECONDS)
+public class ThresholdCalibration {
+    private static final long SEED = 0x5EED;
+    // One element per this many values on average, a sparse set for words but not a degenerate one
+    private static final int SPREAD = 32;
+    private static final int SEARCH_SIZE = 256;
+    private static final int CONTAINERS = 64;
+
+    @State(Scope.Thread)
+    public static class Store {
+        @Param({"array", "words", "roaring"})
+        public String representation = "array";
+
+        @Param({"16", "32", "64", "128", "256", "512"})
+        public int size;
+
+        int[] array = {};
+        BitSet words = new BitSet();
+        RoaringBitmap bitmap = new RoaringBitmap();
+        // Alternately present and absent values, and absent values only
+        int[] probes = {};
+        int[] misses = {};
+        int index;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(SEED);
+            int[] elements = random.ints(0, size * SPREAD).distinct().limit(size).sorted().toArray();
+            // One spare slot to insert into
+            array = Arrays.copyOf(elements, size + 1);
+            words = new BitSet();
+            bitmap = new RoaringBitmap();
+            for (int element : elements) {
+                words.set(element);
+                bitmap.add(element);
+            }
+            misses = random.ints(0, size * SPREAD)
+                    .filter(value -> Arrays.binarySearch(elements, value) < 0)
+                    .limit(size)
+                    .toArray();
+            probes = new int[2 * size];
+            for (int i = 0; i < size; i++) {
+                probes[2 * i] = elements[random.nextInt(size)];
+                probes[2 * i + 1] = misses[i];
+            }
+            index = 0;
+        }
+
+        int nextProbe() {
+            index = (index + 1) % probes.length;
+            return probes[index];
+        }
+
+        int nextMiss() {
+            index = (index + 1) % misses.length;
+            return misses[index];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Search {
+        @Param({"8", "16", "24", "32", "48", "64"})
+        public int window;
+
+        int[] array = {};
+        int[] probes = {};
+        int index;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(SEED);
+            array = random.ints().distinct().limit(SEARCH_SIZE).sorted().toArray();
+            probes = new int[2 * SEARCH_SIZE];
+            for (int i = 0; i < SEARCH_SIZE; i++) {
+                probes[2 * i] = array[random.nextInt(SEARCH_SIZE)];
+                probes[2 * i + 1] = random.nextInt();
+            }
+            index = 0;
+        }
+
+        int nextProbe() {
+            index = (index + 1) % probes.length;
+            return probes[index];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Footprint {
+        @Param({"0", "64"})
+        public int containers;
+
+        RoaringBitmap bitmap = new RoaringBitmap();
+
+        @Setup(Level.Trial)
+        public void setup() {
+            bitmap = new RoaringBitmap();
+            for (int i = 0; i < containers; i++) {
+                bitmap.add(i << 16);
+            }
+        }
+    }
+
+    // Arrays2.hybridBinarySearch with the window as a parameter
+    private static int windowSearch(int[] array, int value, int window) {
+        int low = 0;
+        int high = array.length;
+        while (high - low > window) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (high < array.length && array[high] == value) {
+            return high;
+        }
+        return Arrays2.linearSearch(array, low, high, value);
+    }
+
+    @Benchmark
+    public int iterate(Store store) {
+        int sum = 0;
+        switch (store.representation) {
+            case "array":
+                for (int i = 0; i < store.size; i++) {
+                    sum += store.array[i];
+                }
+                break;
+            case "words":
+                BitSet words = store.words;
+                for (int i = words.nextSetBit(0); i >= 0; i = words.nextSetBit(i + 1)) {
+                    sum += i;
+                }
+                break;
+            default:
+                PeekableIntIterator iterator = store.bitmap.getIntIterator();
+                while (iterator.hasNext()) {
+                    sum += iterator.next();
+                }
+                break;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public boolean probe(Store store) {
+        int value = store.nextProbe();
+        switch (store.representation) {
+            case "array":
+                return Arrays2.hybridBinarySearch(store.array, store.size, value) >= 0;
+            case "words":
+                return store.words.get(value);
+            default:
+                return store.bitmap.contains(value);
+        }
+    }
+
+    // Inserts an absent value and removes it again, so the store keeps its size
+    @Benchmark
+    public int insert(Store store) {
+        int value = store.nextMiss();
+        switch (store.representation) {
+            case "array":
+                int[] array = store.array;
+                int size = store.size;
+                int position = -(Arrays2.hybridBinarySearch(array, size, value) + 1);
+                System.arraycopy(array, position, array, position + 1, size - position);
+                array[position] = value;
+                System.arraycopy(array, position + 1, array, position, size - position);
+                return array[position];
+            case "words":
+                store.words.set(value);
+                store.words.clear(value);
+                return store.words.length();
+            default:
+                store.bitmap.add(value);
+                store.bitmap.remove(value);
+                return store.bitmap.getCardinality();
+        }
+    }
+
+    @Benchmark
+    public int search(Search search) {
+        return windowSearch(search.array, search.nextProbe(), search.window);
+    }
+
+    @Benchmark
+    public RoaringBitmap copyBitmap(Footprint footprint) {
+        return footprint.bitmap.clone();
+    }
+
+    private static String key(BenchmarkParams params) {
+        String benchmark = params.getBenchmark();
+        StringBuilder key = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.') + 1));
+        for (String param : new TreeSet<>(params.getParamsKeys())) {
+            key.append(':').append(params.getParam(param));
+        }
+        return key.toString();
+    }
+
+    private static double score(Map<String, Double> scores, String key) {
+        Double score = scores.get(key);
+        if (score == null) {
+            throw new IllegalStateException(String.format("No result for %s", key));
+        }
+        return score;
+    }
+
+    // Time per operation, with a full iteration spread over the elements it visits
+    private static double cost(Map<String, Double> scores, String representation, int size) {
+        return score(scores, String.format("iterate:%s:%d", representation, size)) / size
+                + score(scores, String.format("probe:%s:%d", representation, size))
+                + score(scores, String.format("insert:%s:%d", representation, size));
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Path target = Path.of(args.length == 0 ? "thresholds.properties" : args[0]);
+        Options options = new OptionsBuilder()
+                .include("^" + Pattern.quote(ThresholdCalibration.class.getName()) + "\\.")
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, Double> allocations = new HashMap<>();
+        TreeSet<Integer> sizes = new TreeSet<>();
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            String key = key(params);
+            scores.put(key, result.getPrimaryResult().getScore());
+            for (Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet()) {
+                if (secondary.getKey().endsWith("gc.alloc.rate.norm")) {
+                    allocations.put(key, secondary.getValue().getScore());
+                }
+            }
+            if (params.getParamsKeys().contains("size")) {
+                sizes.add(Integer.parseInt(params.getParam("size")));
+            }
+        }
+
+        // The array holds as long as it keeps up with the faster of the others at every size up to there
+        int arrayCap = sizes.first();
+        for (int size : sizes) {
+            if (cost(scores, "array", size) > Math.min(cost(scores, "words", size), cost(scores, "roaring", size))) {
+                break;
+            }
+            arrayCap = size;
+        }
+        int largest = sizes.last();
+        long memorySlack = Math.round(cost(scores, "roaring", largest) / cost(scores, "words", largest));
+
+        String bestWindow = "";
+        double bestSearch = Double.POSITIVE_INFINITY;
+        for (Map.Entry<String, Double> entry : scores.entrySet()) {
+            if (entry.getKey().startsWith("search:") && entry.getValue() < bestSearch) {
+                bestWindow = entry.getKey().substring("search:".length());
+                bestSearch = entry.getValue();
+            }
+        }
+
+        double emptyBitmap = score(allocations, "copyBitmap:0");
+        double fullBitmap = score(allocations, String.format("copyBitmap:%d", CONTAINERS));
+        // Hybrid sets add two bytes per element on top, and every container here holds one
+        long roaringContainer = Math.round((fullBitmap - emptyBitmap) / CONTAINERS) - 2;
+
+        Properties thresholds = new Properties();
+        thresholds.setProperty(Thresholds.MAXIMAL_ARRAY_SIZE, Integer.toString(arrayCap));
+        thresholds.setProperty(Thresholds.MEMORY_SLACK, Long.toString(Math.max(1L, Math.min(64L, memorySlack))));
+        thresholds.setProperty(Thresholds.LINEAR_SEARCH_WINDOW, bestWindow);
+        thresholds.setProperty(Thresholds.ROARING_FLOOR, Long.toString(Math.round(emptyBitmap)));
+        thresholds.setProperty(Thresholds.ROARING_CONTAINER, Long.toString(Math.max(0L, roaringContainer)));
+        try (Writer writer = Files.newBufferedWriter(target)) {
+            thresholds.store(writer, "Calibrated by " + ThresholdCalibration.class.getSimpleName());
+        }
+        System.out.printf("Wrote %s to %s%n", thresholds, target);
+    }
+}
@@ -10,8 +10,9 @@ public final class Arrays2 {
     /**
      * Where {@link #binaryWindow} stops halving and scans. Binary search only starts paying off around
      * 48 entries, and a scan of this many is cheaper than the branches needed to narrow it further.
+     * Calibrated through {@link Thresholds#LINEAR_SEARCH_WINDOW}.
      */
-    private static final int LINEAR_SEARCH_WINDOW = 32;
+    private static final int LINEAR_SEARCH_WINDOW = Thresholds.get(Thresholds.LINEAR_SEARCH_WINDOW, 32, 1, 1024);
 
     private Arrays2() {}
 
@@ -97,6 +98,25 @@ public final class Arrays2 {
         return -(to + 1);
     }
 
+    /**
+     * Searches the sorted range {@code [from, to)} in steps doubling from {@code from}, then bisects the last
+     * step. The cost grows with the distance to the value rather than the length of the range, so a sorted
+     * sequence of values walked through the array this way costs no more than a merge, but skips the
+     * stretches none of them falls into. Results are as for {@link Arrays#binarySearch(int[], int, int, int)}.
+     */
+    public static int gallopingSearch(int[] array, int from, int to, int value) {
+        int low = from;
+        int bound = from;
+        int step = 1;
+        while (bound < to && array[bound] < value) {
+            low = bound + 1;
+            bound = (int) Math.min(to, (long) bound + step);
+            step <<= 1;
+        }
+        // Everything before low is smaller than value, and array[bound] is not, if it exists
+        return Arrays.binarySearch(array, low, Math.min(bound + 1, to), value);
+    }
+
     private static int binaryWindow(int[] array, int size, int value) {
         int low = 0;
         int high = size;
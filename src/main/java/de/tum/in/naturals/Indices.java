@@ -2,6 +2,7 @@
 
 package de.tum.in.naturals;
 
+import de.tum.in.naturals.set.NatBitSet;
 import it.unimi.dsi.fastutil.doubles.Double2IntFunction;
 import it.unimi.dsi.fastutil.doubles.Double2IntLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.doubles.DoubleIterable;
@@ -62,6 +63,16 @@ public final class Indices {
         return elementToIndexMap(ints.iterator());
     }
 
+    /**
+     * Numbers the elements of the given set densely in ascending order, as {@link
+     * #elementToIndexMap(IntIterable)} does, but through {@link NatBitSet#rank(int)} instead of a hash map.
+     * Unlike that snapshot, the returned function reads the set on every call, so the set must not change while
+     * it is in use.
+     */
+    public static IntUnaryOperator rankMap(NatBitSet set) {
+        return element -> set.contains(element) ? set.rank(element) : -1;
+    }
+
     public static IntUnaryOperator elementToIndexMap(PrimitiveIterator.OfInt iterator) {
         Int2IntFunction indexMap = new Int2IntLinkedOpenHashMap();
         indexMap.defaultReturnValue(-1);
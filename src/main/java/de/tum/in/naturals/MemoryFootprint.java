@@ -0,0 +1,38 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals;
+
+import java.util.BitSet;
+
+/**
+ * A structure which can estimate the heap it occupies, to drive eviction and capacity planning from real
+ * numbers.
+ *
+ * <p>Estimates count the structure itself and everything it owns, but not what it merely refers to, such
+ * as the values of a map. They assume a 64-bit JVM with compressed references and class pointers: 12 byte
+ * object headers, 16 byte array headers and 4 byte references, everything padded to multiples of 8.</p>
+ */
+public interface MemoryFootprint {
+    /** The estimated number of bytes this structure occupies on the heap. */
+    long estimatedBytes();
+
+    /** An object whose fields take the given number of bytes, with header and padding. */
+    static long objectBytes(long fieldBytes) {
+        return align(12L + fieldBytes);
+    }
+
+    /** An array of the given length and element width, with header and padding. */
+    static long arrayBytes(int length, int elementBytes) {
+        return align(16L + (long) length * elementBytes);
+    }
+
+    /** A bit set with all the words it has allocated, whether they hold bits or not. */
+    static long bitSetBytes(BitSet bitSet) {
+        // The words, the number of them in use and whether their count is fixed
+        return objectBytes(4L + Integer.BYTES + 1L) + arrayBytes(bitSet.size() / Long.SIZE, Long.BYTES);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7L) & ~7L;
+    }
+}
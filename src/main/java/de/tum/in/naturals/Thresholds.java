@@ -0,0 +1,87 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The tuning thresholds of the data structures in this library, optionally calibrated for the machine at
+ * hand. The defaults were measured on a typical laptop; machines with very different cache sizes may be
+ * better served by the values the {@code ThresholdCalibration} suite under {@code src/jmh} measures for
+ * them. To use those, point the system property {@value #PROPERTY} at the properties file it writes.
+ *
+ * <p>The file is read once, when the first class using a threshold is initialized, so the property has to
+ * be set before. Keys missing from it keep their default; values which cannot be parsed or are out of the
+ * range a structure supports are reported and replaced by the default as well, so a broken file never
+ * keeps the library from working.</p>
+ */
+public final class Thresholds {
+    /** The system property naming the file to load thresholds from. */
+    public static final String PROPERTY = "de.tum.in.naturals.thresholds";
+
+    /** Up to how many elements a hybrid set keeps a sorted array. */
+    public static final String MAXIMAL_ARRAY_SIZE = "hybrid.maximalArraySize";
+    /** How many times the bytes of a Roaring bitmap an adaptive set lets words cost. */
+    public static final String MEMORY_SLACK = "hybrid.memorySlack";
+    /** The bytes of an empty Roaring bitmap, as hybrid sets estimate it. */
+    public static final String ROARING_FLOOR = "hybrid.roaringFloor";
+    /** The bytes each container adds to a Roaring bitmap, as hybrid sets estimate it. */
+    public static final String ROARING_CONTAINER = "hybrid.roaringContainer";
+    /** Up to how many entries a search in a sorted array scans instead of bisecting. */
+    public static final String LINEAR_SEARCH_WINDOW = "arrays.linearSearchWindow";
+
+    private static final Logger LOGGER = Logger.getLogger(Thresholds.class.getName());
+    private static final Properties LOADED = load(System.getProperty(PROPERTY));
+
+    private Thresholds() {}
+
+    /**
+     * The calibrated value of the given threshold if there is one in {@code [min, max]}, {@code fallback}
+     * otherwise.
+     */
+    public static int get(String key, int fallback, int min, int max) {
+        return get(LOADED, key, fallback, min, max);
+    }
+
+    static int get(Properties properties, String key, int fallback, int min, int max) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return fallback;
+        }
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Threshold {0} is not a number: {1}", new Object[] {key, value});
+            return fallback;
+        }
+        if (parsed < min || parsed > max) {
+            LOGGER.log(Level.WARNING, "Threshold {0} = {1} is outside of [{2}, {3}]", new Object[] {
+                key, parsed, min, max
+            });
+            return fallback;
+        }
+        return parsed;
+    }
+
+    static Properties load(@Nullable String file) {
+        Properties properties = new Properties();
+        if (file == null || file.isEmpty()) {
+            return properties;
+        }
+        try (InputStream stream = Files.newInputStream(Path.of(file))) {
+            properties.load(stream);
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, String.format("Failed to load thresholds from %s", file), e);
+            return new Properties();
+        }
+        return properties;
+    }
+}
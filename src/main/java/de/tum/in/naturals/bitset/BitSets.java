@@ -226,6 +226,36 @@ public final class BitSets {
         return false;
     }
 
+    /**
+     * Feeds the non-zero words of the bit set to the consumer, see {@link NatBitSet#forEachWord}.
+     */
+    public static void forEachWord(BitSet bitSet, NatBitSet.LongWordConsumer consumer) {
+        // One copy of the words is far cheaper than rebuilding them bit by bit
+        long[] words = bitSet.toLongArray();
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] != 0L) {
+                consumer.accept(i, words[i]);
+            }
+        }
+    }
+
+    /**
+     * Feeds the maximal blocks of set bits to the consumer, see {@link NatBitSet#forEachRun}.
+     */
+    public static void forEachRun(BitSet bitSet, NatBitSet.IntIntConsumer consumer) {
+        int from = bitSet.nextSetBit(0);
+        while (from >= 0) {
+            int to = bitSet.nextClearBit(from);
+            if (to < 0) {
+                // Past the last index, the search wraps around
+                consumer.accept(from, Integer.MAX_VALUE);
+                return;
+            }
+            consumer.accept(from, to - 1);
+            from = bitSet.nextSetBit(to);
+        }
+    }
+
     /**
      * Checks if {@code first} is a subset of {@code second}.
      */
@@ -332,6 +362,19 @@ public final class BitSets {
         return true;
     }
 
+    /**
+     * The size of the intersection of the two sets. The words are not exposed without a copy, so this copies
+     * the words of the longer set which overlap the shorter one, and-s them word by word and counts the bits.
+     * Dense, fragmented sets have far more runs than words, so this beats walking their common runs.
+     */
+    public static int andCardinality(BitSet first, BitSet second) {
+        BitSet shorter = first.length() <= second.length() ? first : second;
+        BitSet longer = shorter == first ? second : first; // NOPMD - identity is the point
+        BitSet common = longer.get(0, shorter.length());
+        common.and(shorter);
+        return common.cardinality();
+    }
+
     public static boolean isDisjoint(BitSet first, BitSet second) {
         return !first.intersects(second);
     }
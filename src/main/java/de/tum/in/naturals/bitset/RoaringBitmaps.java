@@ -9,12 +9,15 @@ import it.unimi.dsi.fastutil.ints.IntIterator;
 import java.util.BitSet;
 import java.util.PrimitiveIterator;
 import java.util.function.IntConsumer;
+import org.roaringbitmap.BatchIterator;
 import org.roaringbitmap.RoaringBitmap;
 
 /**
  * Utility class to help interacting with {@link org.roaringbitmap.RoaringBitmap}.
  */
 public final class RoaringBitmaps {
+    private static final int BATCH_SIZE = 256;
+
     private RoaringBitmaps() {}
 
     public static RoaringBitmap of(int... ints) {
@@ -57,15 +60,57 @@ public final class RoaringBitmaps {
     }
 
     public static void add(RoaringBitmap bitmap, BitSet bitSet) {
-        int from = bitSet.nextSetBit(0);
-        while (from >= 0) {
-            int to = bitSet.nextClearBit(from);
-            if (to == from + 1) {
-                bitmap.add(from);
+        BitSets.forEachRun(bitSet, (first, last) -> {
+            if (first == last) {
+                bitmap.add(first);
             } else {
-                bitmap.add(from, (long) to);
+                bitmap.add(first, last + 1L);
+            }
+        });
+    }
+
+    /**
+     * Feeds the non-zero words of the bitmap to the consumer, see {@link NatBitSet#forEachWord}.
+     */
+    public static void forEachWord(RoaringBitmap bitmap, NatBitSet.LongWordConsumer consumer) {
+        // Containers do not hand out their words, but batches at least skip the per-element iterator calls
+        BatchIterator iterator = bitmap.getBatchIterator();
+        int[] batch = new int[BATCH_SIZE];
+        int wordIndex = -1;
+        long word = 0L;
+        while (iterator.hasNext()) {
+            int count = iterator.nextBatch(batch);
+            for (int i = 0; i < count; i++) {
+                int element = batch[i];
+                if (element >>> 6 != wordIndex) {
+                    if (word != 0L) {
+                        consumer.accept(wordIndex, word);
+                    }
+                    wordIndex = element >>> 6;
+                    word = 0L;
+                }
+                word |= 1L << element;
+            }
+        }
+        if (word != 0L) {
+            consumer.accept(wordIndex, word);
+        }
+    }
+
+    /**
+     * Feeds the maximal runs of the bitmap to the consumer, see {@link NatBitSet#forEachRun}.
+     */
+    public static void forEachRun(RoaringBitmap bitmap, NatBitSet.IntIntConsumer consumer) {
+        // Values are unsigned to Roaring; the searches stay within the naturals as long as the bitmap does
+        long from = bitmap.isEmpty() ? -1L : bitmap.nextValue(0);
+        while (from >= 0L) {
+            long to = bitmap.nextAbsentValue((int) from);
+            if (to > Integer.MAX_VALUE) {
+                consumer.accept((int) from, Integer.MAX_VALUE);
+                return;
             }
-            from = bitSet.nextSetBit(to);
+            consumer.accept((int) from, (int) to - 1);
+            from = bitmap.nextValue((int) to);
         }
     }
 
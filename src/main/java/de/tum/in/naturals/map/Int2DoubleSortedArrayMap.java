@@ -2,6 +2,7 @@
 
 package de.tum.in.naturals.map;
 
+import de.tum.in.naturals.MemoryFootprint;
 import it.unimi.dsi.fastutil.HashCommon;
 import it.unimi.dsi.fastutil.doubles.AbstractDoubleCollection;
 import it.unimi.dsi.fastutil.doubles.DoubleArrays;
@@ -23,7 +24,7 @@ import java.util.NoSuchElementException;
 import java.util.function.IntConsumer;
 import org.jspecify.annotations.Nullable;
 
-public class Int2DoubleSortedArrayMap extends AbstractInt2DoubleMap {
+public class Int2DoubleSortedArrayMap extends AbstractInt2DoubleMap implements MemoryFootprint {
     private static final long serialVersionUID = 4177317104795467442L;
 
     @Nullable
@@ -107,6 +108,14 @@ public class Int2DoubleSortedArrayMap extends AbstractInt2DoubleMap {
         return size;
     }
 
+    @Override
+    public long estimatedBytes() {
+        // The keys, the values, the size and the default value, and the references to the lazy views
+        return MemoryFootprint.objectBytes(5L * 4L + Integer.BYTES + Double.BYTES)
+                + MemoryFootprint.arrayBytes(keys.length, Integer.BYTES)
+                + MemoryFootprint.arrayBytes(values.length, Double.BYTES);
+    }
+
     @Override
     public boolean containsKey(int key) {
         return keyIndex(key) >= 0;
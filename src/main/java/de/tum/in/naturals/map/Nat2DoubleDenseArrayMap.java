@@ -2,6 +2,7 @@
 
 package de.tum.in.naturals.map;
 
+import de.tum.in.naturals.MemoryFootprint;
 import it.unimi.dsi.fastutil.HashCommon;
 import it.unimi.dsi.fastutil.doubles.AbstractDoubleCollection;
 import it.unimi.dsi.fastutil.doubles.DoubleCollection;
@@ -31,7 +32,7 @@ import org.jspecify.annotations.Nullable;
  * this value cannot be mapped.</p>
  */
 @SuppressWarnings({"PMD.AssignmentInOperand", "AssignmentExpression"})
-public class Nat2DoubleDenseArrayMap extends AbstractInt2DoubleMap {
+public class Nat2DoubleDenseArrayMap extends AbstractInt2DoubleMap implements MemoryFootprint {
     private static final long serialVersionUID = 943823872741225228L;
 
     private double[] array;
@@ -122,6 +123,13 @@ public class Nat2DoubleDenseArrayMap extends AbstractInt2DoubleMap {
         return size;
     }
 
+    @Override
+    public long estimatedBytes() {
+        // The array, the size and the default value, and the references to the lazy views
+        return MemoryFootprint.objectBytes(4L * 4L + Integer.BYTES + Double.BYTES)
+                + MemoryFootprint.arrayBytes(array.length, Double.BYTES);
+    }
+
     @Override
     public boolean containsKey(int key) {
         return 0 <= key && key < array.length && !isAbsent(array[key]);
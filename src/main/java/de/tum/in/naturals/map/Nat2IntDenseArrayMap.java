@@ -2,6 +2,7 @@
 
 package de.tum.in.naturals.map;
 
+import de.tum.in.naturals.MemoryFootprint;
 import it.unimi.dsi.fastutil.HashCommon;
 import it.unimi.dsi.fastutil.ints.AbstractInt2IntMap;
 import it.unimi.dsi.fastutil.ints.AbstractIntCollection;
@@ -31,7 +32,7 @@ import org.jspecify.annotations.Nullable;
  * {@link Integer#MIN_VALUE}. Thus, this value cannot be inserted into this map.</p>
  */
 @SuppressWarnings("PMD.AssignmentInOperand")
-public class Nat2IntDenseArrayMap extends AbstractInt2IntMap {
+public class Nat2IntDenseArrayMap extends AbstractInt2IntMap implements MemoryFootprint {
     private static final long serialVersionUID = 5185461790033343414L;
     private static final int DEFAULT_INITIAL_SIZE = 1024;
 
@@ -126,6 +127,13 @@ public class Nat2IntDenseArrayMap extends AbstractInt2IntMap {
         return size;
     }
 
+    @Override
+    public long estimatedBytes() {
+        // The array, the size and the default value, and the references to the lazy views
+        return MemoryFootprint.objectBytes(4L * 4L + 2L * Integer.BYTES)
+                + MemoryFootprint.arrayBytes(array.length, Integer.BYTES);
+    }
+
     @Override
     public boolean containsKey(int key) {
         return 0 <= key && key < array.length && !isAbsent(array[key]);
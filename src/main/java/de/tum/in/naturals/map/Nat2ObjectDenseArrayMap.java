@@ -2,6 +2,7 @@
 
 package de.tum.in.naturals.map;
 
+import de.tum.in.naturals.MemoryFootprint;
 import it.unimi.dsi.fastutil.HashCommon;
 import it.unimi.dsi.fastutil.ints.AbstractInt2ObjectMap;
 import it.unimi.dsi.fastutil.ints.AbstractIntSet;
@@ -30,7 +31,7 @@ import org.jspecify.annotations.Nullable;
  * <p>This implementation does not allow {@code null} keys.</p>
  */
 @SuppressWarnings("PMD.AssignmentInOperand")
-public class Nat2ObjectDenseArrayMap<V> extends AbstractInt2ObjectMap<V> {
+public class Nat2ObjectDenseArrayMap<V> extends AbstractInt2ObjectMap<V> implements MemoryFootprint {
     public static final int DEFAULT_SIZE = 16;
     private static final long serialVersionUID = 630710213786009957L;
 
@@ -120,6 +121,13 @@ public class Nat2ObjectDenseArrayMap<V> extends AbstractInt2ObjectMap<V> {
         return size;
     }
 
+    /** Counts the array holding the values, but not the values themselves. */
+    @Override
+    public long estimatedBytes() {
+        // The array, the size and the default value, and the references to the lazy views
+        return MemoryFootprint.objectBytes(5L * 4L + Integer.BYTES) + MemoryFootprint.arrayBytes(array.length, 4);
+    }
+
     @Override
     public boolean containsKey(int key) {
         return 0 <= key && key < array.length && !isAbsent(array[key]);
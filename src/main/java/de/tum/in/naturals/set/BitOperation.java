@@ -0,0 +1,36 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+/** A binary operation on sets, applied word by word or run by run. */
+enum BitOperation {
+    AND,
+    AND_NOT,
+    OR,
+    XOR;
+
+    long apply(long one, long other) {
+        switch (this) {
+            case AND:
+                return one & other;
+            case AND_NOT:
+                return one & ~other;
+            case OR:
+                return one | other;
+            default:
+                return one ^ other;
+        }
+    }
+
+    /** The number of words the result can span, given the number of words of both operands. */
+    int resultWords(int one, int other) {
+        switch (this) {
+            case AND:
+                return Math.min(one, other);
+            case AND_NOT:
+                return one;
+            default:
+                return Math.max(one, other);
+        }
+    }
+}
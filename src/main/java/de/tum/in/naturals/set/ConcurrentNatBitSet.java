@@ -0,0 +1,438 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static de.tum.in.naturals.set.NatBitSetsUtil.checkNonNegative;
+import static de.tum.in.naturals.set.NatBitSetsUtil.checkOrdered;
+import static de.tum.in.naturals.set.NatBitSetsUtil.checkRange;
+
+import de.tum.in.naturals.BitUtil;
+import de.tum.in.naturals.MemoryFootprint;
+import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+import javax.annotation.Nonnegative;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A set which may be read and written by several threads at once without any external locking.
+ *
+ * <p>The words live in segments which double in size from one to the next, so the directory of segments has
+ * a fixed, small length and never needs to be copied: growth only ever installs a new segment, and does so
+ * with a single compare-and-set. Every single-element operation is atomic and linearizable; in particular
+ * {@link #testAndSet(int)} tells exactly one of several racing threads that it was the one to add an element.
+ * </p>
+ *
+ * <p>Operations spanning several words - ranges, bulk operations, {@link #size()}, iteration, equality - are
+ * atomic per word only. Like the views of {@link java.util.concurrent.ConcurrentHashMap} they are weakly
+ * consistent: they reflect every modification that completed before they started and may or may not reflect
+ * those running concurrently.</p>
+ */
+public final class ConcurrentNatBitSet extends AbstractNatBitSet {
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /** Words of the first segment, as a power of two. Segment {@code k} holds twice as many as segment {@code k - 1}. */
+    private static final int FIRST_SEGMENT_SHIFT = 6;
+
+    /** Words needed to hold every non-negative int. */
+    private static final int MAXIMAL_WORDS = (int) ((Integer.MAX_VALUE + 1L) >>> 6);
+
+    private static final int SEGMENTS = segmentOf(MAXIMAL_WORDS - 1) + 1;
+
+    private final AtomicReferenceArray<long[]> segments;
+
+    ConcurrentNatBitSet() {
+        this.segments = new AtomicReferenceArray<>(SEGMENTS);
+    }
+
+    private static int segmentOf(int word) {
+        return 31 - Integer.numberOfLeadingZeros((word >>> FIRST_SEGMENT_SHIFT) + 1);
+    }
+
+    private static int segmentStart(int segment) {
+        return ((1 << segment) - 1) << FIRST_SEGMENT_SHIFT;
+    }
+
+    private static int segmentLength(int segment) {
+        // Only the last segment is cut short, to what the int range still needs
+        return Math.min(1 << (segment + FIRST_SEGMENT_SHIFT), MAXIMAL_WORDS - segmentStart(segment));
+    }
+
+    private long @Nullable [] segment(int segment) {
+        return segments.get(segment);
+    }
+
+    private long[] segmentForWrite(int segment) {
+        long[] words = segments.get(segment);
+        if (words != null) {
+            return words;
+        }
+        long[] allocated = new long[segmentLength(segment)];
+        // Whoever loses the race adopts the winner's words, so no write can go to a segment nobody sees
+        return segments.compareAndSet(segment, null, allocated) ? allocated : segments.get(segment);
+    }
+
+    private long word(int word) {
+        int segment = segmentOf(word);
+        long[] words = segment(segment);
+        return words == null ? 0L : (long) WORDS.getVolatile(words, word - segmentStart(segment));
+    }
+
+    // Accessors
+
+    @Override
+    public boolean isEmpty() {
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            long[] words = segment(segment);
+            if (words == null) {
+                continue;
+            }
+            for (int i = 0; i < words.length; i++) {
+                if ((long) WORDS.getVolatile(words, i) != 0L) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the elements. This walks every allocated word - there deliberately is no shared counter, since
+     * every writer would have to contend on it.
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            long[] words = segment(segment);
+            if (words == null) {
+                continue;
+            }
+            for (int i = 0; i < words.length; i++) {
+                size += Long.bitCount((long) WORDS.getVolatile(words, i));
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean contains(int index) {
+        return index >= 0 && (word(index >>> 6) & (1L << index)) != 0L;
+    }
+
+    @Override
+    public int nextPresentIndex(int index) {
+        checkNonNegative(index);
+        int word = index >>> 6;
+        long current = word(word) & (-1L << index);
+        while (current == 0L) {
+            word += 1;
+            if (word == MAXIMAL_WORDS) {
+                return -1;
+            }
+            int segment = segmentOf(word);
+            if (segment(segment) == null) {
+                // Nothing was ever written here, skip the whole segment
+                word = segmentStart(segment) + segmentLength(segment) - 1;
+                continue;
+            }
+            current = word(word);
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(current);
+    }
+
+    @Override
+    public int nextAbsentIndex(int index) {
+        checkNonNegative(index);
+        int word = index >>> 6;
+        long current = ~word(word) & (-1L << index);
+        while (current == 0L) {
+            word += 1;
+            if (word == MAXIMAL_WORDS) {
+                // As with a full bitmap, saturate rather than answer past the int range
+                return Integer.MAX_VALUE;
+            }
+            current = ~word(word);
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(current);
+    }
+
+    @Override
+    public int previousPresentIndex(int index) {
+        checkNonNegative(index);
+        int word = index >>> 6;
+        long current = word(word) & (-1L >>> (63 - (index & 63)));
+        while (current == 0L) {
+            if (word == 0) {
+                return -1;
+            }
+            word -= 1;
+            int segment = segmentOf(word);
+            if (segment(segment) == null) {
+                word = segmentStart(segment);
+                continue;
+            }
+            current = word(word);
+        }
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(current);
+    }
+
+    @Override
+    public int previousAbsentIndex(int index) {
+        checkNonNegative(index);
+        int word = index >>> 6;
+        long current = ~word(word) & (-1L >>> (63 - (index & 63)));
+        while (current == 0L) {
+            if (word == 0) {
+                return -1;
+            }
+            word -= 1;
+            current = ~word(word);
+        }
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(current);
+    }
+
+    @Override
+    public IntIterator iterator() {
+        return new NatBitSetIterator(this);
+    }
+
+    @Override
+    public void forEach(IntConsumer consumer) {
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            long[] words = segment(segment);
+            if (words == null) {
+                continue;
+            }
+            int offset = segmentStart(segment) << 6;
+            for (int i = 0; i < words.length; i++) {
+                long word = (long) WORDS.getVolatile(words, i);
+                while (word != 0L) {
+                    consumer.accept(offset + (i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    // Mutators
+
+    /**
+     * Adds the given index and reports whether this call was the one which added it. Of several threads
+     * racing to add the same index, exactly one is answered {@code true}.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if {@code index} is negative.
+     */
+    public boolean testAndSet(@Nonnegative int index) {
+        checkNonNegative(index);
+        int word = index >>> 6;
+        int segment = segmentOf(word);
+        long mask = 1L << index;
+        long previous = (long) WORDS.getAndBitwiseOr(segmentForWrite(segment), word - segmentStart(segment), mask);
+        return (previous & mask) == 0L;
+    }
+
+    /**
+     * Removes the given index and reports whether this call was the one which removed it.
+     *
+     * @see #testAndSet(int)
+     */
+    public boolean testAndClear(int index) {
+        if (index < 0) {
+            return false;
+        }
+        int word = index >>> 6;
+        int segment = segmentOf(word);
+        long[] words = segment(segment);
+        if (words == null) {
+            return false;
+        }
+        long mask = 1L << index;
+        long previous = (long) WORDS.getAndBitwiseAnd(words, word - segmentStart(segment), ~mask);
+        return (previous & mask) != 0L;
+    }
+
+    @Override
+    public boolean add(int index) {
+        return testAndSet(index);
+    }
+
+    @Override
+    public boolean remove(int index) {
+        return testAndClear(index);
+    }
+
+    @Override
+    public void set(int index) {
+        testAndSet(index);
+    }
+
+    @Override
+    public void set(int index, boolean value) {
+        if (value) {
+            set(index);
+        } else {
+            clear(index);
+        }
+    }
+
+    @Override
+    public void set(int from, int to) {
+        checkRange(from, to);
+        if (from == to) {
+            return;
+        }
+        int fromWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        for (int word = fromWord; word <= lastWord; word++) {
+            int segment = segmentOf(word);
+            WORDS.getAndBitwiseOr(segmentForWrite(segment), word - segmentStart(segment), rangeMask(word, from, to));
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            long[] words = segment(segment);
+            if (words == null) {
+                continue;
+            }
+            // The segments stay in place - a writer may already hold one, and dropping it would lose its write
+            for (int i = 0; i < words.length; i++) {
+                WORDS.setVolatile(words, i, 0L);
+            }
+        }
+    }
+
+    @Override
+    public void clear(int index) {
+        testAndClear(index);
+    }
+
+    @Override
+    public void clear(int from, int to) {
+        checkOrdered(from, to);
+        int start = Math.max(0, from);
+        if (start >= to) {
+            return;
+        }
+        int fromWord = start >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        int word = fromWord;
+        while (word <= lastWord) {
+            int segment = segmentOf(word);
+            long[] words = segment(segment);
+            if (words == null) {
+                // Nothing to clear in a segment that was never written
+                word = segmentStart(segment) + segmentLength(segment);
+                continue;
+            }
+            WORDS.getAndBitwiseAnd(words, word - segmentStart(segment), ~rangeMask(word, start, to));
+            word += 1;
+        }
+    }
+
+    @Override
+    public void clearFrom(int from) {
+        if (from < Integer.MAX_VALUE) {
+            clear(Math.max(0, from), Integer.MAX_VALUE);
+        }
+        clear(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void flip(int index) {
+        checkNonNegative(index);
+        int word = index >>> 6;
+        int segment = segmentOf(word);
+        WORDS.getAndBitwiseXor(segmentForWrite(segment), word - segmentStart(segment), 1L << index);
+    }
+
+    @Override
+    public void flip(int from, int to) {
+        checkRange(from, to);
+        if (from == to) {
+            return;
+        }
+        int fromWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        for (int word = fromWord; word <= lastWord; word++) {
+            int segment = segmentOf(word);
+            WORDS.getAndBitwiseXor(segmentForWrite(segment), word - segmentStart(segment), rangeMask(word, from, to));
+        }
+    }
+
+    /** The bits of {@code [from, to)} which fall into the given word. */
+    private static long rangeMask(int word, int from, int to) {
+        int wordStart = word << 6;
+        int start = Math.max(from, wordStart) - wordStart;
+        int end = (int) Math.min((long) to - wordStart, Long.SIZE);
+        return BitUtil.mask(start, end);
+    }
+
+    // Bulk operations
+
+    @Override
+    public void or(IntCollection indices) {
+        if (indices.isEmpty()) {
+            return;
+        }
+        BitSet words = NatBitSetsUtil.words(indices);
+        if (words == null) {
+            super.or(indices);
+            return;
+        }
+        // One atomic update per word a run touches rather than one per element
+        int from = words.nextSetBit(0);
+        while (from >= 0) {
+            int to = words.nextClearBit(from);
+            set(from, to);
+            from = words.nextSetBit(to);
+        }
+    }
+
+    /** Counts the segments allocated so far, which only ever grow. */
+    @Override
+    public long estimatedBytes() {
+        // The set and the array of segments, an object holding an array of references
+        long bytes = MemoryFootprint.objectBytes(4L)
+                + MemoryFootprint.objectBytes(4L)
+                + MemoryFootprint.arrayBytes(SEGMENTS, 4);
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            long[] words = segment(segment);
+            if (words != null) {
+                bytes += MemoryFootprint.arrayBytes(words.length, Long.BYTES);
+            }
+        }
+        return bytes;
+    }
+
+    // Clone
+
+    /**
+     * Returns a copy of this set. Like iteration, the copy is weakly consistent if this set is modified
+     * concurrently.
+     */
+    @SuppressWarnings("MethodDoesntCallSuperMethod")
+    @Override
+    public ConcurrentNatBitSet clone() {
+        ConcurrentNatBitSet copy = new ConcurrentNatBitSet();
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            long[] words = segment(segment);
+            if (words == null) {
+                continue;
+            }
+            long[] copied = new long[words.length];
+            for (int i = 0; i < words.length; i++) {
+                copied[i] = (long) WORDS.getVolatile(words, i);
+            }
+            copy.segments.set(segment, copied);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,258 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import de.tum.in.naturals.MemoryFootprint;
+import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntIterators;
+import it.unimi.dsi.fastutil.ints.IntSpliterator;
+import java.util.Collection;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * The canonical, unmodifiable instance handed out by a {@link NatBitSetInterner}. Two instances of the same
+ * interner are equal exactly if they are the same object.
+ */
+final class FrozenNatBitSet extends AbstractNatBitSet {
+    private final HybridNatBitSet set;
+    private final NatBitSetInterner interner;
+    private final int contentHash;
+    // Lazy, and racy on purpose as in String: every thread computes the same value, zero means not yet
+    private int hashCode;
+
+    FrozenNatBitSet(HybridNatBitSet set, NatBitSetInterner interner, int contentHash) {
+        this.set = set;
+        this.interner = interner;
+        this.contentHash = contentHash;
+    }
+
+    HybridNatBitSet delegate() {
+        return set;
+    }
+
+    NatBitSetInterner interner() {
+        return interner;
+    }
+
+    int contentHash() {
+        return contentHash;
+    }
+
+    // Accessors
+
+    @Override
+    public boolean isEmpty() {
+        return set.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return set.size();
+    }
+
+    @Override
+    public boolean contains(int index) {
+        return set.contains(index);
+    }
+
+    @Override
+    public int rank(int index) {
+        return set.rank(index);
+    }
+
+    @Override
+    public int select(int rank) {
+        return set.select(rank);
+    }
+
+    @Override
+    public int containsBatch(int[] queries, int from, int to, boolean[] out) {
+        return set.containsBatch(queries, from, to, out);
+    }
+
+    @Override
+    public int containsBatch(int[] queries, int from, int to, long[] out) {
+        return set.containsBatch(queries, from, to, out);
+    }
+
+    @Override
+    public int firstInt() {
+        return set.firstInt();
+    }
+
+    @Override
+    public int lastInt() {
+        return set.lastInt();
+    }
+
+    @Override
+    public int nextPresentIndex(int index) {
+        return set.nextPresentIndex(index);
+    }
+
+    @Override
+    public int nextAbsentIndex(int index) {
+        return set.nextAbsentIndex(index);
+    }
+
+    @Override
+    public int previousPresentIndex(int index) {
+        return set.previousPresentIndex(index);
+    }
+
+    @Override
+    public int previousAbsentIndex(int index) {
+        return set.previousAbsentIndex(index);
+    }
+
+    @Override
+    public IntIterator iterator() {
+        return IntIterators.unmodifiable(set.iterator());
+    }
+
+    @Override
+    public void forEach(IntConsumer consumer) {
+        set.forEach(consumer);
+    }
+
+    @Override
+    public void forEachWord(LongWordConsumer consumer) {
+        set.forEachWord(consumer);
+    }
+
+    @Override
+    public void forEachRun(IntIntConsumer consumer) {
+        set.forEachRun(consumer);
+    }
+
+    @Override
+    public IntStream intStream() {
+        return set.intStream();
+    }
+
+    @Override
+    public IntSpliterator spliterator() {
+        return set.spliterator();
+    }
+
+    @Override
+    public boolean intersects(Collection<Integer> indices) {
+        return set.intersects(indices);
+    }
+
+    @Override
+    public boolean containsAll(IntCollection indices) {
+        return set.containsAll(indices);
+    }
+
+    @Override
+    public boolean isSubsetOf(Collection<Integer> indices) {
+        return set.isSubsetOf(indices);
+    }
+
+    // Mutators - unsupported
+
+    @Override
+    public void set(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void set(int index, boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void set(int from, int to) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear(int from, int to) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clearFrom(int from) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void flip(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void flip(int from, int to) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void and(IntCollection indices) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void andNot(IntCollection indices) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void or(IntCollection indices) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void xor(IntCollection indices) {
+        throw new UnsupportedOperationException();
+    }
+
+    /** Counts the frozen content, which belongs to this set alone, but not the interner it was made by. */
+    @Override
+    public long estimatedBytes() {
+        // The set, the interner and the two hashes
+        return MemoryFootprint.objectBytes(2L * 4L + 2L * Integer.BYTES) + set.estimatedBytes();
+    }
+
+    // Clone and equality
+
+    @SuppressWarnings("MethodDoesntCallSuperMethod")
+    @Override
+    public FrozenNatBitSet clone() {
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        // Canonical: an equal set of the same interner would have been this very instance
+        if (o instanceof FrozenNatBitSet && ((FrozenNatBitSet) o).interner == interner) {
+            return false;
+        }
+        return set.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = this.hashCode;
+        if (hashCode == 0) {
+            hashCode = set.hashCode();
+            this.hashCode = hashCode;
+        }
+        return hashCode;
+    }
+}
@@ -0,0 +1,1287 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static de.tum.in.naturals.set.NatBitSetsUtil.SPLITERATOR_CHARACTERISTICS;
+import static de.tum.in.naturals.set.NatBitSetsUtil.checkNonNegative;
+import static de.tum.in.naturals.set.NatBitSetsUtil.checkOrdered;
+import static de.tum.in.naturals.set.NatBitSetsUtil.checkRange;
+
+import it.unimi.dsi.fastutil.longs.AbstractLongSet;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongIterators;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSpliterator;
+import it.unimi.dsi.fastutil.longs.LongSpliterators;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+import org.jspecify.annotations.Nullable;
+import org.roaringbitmap.longlong.PeekableLongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+/**
+ * The {@link LongNatBitSet} counterpart of {@link HybridNatBitSet}: a sorted {@code long[]} for small sets,
+ * words for dense ones and a {@link Roaring64Bitmap} for sparse ones.
+ *
+ * <p>A flat word array cannot span the long range, so the words are chunked: chunks of
+ * {@link #CHUNK_WORDS} words are only allocated once something is set in them, and an empty stretch costs a
+ * single pointer per chunk.</p>
+ */
+class HybridLongNatBitSet extends AbstractLongSet implements LongNatBitSet {
+    static final int MAXIMAL_ARRAY_SIZE = HybridNatBitSet.MAXIMAL_ARRAY_SIZE;
+
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_WORDS = 1 << (CHUNK_SHIFT - 6);
+    private static final int WORD_MASK = CHUNK_WORDS - 1;
+    // Keeps the chunk table below 128 MiB; beyond that words never win anyway
+    private static final int MAXIMAL_CHUNKS = 1 << 24;
+    // A chunk is an array: its words plus the header
+    private static final long CHUNK_BYTES = 16L + 8L * CHUNK_WORDS;
+
+    private static final int MEMORY_SLACK = 4;
+    private static final int ROARING_FLOOR = 150;
+    // The 64-bit bitmap keys its containers through a radix tree, which costs more than an int array
+    private static final int ROARING_CONTAINER = 56;
+
+    private static final long SIZE_UNKNOWN = -1L;
+    private static final long[] EMPTY_ARRAY = {};
+
+    private enum Mode {
+        ARRAY,
+        WORDS,
+        ROARING
+    }
+
+    // Sorted long[], chunked words long[][], or Roaring64Bitmap
+    private Object store;
+    // Always exact for arrays and words, lazy (== SIZE_UNKNOWN) for bitmaps
+    private long size;
+
+    HybridLongNatBitSet() {
+        this.store = EMPTY_ARRAY;
+        this.size = 0L;
+    }
+
+    HybridLongNatBitSet(Roaring64Bitmap bitmap) {
+        this.store = bitmap;
+        this.size = SIZE_UNKNOWN;
+    }
+
+    HybridLongNatBitSet(long[][] chunks) {
+        long size = 0L;
+        for (long[] words : chunks) {
+            if (words != null) {
+                for (long word : words) {
+                    size += Long.bitCount(word);
+                }
+            }
+        }
+        this.store = chunks;
+        this.size = size;
+    }
+
+    static long wordsBytes(long cardinality, long last) {
+        long chunks = (last >>> CHUNK_SHIFT) + 1L;
+        return 8L * chunks + CHUNK_BYTES * Math.min(cardinality, chunks);
+    }
+
+    static long roaringBytes(long cardinality, long last, long runs) {
+        long containers = Math.min(cardinality, (last >>> 16) + 1L);
+        return ROARING_FLOOR + ROARING_CONTAINER * containers + Math.min(2L * cardinality, 4L * runs);
+    }
+
+    private static long runBound(long cardinality, long last) {
+        // As for the int sets, anything present has at least one run
+        return Math.max(1L, last + 2L - cardinality);
+    }
+
+    private static long saturatedSum(long one, long other) {
+        return Long.MAX_VALUE - one < other ? Long.MAX_VALUE : one + other;
+    }
+
+    private static boolean wordsCanHold(long last) {
+        return (last >>> CHUNK_SHIFT) < MAXIMAL_CHUNKS;
+    }
+
+    private static Mode idealMode(long cardinality, long last) {
+        return idealMode(cardinality, last, runBound(cardinality, last));
+    }
+
+    private static Mode idealMode(long cardinality, long last, long runs) {
+        if (cardinality <= MAXIMAL_ARRAY_SIZE) {
+            return Mode.ARRAY;
+        }
+        if (!wordsCanHold(last)) {
+            return Mode.ROARING;
+        }
+        // As for the int sets: words may cost a few times the memory of the bitmap and still be worth it
+        return wordsBytes(cardinality, last) <= MEMORY_SLACK * roaringBytes(cardinality, last, runs)
+                ? Mode.WORDS
+                : Mode.ROARING;
+    }
+
+    private static long chunkStart(int chunk) {
+        return (long) chunk << CHUNK_SHIFT;
+    }
+
+    private static long position(int chunk, int word, int bit) {
+        return chunkStart(chunk) + ((long) word << 6) + bit;
+    }
+
+    // Accessors
+
+    private Mode mode() {
+        Object store = this.store;
+        if (store instanceof long[]) {
+            return Mode.ARRAY;
+        }
+        return store instanceof long[][] ? Mode.WORDS : Mode.ROARING;
+    }
+
+    boolean isArrayBacked() {
+        return store instanceof long[];
+    }
+
+    boolean isWordBacked() {
+        return store instanceof long[][];
+    }
+
+    boolean isBitmapBacked() {
+        return store instanceof Roaring64Bitmap;
+    }
+
+    @Override
+    public long longSize() {
+        long size = this.size;
+        if (size == SIZE_UNKNOWN) {
+            size = ((Roaring64Bitmap) store).getLongCardinality();
+            this.size = size;
+        }
+        return size;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(longSize(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        Object store = this.store;
+        if (store instanceof Roaring64Bitmap) {
+            return ((Roaring64Bitmap) store).isEmpty();
+        }
+        return size == 0L;
+    }
+
+    @Override
+    public boolean contains(long index) {
+        if (index < 0L) {
+            return false;
+        }
+        Object store = this.store;
+        if (store instanceof long[]) {
+            return Arrays.binarySearch((long[]) store, 0, (int) size, index) >= 0;
+        }
+        if (store instanceof long[][]) {
+            long[][] chunks = (long[][]) store;
+            long chunk = index >>> CHUNK_SHIFT;
+            if (chunk >= chunks.length) {
+                return false;
+            }
+            long[] words = chunks[(int) chunk];
+            return words != null && (words[(int) (index >>> 6) & WORD_MASK] & (1L << index)) != 0L;
+        }
+        return ((Roaring64Bitmap) store).contains(index);
+    }
+
+    @Override
+    public long firstLong() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        Object store = this.store;
+        if (store instanceof long[]) {
+            return ((long[]) store)[0];
+        }
+        if (store instanceof long[][]) {
+            return nextPresentIndex(0L);
+        }
+        return ((Roaring64Bitmap) store).first();
+    }
+
+    @Override
+    public long lastLong() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        Object store = this.store;
+        if (store instanceof long[]) {
+            return ((long[]) store)[(int) size - 1];
+        }
+        if (store instanceof long[][]) {
+            return previousPresentIndex(Long.MAX_VALUE);
+        }
+        return ((Roaring64Bitmap) store).last();
+    }
+
+    @Override
+    public long nextPresentIndex(long index) {
+        checkNonNegative(index);
+        Object store = this.store;
+        if (store instanceof long[]) {
+            long[] array = (long[]) store;
+            int position = Arrays.binarySearch(array, 0, (int) size, index);
+            if (position >= 0) {
+                return index;
+            }
+            int insertion = -(position + 1);
+            return insertion < size ? array[insertion] : -1L;
+        }
+        if (store instanceof long[][]) {
+            long[][] chunks = (long[][]) store;
+            if ((index >>> CHUNK_SHIFT) >= chunks.length) {
+                return -1L;
+            }
+            int word = (int) (index >>> 6) & WORD_MASK;
+            long mask = -1L << index;
+            for (int chunk = (int) (index >>> CHUNK_SHIFT); chunk < chunks.length; chunk++) {
+                long[] words = chunks[chunk];
+                if (words != null) {
+                    for (; word < CHUNK_WORDS; word++) {
+                        long current = words[word] & mask;
+                        if (current != 0L) {
+                            return position(chunk, word, Long.numberOfTrailingZeros(current));
+                        }
+                        mask = -1L;
+                    }
+                }
+                word = 0;
+                mask = -1L;
+            }
+            return -1L;
+        }
+        PeekableLongIterator iterator = ((Roaring64Bitmap) store).getLongIteratorFrom(index);
+        return iterator.hasNext() ? iterator.next() : -1L;
+    }
+
+    @Override
+    public long nextAbsentIndex(long index) {
+        checkNonNegative(index);
+        Object store = this.store;
+        if (store instanceof long[]) {
+            long[] array = (long[]) store;
+            int position = Arrays.binarySearch(array, 0, (int) size, index);
+            if (position < 0) {
+                return index;
+            }
+            long candidate = index;
+            while (position < size && array[position] == candidate) {
+                if (candidate == Long.MAX_VALUE) {
+                    return candidate;
+                }
+                candidate += 1L;
+                position += 1;
+            }
+            return candidate;
+        }
+        if (store instanceof long[][]) {
+            long[][] chunks = (long[][]) store;
+            if ((index >>> CHUNK_SHIFT) >= chunks.length) {
+                return index;
+            }
+            int word = (int) (index >>> 6) & WORD_MASK;
+            long mask = -1L << index;
+            for (int chunk = (int) (index >>> CHUNK_SHIFT); chunk < chunks.length; chunk++) {
+                long[] words = chunks[chunk];
+                if (words == null) {
+                    return Math.max(index, chunkStart(chunk));
+                }
+                for (; word < CHUNK_WORDS; word++) {
+                    long current = ~words[word] & mask;
+                    if (current != 0L) {
+                        return position(chunk, word, Long.numberOfTrailingZeros(current));
+                    }
+                    mask = -1L;
+                }
+                word = 0;
+                mask = -1L;
+            }
+            return chunkStart(chunks.length);
+        }
+        Roaring64Bitmap bitmap = (Roaring64Bitmap) store;
+        if (!bitmap.contains(index)) {
+            return index;
+        }
+        // [index, end] is present iff the rank grows by one per index. Gallop for an end which is not, then
+        // bisect: a run costs logarithmically many rank queries instead of a visit per element.
+        long base = rankBelow(bitmap, index);
+        long present = index;
+        long absent = -1L;
+        for (long step = 1L; absent < 0L; step <<= 1) {
+            long candidate = Long.MAX_VALUE - present < step ? Long.MAX_VALUE : present + step;
+            if (bitmap.rankLong(candidate) - base == candidate - index + 1L) {
+                if (candidate == Long.MAX_VALUE) {
+                    return Long.MAX_VALUE;
+                }
+                present = candidate;
+            } else {
+                absent = candidate;
+            }
+        }
+        while (absent - present > 1L) {
+            long middle = present + (absent - present) / 2L;
+            if (bitmap.rankLong(middle) - base == middle - index + 1L) {
+                present = middle;
+            } else {
+                absent = middle;
+            }
+        }
+        return present + 1L;
+    }
+
+    @Override
+    public long previousPresentIndex(long index) {
+        checkNonNegative(index);
+        Object store = this.store;
+        if (store instanceof long[]) {
+            long[] array = (long[]) store;
+            int position = Arrays.binarySearch(array, 0, (int) size, index);
+            if (position >= 0) {
+                return index;
+            }
+            int insertion = -(position + 1);
+            return insertion == 0 ? -1L : array[insertion - 1];
+        }
+        if (store instanceof long[][]) {
+            long[][] chunks = (long[][]) store;
+            int chunk;
+            int word;
+            long mask;
+            if ((index >>> CHUNK_SHIFT) >= chunks.length) {
+                chunk = chunks.length - 1;
+                word = WORD_MASK;
+                mask = -1L;
+            } else {
+                chunk = (int) (index >>> CHUNK_SHIFT);
+                word = (int) (index >>> 6) & WORD_MASK;
+                mask = -1L >>> (63 - (index & 63));
+            }
+            for (; chunk >= 0; chunk--) {
+                long[] words = chunks[chunk];
+                if (words != null) {
+                    for (; word >= 0; word--) {
+                        long current = words[word] & mask;
+                        if (current != 0L) {
+                            return position(chunk, word, 63 - Long.numberOfLeadingZeros(current));
+                        }
+                        mask = -1L;
+                    }
+                }
+                word = WORD_MASK;
+                mask = -1L;
+            }
+            return -1L;
+        }
+        PeekableLongIterator iterator = ((Roaring64Bitmap) store).getReverseLongIteratorFrom(index);
+        return iterator.hasNext() ? iterator.next() : -1L;
+    }
+
+    @Override
+    public long previousAbsentIndex(long index) {
+        checkNonNegative(index);
+        Object store = this.store;
+        if (store instanceof long[]) {
+            long[] array = (long[]) store;
+            int position = Arrays.binarySearch(array, 0, (int) size, index);
+            if (position < 0) {
+                return index;
+            }
+            long candidate = index;
+            while (position >= 0 && array[position] == candidate) {
+                candidate -= 1L;
+                position -= 1;
+            }
+            return candidate;
+        }
+        if (store instanceof long[][]) {
+            long[][] chunks = (long[][]) store;
+            if ((index >>> CHUNK_SHIFT) >= chunks.length) {
+                return index;
+            }
+            int word = (int) (index >>> 6) & WORD_MASK;
+            long mask = -1L >>> (63 - (index & 63));
+            for (int chunk = (int) (index >>> CHUNK_SHIFT); chunk >= 0; chunk--) {
+                long[] words = chunks[chunk];
+                if (words == null) {
+                    return Math.min(index, chunkStart(chunk + 1) - 1L);
+                }
+                for (; word >= 0; word--) {
+                    long current = ~words[word] & mask;
+                    if (current != 0L) {
+                        return position(chunk, word, 63 - Long.numberOfLeadingZeros(current));
+                    }
+                    mask = -1L;
+                }
+                word = WORD_MASK;
+                mask = -1L;
+            }
+            return -1L;
+        }
+        Roaring64Bitmap bitmap = (Roaring64Bitmap) store;
+        if (!bitmap.contains(index)) {
+            return index;
+        }
+        // The mirror image of nextAbsentIndex: [start, index] is present iff the rank drops by one per index
+        long base = bitmap.rankLong(index);
+        long present = index;
+        long absent = Long.MIN_VALUE;
+        for (long step = 1L; absent == Long.MIN_VALUE; step <<= 1) {
+            long candidate = present < step ? 0L : present - step;
+            if (base - rankBelow(bitmap, candidate) == index - candidate + 1L) {
+                if (candidate == 0L) {
+                    return -1L;
+                }
+                present = candidate;
+            } else {
+                absent = candidate;
+            }
+        }
+        while (present - absent > 1L) {
+            long middle = absent + (present - absent) / 2L;
+            if (base - rankBelow(bitmap, middle) == index - middle + 1L) {
+                present = middle;
+            } else {
+                absent = middle;
+            }
+        }
+        return present - 1L;
+    }
+
+    private static long rankBelow(Roaring64Bitmap bitmap, long index) {
+        return index == 0L ? 0L : bitmap.rankLong(index - 1L);
+    }
+
+    @Override
+    public LongIterator iterator() {
+        Object store = this.store;
+        if (store instanceof long[]) {
+            return new ArrayIterator(this);
+        }
+        if (store instanceof long[][]) {
+            return new NavigatingIterator(this);
+        }
+        return new BitmapIterator(this, (Roaring64Bitmap) store);
+    }
+
+    @Override
+    public LongIterator reverseIterator() {
+        if (isEmpty()) {
+            return LongIterators.EMPTY_ITERATOR;
+        }
+        Object store = this.store;
+        if (store instanceof Roaring64Bitmap) {
+            PeekableLongIterator iterator = ((Roaring64Bitmap) store).getReverseLongIterator();
+            return new LongIterator() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public long nextLong() {
+                    if (!iterator.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return iterator.next();
+                }
+            };
+        }
+        return new LongIterator() {
+            private long next = lastLong();
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0L;
+            }
+
+            @Override
+            public long nextLong() {
+                if (next < 0L) {
+                    throw new NoSuchElementException();
+                }
+                long current = next;
+                next = current == 0L ? -1L : previousPresentIndex(current - 1L);
+                return current;
+            }
+        };
+    }
+
+    @Override
+    public LongSpliterator spliterator() {
+        return LongSpliterators.asSpliterator(iterator(), longSize(), SPLITERATOR_CHARACTERISTICS);
+    }
+
+    @Override
+    public void forEach(LongConsumer action) {
+        Object store = this.store;
+        if (store instanceof long[]) {
+            long[] array = (long[]) store;
+            for (int i = 0; i < size; i++) {
+                action.accept(array[i]);
+            }
+        } else if (store instanceof long[][]) {
+            long[][] chunks = (long[][]) store;
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                long[] words = chunks[chunk];
+                if (words == null) {
+                    continue;
+                }
+                for (int word = 0; word < CHUNK_WORDS; word++) {
+                    long current = words[word];
+                    while (current != 0L) {
+                        action.accept(position(chunk, word, Long.numberOfTrailingZeros(current)));
+                        current &= current - 1L;
+                    }
+                }
+            }
+        } else {
+            ((Roaring64Bitmap) store).forEach(action::accept);
+        }
+    }
+
+    @Override
+    public boolean optimize() {
+        if (isEmpty()) {
+            boolean exact = store instanceof long[] && ((long[]) store).length == 0;
+            this.store = EMPTY_ARRAY;
+            this.size = 0L;
+            return !exact;
+        }
+        Object store = this.store;
+        boolean changed = store instanceof Roaring64Bitmap && ((Roaring64Bitmap) store).runOptimize();
+        if (store instanceof long[][]) {
+            changed = compactChunks();
+        }
+
+        long cardinality = longSize();
+        long last = lastLong();
+        Mode mode;
+        if (cardinality <= MAXIMAL_ARRAY_SIZE) {
+            mode = Mode.ARRAY;
+        } else if (!wordsCanHold(last)) {
+            mode = Mode.ROARING;
+        } else {
+            // Measure what is there, estimate the rest
+            long wordsCost = store instanceof long[][] ? chunkBytes() : wordsBytes(cardinality, last);
+            long roaringCost = store instanceof Roaring64Bitmap
+                    ? ((Roaring64Bitmap) store).getLongSizeInBytes()
+                    : roaringBytes(cardinality, last, runBound(cardinality, last));
+            mode = wordsCost <= MEMORY_SLACK * roaringCost ? Mode.WORDS : Mode.ROARING;
+        }
+        if (mode == mode()) {
+            if (store instanceof long[] && ((long[]) store).length > cardinality) {
+                this.store = Arrays.copyOf((long[]) store, (int) cardinality);
+                return true;
+            }
+            return changed;
+        }
+        convert(mode, cardinality, last);
+        if (mode == Mode.ROARING) {
+            ((Roaring64Bitmap) this.store).runOptimize();
+        }
+        return true;
+    }
+
+    /** Drops empty chunks and trailing chunk slots, returning whether anything was reclaimed. */
+    @SuppressWarnings("NullAway") // Absent chunks are null, which the table's type does not spell out
+    private boolean compactChunks() {
+        long[][] chunks = (long[][]) store;
+        boolean changed = false;
+        int used = 0;
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            long[] words = chunks[chunk];
+            if (words == null) {
+                continue;
+            }
+            boolean empty = true;
+            for (long word : words) {
+                if (word != 0L) {
+                    empty = false;
+                    break;
+                }
+            }
+            if (empty) {
+                chunks[chunk] = null;
+                changed = true;
+            } else {
+                used = chunk + 1;
+            }
+        }
+        if (used < chunks.length) {
+            this.store = Arrays.copyOf(chunks, used);
+            changed = true;
+        }
+        return changed;
+    }
+
+    private long chunkBytes() {
+        long[][] chunks = (long[][]) store;
+        long bytes = 8L * chunks.length;
+        for (long[] words : chunks) {
+            if (words != null) {
+                bytes += CHUNK_BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    // Conversions
+
+    private void convert(Mode mode, long cardinality, long last) {
+        Object replacement;
+        if (mode == Mode.ARRAY) {
+            long[] array = new long[Math.toIntExact(Math.max(cardinality, Math.min(4L, MAXIMAL_ARRAY_SIZE)))];
+            LongIterator iterator = iterator();
+            for (int i = 0; i < cardinality; i++) {
+                array[i] = iterator.nextLong();
+            }
+            replacement = array;
+        } else if (mode == Mode.WORDS) {
+            long[][] chunks = new long[(int) (last >>> CHUNK_SHIFT) + 1][];
+            forEach((long index) -> setInChunks(chunks, index));
+            replacement = chunks;
+        } else {
+            Roaring64Bitmap bitmap = new Roaring64Bitmap();
+            forEach(bitmap::addLong);
+            replacement = bitmap;
+        }
+        this.store = replacement;
+        this.size = cardinality;
+    }
+
+    private static boolean setInChunks(long[][] chunks, long index) {
+        int chunk = (int) (index >>> CHUNK_SHIFT);
+        long[] words = chunks[chunk];
+        if (words == null) {
+            words = new long[CHUNK_WORDS];
+            chunks[chunk] = words;
+        }
+        int word = (int) (index >>> 6) & WORD_MASK;
+        long before = words[word];
+        words[word] = before | (1L << index);
+        return (before & (1L << index)) == 0L;
+    }
+
+    /**
+     * Makes sure the chunk table reaches {@code last}, switching to a bitmap instead if the words would
+     * grow too sparse. Returns whether the set still is word backed.
+     */
+    private boolean ensureChunksFor(long cardinality, long last) {
+        long[][] chunks = (long[][]) store;
+        if ((last >>> CHUNK_SHIFT) < chunks.length) {
+            return true;
+        }
+        if (idealMode(cardinality, last) == Mode.ROARING) {
+            convert(Mode.ROARING, size, isEmpty() ? 0L : lastLong());
+            return false;
+        }
+        int needed = (int) (last >>> CHUNK_SHIFT) + 1;
+        this.store = Arrays.copyOf(chunks, Math.max(needed, Math.min(2 * chunks.length, MAXIMAL_CHUNKS)));
+        return true;
+    }
+
+    // Mutators
+
+    @Override
+    public boolean add(long index) {
+        if (contains(index)) {
+            return false;
+        }
+        set(index);
+        return true;
+    }
+
+    @Override
+    public boolean remove(long index) {
+        if (!contains(index)) {
+            return false;
+        }
+        clear(index);
+        return true;
+    }
+
+    @Override
+    public void set(long index) {
+        checkNonNegative(index);
+        Object store = this.store;
+        if (store instanceof long[]) {
+            long[] array = (long[]) store;
+            int size = (int) this.size;
+            int position = Arrays.binarySearch(array, 0, size, index);
+            if (position >= 0) {
+                return;
+            }
+            if (size < MAXIMAL_ARRAY_SIZE) {
+                int insertion = -(position + 1);
+                if (size == array.length) {
+                    array = Arrays.copyOf(array, Math.min(Math.max(4, 2 * size), MAXIMAL_ARRAY_SIZE));
+                    this.store = array;
+                }
+                System.arraycopy(array, insertion, array, insertion + 1, size - insertion);
+                array[insertion] = index;
+                this.size = size + 1L;
+                return;
+            }
+            long last = Math.max(array[size - 1], index);
+            convert(idealMode(size + 1L, last), size, array[size - 1]);
+            set(index);
+            return;
+        }
+        if (store instanceof long[][]) {
+            if (ensureChunksFor(size + 1L, index)) {
+                if (setInChunks((long[][]) this.store, index)) {
+                    size += 1L;
+                }
+                return;
+            }
+            store = this.store;
+        }
+        Roaring64Bitmap bitmap = (Roaring64Bitmap) store;
+        if (size != SIZE_UNKNOWN && !bitmap.contains(index)) {
+            size += 1L;
+        }
+        bitmap.addLong(index);
+    }
+
+    @Override
+    public void set(long from, long to) {
+        checkRange(from, to);
+        if (from == to) {
+            return;
+        }
+        long span = to - from;
+        long last = isEmpty() ? to - 1L : Math.max(lastLong(), to - 1L);
+        // Over-estimates the cardinality by the overlap, which only matters for tiny sets
+        long cardinality = saturatedSum(longSize(), span);
+        if (store instanceof long[]) {
+            if (span <= MAXIMAL_ARRAY_SIZE - size) {
+                for (long index = from; index < to; index++) {
+                    set(index);
+                }
+                return;
+            }
+            // Each element of the array and the range itself make a run at most
+            convert(idealMode(cardinality, last, size + 1L), size, isEmpty() ? 0L : lastLong());
+        }
+        if (store instanceof long[][] && ensureChunksFor(cardinality, last)) {
+            setRangeInChunks(from, to);
+            return;
+        }
+        ((Roaring64Bitmap) store).addRange(from, to);
+        size = SIZE_UNKNOWN;
+    }
+
+    private void setRangeInChunks(long from, long to) {
+        long[][] chunks = (long[][]) store;
+        long index = from;
+        while (index < to) {
+            int chunk = (int) (index >>> CHUNK_SHIFT);
+            long[] words = chunks[chunk];
+            if (words == null) {
+                words = new long[CHUNK_WORDS];
+                chunks[chunk] = words;
+            }
+            int word = (int) (index >>> 6) & WORD_MASK;
+            long wordEnd = (index | 63L) + 1L;
+            long mask = -1L << index;
+            if (to < wordEnd) {
+                mask &= -1L >>> -to;
+            }
+            long before = words[word];
+            words[word] = before | mask;
+            size += Long.bitCount(words[word]) - Long.bitCount(before);
+            index = wordEnd;
+        }
+    }
+
+    @Override
+    public void clear() {
+        this.store = EMPTY_ARRAY;
+        this.size = 0L;
+    }
+
+    @Override
+    public void clear(long index) {
+        if (index < 0L) {
+            return;
+        }
+        Object store = this.store;
+        if (store instanceof long[]) {
+            long[] array = (long[]) store;
+            int size = (int) this.size;
+            int position = Arrays.binarySearch(array, 0, size, index);
+            if (position >= 0) {
+                System.arraycopy(array, position + 1, array, position, size - position - 1);
+                this.size = size - 1L;
+            }
+        } else if (store instanceof long[][]) {
+            long[][] chunks = (long[][]) store;
+            long chunk = index >>> CHUNK_SHIFT;
+            if (chunk < chunks.length && chunks[(int) chunk] != null) {
+                long[] words = chunks[(int) chunk];
+                int word = (int) (index >>> 6) & WORD_MASK;
+                if ((words[word] & (1L << index)) != 0L) {
+                    words[word] &= ~(1L << index);
+                    size -= 1L;
+                }
+            }
+        } else {
+            Roaring64Bitmap bitmap = (Roaring64Bitmap) store;
+            if (size != SIZE_UNKNOWN && bitmap.contains(index)) {
+                size -= 1L;
+            }
+            bitmap.removeLong(index);
+        }
+    }
+
+    @Override
+    public void clear(long from, long to) {
+        checkOrdered(from, to);
+        long start = Math.max(0L, from);
+        if (start >= to || isEmpty()) {
+            return;
+        }
+        Object store = this.store;
+        if (store instanceof long[]) {
+            long[] array = (long[]) store;
+            int size = (int) this.size;
+            int first = Arrays.binarySearch(array, 0, size, start);
+            int firstRemoved = first < 0 ? -(first + 1) : first;
+            int end = Arrays.binarySearch(array, firstRemoved, size, to);
+            int firstKept = end < 0 ? -(end + 1) : end;
+            System.arraycopy(array, firstKept, array, firstRemoved, size - firstKept);
+            this.size = (long) size - (firstKept - firstRemoved);
+        } else if (store instanceof long[][]) {
+            long[][] chunks = (long[][]) store;
+            long index = start;
+            long end = Math.min(to, chunkStart(chunks.length));
+            while (index < end) {
+                int chunk = (int) (index >>> CHUNK_SHIFT);
+                long[] words = chunks[chunk];
+                if (words == null) {
+                    index = chunkStart(chunk + 1);
+                    continue;
+                }
+                int word = (int) (index >>> 6) & WORD_MASK;
+                long wordEnd = (index | 63L) + 1L;
+                long mask = -1L << index;
+                if (end < wordEnd) {
+                    mask &= -1L >>> -end;
+                }
+                size -= Long.bitCount(words[word] & mask);
+                words[word] &= ~mask;
+                index = wordEnd;
+            }
+        } else {
+            // A range of the bitmap may hold far fewer elements than indices, so remove what is there
+            Roaring64Bitmap bitmap = (Roaring64Bitmap) store;
+            LongArrayList present = new LongArrayList();
+            PeekableLongIterator iterator = bitmap.getLongIteratorFrom(start);
+            while (iterator.hasNext()) {
+                long next = iterator.next();
+                if (next >= to) {
+                    break;
+                }
+                present.add(next);
+            }
+            present.forEach(bitmap::removeLong);
+            if (size != SIZE_UNKNOWN) {
+                size -= present.size();
+            }
+        }
+    }
+
+    // Bulk operations
+
+    private static @Nullable HybridLongNatBitSet hybrid(LongCollection indices) {
+        return indices instanceof HybridLongNatBitSet ? (HybridLongNatBitSet) indices : null;
+    }
+
+    @Override
+    public void and(LongCollection indices) {
+        if (isEmpty()) {
+            return;
+        }
+        if (indices.isEmpty()) {
+            clear();
+            return;
+        }
+        HybridLongNatBitSet other = hybrid(indices);
+        if (other != null) {
+            Object otherStore = other.store;
+            if (store instanceof long[][] && otherStore instanceof long[][]) {
+                long[][] chunks = (long[][]) store;
+                long[][] otherChunks = (long[][]) otherStore;
+                long size = 0L;
+                for (int chunk = 0; chunk < chunks.length; chunk++) {
+                    long[] words = chunks[chunk];
+                    if (words == null) {
+                        continue;
+                    }
+                    long[] otherWords = chunk < otherChunks.length ? otherChunks[chunk] : null;
+                    if (otherWords == null) {
+                        // optimize() releases the chunk
+                        Arrays.fill(words, 0L);
+                        continue;
+                    }
+                    for (int word = 0; word < CHUNK_WORDS; word++) {
+                        words[word] &= otherWords[word];
+                        size += Long.bitCount(words[word]);
+                    }
+                }
+                this.size = size;
+                return;
+            }
+            if (store instanceof Roaring64Bitmap && otherStore instanceof Roaring64Bitmap) {
+                ((Roaring64Bitmap) store).and((Roaring64Bitmap) otherStore);
+                size = SIZE_UNKNOWN;
+                return;
+            }
+        }
+        if (indices.size() < size()) {
+            // Rebuild from the smaller side
+            HybridLongNatBitSet result = new HybridLongNatBitSet();
+            indices.forEach((long index) -> {
+                if (contains(index)) {
+                    result.set(index);
+                }
+            });
+            this.store = result.store;
+            this.size = result.size;
+            return;
+        }
+        LongSet reference = indices instanceof LongSet ? (LongSet) indices : new LongOpenHashSet(indices);
+        LongIterator iterator = iterator();
+        while (iterator.hasNext()) {
+            if (!reference.contains(iterator.nextLong())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public void andNot(LongCollection indices) {
+        if (isEmpty() || indices.isEmpty()) {
+            return;
+        }
+        HybridLongNatBitSet other = hybrid(indices);
+        if (other != null) {
+            Object otherStore = other.store;
+            if (store instanceof long[][] && otherStore instanceof long[][]) {
+                long[][] chunks = (long[][]) store;
+                long[][] otherChunks = (long[][]) otherStore;
+                for (int chunk = 0; chunk < Math.min(chunks.length, otherChunks.length); chunk++) {
+                    long[] words = chunks[chunk];
+                    long[] otherWords = otherChunks[chunk];
+                    if (words == null || otherWords == null) {
+                        continue;
+                    }
+                    for (int word = 0; word < CHUNK_WORDS; word++) {
+                        size -= Long.bitCount(words[word] & otherWords[word]);
+                        words[word] &= ~otherWords[word];
+                    }
+                }
+                return;
+            }
+            if (store instanceof Roaring64Bitmap && otherStore instanceof Roaring64Bitmap) {
+                ((Roaring64Bitmap) store).andNot((Roaring64Bitmap) otherStore);
+                size = SIZE_UNKNOWN;
+                return;
+            }
+        }
+        if (indices.size() <= size()) {
+            indices.forEach((LongConsumer) this::clear);
+            return;
+        }
+        LongSet reference = indices instanceof LongSet ? (LongSet) indices : new LongOpenHashSet(indices);
+        LongIterator iterator = iterator();
+        while (iterator.hasNext()) {
+            if (reference.contains(iterator.nextLong())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public void or(LongCollection indices) {
+        if (indices.isEmpty()) {
+            return;
+        }
+        HybridLongNatBitSet other = hybrid(indices);
+        if (other != null) {
+            Object otherStore = other.store;
+            if (otherStore instanceof Roaring64Bitmap) {
+                if (!(store instanceof Roaring64Bitmap)) {
+                    convert(Mode.ROARING, longSize(), isEmpty() ? 0L : lastLong());
+                }
+                ((Roaring64Bitmap) store).or((Roaring64Bitmap) otherStore);
+                size = SIZE_UNKNOWN;
+                return;
+            }
+            if (otherStore instanceof long[][]) {
+                long last = isEmpty() ? other.lastLong() : Math.max(lastLong(), other.lastLong());
+                long cardinality = saturatedSum(longSize(), other.longSize());
+                if (store instanceof long[] && idealMode(cardinality, last) == Mode.WORDS) {
+                    convert(Mode.WORDS, size, last);
+                }
+                if (store instanceof long[][] && ensureChunksFor(cardinality, last)) {
+                    long[][] chunks = (long[][]) store;
+                    long[][] otherChunks = (long[][]) otherStore;
+                    for (int chunk = 0; chunk < otherChunks.length; chunk++) {
+                        long[] otherWords = otherChunks[chunk];
+                        if (otherWords == null) {
+                            continue;
+                        }
+                        long[] words = chunks[chunk];
+                        if (words == null) {
+                            words = new long[CHUNK_WORDS];
+                            chunks[chunk] = words;
+                        }
+                        for (int word = 0; word < CHUNK_WORDS; word++) {
+                            long before = words[word];
+                            words[word] = before | otherWords[word];
+                            size += Long.bitCount(words[word]) - Long.bitCount(before);
+                        }
+                    }
+                    return;
+                }
+            }
+        }
+        indices.forEach((LongConsumer) this::set);
+    }
+
+    @Override
+    public void xor(LongCollection indices) {
+        if (indices.isEmpty()) {
+            return;
+        }
+        HybridLongNatBitSet other = hybrid(indices);
+        if (other != null) {
+            Object otherStore = other.store;
+            if (store instanceof Roaring64Bitmap && otherStore instanceof Roaring64Bitmap) {
+                ((Roaring64Bitmap) store).xor((Roaring64Bitmap) otherStore);
+                size = SIZE_UNKNOWN;
+                return;
+            }
+            if (store instanceof long[][]
+                    && otherStore instanceof long[][]
+                    && ensureChunksFor(saturatedSum(longSize(), other.longSize()), other.lastLong())) {
+                long[][] chunks = (long[][]) store;
+                long[][] otherChunks = (long[][]) otherStore;
+                for (int chunk = 0; chunk < otherChunks.length; chunk++) {
+                    long[] otherWords = otherChunks[chunk];
+                    if (otherWords == null) {
+                        continue;
+                    }
+                    long[] words = chunks[chunk];
+                    if (words == null) {
+                        words = new long[CHUNK_WORDS];
+                        chunks[chunk] = words;
+                    }
+                    for (int word = 0; word < CHUNK_WORDS; word++) {
+                        long before = words[word];
+                        words[word] = before ^ otherWords[word];
+                        size += Long.bitCount(words[word]) - Long.bitCount(before);
+                    }
+                }
+                return;
+            }
+        }
+        LongSet set = indices instanceof LongSet ? (LongSet) indices : new LongOpenHashSet(indices);
+        set.forEach((LongConsumer) this::flip);
+    }
+
+    @Override
+    public boolean retainAll(LongCollection indices) {
+        long size = longSize();
+        and(indices);
+        return longSize() < size;
+    }
+
+    @Override
+    public boolean removeAll(LongCollection indices) {
+        long size = longSize();
+        andNot(indices);
+        return longSize() < size;
+    }
+
+    @Override
+    public boolean addAll(LongCollection indices) {
+        long size = longSize();
+        or(indices);
+        return longSize() > size;
+    }
+
+    // Clone
+
+    @Override
+    public HybridLongNatBitSet clone() {
+        try {
+            HybridLongNatBitSet copy = (HybridLongNatBitSet) super.clone();
+            Object store = this.store;
+            if (store instanceof long[]) {
+                copy.store = ((long[]) store).clone();
+            } else if (store instanceof long[][]) {
+                long[][] chunks = ((long[][]) store).clone();
+                for (int chunk = 0; chunk < chunks.length; chunk++) {
+                    long[] words = chunks[chunk];
+                    if (words != null) {
+                        chunks[chunk] = words.clone();
+                    }
+                }
+                copy.store = chunks;
+            } else {
+                copy.store = ((Roaring64Bitmap) store).clone();
+            }
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    // Iterators
+
+    private static final class ArrayIterator implements LongIterator {
+        private final HybridLongNatBitSet set;
+        private int next;
+        private boolean removable;
+
+        ArrayIterator(HybridLongNatBitSet set) {
+            this.set = set;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < set.size;
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            removable = true;
+            long value = ((long[]) set.store)[next];
+            next += 1;
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            if (!removable) {
+                throw new IllegalStateException();
+            }
+            removable = false;
+            next -= 1;
+            long[] array = (long[]) set.store;
+            System.arraycopy(array, next + 1, array, next, (int) set.size - next - 1);
+            set.size -= 1L;
+        }
+    }
+
+    /** Walks the words through {@link #nextPresentIndex(long)}, which skips empty chunks wholesale. */
+    private static final class NavigatingIterator implements LongIterator {
+        private final HybridLongNatBitSet set;
+        private long next;
+        private long current = -1L;
+
+        NavigatingIterator(HybridLongNatBitSet set) {
+            this.set = set;
+            this.next = set.nextPresentIndex(0L);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0L;
+        }
+
+        @Override
+        public long nextLong() {
+            if (next < 0L) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = current == Long.MAX_VALUE ? -1L : set.nextPresentIndex(current + 1L);
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0L) {
+                throw new IllegalStateException();
+            }
+            set.clear(current);
+            current = -1L;
+        }
+    }
+
+    /**
+     * Iterates the bitmap directly. The bitmap must not change under its iterator, so after a removal the
+     * iteration resumes from a fresh one.
+     */
+    private static final class BitmapIterator implements LongIterator {
+        private final HybridLongNatBitSet set;
+        private final Roaring64Bitmap bitmap;
+        private @Nullable PeekableLongIterator iterator;
+        private long current = -1L;
+        private boolean removable;
+
+        BitmapIterator(HybridLongNatBitSet set, Roaring64Bitmap bitmap) {
+            this.set = set;
+            this.bitmap = bitmap;
+            this.iterator = bitmap.getLongIterator();
+        }
+
+        private PeekableLongIterator iterator() {
+            PeekableLongIterator iterator = this.iterator;
+            if (iterator == null) {
+                iterator = current == Long.MAX_VALUE
+                        ? new Roaring64Bitmap().getLongIterator()
+                        : bitmap.getLongIteratorFrom(current + 1L);
+                this.iterator = iterator;
+            }
+            return iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator().hasNext();
+        }
+
+        @Override
+        public long nextLong() {
+            PeekableLongIterator iterator = iterator();
+            if (!iterator.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = iterator.next();
+            removable = true;
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            if (!removable) {
+                throw new IllegalStateException();
+            }
+            removable = false;
+            set.clear(current);
+            iterator = null;
+        }
+    }
+}
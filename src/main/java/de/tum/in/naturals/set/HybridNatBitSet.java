@@ -7,6 +7,8 @@ import static de.tum.in.naturals.set.NatBitSetsUtil.checkOrdered;
 import static de.tum.in.naturals.set.NatBitSetsUtil.checkRange;
 
 import de.tum.in.naturals.Arrays2;
+import de.tum.in.naturals.MemoryFootprint;
+import de.tum.in.naturals.Thresholds;
 import de.tum.in.naturals.bitset.BitSets;
 import de.tum.in.naturals.bitset.RoaringBitmaps;
 import it.unimi.dsi.fastutil.ints.IntCollection;
@@ -14,16 +16,22 @@ import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntIterators;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.ints.IntSpliterator;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.IntConsumer;
 import java.util.function.IntPredicate;
 import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+import org.jspecify.annotations.Nullable;
+import org.roaringbitmap.FastAggregation;
 import org.roaringbitmap.PeekableIntIterator;
 import org.roaringbitmap.RoaringBitmap;
 
@@ -31,34 +39,62 @@ class HybridNatBitSet extends AbstractNatBitSet {
     /**
      * Up to this many elements an array wins on both axes that matter: it iterates roughly an order of
      * magnitude faster than a bitmap of the same content, and - with the search below - probes faster
-     * too, while staying within a few hundred bytes of the smallest alternative.
+     * too, while staying within a few hundred bytes of the smallest alternative. Calibrated through
+     * {@link Thresholds#MAXIMAL_ARRAY_SIZE}.
      */
-    static final int MAXIMAL_ARRAY_SIZE = 64;
+    static final int MAXIMAL_ARRAY_SIZE = Thresholds.get(Thresholds.MAXIMAL_ARRAY_SIZE, 64, 4, 4096);
 
     /**
-     * How much larger than the smallest option a representation may be before its speed stops being
-     * worth it. Speed comes first here, but not at any price.
+     * Up to this many runs a run list takes no more room than a full array, and a probe searches no more
+     * entries than it would there. Past it, words or Roaring take over.
      */
-    private static final int MEMORY_SLACK = 4;
+    static final int MAXIMAL_RUN_COUNT = MAXIMAL_ARRAY_SIZE / 2;
+
+    /**
+     * The shortest average run for which runs are worth it. Below, the set is mostly isolated elements,
+     * which the other stores handle at least as well and without a search per probe.
+     */
+    private static final int MINIMAL_AVERAGE_RUN = 4;
+
+    /**
+     * How far past a threshold a set has to move before it leaves words or Roaring, which hold any content
+     * and so can afford to wait. Words give way to Roaring once they cost this many times more than the
+     * memory slack allows, and Roaring to words once they cost this many times less; a set only goes back
+     * to an array once it has shrunk to this fraction of the cap. A set going back and forth across a
+     * threshold thus stays where it is, instead of converting its whole store at every crossing.
+     */
+    private static final int HYSTERESIS = 2;
+
+    private static final int ARRAY_REENTRY_SIZE = MAXIMAL_ARRAY_SIZE / HYSTERESIS;
 
     private static final int SIZE_UNKNOWN = -1;
 
     private static final long INFINITY = Integer.MAX_VALUE + 1L;
     private static final int[] EMPTY_ARRAY = {};
-    private static final int ROARING_FLOOR = 150;
-    private static final int ROARING_CONTAINER = 40;
+    private static final int ROARING_FLOOR = Thresholds.get(Thresholds.ROARING_FLOOR, 150, 0, 4096);
+    private static final int ROARING_CONTAINER = Thresholds.get(Thresholds.ROARING_CONTAINER, 40, 0, 4096);
     private static final int MINIMAL_RECLAIMED_WORDS = 8;
 
     private enum Mode {
         ARRAY,
+        RUNS,
         BIT_SET,
         ROARING
     }
 
-    // Sorted int[], BitSet, or RoaringBitmap
+    // Sorted int[], Runs, BitSet, or RoaringBitmap
     private Object store;
     // Sometimes lazy (== SIZE_UNKNOWN)
     private int size;
+    // The store as it was handed to a copy. While the two are identical the store must not be written to,
+    // see ensureExclusive - replacing the store wholesale ends the sharing by itself.
+    // Copying also sets this on the source, so concurrent copies of a set that is only read race on it. The
+    // race is benign: every copy writes the store the source holds, which does not change while it is only
+    // read, and a later write to the source has to happen after those reads anyway.
+    private @Nullable Object sharedStore;
+    // Built on demand over the words and dropped on every write, see ensureExclusive
+    private @Nullable WordRankIndex rankIndex;
+    private NatBitSetPolicy policy = NatBitSetPolicy.ADAPTIVE;
 
     HybridNatBitSet() {
         this.store = EMPTY_ARRAY;
@@ -71,6 +107,11 @@ class HybridNatBitSet extends AbstractNatBitSet {
         this.size = size;
     }
 
+    HybridNatBitSet(Runs runs) {
+        this.store = runs;
+        this.size = SIZE_UNKNOWN;
+    }
+
     HybridNatBitSet(BitSet bitSet) {
         this(bitSet, SIZE_UNKNOWN);
     }
@@ -91,29 +132,82 @@ class HybridNatBitSet extends AbstractNatBitSet {
         this.size = size;
     }
 
+    /**
+     * Copies the other set in constant time: both share the store until either writes to it. Defensive
+     * copies which are only ever read thus cost no allocation beyond this object. The other set is marked as
+     * sharing its store, which several threads may do at once, see {@link #sharedStore}.
+     */
     HybridNatBitSet(HybridNatBitSet other) {
         Object otherStore = other.store;
-        if (otherStore instanceof int[]) {
-            this.store = ((int[]) otherStore).clone();
-        } else if (otherStore instanceof BitSet) {
-            this.store = ((BitSet) otherStore).clone();
-        } else {
-            this.store = ((RoaringBitmap) otherStore).clone();
-        }
+        this.store = otherStore;
         this.size = other.size;
+        this.sharedStore = otherStore;
+        other.sharedStore = otherStore;
+        this.policy = other.policy;
     }
 
     static HybridNatBitSet forShape(int expectedCardinality, int expectedLast) {
-        switch (idealModeEstimate(expectedCardinality, expectedLast)) {
+        return forShape(expectedCardinality, expectedLast, NatBitSetPolicy.ADAPTIVE);
+    }
+
+    static HybridNatBitSet forShape(int expectedCardinality, int expectedLast, NatBitSetPolicy policy) {
+        Mode mode;
+        if (policy.pinsWords()) {
+            mode = Mode.BIT_SET;
+        } else if (policy.pinsRoaring()) {
+            mode = Mode.ROARING;
+        } else {
+            mode = idealModeEstimate(policy.memorySlack(), expectedCardinality, expectedLast);
+        }
+        HybridNatBitSet set;
+        switch (mode) {
             case ARRAY:
-                return new HybridNatBitSet(new int[expectedCardinality], 0);
+                set = new HybridNatBitSet(new int[expectedCardinality], 0);
+                break;
+            case RUNS:
+                set = new HybridNatBitSet(new Runs());
+                break;
             case BIT_SET:
                 // The hint may sit at the very top of the range, where one past it no longer fits
-                return new HybridNatBitSet(
+                set = new HybridNatBitSet(
                         new BitSet(expectedLast == Integer.MAX_VALUE ? expectedLast : expectedLast + 1), 0);
+                break;
             default:
-                return new HybridNatBitSet(new RoaringBitmap(), 0);
+                set = new HybridNatBitSet(new RoaringBitmap(), 0);
+                break;
+        }
+        set.policy = policy;
+        return set;
+    }
+
+    NatBitSetPolicy policy() {
+        return policy;
+    }
+
+    /**
+     * Puts the set under the given policy. A pinned set moves to its representation right away, an adaptive
+     * one stays where it is until its next change.
+     */
+    void policy(NatBitSetPolicy policy) {
+        this.policy = policy;
+        Object store = this.store;
+        if (policy.pinsWords() && !(store instanceof BitSet)) {
+            int cardinality = size();
+            convert(cardinality == 0 ? new BitSet() : toBitSet(lastInt()));
+            this.size = cardinality;
+        } else if (policy.pinsRoaring() && !(store instanceof RoaringBitmap)) {
+            int cardinality = size();
+            convert(toBitmap());
+            this.size = cardinality;
+        }
+    }
+
+    /** An empty store of the representation the policy asks for. */
+    private Object emptyStore() {
+        if (policy.pinsWords()) {
+            return new BitSet();
         }
+        return policy.pinsRoaring() ? new RoaringBitmap() : EMPTY_ARRAY;
     }
 
     private static boolean isSorted(int[] elements, int size) {
@@ -145,17 +239,34 @@ class HybridNatBitSet extends AbstractNatBitSet {
         return Math.max(1L, last + 2L - cardinality);
     }
 
-    private static boolean preferRoaringOverBitSet(int cardinality, int last, long runs) {
-        return MEMORY_SLACK * roaringBytes(cardinality, last, runs) < bitSetBytes(last);
+    private static boolean preferRuns(int cardinality, long runs) {
+        return runs <= MAXIMAL_RUN_COUNT && MINIMAL_AVERAGE_RUN * runs <= cardinality;
     }
 
-    private static boolean preferRoaringOverBitSet(int cardinality, int last) {
+    // Sets pinned to words never give them up, so these are where that pin takes effect on the growth path
+
+    private boolean preferRoaringOverBitSet(int cardinality, int last, long runs) {
+        return !policy.pinsWords() && policy.memorySlack() * roaringBytes(cardinality, last, runs) < bitSetBytes(last);
+    }
+
+    private boolean preferRoaringOverBitSet(int cardinality, int last) {
         return preferRoaringOverBitSet(cardinality, last, runBound(cardinality, last));
     }
 
-    private static boolean preferRoaringOverWords(BitSet bitSet, int cardinality, int last) {
+    /** Like {@link #preferRoaringOverBitSet(int, int)} for words this set already has, see {@link #HYSTERESIS}. */
+    private boolean leaveWordsForRoaring(int cardinality, int last) {
+        long roaringBytes = roaringBytes(cardinality, last, runBound(cardinality, last));
+        return !policy.pinsWords() && HYSTERESIS * policy.memorySlack() * roaringBytes < bitSetBytes(last);
+    }
+
+    private boolean preferRoaringOverWords(BitSet bitSet, int cardinality, int last) {
+        if (policy.pinsWords()) {
+            return false;
+        }
+        // The words are already there, so Roaring has to win by a margin, see HYSTERESIS
         long containers = Math.min(cardinality, ((long) last >>> 16) + 1L);
-        long budget = bitSetBytes(last) / MEMORY_SLACK - (ROARING_FLOOR + ROARING_CONTAINER * containers);
+        long budget = bitSetBytes(last) / (HYSTERESIS * policy.memorySlack())
+                - (ROARING_FLOOR + ROARING_CONTAINER * containers);
         if (budget <= 0) {
             return false; // The words are cheaper than a bitmap holding nothing at all
         }
@@ -164,11 +275,38 @@ class HybridNatBitSet extends AbstractNatBitSet {
         return 2L * cardinality < budget || BitSets.hasAtMostRuns(bitSet, (int) ((budget - 1) / 4));
     }
 
-    private static Mode idealModeEstimate(int cardinality, int last) {
-        return idealMode(cardinality, last, runBound(cardinality, last));
+    private static Mode idealModeEstimate(int memorySlack, int cardinality, int last) {
+        return idealMode(memorySlack, cardinality, last, runBound(cardinality, last));
+    }
+
+    /**
+     * The representation for the given shape under this set's policy. Words and Roaring are kept unless the
+     * shape is clearly past the threshold, see {@link #HYSTERESIS}.
+     */
+    private Mode chooseMode(int cardinality, int last, long runs) {
+        if (policy.pinsWords()) {
+            return Mode.BIT_SET;
+        }
+        if (policy.pinsRoaring()) {
+            return Mode.ROARING;
+        }
+        Mode ideal = idealMode(policy.memorySlack(), cardinality, last, runs);
+        Mode current = mode();
+        if (ideal == current || ideal == Mode.RUNS || current == Mode.ARRAY || current == Mode.RUNS) {
+            return ideal;
+        }
+        if (ideal == Mode.ARRAY) {
+            return cardinality <= ARRAY_REENTRY_SIZE ? ideal : current;
+        }
+        long wordsBytes = bitSetBytes(last);
+        long roaringBytes = policy.memorySlack() * roaringBytes(cardinality, last, runs);
+        boolean clearly = ideal == Mode.ROARING
+                ? HYSTERESIS * roaringBytes < wordsBytes
+                : HYSTERESIS * wordsBytes <= roaringBytes;
+        return clearly ? ideal : current;
     }
 
-    private static Mode idealMode(int cardinality, int last, long runs) {
+    private static Mode idealMode(int memorySlack, int cardinality, int last, long runs) {
         if (cardinality == 0) {
             return Mode.ARRAY;
         }
@@ -177,33 +315,84 @@ class HybridNatBitSet extends AbstractNatBitSet {
             // difference against a handful of words is never large enough to argue with that.
             return Mode.ARRAY;
         }
+        if (preferRuns(cardinality, runs)) {
+            // A few long runs beat both alternatives on size, and their bounds are all a scan has to visit
+            return Mode.RUNS;
+        }
         // A BitSet's size depends only on the span (last), not on how many bits are actually set; Roaring's
         // size tracks the content (cardinality) instead, since it stores only what's present. So we compare
         // density: is the set dense enough over its span for BitSet's cheap word-at-a-time scan to be worth
         // its larger footprint?
-        // MEMORY_SLACK biases that test toward BitSet, letting it cost up to that many times as much memory,
+        // The memory slack biases that test toward BitSet, letting it cost up to that many times as much memory,
         // because its scan still beats walking Roaring's containers even then. The resulting threshold lands
         // near one set bit per word - unsurprising since that is also where scanning word-at-a-time overtakes
         // visiting one element at a time.
-        return bitSetBytes(last) <= MEMORY_SLACK * roaringBytes(cardinality, last, runs) ? Mode.BIT_SET : Mode.ROARING;
+        return bitSetBytes(last) <= memorySlack * roaringBytes(cardinality, last, runs) ? Mode.BIT_SET : Mode.ROARING;
     }
 
     // Accessors
 
     private Mode mode() {
-        Object store = this.store;
+        return mode(store);
+    }
+
+    private static Mode mode(Object store) {
         if (store instanceof int[]) {
             return Mode.ARRAY;
         }
+        if (store instanceof Runs) {
+            return Mode.RUNS;
+        }
         return store instanceof BitSet ? Mode.BIT_SET : Mode.ROARING;
     }
 
+    /** The bytes the payload of the given store takes as allocated, leaving out object headers. */
+    private static long storeBytes(Object store) {
+        if (store instanceof int[]) {
+            return arrayBytes(((int[]) store).length);
+        }
+        if (store instanceof Runs) {
+            return ((Runs) store).bytes();
+        }
+        return store instanceof BitSet
+                ? ((BitSet) store).size() / Byte.SIZE
+                : ((RoaringBitmap) store).getSizeInBytes();
+    }
+
+    /**
+     * Replaces the store, which may change the representation. Changes of representation are reported to
+     * Flight Recorder - with the set as it was before, since the caller may already have the replacement
+     * hold more or less than that.
+     */
+    private void convert(Object replacement) {
+        NatBitSetEvents.Conversion event = new NatBitSetEvents.Conversion();
+        if (event.shouldCommit()) {
+            Object store = this.store;
+            Mode oldMode = mode(store);
+            Mode newMode = mode(replacement);
+            if (oldMode != newMode) {
+                event.oldMode = oldMode.name();
+                event.newMode = newMode.name();
+                // Not size(): it would cache the count for whatever the caller puts in place
+                event.cardinality = size == SIZE_UNKNOWN ? cardinality(store) : size;
+                event.lastElement = isEmpty() ? -1 : lastInt();
+                event.bytesBefore = storeBytes(store);
+                event.bytesAfter = storeBytes(replacement);
+                event.commit();
+            }
+        }
+        this.store = replacement;
+    }
+
     @Override
     public boolean isEmpty() {
         Object store = this.store;
         if (store instanceof int[]) {
             return size == 0;
         }
+        if (store instanceof Runs) {
+            return ((Runs) store).isEmpty();
+        }
         return store instanceof BitSet ? ((BitSet) store).isEmpty() : ((RoaringBitmap) store).isEmpty();
     }
 
@@ -213,15 +402,21 @@ class HybridNatBitSet extends AbstractNatBitSet {
         if (size != SIZE_UNKNOWN) {
             return size;
         }
-        Object store = this.store;
-        // Array always tracks its size
-        assert !(store instanceof int[]);
-        int cardinality =
-                store instanceof BitSet ? ((BitSet) store).cardinality() : ((RoaringBitmap) store).getCardinality();
+        int cardinality = cardinality(store);
         this.size = cardinality;
         return cardinality;
     }
 
+    private static int cardinality(Object store) {
+        // Array always tracks its size
+        assert !(store instanceof int[]);
+        if (store instanceof Runs) {
+            // The full range holds one element more than an int can count
+            return (int) Math.min(Integer.MAX_VALUE, ((Runs) store).cardinality());
+        }
+        return store instanceof BitSet ? ((BitSet) store).cardinality() : ((RoaringBitmap) store).getCardinality();
+    }
+
     @Override
     public boolean contains(int index) {
         if (index < 0) {
@@ -231,9 +426,132 @@ class HybridNatBitSet extends AbstractNatBitSet {
         if (store instanceof int[]) {
             return Arrays2.hybridBinarySearch((int[]) store, size, index) >= 0;
         }
+        if (store instanceof Runs) {
+            return ((Runs) store).contains(index);
+        }
         return store instanceof BitSet ? ((BitSet) store).get(index) : ((RoaringBitmap) store).contains(index);
     }
 
+    @Override
+    public int rank(int index) {
+        if (index <= 0) {
+            return 0;
+        }
+        Object store = this.store;
+        if (store instanceof int[]) {
+            int position = Arrays2.hybridBinarySearch((int[]) store, size, index);
+            return position >= 0 ? position : -(position + 1);
+        }
+        if (store instanceof Runs) {
+            return (int) ((Runs) store).rank(index);
+        }
+        if (store instanceof BitSet) {
+            return wordRankIndex((BitSet) store).rank(index);
+        }
+        // Roaring counts the elements up to and including its argument
+        return (int) ((RoaringBitmap) store).rankLong(index - 1);
+    }
+
+    @Override
+    public int select(int rank) {
+        Objects.checkIndex(rank, size());
+        Object store = this.store;
+        if (store instanceof int[]) {
+            return ((int[]) store)[rank];
+        }
+        if (store instanceof Runs) {
+            return ((Runs) store).select(rank);
+        }
+        if (store instanceof BitSet) {
+            return wordRankIndex((BitSet) store).select(rank);
+        }
+        return ((RoaringBitmap) store).select(rank);
+    }
+
+    private WordRankIndex wordRankIndex(BitSet words) {
+        WordRankIndex index = this.rankIndex;
+        // The store may have been replaced wholesale since, which does not pass through ensureExclusive
+        if (index == null || !index.describes(words)) {
+            index = new WordRankIndex(words);
+            this.rankIndex = index;
+        }
+        return index;
+    }
+
+    @Override
+    public int containsBatch(int[] queries, int from, int to, boolean[] out) {
+        NatBitSetsUtil.checkBatch(queries, from, to, out.length);
+        Arrays.fill(out, 0, to - from, false);
+        return forEachContained(queries, from, to, offset -> out[offset] = true);
+    }
+
+    @Override
+    public int containsBatch(int[] queries, int from, int to, long[] out) {
+        NatBitSetsUtil.checkBatch(queries, from, to, Long.SIZE * (long) out.length);
+        Arrays.fill(out, 0, (to - from + Long.SIZE - 1) >>> 6, 0L);
+        return forEachContained(queries, from, to, offset -> out[offset >>> 6] |= 1L << offset);
+    }
+
+    /**
+     * Passes {@code i - from} for every contained {@code queries[i]} to the consumer and returns how many
+     * there were. Dispatches on the store once for the whole batch rather than once per query.
+     */
+    private int forEachContained(int[] queries, int from, int to, IntConsumer hit) {
+        Object store = this.store;
+        int contained = 0;
+        if (store instanceof int[]) {
+            // Sorted queries are answered in a single merge pass over the array. A query smaller than the one
+            // before it picks up the merge from a search instead, so any order is still answered correctly.
+            int[] array = (int[]) store;
+            int size = this.size;
+            int position = 0;
+            int previous = Integer.MIN_VALUE;
+            for (int i = from; i < to; i++) {
+                int query = queries[i];
+                if (query < previous) {
+                    int found = Arrays2.hybridBinarySearch(array, size, query);
+                    position = found >= 0 ? found : -(found + 1);
+                }
+                previous = query;
+                while (position < size && array[position] < query) {
+                    position += 1;
+                }
+                if (position < size && array[position] == query) {
+                    hit.accept(i - from);
+                    contained += 1;
+                }
+            }
+        } else if (store instanceof Runs) {
+            Runs runs = (Runs) store;
+            for (int i = from; i < to; i++) {
+                int query = queries[i];
+                if (query >= 0 && runs.contains(query)) {
+                    hit.accept(i - from);
+                    contained += 1;
+                }
+            }
+        } else if (store instanceof BitSet) {
+            BitSet bitSet = (BitSet) store;
+            for (int i = from; i < to; i++) {
+                int query = queries[i];
+                if (query >= 0 && bitSet.get(query)) {
+                    hit.accept(i - from);
+                    contained += 1;
+                }
+            }
+        } else {
+            RoaringBitmap bitmap = (RoaringBitmap) store;
+            for (int i = from; i < to; i++) {
+                int query = queries[i];
+                if (query >= 0 && bitmap.contains(query)) {
+                    hit.accept(i - from);
+                    contained += 1;
+                }
+            }
+        }
+        return contained;
+    }
+
     @Override
     public int firstInt() {
         Object store = this.store;
@@ -243,6 +561,9 @@ class HybridNatBitSet extends AbstractNatBitSet {
             }
             return ((int[]) store)[0];
         }
+        if (store instanceof Runs) {
+            return ((Runs) store).first();
+        }
         if (store instanceof BitSet) {
             int first = ((BitSet) store).nextSetBit(0);
             if (first == -1) {
@@ -262,6 +583,9 @@ class HybridNatBitSet extends AbstractNatBitSet {
             }
             return ((int[]) store)[size - 1];
         }
+        if (store instanceof Runs) {
+            return ((Runs) store).last();
+        }
         if (store instanceof BitSet) {
             int last = ((BitSet) store).length() - 1;
             if (last == -1) {
@@ -285,6 +609,9 @@ class HybridNatBitSet extends AbstractNatBitSet {
             int insertion = -(position + 1);
             return insertion == size ? -1 : array[insertion];
         }
+        if (store instanceof Runs) {
+            return ((Runs) store).nextPresent(index);
+        }
         if (store instanceof BitSet) {
             return ((BitSet) store).nextSetBit(index);
         }
@@ -309,6 +636,12 @@ class HybridNatBitSet extends AbstractNatBitSet {
             }
             return candidate;
         }
+        if (store instanceof Runs) {
+            // One search for the run holding the index, where the array has to step through it; saturated
+            // like Roaring below
+            long absent = ((Runs) store).nextAbsent(index);
+            return absent > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) absent;
+        }
         if (store instanceof BitSet) {
             return ((BitSet) store).nextClearBit(index);
         }
@@ -331,6 +664,9 @@ class HybridNatBitSet extends AbstractNatBitSet {
             int insertion = -(position + 1);
             return insertion == 0 ? -1 : array[insertion - 1];
         }
+        if (store instanceof Runs) {
+            return ((Runs) store).previousPresent(index);
+        }
         if (store instanceof BitSet) {
             return ((BitSet) store).previousSetBit(index);
         }
@@ -354,6 +690,9 @@ class HybridNatBitSet extends AbstractNatBitSet {
             }
             return candidate;
         }
+        if (store instanceof Runs) {
+            return ((Runs) store).previousAbsent(index);
+        }
         if (store instanceof BitSet) {
             return ((BitSet) store).previousClearBit(index);
         }
@@ -366,6 +705,9 @@ class HybridNatBitSet extends AbstractNatBitSet {
         if (store instanceof int[]) {
             return new ArrayIterator(this);
         }
+        if (store instanceof Runs) {
+            return new RunIterator(this, (Runs) store);
+        }
         return store instanceof BitSet
                 ? new RemovingIterator(this, BitSets.iterator((BitSet) store))
                 : RoaringBitmaps.iterator((RoaringBitmap) store);
@@ -379,6 +721,8 @@ class HybridNatBitSet extends AbstractNatBitSet {
             for (int i = 0; i < size; i++) {
                 consumer.accept(array[i]);
             }
+        } else if (store instanceof Runs) {
+            ((Runs) store).forEach(consumer);
         } else if (store instanceof BitSet) {
             BitSets.forEach((BitSet) store, consumer);
         } else {
@@ -386,6 +730,83 @@ class HybridNatBitSet extends AbstractNatBitSet {
         }
     }
 
+    @Override
+    public void forEachWord(LongWordConsumer consumer) {
+        Object store = this.store;
+        if (store instanceof int[]) {
+            NatBitSetsUtil.forEachWord((int[]) store, size, consumer);
+        } else if (store instanceof Runs) {
+            ((Runs) store).forEachWord(consumer);
+        } else if (store instanceof BitSet) {
+            BitSets.forEachWord((BitSet) store, consumer);
+        } else {
+            RoaringBitmaps.forEachWord((RoaringBitmap) store, consumer);
+        }
+    }
+
+    @Override
+    public void forEachRun(IntIntConsumer consumer) {
+        Object store = this.store;
+        if (store instanceof int[]) {
+            NatBitSetsUtil.forEachRun((int[]) store, 0, size, consumer);
+        } else if (store instanceof Runs) {
+            ((Runs) store).forEachRun(consumer);
+        } else if (store instanceof BitSet) {
+            BitSets.forEachRun((BitSet) store, consumer);
+        } else {
+            RoaringBitmaps.forEachRun((RoaringBitmap) store, consumer);
+        }
+    }
+
+    /**
+     * Gives this set its own copy of the store if it may still be shared with a copy. Every write to the
+     * store in place has to go through here first; the other side copies on its own first write, since it
+     * cannot learn that this one already left.
+     */
+    private void ensureExclusive() {
+        // Every write passes through here, which is all the rank index needs to know
+        this.rankIndex = null;
+        Object store = this.store;
+        if (sharedStore == null) {
+            return;
+        }
+        if (store == sharedStore) { // NOPMD - identity is the point
+            this.store = copyOf(store);
+        }
+        this.sharedStore = null;
+    }
+
+    private static Object copyOf(Object store) {
+        if (store instanceof int[]) {
+            return ((int[]) store).clone();
+        }
+        if (store instanceof Runs) {
+            return ((Runs) store).copy();
+        }
+        if (store instanceof BitSet) {
+            return ((BitSet) store).clone();
+        }
+        return ((RoaringBitmap) store).clone();
+    }
+
+    /** Whether the store may still be shared with a copy. */
+    boolean isSharingStore() {
+        return sharedStore != null;
+    }
+
+    /** The backing words, for callers which adopt them as their own store. */
+    BitSet exclusiveWords() {
+        ensureExclusive();
+        return words();
+    }
+
+    /** Replaces the store by the given words, which this set takes ownership of. */
+    void adoptWords(BitSet words) {
+        convert(words);
+        this.size = SIZE_UNKNOWN;
+        this.sharedStore = null;
+    }
+
     // Representation changes
 
     private void prepareFor(int extra, int newLast) {
@@ -395,6 +816,10 @@ class HybridNatBitSet extends AbstractNatBitSet {
             // Don't "downgrade" from roaring to avoid thrashing
             return;
         }
+        if (store instanceof Runs) {
+            // Whether the runs survive depends on where the new elements land, so they decide after the write
+            return;
+        }
 
         if (store instanceof BitSet) {
             // Writing past the allocated words is the growth point - the only place worth re-deciding.
@@ -405,8 +830,8 @@ class HybridNatBitSet extends AbstractNatBitSet {
             int last = newLast == NatBitSetsUtil.UNKNOWN_LAST
                     ? (int) Math.min(Integer.MAX_VALUE, 2L * bitSet.length())
                     : Math.max(newLast, bitSet.length() - 1);
-            if (last >= bitSet.size() && preferRoaringOverBitSet(size() + extra, last)) {
-                this.store = toBitmap();
+            if (last >= bitSet.size() && leaveWordsForRoaring(size() + extra, last)) {
+                convert(toBitmap());
             }
             return;
         }
@@ -419,7 +844,87 @@ class HybridNatBitSet extends AbstractNatBitSet {
         int last = newLast == NatBitSetsUtil.UNKNOWN_LAST
                 ? (int) Math.min(Integer.MAX_VALUE, 2L * currentLast)
                 : Math.max(newLast, currentLast);
-        this.store = preferRoaringOverBitSet(expectedCardinality, last) ? toBitmap() : toBitSet(last);
+        convert(preferRoaringOverBitSet(expectedCardinality, last) ? toBitmap() : toBitSet(last));
+    }
+
+    /**
+     * Like {@link #prepareFor(int, int)}, for writing the range {@code [from, to)}. An array that would
+     * overflow becomes a run list rather than words as long as its runs leave room for one more - a range
+     * adds at most one.
+     */
+    private void prepareForRange(int from, int to) {
+        Object store = this.store;
+        if (store instanceof int[]
+                && size + (long) (to - from) > MAXIMAL_ARRAY_SIZE
+                && Runs.count((int[]) store, size) < MAXIMAL_RUN_COUNT) {
+            convert(Runs.of((int[]) store, size));
+            this.size = SIZE_UNKNOWN;
+            return;
+        }
+        prepareFor(to - from, to - 1);
+    }
+
+    /**
+     * Moves a run list which grew past {@link #MAXIMAL_RUN_COUNT} runs to whichever other store suits its
+     * content. Every write that can add a run ends here.
+     */
+    private void checkRunCount() {
+        Runs runs = (Runs) store;
+        int count = runs.count();
+        if (count <= MAXIMAL_RUN_COUNT) {
+            return;
+        }
+        int cardinality = size();
+        int last = runs.last();
+        if (cardinality <= MAXIMAL_ARRAY_SIZE) {
+            convert(runs.toArray(cardinality));
+        } else if (preferRoaringOverBitSet(cardinality, last, count)) {
+            convert(runs.toBitmap());
+        } else {
+            convert(runs.toBitSet(last));
+        }
+        this.size = cardinality;
+    }
+
+    /** The first absent index after the given present one, which is 2^31 for the run reaching the top. */
+    private long runEnd(int start) {
+        int absent = nextAbsentIndex(start);
+        // Words overflow past the top index, Roaring saturates at it
+        if (absent < 0 || (absent == Integer.MAX_VALUE && contains(Integer.MAX_VALUE))) {
+            return Runs.INFINITY;
+        }
+        return absent;
+    }
+
+    /** The number of runs of this set, counted no further than the given limit. */
+    private int runCount(int limit) {
+        Object store = this.store;
+        if (store instanceof Runs) {
+            return Math.min(limit, ((Runs) store).count());
+        }
+        int runs = 0;
+        int start = isEmpty() ? -1 : firstInt();
+        while (start >= 0 && runs < limit) {
+            runs += 1;
+            long end = runEnd(start);
+            start = end > Integer.MAX_VALUE ? -1 : nextPresentIndex((int) end);
+        }
+        return runs;
+    }
+
+    private Runs toRuns() {
+        Object store = this.store;
+        if (store instanceof int[]) {
+            return Runs.of((int[]) store, size);
+        }
+        Runs runs = new Runs();
+        int start = isEmpty() ? -1 : firstInt();
+        while (start >= 0) {
+            long end = runEnd(start);
+            runs.append(start, end);
+            start = end > Integer.MAX_VALUE ? -1 : nextPresentIndex((int) end);
+        }
+        return runs;
     }
 
     private BitSet toBitSet(int last) {
@@ -427,6 +932,9 @@ class HybridNatBitSet extends AbstractNatBitSet {
         if (store instanceof RoaringBitmap) {
             return BitSets.of((RoaringBitmap) store, last + 1);
         }
+        if (store instanceof Runs) {
+            return ((Runs) store).toBitSet(last);
+        }
         BitSet bitSet = new BitSet(last + 1);
         int[] array = (int[]) store;
         // Only the first size entries are live - the tail holds stale values (zeroes after growth)
@@ -442,6 +950,9 @@ class HybridNatBitSet extends AbstractNatBitSet {
             int[] array = (int[]) store;
             return RoaringBitmap.bitmapOf(size == array.length ? array : Arrays.copyOf(array, size));
         }
+        if (store instanceof Runs) {
+            return ((Runs) store).toBitmap();
+        }
         return RoaringBitmaps.of((BitSet) store);
     }
 
@@ -451,6 +962,9 @@ class HybridNatBitSet extends AbstractNatBitSet {
             int[] array = (int[]) store;
             return array.length == cardinality ? array : Arrays.copyOf(array, cardinality);
         }
+        if (store instanceof Runs) {
+            return ((Runs) store).toArray(cardinality);
+        }
         int[] array = new int[cardinality];
         if (store instanceof BitSet) {
             BitSet bitSet = (BitSet) store;
@@ -475,10 +989,59 @@ class HybridNatBitSet extends AbstractNatBitSet {
 
     @Override
     public boolean optimize() {
+        NatBitSetEvents.Optimize event = new NatBitSetEvents.Optimize();
+        if (!event.isEnabled()) {
+            return optimizeStore();
+        }
+        event.begin();
+        // Roaring compacts in place, so its footprint has to be taken up front
+        Mode oldMode = mode();
+        long bytesBefore = storeBytes(store);
+        boolean changed = optimizeStore();
+        event.end();
+        if (event.shouldCommit()) {
+            event.oldMode = oldMode.name();
+            event.newMode = mode().name();
+            event.cardinality = size();
+            event.bytesBefore = bytesBefore;
+            event.bytesAfter = storeBytes(store);
+            event.reclaimedBytes = event.bytesBefore - event.bytesAfter;
+            event.commit();
+        }
+        return changed;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        // The store, the size and the references to the shared store, the rank index and the policy
+        long bytes = MemoryFootprint.objectBytes(4L * 4L + Integer.BYTES);
+        Object store = this.store;
+        if (store instanceof int[]) {
+            bytes += MemoryFootprint.arrayBytes(((int[]) store).length, Integer.BYTES);
+        } else if (store instanceof Runs) {
+            bytes += ((Runs) store).estimatedBytes();
+        } else if (store instanceof BitSet) {
+            bytes += MemoryFootprint.bitSetBytes((BitSet) store);
+        } else {
+            bytes += ((RoaringBitmap) store).getLongSizeInBytes();
+        }
+        WordRankIndex index = this.rankIndex;
+        return index == null ? bytes : bytes + index.estimatedBytes();
+    }
+
+    private boolean optimizeStore() {
+        if (this.store instanceof RoaringBitmap) {
+            ensureExclusive();
+        }
         Object store = this.store;
         if (isEmpty()) {
-            boolean exact = store instanceof int[] && ((int[]) store).length == 0;
-            this.store = EMPTY_ARRAY;
+            // A pinned set stays in its representation; an empty bitmap has no containers left to give up
+            boolean exact = policy.pinsWords()
+                    ? ((BitSet) store).size() == 0
+                    : policy.pinsRoaring() || store instanceof int[] && ((int[]) store).length == 0;
+            if (!exact) {
+                convert(emptyStore());
+            }
             this.size = 0;
             return !exact;
         }
@@ -489,19 +1052,33 @@ class HybridNatBitSet extends AbstractNatBitSet {
         // Unlike the growth path this works with real numbers rather than the run bound - but it still pays
         // for them only where they can change the outcome.
         long bitSetCost = bitSetBytes(last);
+        // Words and Roaring only go back to an array once well below the cap, see HYSTERESIS
+        int arrayCap =
+                store instanceof BitSet || store instanceof RoaringBitmap ? ARRAY_REENTRY_SIZE : MAXIMAL_ARRAY_SIZE;
         Mode mode;
-        if (cardinality <= MAXIMAL_ARRAY_SIZE) {
+        if (policy.isPinned()) {
+            // Nothing to decide, but the store may still be trimmed below
+            mode = policy.pinsWords() ? Mode.BIT_SET : Mode.ROARING;
+        } else if (cardinality <= arrayCap) {
             // At this size, Roaring has too much base overhead anyway. Only BitSet remains. It could be
             // smaller for small domains, but arrays are very fast.
             // We could compare with arrayBytes(cardinality) if needed.
             mode = Mode.ARRAY;
+        } else if (preferRuns(cardinality, runCount(MAXIMAL_RUN_COUNT + 1))) {
+            // Counting stops right past the cap, so sets of many runs pay next to nothing for the question
+            mode = Mode.RUNS;
         } else if (store instanceof RoaringBitmap) {
-            // Roaring reports its actual footprint after runOptimize, so nothing has to be estimated.
+            // Roaring reports its actual footprint after runOptimize, so nothing has to be estimated. The
+            // bitmap is already there, so words have to win by a margin, see HYSTERESIS.
             long roaringCost = ((RoaringBitmap) store).getSizeInBytes();
-            mode = bitSetCost <= MEMORY_SLACK * roaringCost ? Mode.BIT_SET : Mode.ROARING;
+            mode = HYSTERESIS * bitSetCost <= policy.memorySlack() * roaringCost ? Mode.BIT_SET : Mode.ROARING;
         } else if (store instanceof BitSet) {
             // Only words hold more than the array cap, so this is the one case that needs a run count.
             mode = preferRoaringOverWords((BitSet) store, cardinality, last) ? Mode.ROARING : Mode.BIT_SET;
+        } else if (store instanceof Runs) {
+            // Runs too short on average to be worth it; but their count is exact
+            int runs = ((Runs) store).count();
+            mode = preferRoaringOverBitSet(cardinality, last, runs) ? Mode.ROARING : Mode.BIT_SET;
         } else {
             // We are an array but over the maximal array size -- this can happen when we get wrapped
             mode = preferRoaringOverBitSet(cardinality, last) ? Mode.ROARING : Mode.BIT_SET;
@@ -511,6 +1088,11 @@ class HybridNatBitSet extends AbstractNatBitSet {
                 this.store = Arrays.copyOf((int[]) store, cardinality);
                 return true;
             }
+            if (store instanceof Runs) {
+                Runs trimmed = ((Runs) store).trimmed();
+                this.store = trimmed;
+                return trimmed != store; // NOPMD - identity is the point
+            }
             if (store instanceof BitSet) {
                 long neededWords = (last >>> 6) + 1L;
                 long allocatedWords = ((BitSet) store).size() / Long.SIZE;
@@ -526,6 +1108,8 @@ class HybridNatBitSet extends AbstractNatBitSet {
         Object replacement;
         if (mode == Mode.ARRAY) {
             replacement = toArray(cardinality);
+        } else if (mode == Mode.RUNS) {
+            replacement = toRuns();
         } else if (mode == Mode.BIT_SET) {
             replacement = toBitSet(last);
         } else {
@@ -533,7 +1117,7 @@ class HybridNatBitSet extends AbstractNatBitSet {
             bitmap.runOptimize();
             replacement = bitmap;
         }
-        this.store = replacement;
+        convert(replacement);
         this.size = cardinality;
         return true;
     }
@@ -556,8 +1140,17 @@ class HybridNatBitSet extends AbstractNatBitSet {
             return;
         }
         if (size == MAXIMAL_ARRAY_SIZE) {
+            // The new element adds at most one run
+            int runs = Runs.count(array, size) + 1;
+            if (preferRuns(size + 1, runs)) {
+                Runs grown = Runs.of(array, size);
+                grown.add(index);
+                convert(grown);
+                this.size = size + 1;
+                return;
+            }
             int last = Math.max(array[size - 1], index);
-            this.store = preferRoaringOverBitSet(size + 1, last) ? toBitmap() : toBitSet(last);
+            convert(preferRoaringOverBitSet(size + 1, last) ? toBitmap() : toBitSet(last));
             assert size != SIZE_UNKNOWN;
             // The conversion copied the existing elements only; the recursive call accounts for the new one
             set(index);
@@ -568,7 +1161,7 @@ class HybridNatBitSet extends AbstractNatBitSet {
         int[] target = array;
         if (size == array.length) {
             target = Arrays.copyOf(array, Math.min(MAXIMAL_ARRAY_SIZE, 2 * array.length));
-            this.store = target;
+            convert(target);
         }
         System.arraycopy(target, insertion, target, insertion + 1, size - insertion);
         target[insertion] = index;
@@ -578,11 +1171,11 @@ class HybridNatBitSet extends AbstractNatBitSet {
     private void setInBitSet(int index) {
         BitSet bitSet = (BitSet) store;
         if (index >= bitSet.size()
-                && preferRoaringOverBitSet(
+                && leaveWordsForRoaring(
                         size() + 1, index)) { // TODO This computes size() eagerly. Should we do this?
             RoaringBitmap bitmap = toBitmap();
             bitmap.add(index);
-            this.store = bitmap;
+            convert(bitmap);
             if (size != SIZE_UNKNOWN) {
                 this.size = size + 1;
             }
@@ -606,9 +1199,17 @@ class HybridNatBitSet extends AbstractNatBitSet {
     @Override
     public void set(int index) {
         checkNonNegative(index);
+        ensureExclusive();
         Object store = this.store;
         if (store instanceof int[]) {
             setInArray(index);
+        } else if (store instanceof Runs) {
+            if (((Runs) store).add(index)) {
+                if (size != SIZE_UNKNOWN) {
+                    size += 1;
+                }
+                checkRunCount();
+            }
         } else if (store instanceof BitSet) {
             setInBitSet(index);
         } else {
@@ -631,7 +1232,8 @@ class HybridNatBitSet extends AbstractNatBitSet {
         if (from == to) {
             return;
         }
-        prepareFor(to - from, to - 1);
+        prepareForRange(from, to);
+        ensureExclusive();
 
         Object store = this.store;
         if (store instanceof int[]) {
@@ -641,6 +1243,10 @@ class HybridNatBitSet extends AbstractNatBitSet {
             }
             return;
         }
+        if (store instanceof Runs) {
+            combineRuns((Runs) store, Runs.range(from, to), BitOperation.OR);
+            return;
+        }
         if (store instanceof BitSet) {
             ((BitSet) store).set(from, to);
         } else {
@@ -649,9 +1255,119 @@ class HybridNatBitSet extends AbstractNatBitSet {
         this.size = SIZE_UNKNOWN;
     }
 
+    @Override
+    public void addAllSorted(int[] elements, int from, int to) {
+        NatBitSetsUtil.checkSorted(elements, from, to);
+        if (from == to) {
+            return;
+        }
+        ensureExclusive();
+        int count = to - from;
+        int last = elements[to - 1];
+
+        Object store = this.store;
+        if (store instanceof int[]) {
+            if ((long) size + count <= MAXIMAL_ARRAY_SIZE) {
+                mergeIntoArray(elements, from, to);
+                return;
+            }
+            // Decided once for the whole input, on counts that only over-estimate: elements may repeat or be
+            // present already, and runs of the two sides may join
+            int newLast = size == 0 ? last : Math.max(lastInt(), last);
+            int cardinality = (int) Math.min(Integer.MAX_VALUE, (long) size + count);
+            long runs = (long) Runs.count((int[]) store, size) + NatBitSetsUtil.runCount(elements, from, to);
+            Mode mode = chooseMode(cardinality, newLast, runs);
+            if (mode == Mode.RUNS) {
+                convert(toRuns());
+            } else if (mode == Mode.BIT_SET) {
+                convert(toBitSet(newLast));
+            } else {
+                convert(toBitmap());
+            }
+        } else if (store instanceof BitSet) {
+            prepareFor(count, last);
+        }
+
+        store = this.store;
+        if (store instanceof Runs) {
+            Runs added = new Runs();
+            NatBitSetsUtil.forEachRun(elements, from, to, (first, runLast) -> added.append(first, runLast + 1L));
+            combineRuns((Runs) store, added, BitOperation.OR);
+            return;
+        }
+        if (store instanceof BitSet) {
+            BitSet bitSet = (BitSet) store;
+            NatBitSetsUtil.forEachRun(elements, from, to, (first, runLast) -> {
+                if (runLast == Integer.MAX_VALUE) {
+                    bitSet.set(first, runLast);
+                    bitSet.set(runLast);
+                } else {
+                    bitSet.set(first, runLast + 1);
+                }
+            });
+        } else {
+            ((RoaringBitmap) store).addN(elements, from, count);
+        }
+        this.size = SIZE_UNKNOWN;
+    }
+
+    /** Merges the sorted elements into the array in one pass, which must have room for all of them. */
+    private void mergeIntoArray(int[] elements, int from, int to) {
+        int[] array = (int[]) store;
+        int size = this.size;
+        int[] merged = new int[size + to - from];
+        int i = 0;
+        int j = from;
+        int count = 0;
+        while (i < size || j < to) {
+            int next;
+            if (j == to || i < size && array[i] <= elements[j]) {
+                next = array[i];
+                i += 1;
+            } else {
+                next = elements[j];
+                j += 1;
+            }
+            if (count == 0 || merged[count - 1] != next) {
+                merged[count] = next;
+                count += 1;
+            }
+        }
+        this.store = merged;
+        this.size = count;
+    }
+
+    /** A pinned set keeps its store, and with it the capacity it has grown to, as {@link #reset()} does. */
     @Override
     public void clear() {
-        this.store = EMPTY_ARRAY;
+        if (policy.isPinned() && store != sharedStore) { // NOPMD - identity is the point
+            reset();
+            return;
+        }
+        convert(emptyStore());
+        this.size = 0;
+        this.sharedStore = null;
+        this.rankIndex = null;
+    }
+
+    /**
+     * Empties the set but keeps its store, in its mode and with the capacity it has grown to, so that refilling
+     * it to a similar shape allocates nothing. A store still shared with a copy is dropped as by {@link #clear()}.
+     */
+    void reset() {
+        Object store = this.store;
+        if (store == sharedStore) { // NOPMD - identity is the point
+            clear();
+            return;
+        }
+        this.rankIndex = null;
+        if (store instanceof Runs) {
+            ((Runs) store).clear();
+        } else if (store instanceof BitSet) {
+            ((BitSet) store).clear();
+        } else if (store instanceof RoaringBitmap) {
+            ((RoaringBitmap) store).clear();
+        }
         this.size = 0;
     }
 
@@ -660,6 +1376,7 @@ class HybridNatBitSet extends AbstractNatBitSet {
         if (index < 0) {
             return;
         }
+        ensureExclusive();
         Object store = this.store;
         if (store instanceof int[]) {
             int[] array = (int[]) store;
@@ -668,6 +1385,14 @@ class HybridNatBitSet extends AbstractNatBitSet {
                 System.arraycopy(array, position + 1, array, position, size - position - 1);
                 size -= 1;
             }
+        } else if (store instanceof Runs) {
+            // Taking an element out of the middle of a run splits it
+            if (((Runs) store).remove(index)) {
+                if (size != SIZE_UNKNOWN) {
+                    size -= 1;
+                }
+                checkRunCount();
+            }
         } else if (store instanceof BitSet) {
             BitSet bitSet = (BitSet) store;
             if (size != SIZE_UNKNOWN && bitSet.get(index)) {
@@ -697,6 +1422,7 @@ class HybridNatBitSet extends AbstractNatBitSet {
         if (end <= firstInt() || lastInt() < start) {
             return;
         }
+        ensureExclusive();
         Object store = this.store;
         if (store instanceof int[]) {
             int[] array = (int[]) store;
@@ -711,6 +1437,10 @@ class HybridNatBitSet extends AbstractNatBitSet {
             this.size = retained;
             return;
         }
+        if (store instanceof Runs) {
+            combineRuns((Runs) store, Runs.range(start, end), BitOperation.AND_NOT);
+            return;
+        }
         if (store instanceof BitSet) {
             ((BitSet) store).clear(start, end);
         } else {
@@ -732,6 +1462,7 @@ class HybridNatBitSet extends AbstractNatBitSet {
             return;
         }
 
+        ensureExclusive();
         Object store = this.store;
         if (store instanceof int[]) {
             int[] array = (int[]) store;
@@ -739,6 +1470,10 @@ class HybridNatBitSet extends AbstractNatBitSet {
             this.size = position >= 0 ? position : -(position + 1);
             return;
         }
+        if (store instanceof Runs) {
+            combineRuns((Runs) store, Runs.range(from, Runs.INFINITY), BitOperation.AND_NOT);
+            return;
+        }
         if (store instanceof BitSet) {
             ((BitSet) store).clear(from, Integer.MAX_VALUE);
         } else {
@@ -763,7 +1498,8 @@ class HybridNatBitSet extends AbstractNatBitSet {
         if (from == to) {
             return;
         }
-        prepareFor(to - from, to - 1);
+        prepareForRange(from, to);
+        ensureExclusive();
 
         Object store = this.store;
         if (store instanceof int[]) {
@@ -772,6 +1508,10 @@ class HybridNatBitSet extends AbstractNatBitSet {
             }
             return;
         }
+        if (store instanceof Runs) {
+            combineRuns((Runs) store, Runs.range(from, to), BitOperation.XOR);
+            return;
+        }
         if (store instanceof BitSet) {
             ((BitSet) store).flip(from, to);
         } else {
@@ -780,6 +1520,13 @@ class HybridNatBitSet extends AbstractNatBitSet {
         this.size = SIZE_UNKNOWN;
     }
 
+    /** Replaces the run list by {@code runs operation other}. */
+    private void combineRuns(Runs runs, Runs other, BitOperation operation) {
+        convert(Runs.combine(runs, other, operation));
+        this.size = SIZE_UNKNOWN;
+        checkRunCount();
+    }
+
     private static IntPredicate probe(Collection<Integer> indices) {
         BitSet words = NatBitSetsUtil.words(indices);
         if (words != null) {
@@ -807,6 +1554,9 @@ class HybridNatBitSet extends AbstractNatBitSet {
             int size = this.size;
             return i -> Arrays2.hybridBinarySearch(array, size, i) >= 0;
         }
+        if (store instanceof Runs) {
+            return ((Runs) store)::contains;
+        }
         if (store instanceof BitSet) {
             return ((BitSet) store)::get;
         }
@@ -825,6 +1575,18 @@ class HybridNatBitSet extends AbstractNatBitSet {
             }
             return false;
         }
+        if (store instanceof Runs) {
+            Runs runs = (Runs) store;
+            for (int run = 0; run < runs.count(); run++) {
+                long end = runs.end(run);
+                for (long value = runs.start(run); value < end; value++) {
+                    if (predicate.test((int) value)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
         if (store instanceof BitSet) {
             BitSet bitSet = (BitSet) store;
             for (int i = bitSet.nextSetBit(0); i >= 0; i = bitSet.nextSetBit(i + 1)) {
@@ -851,6 +1613,9 @@ class HybridNatBitSet extends AbstractNatBitSet {
         if (store instanceof int[]) {
             return size;
         }
+        if (store instanceof Runs) {
+            return size();
+        }
         if (store instanceof BitSet) {
             // Words are scanned whether they carry bits or not; length() is O(1)
             long words = ((BitSet) store).length() / Long.SIZE;
@@ -865,12 +1630,32 @@ class HybridNatBitSet extends AbstractNatBitSet {
             return false;
         }
         Object store = this.store;
-        if (store instanceof BitSet) {
+        Runs otherRuns = NatBitSetsUtil.runs(indices);
+        if (store instanceof Runs) {
+            Runs runs = (Runs) store;
+            if (otherRuns != null) {
+                return runs.intersects(otherRuns);
+            }
+            BitSet otherWords = NatBitSetsUtil.words(indices);
+            if (otherWords != null) {
+                return runs.intersects(otherWords);
+            }
+            RoaringBitmap otherBitmap = NatBitSetsUtil.bitmap(indices);
+            if (otherBitmap != null) {
+                return runs.intersects(otherBitmap);
+            }
+        } else if (store instanceof BitSet) {
+            if (otherRuns != null) {
+                return otherRuns.intersects((BitSet) store);
+            }
             BitSet otherWords = NatBitSetsUtil.words(indices);
             if (otherWords != null) {
                 return ((BitSet) store).intersects(otherWords);
             }
         } else if (store instanceof RoaringBitmap) {
+            if (otherRuns != null) {
+                return otherRuns.intersects((RoaringBitmap) store);
+            }
             RoaringBitmap otherBitmap = NatBitSetsUtil.bitmap(indices);
             if (otherBitmap != null) {
                 return RoaringBitmap.intersects((RoaringBitmap) store, otherBitmap);
@@ -954,6 +1739,7 @@ class HybridNatBitSet extends AbstractNatBitSet {
         if (indices == this) { // NOPMD - identity is the point
             return;
         }
+        ensureExclusive();
         Object store = this.store;
         if (store instanceof int[]) {
             // An intersection can only shrink, so array mode always survives it.
@@ -971,6 +1757,34 @@ class HybridNatBitSet extends AbstractNatBitSet {
         }
         BitSet otherWords = NatBitSetsUtil.words(indices);
         RoaringBitmap otherBitmap = NatBitSetsUtil.bitmap(indices);
+        Runs otherRuns = NatBitSetsUtil.runs(indices);
+
+        if (store instanceof Runs) {
+            Runs runs = (Runs) store;
+            if (otherRuns != null) {
+                combineRuns(runs, otherRuns, BitOperation.AND);
+                return;
+            }
+            // The operand cut down to our runs - a copy of it with the gaps between them cleared
+            if (otherWords != null) {
+                BitSet clipped = (BitSet) otherWords.clone();
+                runs.applyTo(clipped, BitOperation.AND);
+                convert(clipped);
+                this.size = SIZE_UNKNOWN;
+                return;
+            }
+            if (otherBitmap != null) {
+                RoaringBitmap clipped = otherBitmap.clone();
+                runs.applyTo(clipped, BitOperation.AND);
+                convert(clipped);
+                this.size = SIZE_UNKNOWN;
+                return;
+            }
+        } else if (otherRuns != null) {
+            // Words and bitmaps clear the gaps between the operand's runs, a range at a time
+            applyRuns(otherRuns, BitOperation.AND);
+            return;
+        }
 
         // Direct fast-path
         if (store instanceof BitSet) {
@@ -1013,7 +1827,7 @@ class HybridNatBitSet extends AbstractNatBitSet {
                     }
                 }
             }
-            Mode mode = idealModeEstimate(count, last);
+            Mode mode = chooseMode(count, last, runBound(count, last));
             if (mode == Mode.ARRAY) {
                 int[] newStore;
                 if (count < retained.length) {
@@ -1022,7 +1836,10 @@ class HybridNatBitSet extends AbstractNatBitSet {
                     newStore = retained;
                 }
                 Arrays.sort(newStore);
-                this.store = newStore;
+                convert(newStore);
+            } else if (mode == Mode.RUNS) {
+                Arrays.sort(retained, 0, count);
+                convert(Runs.of(retained, count));
             } else if (mode == Mode.BIT_SET) {
                 BitSet newStore;
                 if (store instanceof BitSet) {
@@ -1030,7 +1847,7 @@ class HybridNatBitSet extends AbstractNatBitSet {
                     newStore.clear();
                 } else {
                     newStore = new BitSet(last + 1);
-                    this.store = newStore;
+                    convert(newStore);
                 }
                 for (int i = 0; i < count; i++) {
                     newStore.set(retained[i]);
@@ -1042,7 +1859,7 @@ class HybridNatBitSet extends AbstractNatBitSet {
                     newStore.clear();
                 } else {
                     newStore = new RoaringBitmap();
-                    this.store = newStore;
+                    convert(newStore);
                 }
                 for (int i = 0; i < count; i++) {
                     newStore.add(retained[i]);
@@ -1062,6 +1879,7 @@ class HybridNatBitSet extends AbstractNatBitSet {
     private boolean removeEachFromContainers(IntCollection indices, boolean trackRemove) {
         boolean track = trackRemove || size != SIZE_UNKNOWN;
         int removed = 0;
+        ensureExclusive();
         Object store = this.store;
         IntIterator iterator = indices.iterator();
         if (store instanceof BitSet) {
@@ -1111,6 +1929,7 @@ class HybridNatBitSet extends AbstractNatBitSet {
             clear();
             return;
         }
+        ensureExclusive();
         Object store = this.store;
 
         if (store instanceof int[]) {
@@ -1132,6 +1951,43 @@ class HybridNatBitSet extends AbstractNatBitSet {
             return;
         }
 
+        Runs otherRuns = NatBitSetsUtil.runs(indices);
+        if (store instanceof Runs) {
+            Runs runs = (Runs) store;
+            if (otherRuns != null) {
+                combineRuns(runs, otherRuns, BitOperation.AND_NOT);
+                return;
+            }
+            // Taking the elements of words or a bitmap out of runs can fragment them arbitrarily, so the
+            // result goes to the operand's representation right away
+            BitSet otherWords = NatBitSetsUtil.words(indices);
+            if (otherWords != null) {
+                BitSet bitSet = runs.toBitSet(runs.last());
+                bitSet.andNot(otherWords);
+                convert(bitSet);
+                this.size = SIZE_UNKNOWN;
+                return;
+            }
+            RoaringBitmap otherBitmap = NatBitSetsUtil.bitmap(indices);
+            if (otherBitmap != null) {
+                RoaringBitmap bitmap = runs.toBitmap();
+                bitmap.andNot(otherBitmap);
+                convert(bitmap);
+                this.size = SIZE_UNKNOWN;
+                return;
+            }
+            if (indices instanceof IntSet && indices.size() >= size()) {
+                removeIf(indices::contains);
+            } else {
+                indices.forEach(this::clear);
+            }
+            return;
+        }
+        if (otherRuns != null) {
+            applyRuns(otherRuns, BitOperation.AND_NOT);
+            return;
+        }
+
         if (store instanceof BitSet) {
             BitSet bitSet = (BitSet) store;
             BitSet otherWords = NatBitSetsUtil.words(indices);
@@ -1204,16 +2060,33 @@ class HybridNatBitSet extends AbstractNatBitSet {
         if (indices.isEmpty() || indices == this) { // NOPMD - identity is the point
             return;
         }
+        ensureExclusive();
         Object store = this.store;
 
+        Runs otherRuns = NatBitSetsUtil.runs(indices);
+        if (otherRuns != null) {
+            // An array holds too few elements to add many runs, so it joins the operand's representation
+            if (store instanceof int[] || store instanceof Runs) {
+                combineRuns(store instanceof Runs ? (Runs) store : toRuns(), otherRuns, BitOperation.OR);
+                return;
+            }
+            prepareFor(indices.size(), otherRuns.last());
+            applyRuns(otherRuns, BitOperation.OR);
+            return;
+        }
+
         RoaringBitmap otherBitmap = NatBitSetsUtil.bitmap(indices);
         if (otherBitmap != null) {
             if (otherBitmap == store) { // NOPMD - identity is the point
                 return;
             }
+            if (policy.pinsWords()) {
+                applyBitmap(otherBitmap, BitOperation.OR);
+                return;
+            }
             // The other already gave up on words; follow it up the ladder rather than densifying.
             if (!(store instanceof RoaringBitmap)) {
-                this.store = toBitmap();
+                convert(toBitmap());
             }
             ((RoaringBitmap) this.store).or(otherBitmap);
             this.size = SIZE_UNKNOWN;
@@ -1229,10 +2102,10 @@ class HybridNatBitSet extends AbstractNatBitSet {
                 }
                 int otherLast = otherWords.length() - 1;
                 // bitSet.length() - 1 is lastInt(), and answers -1 rather than throwing when empty
-                if (otherLast >= bitSet.length() - 1 && preferRoaringOverBitSet(size() + indices.size(), otherLast)) {
+                if (otherLast >= bitSet.length() - 1 && leaveWordsForRoaring(size() + indices.size(), otherLast)) {
                     RoaringBitmap bitmap = RoaringBitmaps.of(bitSet);
                     RoaringBitmaps.add(bitmap, otherWords);
-                    this.store = bitmap;
+                    convert(bitmap);
                 } else {
                     bitSet.or(otherWords);
                 }
@@ -1244,11 +2117,18 @@ class HybridNatBitSet extends AbstractNatBitSet {
                 this.size = SIZE_UNKNOWN;
                 return;
             }
+            if (store instanceof Runs) {
+                BitSet newStore = toBitSet(Math.max(isEmpty() ? -1 : lastInt(), otherWords.length() - 1));
+                newStore.or(otherWords);
+                convert(newStore);
+                this.size = SIZE_UNKNOWN;
+                return;
+            }
             if (size + indices.size() > MAXIMAL_ARRAY_SIZE) {
                 int otherLast = otherWords.length() - 1;
                 BitSet newStore = toBitSet(Math.max(size == 0 ? -1 : lastInt(), otherLast));
                 newStore.or(otherWords);
-                this.store = newStore;
+                convert(newStore);
                 this.size = SIZE_UNKNOWN;
                 return;
             }
@@ -1261,6 +2141,41 @@ class HybridNatBitSet extends AbstractNatBitSet {
         indices.forEach(this::set);
     }
 
+    /** Sets or flips the elements of the bitmap in the words of a set pinned to them, a run at a time. */
+    private void applyBitmap(RoaringBitmap bitmap, BitOperation operation) {
+        assert operation == BitOperation.OR || operation == BitOperation.XOR;
+        BitSet bitSet = (BitSet) store;
+        boolean or = operation == BitOperation.OR;
+        RoaringBitmaps.forEachRun(bitmap, (first, last) -> {
+            // One past the largest index does not fit, so that one is taken on its own
+            if (last == Integer.MAX_VALUE) {
+                if (or) {
+                    bitSet.set(first, last);
+                    bitSet.set(last);
+                } else {
+                    bitSet.flip(first, last);
+                    bitSet.flip(last);
+                }
+            } else if (or) {
+                bitSet.set(first, last + 1);
+            } else {
+                bitSet.flip(first, last + 1);
+            }
+        });
+        this.size = SIZE_UNKNOWN;
+    }
+
+    /** Applies the operation with the given runs to the words or bitmap in place. */
+    private void applyRuns(Runs runs, BitOperation operation) {
+        Object store = this.store;
+        if (store instanceof BitSet) {
+            runs.applyTo((BitSet) store, operation);
+        } else {
+            runs.applyTo((RoaringBitmap) store, operation);
+        }
+        this.size = SIZE_UNKNOWN;
+    }
+
     @Override
     public void xor(IntCollection indices) {
         if (indices.isEmpty()) {
@@ -1270,6 +2185,7 @@ class HybridNatBitSet extends AbstractNatBitSet {
             clear();
             return;
         }
+        ensureExclusive();
         Object store = this.store;
 
         RoaringBitmap otherBitmap = NatBitSetsUtil.bitmap(indices);
@@ -1278,15 +2194,31 @@ class HybridNatBitSet extends AbstractNatBitSet {
                 clear();
                 return;
             }
+            if (policy.pinsWords()) {
+                applyBitmap(otherBitmap, BitOperation.XOR);
+                return;
+            }
             // As in or: the operand already gave up on words, so follow it rather than densifying
             if (!(store instanceof RoaringBitmap)) {
-                this.store = toBitmap();
+                convert(toBitmap());
             }
             ((RoaringBitmap) this.store).xor(otherBitmap);
             this.size = SIZE_UNKNOWN;
             return;
         }
 
+        Runs otherRuns = NatBitSetsUtil.runs(indices);
+        if (otherRuns != null) {
+            // As in or: an array is folded into the runs
+            if (store instanceof int[] || store instanceof Runs) {
+                combineRuns(store instanceof Runs ? (Runs) store : toRuns(), otherRuns, BitOperation.XOR);
+                return;
+            }
+            prepareFor(indices.size(), otherRuns.last());
+            applyRuns(otherRuns, BitOperation.XOR);
+            return;
+        }
+
         prepareFor(indices.size(), NatBitSetsUtil.lastOf(indices));
 
         BitSet otherWords = NatBitSetsUtil.words(indices);
@@ -1301,6 +2233,13 @@ class HybridNatBitSet extends AbstractNatBitSet {
                 this.size = SIZE_UNKNOWN;
                 return;
             }
+            if (this.store instanceof Runs) {
+                BitSet newStore = toBitSet(Math.max(isEmpty() ? -1 : lastInt(), otherWords.length() - 1));
+                newStore.xor(otherWords);
+                convert(newStore);
+                this.size = SIZE_UNKNOWN;
+                return;
+            }
             // Array and other is small
             BitSets.forEach(otherWords, this::flip);
             return;
@@ -1365,7 +2304,8 @@ class HybridNatBitSet extends AbstractNatBitSet {
         }
         // Taking a few elements out one at a time says on its own whether any of them was there, where the
         // bulk paths have to bracket the operation with two cardinalities to find out
-        if (!(store instanceof int[]) && indices.size() < scanCost()) {
+        Object store = this.store;
+        if ((store instanceof BitSet || store instanceof RoaringBitmap) && indices.size() < scanCost()) {
             return removeEachFromContainers(indices, true);
         }
         int size = size();
@@ -1375,6 +2315,7 @@ class HybridNatBitSet extends AbstractNatBitSet {
 
     @Override
     public boolean removeIf(IntPredicate filter) {
+        ensureExclusive();
         Object store = this.store;
         if (store instanceof int[]) {
             int[] array = (int[]) store;
@@ -1390,6 +2331,30 @@ class HybridNatBitSet extends AbstractNatBitSet {
             this.size = retained;
             return modified;
         }
+        if (store instanceof Runs) {
+            // As for Roaring below: the victims are gathered as a bitmap, which keeps them compact however
+            // they fall, and taken out as runs if they have few
+            Runs runs = (Runs) store;
+            RoaringBitmap remove = new RoaringBitmap();
+            runs.forEach(value -> {
+                if (filter.test(value)) {
+                    remove.add(value);
+                }
+            });
+            if (remove.isEmpty()) {
+                return false;
+            }
+            Runs removeRuns = Runs.of(remove, MAXIMAL_RUN_COUNT);
+            if (removeRuns == null) {
+                RoaringBitmap bitmap = runs.toBitmap();
+                bitmap.andNot(remove);
+                convert(bitmap);
+                this.size = SIZE_UNKNOWN;
+            } else {
+                combineRuns(runs, removeRuns, BitOperation.AND_NOT);
+            }
+            return true;
+        }
         if (store instanceof BitSet) {
             BitSet bitSet = (BitSet) store;
             int removed = 0;
@@ -1423,14 +2388,22 @@ class HybridNatBitSet extends AbstractNatBitSet {
     }
 
     @Override
-    public IntStream intStream() {
+    public IntSpliterator spliterator() {
+        Object store = this.store;
         if (store instanceof int[]) {
-            return Arrays.stream((int[]) store, 0, size);
+            return NatBitSetSpliterators.of((int[]) store, size);
         }
-        if (store instanceof BitSet) {
-            return ((BitSet) store).stream();
+        if (store instanceof Runs) {
+            return NatBitSetSpliterators.of((Runs) store, size());
         }
-        return ((RoaringBitmap) store).stream();
+        return store instanceof BitSet
+                ? NatBitSetSpliterators.of((BitSet) store, size())
+                : NatBitSetSpliterators.of((RoaringBitmap) store, size());
+    }
+
+    @Override
+    public IntStream intStream() {
+        return StreamSupport.intStream(spliterator(), false);
     }
 
     static NatBitSet union(Collection<? extends IntCollection> operands) {
@@ -1464,7 +2437,7 @@ class HybridNatBitSet extends AbstractNatBitSet {
         if (spanKnown) {
             // The union holds at most every element of every operand, and at most the whole span
             int cardinality = (int) Math.min(totalCardinality, maximalLast + 1L);
-            mode = idealModeEstimate(cardinality, maximalLast);
+            mode = idealModeEstimate(NatBitSetPolicy.DEFAULT_MEMORY_SLACK, cardinality, maximalLast);
         } else {
             // Without a bound on the span, words could be arbitrarily wasteful and Roaring cannot be
             mode = Mode.ROARING;
@@ -1476,8 +2449,8 @@ class HybridNatBitSet extends AbstractNatBitSet {
             return new HybridNatBitSet(unionAsBitmap(present));
         }
 
-        if (mode == Mode.ARRAY) {
-            HybridNatBitSet result = new HybridNatBitSet();
+        if (mode == Mode.ARRAY || mode == Mode.RUNS) {
+            HybridNatBitSet result = mode == Mode.ARRAY ? new HybridNatBitSet() : new HybridNatBitSet(new Runs());
             for (IntCollection operand : present) {
                 result.or(operand);
             }
@@ -1528,11 +2501,154 @@ class HybridNatBitSet extends AbstractNatBitSet {
         return union;
     }
 
+    static NatBitSet intersection(Collection<? extends IntCollection> operands) {
+        if (operands.isEmpty()) {
+            throw new IllegalArgumentException("Intersection of no sets");
+        }
+        List<IntCollection> sorted = new ArrayList<>(operands);
+        for (IntCollection operand : sorted) {
+            if (operand.isEmpty()) {
+                return new HybridNatBitSet();
+            }
+        }
+        // The sizes of our own sets are cached once taken, so the sort only counts each of them once
+        sorted.sort(Comparator.comparingInt(IntCollection::size));
+
+        IntCollection smallest = sorted.get(0);
+        if (smallest instanceof HybridNatBitSet && !(((HybridNatBitSet) smallest).store instanceof int[])) {
+            return intersectionOfStores(sorted);
+        }
+
+        // The result is held as candidates, which every further operand can only thin out
+        int[] candidates = sortedElements(smallest);
+        int count = candidates.length;
+        for (int i = 1; i < sorted.size() && count > 0; i++) {
+            count = retainContained(candidates, count, sorted.get(i));
+        }
+        if (count <= MAXIMAL_ARRAY_SIZE) {
+            // The candidates may be a copy of a large operand, which the result should not hold on to
+            int[] elements = count < candidates.length ? Arrays.copyOf(candidates, count) : candidates;
+            return new HybridNatBitSet(elements, count);
+        }
+        HybridNatBitSet result = new HybridNatBitSet();
+        result.addAllSorted(candidates, 0, count);
+        return result;
+    }
+
+    /**
+     * The intersection of operands sorted by size, the smallest of which is backed by runs, words or a
+     * bitmap. Such a store intersects with others of its kind far faster than it is probed element by
+     * element, so the operands are folded into a copy of it. Bitmaps are intersected all in one go.
+     */
+    private static HybridNatBitSet intersectionOfStores(List<IntCollection> sorted) {
+        HybridNatBitSet smallest = (HybridNatBitSet) sorted.get(0);
+        List<IntCollection> remaining = sorted.subList(1, sorted.size());
+        HybridNatBitSet result = null;
+        if (smallest.isBitmapBacked()) {
+            List<RoaringBitmap> bitmaps = new ArrayList<>(sorted.size());
+            bitmaps.add(smallest.bitmap());
+            List<IntCollection> others = new ArrayList<>(remaining.size());
+            for (IntCollection operand : remaining) {
+                RoaringBitmap bitmap = NatBitSetsUtil.bitmap(operand);
+                if (bitmap == null) {
+                    others.add(operand);
+                } else {
+                    bitmaps.add(bitmap);
+                }
+            }
+            if (bitmaps.size() > 1) {
+                // Copies the first and intersects the others into it, smallest first, none is modified
+                result = new HybridNatBitSet(FastAggregation.and(bitmaps.iterator()));
+                remaining = others;
+            }
+        }
+        if (result == null) {
+            // A private copy rather than a shared one: the operand is only read and must not learn of the
+            // sharing, and the first and would copy the store anyway. The copy does not inherit a pin either.
+            result = new HybridNatBitSet();
+            result.store = copyOf(smallest.store);
+            result.size = smallest.size;
+        }
+        for (IntCollection operand : remaining) {
+            if (result.isEmpty()) {
+                break;
+            }
+            result.and(operand);
+        }
+        // Intersecting may have left far fewer elements than the store was chosen for
+        result.optimize();
+        return result;
+    }
+
+    /** The distinct elements of the operand in ascending order, in an array of their exact length. */
+    private static int[] sortedElements(IntCollection operand) {
+        if (operand instanceof HybridNatBitSet) {
+            HybridNatBitSet set = (HybridNatBitSet) operand;
+            if (set.store instanceof int[]) {
+                return Arrays.copyOf((int[]) set.store, set.size);
+            }
+        }
+        int[] elements = operand.toIntArray();
+        if (operand instanceof NatBitSet) {
+            return elements;
+        }
+        Arrays.sort(elements);
+        int distinct = 0;
+        for (int element : elements) {
+            if (distinct == 0 || elements[distinct - 1] != element) {
+                elements[distinct] = element;
+                distinct += 1;
+            }
+        }
+        if (distinct > 0) {
+            checkNonNegative(elements[0]);
+        }
+        return distinct == elements.length ? elements : Arrays.copyOf(elements, distinct);
+    }
+
+    /**
+     * Keeps those of the first {@code count} candidates the operand contains, in place, and returns how many
+     * that are. The candidates are sorted, so an array backed operand is walked alongside them, galloping
+     * over the stretches between two candidates.
+     */
+    private static int retainContained(int[] candidates, int count, IntCollection operand) {
+        int retained = 0;
+        if (operand instanceof HybridNatBitSet && ((HybridNatBitSet) operand).store instanceof int[]) {
+            HybridNatBitSet set = (HybridNatBitSet) operand;
+            int[] array = (int[]) set.store;
+            int size = set.size;
+            int position = 0;
+            for (int i = 0; i < count && position < size; i++) {
+                int candidate = candidates[i];
+                int found = Arrays2.gallopingSearch(array, position, size, candidate);
+                if (found >= 0) {
+                    candidates[retained] = candidate;
+                    retained += 1;
+                    position = found + 1;
+                } else {
+                    position = -(found + 1);
+                }
+            }
+            return retained;
+        }
+        IntPredicate contains =
+                operand instanceof HybridNatBitSet ? ((HybridNatBitSet) operand).probeThis() : operand::contains;
+        for (int i = 0; i < count; i++) {
+            int candidate = candidates[i];
+            if (contains.test(candidate)) {
+                candidates[retained] = candidate;
+                retained += 1;
+            }
+        }
+        return retained;
+    }
+
     // Clone and equality
 
     @SuppressWarnings("MethodDoesntCallSuperMethod")
     @Override
     public HybridNatBitSet clone() {
+        // Constant time, the store is only copied once either side writes to it
         return new HybridNatBitSet(this);
     }
 
@@ -1562,6 +2678,11 @@ class HybridNatBitSet extends AbstractNatBitSet {
                 HybridNatBitSet other = (HybridNatBitSet) o;
                 return size == other.size && Arrays.equals((int[]) store, 0, size, (int[]) other.store, 0, size);
             }
+        } else if (store instanceof Runs) {
+            Runs otherRuns = NatBitSetsUtil.runs(o);
+            if (otherRuns != null) {
+                return store.equals(otherRuns);
+            }
         } else if (store instanceof BitSet) {
             BitSet otherWords = NatBitSetsUtil.words(o);
             if (otherWords != null) {
@@ -1581,6 +2702,23 @@ class HybridNatBitSet extends AbstractNatBitSet {
         return super.hashCode();
     }
 
+    boolean isArrayBacked() {
+        return store instanceof int[];
+    }
+
+    /** The elements are the first {@link #size()} entries. */
+    int[] array() {
+        return (int[]) store;
+    }
+
+    boolean isRunBacked() {
+        return store instanceof Runs;
+    }
+
+    Runs runs() {
+        return (Runs) store;
+    }
+
     boolean isWordBacked() {
         return store instanceof BitSet;
     }
@@ -1634,6 +2772,58 @@ class HybridNatBitSet extends AbstractNatBitSet {
         }
     }
 
+    /**
+     * Walks a run at a time, searching only for the start of the next. Removal goes through the set, which
+     * may replace the runs or copy them - neither touches anything past the removed element, so the runs
+     * the iterator started with still answer for all it has yet to visit.
+     */
+    private static final class RunIterator implements IntIterator {
+        private final HybridNatBitSet set;
+        private final Runs runs;
+        // The next element, and the end of its run; next is -1 once there is none
+        private long next;
+        private long runEnd;
+        private int last = -1;
+
+        RunIterator(HybridNatBitSet set, Runs runs) {
+            this.set = set;
+            this.runs = runs;
+            this.next = runs.isEmpty() ? -1L : runs.first();
+            this.runEnd = runs.isEmpty() ? -1L : runs.nextAbsent(runs.first());
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0L;
+        }
+
+        @Override
+        public int nextInt() {
+            if (next < 0L) {
+                throw new NoSuchElementException();
+            }
+            int value = (int) next;
+            next += 1L;
+            if (next == runEnd) {
+                next = next > Integer.MAX_VALUE ? -1L : runs.nextPresent((int) next);
+                if (next >= 0L) {
+                    runEnd = runs.nextAbsent((int) next);
+                }
+            }
+            last = value;
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            set.clear(last);
+            last = -1;
+        }
+    }
+
     private static final class ArrayIterator implements IntIterator {
         private final HybridNatBitSet set;
         private int next;
@@ -1666,6 +2856,7 @@ class HybridNatBitSet extends AbstractNatBitSet {
             }
             removable = false;
             next -= 1;
+            set.ensureExclusive();
             int[] array = (int[]) set.store;
             System.arraycopy(array, next + 1, array, next, set.size - next - 1);
             set.size -= 1;
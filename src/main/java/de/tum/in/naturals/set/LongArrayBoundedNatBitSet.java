@@ -0,0 +1,583 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static de.tum.in.naturals.BitUtil.maskTo;
+import static de.tum.in.naturals.set.NatBitSetsUtil.checkNonNegative;
+import static de.tum.in.naturals.set.NatBitSetsUtil.checkOrdered;
+import static de.tum.in.naturals.set.NatBitSetsUtil.checkRange;
+
+import de.tum.in.naturals.MemoryFootprint;
+import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import javax.annotation.Nonnegative;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A bounded set over a domain of at most {@link #maximalSize()} values, held in a fixed array of words - as
+ * fast as {@link LongBoundedNatBitSet} for domains a little past a single word. The array has exactly as
+ * many words as the domain needs and never grows, so there is neither the indirection through a
+ * {@link BitSet} nor its bookkeeping of the words in use, and bulk operations on two such sets are a
+ * straight loop over at most eight words.
+ */
+class LongArrayBoundedNatBitSet extends AbstractBoundedNatBitSet {
+    private static final int MAXIMAL_WORDS = 8;
+
+    private final long[] words;
+    // The bits of the domain in the last word
+    private final long lastMask;
+
+    private LongArrayBoundedNatBitSet(long[] words, @Nonnegative int domainSize) {
+        super(domainSize);
+        this.words = words;
+        this.lastMask = maskTo(domainSize - Long.SIZE * (words.length - 1));
+        assert checkConsistency();
+    }
+
+    LongArrayBoundedNatBitSet(@Nonnegative int domainSize) {
+        this(new long[wordsFor(domainSize)], domainSize);
+    }
+
+    public static int maximalSize() {
+        return MAXIMAL_WORDS * Long.SIZE;
+    }
+
+    private static int wordsFor(int domainSize) {
+        if (domainSize <= Long.SIZE || maximalSize() < domainSize) {
+            throw new IllegalArgumentException(String.format(
+                    "Domain size %d not in (%d, %d]", domainSize, Long.SIZE, maximalSize()));
+        }
+        return (domainSize + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /** The bits of word {@code wordIndex} which fall into {@code [from, to)}, for a non-empty range. */
+    private static long rangeMask(int wordIndex, int from, int to) {
+        long mask = -1L;
+        if (wordIndex == from >>> 6) {
+            mask &= -1L << from;
+        }
+        if (wordIndex == (to - 1) >>> 6) {
+            mask &= -1L >>> -to;
+        }
+        return mask;
+    }
+
+    /**
+     * The words of a word backed operand which overlap this set, or {@code null} if it has none. A larger bit set is
+     * only read up to the words of this set; {@link #exceeds(Object)} tells whether it has elements past them. The
+     * result must not be modified.
+     */
+    private long @Nullable [] wordsOf(Object indices) {
+        if (indices instanceof LongArrayBoundedNatBitSet) {
+            return ((LongArrayBoundedNatBitSet) indices).words;
+        }
+        if (indices instanceof LongBoundedNatBitSet) {
+            return new long[] {((LongBoundedNatBitSet) indices).getStore()};
+        }
+        BitSet bitSet = NatBitSetsUtil.words(indices);
+        return bitSet == null ? null : bitSet.get(0, Long.SIZE * words.length).toLongArray();
+    }
+
+    /** Whether a word backed operand has elements past the words returned by {@link #wordsOf(Object)}. */
+    private boolean exceeds(Object indices) {
+        BitSet bitSet = NatBitSetsUtil.words(indices);
+        return bitSet != null && bitSet.length() > Long.SIZE * words.length;
+    }
+
+    private static long wordAt(long[] words, int index) {
+        return index < words.length ? words[index] : 0L;
+    }
+
+    static int andCardinality(LongArrayBoundedNatBitSet one, LongArrayBoundedNatBitSet other) {
+        int length = Math.min(one.words.length, other.words.length);
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            count += Long.bitCount(one.words[i] & other.words[i]);
+        }
+        return count;
+    }
+
+    /** The bits of word {@code index} which belong to the domain. */
+    private long domainMask(int index) {
+        int last = words.length - 1;
+        if (index < last) {
+            return -1L;
+        }
+        return index == last ? lastMask : 0L;
+    }
+
+    private void checkWordsInDomain(long[] other) {
+        for (int i = 0; i < other.length; i++) {
+            long excess = other[i] & ~domainMask(i);
+            if (excess != 0L) {
+                checkInDomain(Long.SIZE * i + Long.numberOfTrailingZeros(excess));
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (long word : words) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    @Override
+    public boolean contains(int index) {
+        return inDomain(index) && (words[index >>> 6] & (1L << index)) != 0L;
+    }
+
+    @Override
+    public boolean containsAll(IntCollection indices) {
+        if (indices.isEmpty()) {
+            return true;
+        }
+        long[] other = wordsOf(indices);
+        if (other != null) {
+            if (exceeds(indices)) {
+                return false;
+            }
+            for (int i = 0; i < other.length; i++) {
+                if ((other[i] & ~wordAt(words, i)) != 0L) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (isEmpty() || NatBitSetsUtil.lastOf(indices) >= domainSize()) {
+            return false;
+        }
+        return super.containsAll(indices);
+    }
+
+    @Override
+    public int firstInt() {
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] != 0L) {
+                return Long.SIZE * i + Long.numberOfTrailingZeros(words[i]);
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    @Override
+    public int lastInt() {
+        for (int i = words.length - 1; i >= 0; i--) {
+            if (words[i] != 0L) {
+                return Long.SIZE * (i + 1) - Long.numberOfLeadingZeros(words[i]) - 1;
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    @Override
+    public int nextPresentIndex(int index) {
+        checkNonNegative(index);
+        if (index >= domainSize()) {
+            return -1;
+        }
+        int i = index >>> 6;
+        long word = words[i] & (-1L << index);
+        while (word == 0L) {
+            i += 1;
+            if (i == words.length) {
+                return -1;
+            }
+            word = words[i];
+        }
+        return Long.SIZE * i + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    public int nextAbsentIndex(int index) {
+        checkNonNegative(index);
+        if (index >= domainSize()) {
+            return index;
+        }
+        int i = index >>> 6;
+        long word = ~words[i] & (-1L << index);
+        while (word == 0L) {
+            i += 1;
+            if (i == words.length) {
+                return domainSize();
+            }
+            word = ~words[i];
+        }
+        // The bits past the domain are never set, so the first of them counts as absent
+        return Math.min(Long.SIZE * i + Long.numberOfTrailingZeros(word), domainSize());
+    }
+
+    @Override
+    public int previousPresentIndex(int index) {
+        checkNonNegative(index);
+        int from = Math.min(index, domainSize() - 1);
+        int i = from >>> 6;
+        long word = words[i] & (-1L >>> (Long.SIZE - 1 - (from & 63)));
+        while (word == 0L) {
+            i -= 1;
+            if (i < 0) {
+                return -1;
+            }
+            word = words[i];
+        }
+        return Long.SIZE * (i + 1) - Long.numberOfLeadingZeros(word) - 1;
+    }
+
+    @Override
+    public int previousAbsentIndex(int index) {
+        checkNonNegative(index);
+        if (index >= domainSize()) {
+            return index;
+        }
+        int i = index >>> 6;
+        long word = ~words[i] & (-1L >>> (Long.SIZE - 1 - (index & 63)));
+        while (word == 0L) {
+            i -= 1;
+            if (i < 0) {
+                return -1;
+            }
+            word = ~words[i];
+        }
+        return Long.SIZE * (i + 1) - Long.numberOfLeadingZeros(word) - 1;
+    }
+
+    @Override
+    public int rank(int index) {
+        if (index <= 0) {
+            return 0;
+        }
+        int limit = Math.min(index, domainSize());
+        int full = limit >>> 6;
+        int rank = 0;
+        for (int i = 0; i < full; i++) {
+            rank += Long.bitCount(words[i]);
+        }
+        if ((limit & 63) != 0) {
+            rank += Long.bitCount(words[full] & maskTo(limit & 63));
+        }
+        return rank;
+    }
+
+    @Override
+    public int select(int rank) {
+        Objects.checkIndex(rank, size());
+        int remainingRank = rank;
+        int i = 0;
+        int count = Long.bitCount(words[i]);
+        while (remainingRank >= count) {
+            remainingRank -= count;
+            i += 1;
+            count = Long.bitCount(words[i]);
+        }
+        long remaining = words[i];
+        for (int j = 0; j < remainingRank; j++) {
+            remaining &= remaining - 1;
+        }
+        return Long.SIZE * i + Long.numberOfTrailingZeros(remaining);
+    }
+
+    @Override
+    public IntIterator iterator() {
+        return new WordsIterator();
+    }
+
+    @Override
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < words.length; i++) {
+            long remaining = words[i];
+            while (remaining != 0L) {
+                consumer.accept(Long.SIZE * i + Long.numberOfTrailingZeros(remaining));
+                remaining &= remaining - 1;
+            }
+        }
+    }
+
+    @Override
+    public void forEachWord(LongWordConsumer consumer) {
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] != 0L) {
+                consumer.accept(i, words[i]);
+            }
+        }
+    }
+
+    @Override
+    public void forEachRun(IntIntConsumer consumer) {
+        int first = nextPresentIndex(0);
+        while (first >= 0) {
+            int end = nextAbsentIndex(first);
+            consumer.accept(first, end - 1);
+            first = end == domainSize() ? -1 : nextPresentIndex(end);
+        }
+    }
+
+    @Override
+    public void set(int index) {
+        checkInDomain(index);
+        words[index >>> 6] |= 1L << index;
+    }
+
+    @Override
+    public void set(int index, boolean value) {
+        if (value) {
+            set(index);
+        } else {
+            clear(index);
+        }
+    }
+
+    @Override
+    public void set(int from, int to) {
+        checkRange(from, to);
+        if (from == to) {
+            return;
+        }
+        checkInDomain(from, to);
+        for (int i = from >>> 6; i <= (to - 1) >>> 6; i++) {
+            words[i] |= rangeMask(i, from, to);
+        }
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    @Override
+    public void clear(int index) {
+        if (inDomain(index)) {
+            words[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    @Override
+    public void clear(int from, int to) {
+        checkOrdered(from, to);
+        int start = Math.max(0, from);
+        int end = Math.min(to, domainSize());
+        if (start < end) {
+            for (int i = start >>> 6; i <= (end - 1) >>> 6; i++) {
+                words[i] &= ~rangeMask(i, start, end);
+            }
+        }
+    }
+
+    @Override
+    public void flip(int index) {
+        checkInDomain(index);
+        words[index >>> 6] ^= 1L << index;
+    }
+
+    @Override
+    public void flip(int from, int to) {
+        checkRange(from, to);
+        if (from == to) {
+            return;
+        }
+        checkInDomain(from, to);
+        for (int i = from >>> 6; i <= (to - 1) >>> 6; i++) {
+            words[i] ^= rangeMask(i, from, to);
+        }
+    }
+
+    @Override
+    public boolean intersects(Collection<Integer> indices) {
+        long[] other = wordsOf(indices);
+        if (other == null) {
+            return super.intersects(indices);
+        }
+        int length = Math.min(words.length, other.length);
+        for (int i = 0; i < length; i++) {
+            if ((words[i] & other[i]) != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void and(IntCollection indices) {
+        long[] other = wordsOf(indices);
+        if (other == null) {
+            super.and(indices);
+        } else {
+            for (int i = 0; i < words.length; i++) {
+                words[i] &= wordAt(other, i);
+            }
+        }
+        assert checkConsistency();
+    }
+
+    @Override
+    public void andNot(IntCollection indices) {
+        long[] other = wordsOf(indices);
+        if (other == null) {
+            super.andNot(indices);
+        } else {
+            int length = Math.min(words.length, other.length);
+            for (int i = 0; i < length; i++) {
+                words[i] &= ~other[i];
+            }
+        }
+        assert checkConsistency();
+    }
+
+    @Override
+    public void or(IntCollection indices) {
+        long[] other = wordsOf(indices);
+        if (other == null) {
+            super.or(indices);
+        } else {
+            checkWordsInDomain(other);
+            if (exceeds(indices)) {
+                checkInDomain(NatBitSetsUtil.lastOf(indices));
+            }
+            int length = Math.min(words.length, other.length);
+            for (int i = 0; i < length; i++) {
+                words[i] |= other[i];
+            }
+        }
+        assert checkConsistency();
+    }
+
+    @Override
+    public void orNot(IntCollection indices) {
+        long[] other = wordsOf(indices);
+        if (other == null) {
+            super.orNot(indices);
+        } else {
+            for (int i = 0; i < words.length; i++) {
+                words[i] |= ~wordAt(other, i) & domainMask(i);
+            }
+        }
+        assert checkConsistency();
+    }
+
+    @Override
+    public void xor(IntCollection indices) {
+        long[] other = wordsOf(indices);
+        if (other == null) {
+            super.xor(indices);
+        } else {
+            checkWordsInDomain(other);
+            if (exceeds(indices)) {
+                checkInDomain(NatBitSetsUtil.lastOf(indices));
+            }
+            int length = Math.min(words.length, other.length);
+            for (int i = 0; i < length; i++) {
+                words[i] ^= other[i];
+            }
+        }
+        assert checkConsistency();
+    }
+
+    @Override
+    public long estimatedBytes() {
+        // The domain size, the last mask and the words
+        return MemoryFootprint.objectBytes(Integer.BYTES + Long.BYTES + 4L)
+                + MemoryFootprint.arrayBytes(words.length, Long.BYTES);
+    }
+
+    @SuppressWarnings("MethodDoesntCallSuperMethod")
+    @Override
+    public LongArrayBoundedNatBitSet clone() {
+        return new LongArrayBoundedNatBitSet(words.clone(), domainSize());
+    }
+
+    @Override
+    public void complement() {
+        for (int i = 0; i < words.length; i++) {
+            words[i] = ~words[i] & domainMask(i);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Set)) {
+            return false;
+        }
+        long[] other = wordsOf(o);
+        if (other == null) {
+            return super.equals(o);
+        }
+        if (exceeds(o)) {
+            return false;
+        }
+        int length = Math.max(words.length, other.length);
+        for (int i = 0; i < length; i++) {
+            if (wordAt(words, i) != wordAt(other, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    private boolean checkConsistency() {
+        return (words[words.length - 1] & ~lastMask) == 0L;
+    }
+
+    private final class WordsIterator implements IntIterator {
+        private int wordIndex;
+        private long remaining = words[0];
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            while (remaining == 0L) {
+                if (wordIndex == words.length - 1) {
+                    return false;
+                }
+                wordIndex += 1;
+                remaining = words[wordIndex];
+            }
+            return true;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int index = Long.SIZE * wordIndex + Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            last = index;
+            return index;
+        }
+
+        @Override
+        public void remove() {
+            if (last == -1) {
+                throw new IllegalStateException();
+            }
+            words[last >>> 6] &= ~(1L << last);
+            last = -1;
+        }
+    }
+}
@@ -8,11 +8,13 @@ import static de.tum.in.naturals.set.NatBitSetsUtil.checkNonNegative;
 import static de.tum.in.naturals.set.NatBitSetsUtil.checkOrdered;
 import static de.tum.in.naturals.set.NatBitSetsUtil.checkRange;
 
+import de.tum.in.naturals.MemoryFootprint;
 import it.unimi.dsi.fastutil.ints.IntCollection;
 import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import java.util.Collection;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.IntConsumer;
 import javax.annotation.Nonnegative;
@@ -135,6 +137,21 @@ class LongBoundedNatBitSet extends AbstractBoundedNatBitSet {
         return masked == 0L ? -1 : Long.SIZE - Long.numberOfLeadingZeros(masked) - 1;
     }
 
+    @Override
+    public int rank(int index) {
+        return index <= 0 ? 0 : Long.bitCount(store & maskTo(Math.min(index, Long.SIZE)));
+    }
+
+    @Override
+    public int select(int rank) {
+        Objects.checkIndex(rank, size());
+        long remaining = store;
+        for (int i = 0; i < rank; i++) {
+            remaining &= remaining - 1;
+        }
+        return Long.numberOfTrailingZeros(remaining);
+    }
+
     @Override
     public IntIterator iterator() {
         return new WordIterator();
@@ -149,6 +166,25 @@ class LongBoundedNatBitSet extends AbstractBoundedNatBitSet {
         }
     }
 
+    @Override
+    public void forEachWord(LongWordConsumer consumer) {
+        if (store != 0L) {
+            consumer.accept(0, store);
+        }
+    }
+
+    @Override
+    public void forEachRun(IntIntConsumer consumer) {
+        long remaining = store;
+        while (remaining != 0L) {
+            int first = Long.numberOfTrailingZeros(remaining);
+            // The zeros shifted in from the top end a run reaching the last bit at 64
+            int end = first + Long.numberOfTrailingZeros(~(remaining >>> first));
+            consumer.accept(first, end - 1);
+            remaining = end == Long.SIZE ? 0L : remaining & (-1L << end);
+        }
+    }
+
     @Override
     public void set(int index) {
         checkInDomain(index);
@@ -334,6 +370,12 @@ class LongBoundedNatBitSet extends AbstractBoundedNatBitSet {
         assert checkConsistency();
     }
 
+    @Override
+    public long estimatedBytes() {
+        // The domain size, its mask and the word
+        return MemoryFootprint.objectBytes(Integer.BYTES + 2L * Long.BYTES);
+    }
+
     @Override
     public LongBoundedNatBitSet clone() {
         return (LongBoundedNatBitSet) super.clone();
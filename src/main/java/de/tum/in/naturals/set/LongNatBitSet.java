@@ -0,0 +1,194 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import javax.annotation.Nonnegative;
+
+/**
+ * A set of non-negative longs, the counterpart of {@link NatBitSet} for index spaces beyond
+ * {@link Integer#MAX_VALUE}. It offers the same {@link BitSet}-like navigation and bulk operations,
+ * without boxing.
+ *
+ * <p>Since a {@link Collection} cannot report more than {@link Integer#MAX_VALUE} elements,
+ * {@link #size()} saturates; {@link #longSize()} gives the exact count.</p>
+ *
+ * @see NatBitSets#longSet()
+ */
+public interface LongNatBitSet extends LongSet, Cloneable {
+    // Accessors
+
+    /** The number of elements in this set. */
+    long longSize();
+
+    /**
+     * Returns the first (smallest) element currently in this set.
+     *
+     * @throws NoSuchElementException
+     *     if this set is empty
+     * @see SortedSet#first()
+     */
+    @Nonnegative
+    long firstLong();
+
+    /**
+     * Returns the last (highest) element currently in this set.
+     *
+     * @throws NoSuchElementException
+     *     if this set is empty
+     * @see SortedSet#last()
+     */
+    @Nonnegative
+    long lastLong();
+
+    /**
+     * Returns the smallest index larger or equal to {@code index} which is contained in this set or
+     * -1 if none.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if {@code index} is negative.
+     * @see BitSet#nextSetBit(int)
+     */
+    long nextPresentIndex(@Nonnegative long index);
+
+    /**
+     * Returns the smallest index larger or equal to {@code index} which is not contained in this set. If
+     * all indices from {@code index} on are present, {@link Long#MAX_VALUE} is returned.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if {@code index} is negative.
+     * @see BitSet#nextClearBit(int)
+     */
+    long nextAbsentIndex(@Nonnegative long index);
+
+    /**
+     * Returns the largest index smaller or equal to {@code index} which is contained in this set or
+     * -1 if none.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if {@code index} is negative.
+     * @see BitSet#previousSetBit(int)
+     */
+    long previousPresentIndex(@Nonnegative long index);
+
+    /**
+     * Returns the largest index smaller or equal to {@code index} which is not contained in this set
+     * or -1 if none.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if {@code index} is negative.
+     * @see BitSet#previousClearBit(int)
+     */
+    long previousAbsentIndex(@Nonnegative long index);
+
+    /**
+     * Returns an {@link LongIterator iterator} returning the elements of this set in ascending order.
+     */
+    @Override
+    LongIterator iterator();
+
+    /**
+     * Returns an {@link LongIterator iterator} returning the elements of this set in descending order.
+     */
+    LongIterator reverseIterator();
+
+    // Mutators
+
+    /**
+     * Adds the given index to this set.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if {@code index} is negative.
+     * @see BitSet#set(int)
+     */
+    void set(@Nonnegative long index);
+
+    /**
+     * Adds the given range ({@code from} inclusive, {@code to} exclusive) to this set.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if {@code from} is negative or {@code to} is less than {@code from}.
+     * @see BitSet#set(int, int)
+     */
+    void set(@Nonnegative long from, @Nonnegative long to);
+
+    /**
+     * Removes the given index. A negative index is absent by definition, so removing it is a no-op.
+     *
+     * @see BitSet#clear(int)
+     */
+    void clear(long index);
+
+    /**
+     * Removes the given range ({@code from} inclusive, {@code to} exclusive), clamped to the non-negative
+     * indices.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if {@code to} is less than {@code from}.
+     * @see BitSet#clear(int, int)
+     */
+    void clear(long from, long to);
+
+    /**
+     * Flips the given index.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if {@code index} is negative.
+     * @see BitSet#flip(int)
+     */
+    default void flip(@Nonnegative long index) {
+        if (contains(index)) {
+            clear(index);
+        } else {
+            set(index);
+        }
+    }
+
+    /**
+     * Retains only the given indices.
+     *
+     * @see BitSet#and(BitSet)
+     */
+    void and(LongCollection indices);
+
+    /**
+     * Removes the given indices.
+     *
+     * @see BitSet#andNot(BitSet)
+     */
+    void andNot(LongCollection indices);
+
+    /**
+     * Adds the given indices.
+     *
+     * @see BitSet#or(BitSet)
+     */
+    void or(LongCollection indices);
+
+    /**
+     * Flips the given indices.
+     *
+     * @see BitSet#xor(BitSet)
+     */
+    void xor(LongCollection indices);
+
+    /**
+     * Optimise internal representation for read-heavy use. Contents are unchanged.
+     *
+     * @return whether the representation changed.
+     */
+    default boolean optimize() {
+        // Nothing to gain
+        return false;
+    }
+
+    // Clone
+
+    LongNatBitSet clone();
+}
@@ -0,0 +1,245 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static de.tum.in.naturals.set.NatBitSetsUtil.checkNonNegative;
+
+import de.tum.in.naturals.MemoryFootprint;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import java.nio.LongBuffer;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * An unmodifiable set reading its words straight from a {@link LongBuffer}, typically a memory-mapped
+ * file. Nothing is copied: opening the set costs nothing, and pages are only brought in as they are read.
+ * The words are laid out as in {@link BitSet#toLongArray()}.
+ */
+final class MappedNatBitSet extends AbstractNatBitSet {
+    private static final int SIZE_UNKNOWN = -1;
+    private static final long BUFFER_FIELD_BYTES = 40L;
+
+    private final LongBuffer words;
+    private final int wordCount;
+    // Lazy, and racy on purpose: every thread computes the same value
+    private int size;
+
+    MappedNatBitSet(LongBuffer words, int size) {
+        this.words = words;
+        this.wordCount = words.limit();
+        this.size = size;
+    }
+
+    MappedNatBitSet(LongBuffer words) {
+        this(words, SIZE_UNKNOWN);
+    }
+
+    // Accessors
+
+    @Override
+    public boolean isEmpty() {
+        if (size != SIZE_UNKNOWN) {
+            return size == 0;
+        }
+        return lastWordIndex() < 0;
+    }
+
+    @Override
+    public int size() {
+        int size = this.size;
+        if (size == SIZE_UNKNOWN) {
+            size = 0;
+            for (int i = 0; i < wordCount; i++) {
+                size += Long.bitCount(words.get(i));
+            }
+            this.size = size;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean contains(int index) {
+        if (index < 0) {
+            return false;
+        }
+        int word = index >>> 6;
+        return word < wordCount && (words.get(word) & (1L << index)) != 0L;
+    }
+
+    private int lastWordIndex() {
+        int word = wordCount - 1;
+        while (word >= 0 && words.get(word) == 0L) {
+            word -= 1;
+        }
+        return word;
+    }
+
+    @Override
+    public int lastInt() {
+        int word = lastWordIndex();
+        if (word < 0) {
+            throw new NoSuchElementException();
+        }
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(words.get(word));
+    }
+
+    @Override
+    public int nextPresentIndex(int index) {
+        checkNonNegative(index);
+        int word = index >>> 6;
+        if (word >= wordCount) {
+            return -1;
+        }
+        long current = words.get(word) & (-1L << index);
+        while (current == 0L) {
+            word += 1;
+            if (word == wordCount) {
+                return -1;
+            }
+            current = words.get(word);
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(current);
+    }
+
+    @Override
+    public int nextAbsentIndex(int index) {
+        checkNonNegative(index);
+        int word = index >>> 6;
+        if (word >= wordCount) {
+            return index;
+        }
+        long current = ~words.get(word) & (-1L << index);
+        while (current == 0L) {
+            word += 1;
+            if (word == wordCount) {
+                // Saturate as BitSet.nextClearBit does
+                return (int) Math.min((long) wordCount << 6, Integer.MAX_VALUE);
+            }
+            current = ~words.get(word);
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(current);
+    }
+
+    @Override
+    public int previousPresentIndex(int index) {
+        checkNonNegative(index);
+        int word = index >>> 6;
+        long current;
+        if (word >= wordCount) {
+            word = wordCount - 1;
+            current = word < 0 ? 0L : words.get(word);
+        } else {
+            current = words.get(word) & (-1L >>> (63 - (index & 63)));
+        }
+        while (current == 0L) {
+            if (word <= 0) {
+                return -1;
+            }
+            word -= 1;
+            current = words.get(word);
+        }
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(current);
+    }
+
+    @Override
+    public int previousAbsentIndex(int index) {
+        checkNonNegative(index);
+        int word = index >>> 6;
+        if (word >= wordCount) {
+            return index;
+        }
+        long current = ~words.get(word) & (-1L >>> (63 - (index & 63)));
+        while (current == 0L) {
+            if (word == 0) {
+                return -1;
+            }
+            word -= 1;
+            current = ~words.get(word);
+        }
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(current);
+    }
+
+    @Override
+    public IntIterator iterator() {
+        return new NatBitSetIterator(this);
+    }
+
+    @Override
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < wordCount; i++) {
+            long word = words.get(i);
+            while (word != 0L) {
+                consumer.accept((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    // Mutators - unsupported
+
+    @Override
+    public void set(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void set(int index, boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void set(int from, int to) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear(int from, int to) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void flip(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void flip(int from, int to) {
+        throw new UnsupportedOperationException();
+    }
+
+    /** Counts only the heap: the mapped words live outside of it, in pages the operating system manages. */
+    @Override
+    public long estimatedBytes() {
+        // The buffer, the word count and the size, then the buffer with its positions, address and owners
+        return MemoryFootprint.objectBytes(4L + 2L * Integer.BYTES) + MemoryFootprint.objectBytes(BUFFER_FIELD_BYTES);
+    }
+
+    // Clone and equality
+
+    @SuppressWarnings("MethodDoesntCallSuperMethod")
+    @Override
+    public MappedNatBitSet clone() {
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+}
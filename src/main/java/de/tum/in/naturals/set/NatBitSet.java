@@ -2,14 +2,17 @@
 
 package de.tum.in.naturals.set;
 
+import de.tum.in.naturals.MemoryFootprint;
 import it.unimi.dsi.fastutil.ints.IntCollection;
 import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntIterators;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedSet;
 import javax.annotation.Nonnegative;
@@ -23,7 +26,7 @@ import javax.annotation.Nonnegative;
  * problem by providing modification methods without return type, corresponding to the API of
  * {@link BitSet}.</p>
  */
-public interface NatBitSet extends NatSet, Cloneable {
+public interface NatBitSet extends NatSet, Cloneable, MemoryFootprint {
     // Accessors
 
     /**
@@ -95,6 +98,84 @@ public interface NatBitSet extends NatSet, Cloneable {
      */
     int previousAbsentIndex(@Nonnegative int index);
 
+    /**
+     * Returns the number of elements smaller than {@code index}, that is, the position {@code index} has - or
+     * would have - among the elements in ascending order. Negative indices have rank 0.
+     *
+     * @see #select(int)
+     */
+    default int rank(int index) {
+        if (index <= 0) {
+            return 0;
+        }
+        int rank = 0;
+        IntIterator iterator = iterator();
+        while (iterator.hasNext() && iterator.nextInt() < index) {
+            rank += 1;
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the element with the given rank, i.e. the {@code rank}-th smallest element, counting from 0.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if {@code rank} is negative or not smaller than the size of this set.
+     * @see #rank(int)
+     */
+    default int select(@Nonnegative int rank) {
+        Objects.checkIndex(rank, size());
+        IntIterator iterator = iterator();
+        iterator.skip(rank);
+        return iterator.nextInt();
+    }
+
+    /**
+     * Tests {@code queries[from]} to {@code queries[to - 1]} for membership at once, storing whether
+     * {@code queries[i]} is contained in {@code out[i - from]}. Negative queries are absent. Implementations
+     * may answer a batch faster than the same number of {@link #contains(int)} calls, in particular if the
+     * queries are sorted.
+     *
+     * @return the number of queries contained in this set.
+     * @throws IndexOutOfBoundsException
+     *     if {@code [from, to)} is not a range of {@code queries} or {@code out} is too short.
+     */
+    default int containsBatch(int[] queries, int from, int to, boolean[] out) {
+        NatBitSetsUtil.checkBatch(queries, from, to, out.length);
+        Arrays.fill(out, 0, to - from, false);
+        int contained = 0;
+        for (int i = from; i < to; i++) {
+            if (contains(queries[i])) {
+                out[i - from] = true;
+                contained += 1;
+            }
+        }
+        return contained;
+    }
+
+    /**
+     * As {@link #containsBatch(int[], int, int, boolean[])}, but answers as a bitmask: bit {@code i - from}
+     * of {@code out} (that is, bit {@code (i - from) % 64} of {@code out[(i - from) / 64]}) is set exactly if
+     * {@code queries[i]} is contained. The words covering the batch are overwritten entirely, the remaining
+     * ones are left untouched.
+     *
+     * @return the number of queries contained in this set.
+     * @throws IndexOutOfBoundsException
+     *     if {@code [from, to)} is not a range of {@code queries} or {@code out} is too short.
+     */
+    default int containsBatch(int[] queries, int from, int to, long[] out) {
+        NatBitSetsUtil.checkBatch(queries, from, to, Long.SIZE * (long) out.length);
+        Arrays.fill(out, 0, (to - from + Long.SIZE - 1) >>> 6, 0L);
+        int contained = 0;
+        for (int i = from; i < to; i++) {
+            if (contains(queries[i])) {
+                out[(i - from) >>> 6] |= 1L << (i - from);
+                contained += 1;
+            }
+        }
+        return contained;
+    }
+
     /**
      * Returns an {@link IntIterator iterator} returning the elements of this set in ascending order.
      */
@@ -106,6 +187,56 @@ public interface NatBitSet extends NatSet, Cloneable {
         return new NatBitSetIterator(this);
     }
 
+    /**
+     * Feeds the non-zero words of this set to the consumer, in ascending order of their index: word
+     * {@code i} holds the elements {@code 64 i} to {@code 64 i + 63}, element {@code 64 i + j} as bit
+     * {@code j}, as in {@link BitSet#toLongArray()}. Implementations backed by words hand them over without
+     * looking at single elements.
+     */
+    default void forEachWord(LongWordConsumer consumer) {
+        IntIterator iterator = iterator();
+        int wordIndex = -1;
+        long word = 0L;
+        while (iterator.hasNext()) {
+            int element = iterator.nextInt();
+            if (element >>> 6 != wordIndex) {
+                if (word != 0L) {
+                    consumer.accept(wordIndex, word);
+                }
+                wordIndex = element >>> 6;
+                word = 0L;
+            }
+            word |= 1L << element;
+        }
+        if (word != 0L) {
+            consumer.accept(wordIndex, word);
+        }
+    }
+
+    /**
+     * Feeds the maximal runs of consecutive elements of this set to the consumer, in ascending order, each
+     * as its first and last element. The bounds are inclusive so that a run up to {@link Integer#MAX_VALUE}
+     * can be described. Implementations which find runs by search hand them over without visiting the
+     * elements in between.
+     */
+    default void forEachRun(IntIntConsumer consumer) {
+        IntIterator iterator = iterator();
+        if (!iterator.hasNext()) {
+            return;
+        }
+        int first = iterator.nextInt();
+        int last = first;
+        while (iterator.hasNext()) {
+            int element = iterator.nextInt();
+            if (element != last + 1) {
+                consumer.accept(first, last);
+                first = element;
+            }
+            last = element;
+        }
+        consumer.accept(first, last);
+    }
+
     @Override
     default IntIterator reverseIterator() {
         if (isEmpty()) {
@@ -145,6 +276,23 @@ public interface NatBitSet extends NatSet, Cloneable {
      */
     void set(@Nonnegative int from, @Nonnegative int to);
 
+    /**
+     * Adds {@code elements[from]} to {@code elements[to - 1]}, which have to be sorted in ascending order -
+     * repeated elements are fine. Implementations use the order to add the elements in one pass, and to
+     * settle on a representation once for all of them.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if {@code [from, to)} is not a range of {@code elements} or an element is negative.
+     * @throws IllegalArgumentException
+     *     if the elements are not sorted.
+     */
+    default void addAllSorted(int[] elements, int from, int to) {
+        NatBitSetsUtil.checkSorted(elements, from, to);
+        for (int i = from; i < to; i++) {
+            set(elements[i]);
+        }
+    }
+
     /**
      * Removes the given index. An index this set cannot hold - a negative one, or one outside the domain
      * of a {@link BoundedNatBitSet} - is absent by definition, so removing it is a no-op rather than an
@@ -298,7 +446,35 @@ public interface NatBitSet extends NatSet, Cloneable {
         return false;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Sets which share storage with their copies count the shared part in each of them. By default, this
+     * assumes the larger of a word for every 64 values up to the largest element and an int per element.</p>
+     */
+    @Override
+    default long estimatedBytes() {
+        if (isEmpty()) {
+            return MemoryFootprint.objectBytes(0L);
+        }
+        long words = MemoryFootprint.arrayBytes((lastInt() >>> 6) + 1, Long.BYTES);
+        long elements = MemoryFootprint.arrayBytes(size(), Integer.BYTES);
+        return MemoryFootprint.objectBytes(4L) + Math.max(words, elements);
+    }
+
     // Clone
 
     NatBitSet clone();
+
+    /** Receives the words of a set, see {@link #forEachWord(LongWordConsumer)}. */
+    @FunctionalInterface
+    interface LongWordConsumer {
+        void accept(@Nonnegative int wordIndex, long word);
+    }
+
+    /** Receives the runs of a set, see {@link #forEachRun(IntIntConsumer)}. */
+    @FunctionalInterface
+    interface IntIntConsumer {
+        void accept(@Nonnegative int first, @Nonnegative int last);
+    }
 }
@@ -0,0 +1,482 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static de.tum.in.naturals.BitUtil.mask;
+import static de.tum.in.naturals.BitUtil.maskTo;
+import static de.tum.in.naturals.set.NatBitSetsUtil.checkNonNegative;
+import static de.tum.in.naturals.set.NatBitSetsUtil.checkOrdered;
+import static de.tum.in.naturals.set.NatBitSetsUtil.checkRange;
+
+import de.tum.in.naturals.MemoryFootprint;
+import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.Nonnegative;
+
+/**
+ * A fixed number of bounded sets over one small domain, packed into a single {@code long[]} - as needed for
+ * a label per state of a large model, where a set object per state costs several times more in headers and
+ * references than its bits. Each slot takes the domain size rounded up to a power of two bits, so that it
+ * never straddles two words: a domain of 8 values packs eight slots into a word, a domain of 20 values two.
+ *
+ * <p>Slots are read and written through the per-slot operations, or through {@link #get(int)}, a
+ * {@link BoundedNatBitSet} view of one slot which writes through to the array. Views are light but not
+ * free; loops over many slots are better served by the per-slot operations. Like the sets it replaces, an
+ * array is not thread-safe.</p>
+ */
+public final class NatBitSetArray implements MemoryFootprint {
+    private final long[] words;
+    @Nonnegative
+    private final int length;
+    @Nonnegative
+    private final int domainSize;
+    // Each slot takes 2^slotShift bits
+    private final int slotShift;
+    private final long domainMask;
+
+    /**
+     * An array of {@code length} empty sets over the domain {@code {0, ..., domainSize - 1}}.
+     *
+     * @throws IllegalArgumentException
+     *     if {@code length} is negative or {@code domainSize} is not between 0 and 64.
+     */
+    public NatBitSetArray(int length, int domainSize) {
+        if (length < 0) {
+            throw new IllegalArgumentException(String.format("Negative length %d", length));
+        }
+        if (domainSize < 0 || Long.SIZE < domainSize) {
+            throw new IllegalArgumentException(
+                    String.format("Domain size %d not in [0, %d]", domainSize, Long.SIZE));
+        }
+        this.length = length;
+        this.domainSize = domainSize;
+        this.slotShift = domainSize <= 1 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(domainSize - 1);
+        this.domainMask = maskTo(domainSize);
+        long bits = (long) length << slotShift;
+        this.words = new long[Math.toIntExact((bits + Long.SIZE - 1) / Long.SIZE)];
+    }
+
+    /** The number of slots. */
+    @Nonnegative
+    public int length() {
+        return length;
+    }
+
+    /** The size of the domain shared by all slots. */
+    @Nonnegative
+    public int domainSize() {
+        return domainSize;
+    }
+
+    // The position of the first bit of a slot, across all words
+    private long bitOf(int slot) {
+        Objects.checkIndex(slot, length);
+        return (long) slot << slotShift;
+    }
+
+    private void checkInDomain(int element) {
+        NatBitSetsUtil.checkInDomain(domainSize, element);
+    }
+
+    private void checkWordInDomain(long word) {
+        long excess = word & ~domainMask;
+        if (excess != 0L) {
+            checkInDomain(Long.numberOfTrailingZeros(excess));
+        }
+    }
+
+    /** The contents of a slot as a word, element {@code i} as bit {@code i}. */
+    public long word(int slot) {
+        long bit = bitOf(slot);
+        return (words[(int) (bit >>> 6)] >>> bit) & domainMask;
+    }
+
+    /**
+     * Replaces the contents of a slot by the given word, bit {@code i} as element {@code i}.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if the word has a bit outside the domain.
+     */
+    public void setWord(int slot, long word) {
+        checkWordInDomain(word);
+        store(slot, word);
+    }
+
+    private void store(int slot, long word) {
+        long bit = bitOf(slot);
+        int index = (int) (bit >>> 6);
+        words[index] = words[index] & ~(domainMask << bit) | word << bit;
+    }
+
+    public boolean contains(int slot, int element) {
+        long bit = bitOf(slot);
+        return 0 <= element
+                && element < domainSize
+                && (words[(int) (bit >>> 6)] & (1L << (bit + element))) != 0L;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException
+     *     if {@code element} is outside the domain.
+     */
+    public void set(int slot, int element) {
+        long bit = bitOf(slot);
+        checkInDomain(element);
+        words[(int) (bit >>> 6)] |= 1L << (bit + element);
+    }
+
+    /** Removes an element from a slot. Elements outside the domain are never contained, so that is a no-op. */
+    public void clear(int slot, int element) {
+        long bit = bitOf(slot);
+        if (0 <= element && element < domainSize) {
+            words[(int) (bit >>> 6)] &= ~(1L << (bit + element));
+        }
+    }
+
+    /** Empties a slot. */
+    public void clear(int slot) {
+        store(slot, 0L);
+    }
+
+    public boolean isEmpty(int slot) {
+        return word(slot) == 0L;
+    }
+
+    public int size(int slot) {
+        return Long.bitCount(word(slot));
+    }
+
+    /** Retains in {@code slot} only the elements also in {@code otherSlot}. */
+    public void and(int slot, int otherSlot) {
+        store(slot, word(slot) & word(otherSlot));
+    }
+
+    /** Adds the elements of {@code otherSlot} to {@code slot}. */
+    public void or(int slot, int otherSlot) {
+        store(slot, word(slot) | word(otherSlot));
+    }
+
+    /** Retains in {@code slot} only the elements also in {@code indices}. */
+    public void and(int slot, IntCollection indices) {
+        store(slot, word(slot) & wordOf(indices, false));
+    }
+
+    /**
+     * Adds the elements of {@code indices} to {@code slot}.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if {@code indices} contains an element outside the domain.
+     */
+    public void or(int slot, IntCollection indices) {
+        store(slot, word(slot) | wordOf(indices, true));
+    }
+
+    // The given indices inside the domain as a word; if strict, indices outside fail instead of being dropped
+    private long wordOf(IntCollection indices, boolean strict) {
+        if (NatBitSetsUtil.isSingleWord(indices)) {
+            long word = NatBitSetsUtil.word(indices);
+            if (strict) {
+                checkWordInDomain(word);
+            }
+            return word & domainMask;
+        }
+        long word = 0L;
+        IntIterator iterator = indices.intIterator();
+        while (iterator.hasNext()) {
+            int element = iterator.nextInt();
+            if (0 <= element && element < domainSize) {
+                word |= 1L << element;
+            } else if (strict) {
+                checkInDomain(element);
+            }
+        }
+        return word;
+    }
+
+    /** A view of a slot, which reads from and writes to this array. */
+    public BoundedNatBitSet get(int slot) {
+        Objects.checkIndex(slot, length);
+        return new Slot(slot);
+    }
+
+    @Override
+    public long estimatedBytes() {
+        // The words, the length, the domain size, the slot shift and the domain mask
+        return MemoryFootprint.objectBytes(4L + 3L * Integer.BYTES + Long.BYTES)
+                + MemoryFootprint.arrayBytes(words.length, Long.BYTES);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NatBitSetArray)) {
+            return false;
+        }
+        NatBitSetArray other = (NatBitSetArray) o;
+        return length == other.length && domainSize == other.domainSize && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * length + domainSize) + Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder().append('[');
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(get(i));
+        }
+        return builder.append(']').toString();
+    }
+
+    private final class Slot extends AbstractBoundedNatBitSet {
+        private final int slot;
+
+        Slot(int slot) {
+            super(domainSize);
+            this.slot = slot;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return NatBitSetArray.this.isEmpty(slot);
+        }
+
+        @Override
+        public int size() {
+            return NatBitSetArray.this.size(slot);
+        }
+
+        @Override
+        public boolean contains(int index) {
+            return NatBitSetArray.this.contains(slot, index);
+        }
+
+        @Override
+        public int firstInt() {
+            long word = word(slot);
+            if (word == 0L) {
+                throw new NoSuchElementException();
+            }
+            return Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        public int lastInt() {
+            long word = word(slot);
+            if (word == 0L) {
+                throw new NoSuchElementException();
+            }
+            return Long.SIZE - Long.numberOfLeadingZeros(word) - 1;
+        }
+
+        @Override
+        public int nextPresentIndex(int index) {
+            checkNonNegative(index);
+            if (index >= domainSize) {
+                return -1;
+            }
+            long masked = word(slot) & ~maskTo(index);
+            return masked == 0L ? -1 : Long.numberOfTrailingZeros(masked);
+        }
+
+        @Override
+        public int nextAbsentIndex(int index) {
+            checkNonNegative(index);
+            if (index >= domainSize) {
+                return index;
+            }
+            long masked = ~word(slot) & domainMask & ~maskTo(index);
+            return masked == 0L ? domainSize : Long.numberOfTrailingZeros(masked);
+        }
+
+        @Override
+        public int previousPresentIndex(int index) {
+            checkNonNegative(index);
+            long masked = word(slot) & maskTo(Math.min(index, domainSize - 1) + 1);
+            return masked == 0L ? -1 : Long.SIZE - Long.numberOfLeadingZeros(masked) - 1;
+        }
+
+        @Override
+        public int previousAbsentIndex(int index) {
+            checkNonNegative(index);
+            if (index >= domainSize) {
+                return index;
+            }
+            long masked = ~word(slot) & domainMask & maskTo(index + 1);
+            return masked == 0L ? -1 : Long.SIZE - Long.numberOfLeadingZeros(masked) - 1;
+        }
+
+        @Override
+        public IntIterator iterator() {
+            return new SlotIterator(slot);
+        }
+
+        @Override
+        public void set(int index) {
+            NatBitSetArray.this.set(slot, index);
+        }
+
+        @Override
+        public void set(int index, boolean value) {
+            if (value) {
+                NatBitSetArray.this.set(slot, index);
+            } else {
+                NatBitSetArray.this.clear(slot, index);
+            }
+        }
+
+        @Override
+        public void set(int from, int to) {
+            checkRange(from, to);
+            if (from == to) {
+                return;
+            }
+            checkInDomain(from, to);
+            store(slot, word(slot) | mask(from, to));
+        }
+
+        @Override
+        public void clear() {
+            NatBitSetArray.this.clear(slot);
+        }
+
+        @Override
+        public void clear(int index) {
+            NatBitSetArray.this.clear(slot, index);
+        }
+
+        @Override
+        public void clear(int from, int to) {
+            checkOrdered(from, to);
+            int start = Math.max(0, from);
+            if (start < domainSize) {
+                store(slot, word(slot) & ~mask(start, Math.min(to, domainSize)));
+            }
+        }
+
+        @Override
+        public void flip(int index) {
+            checkInDomain(index);
+            store(slot, word(slot) ^ (1L << index));
+        }
+
+        @Override
+        public void flip(int from, int to) {
+            checkRange(from, to);
+            if (from == to) {
+                return;
+            }
+            checkInDomain(from, to);
+            store(slot, word(slot) ^ mask(from, to));
+        }
+
+        @Override
+        public void and(IntCollection indices) {
+            NatBitSetArray.this.and(slot, indices);
+        }
+
+        @Override
+        public void andNot(IntCollection indices) {
+            store(slot, word(slot) & ~wordOf(indices, false));
+        }
+
+        @Override
+        public void or(IntCollection indices) {
+            NatBitSetArray.this.or(slot, indices);
+        }
+
+        @Override
+        public void orNot(IntCollection indices) {
+            store(slot, word(slot) | ~wordOf(indices, false) & domainMask);
+        }
+
+        @Override
+        public void xor(IntCollection indices) {
+            if (NatBitSetsUtil.isSingleWord(indices)) {
+                store(slot, word(slot) ^ wordOf(indices, true));
+            } else {
+                super.xor(indices);
+            }
+        }
+
+        @Override
+        public void complement() {
+            store(slot, ~word(slot) & domainMask);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            // The domain size, the slot and the array, which the view does not own
+            return MemoryFootprint.objectBytes(2L * Integer.BYTES + 4L);
+        }
+
+        @SuppressWarnings("MethodDoesntCallSuperMethod")
+        @Override
+        public LongBoundedNatBitSet clone() {
+            return new LongBoundedNatBitSet(word(slot), domainSize);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Set)) {
+                return false;
+            }
+            return NatBitSetsUtil.isSingleWord(o) ? word(slot) == NatBitSetsUtil.word(o) : super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return super.hashCode();
+        }
+    }
+
+    private final class SlotIterator implements IntIterator {
+        private final int slot;
+        private long remaining;
+        private int last = -1;
+
+        SlotIterator(int slot) {
+            this.slot = slot;
+            this.remaining = word(slot);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining != 0L;
+        }
+
+        @Override
+        public int nextInt() {
+            if (remaining == 0L) {
+                throw new NoSuchElementException();
+            }
+            int index = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            last = index;
+            return index;
+        }
+
+        @Override
+        public void remove() {
+            if (last == -1) {
+                throw new IllegalStateException();
+            }
+            clear(slot, last);
+            last = -1;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import de.tum.in.naturals.Arrays2;
+import de.tum.in.naturals.bitset.BitSets;
+import java.util.BitSet;
+import org.jspecify.annotations.Nullable;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Sizes of intersections, unions and differences, counted over the two operands as they are. Pairs of
+ * bitmaps are left to Roaring, pairs of arrays are merged, a single array probes the other operand, and
+ * everything else leapfrogs through the runs both operands have in common. Nothing is allocated, except for
+ * pairs of word backed sets: these are counted word by word over a copy of their overlapping words, see
+ * {@link BitSets#andCardinality(BitSet, BitSet)}.
+ *
+ * <p>Counts which would exceed {@link Integer#MAX_VALUE} saturate, as {@link NatBitSet#size()} does.</p>
+ */
+final class NatBitSetCardinalities {
+    private static final long INFINITY = Integer.MAX_VALUE + 1L;
+
+    private NatBitSetCardinalities() {}
+
+    static int and(NatBitSet one, NatBitSet other) {
+        if (one == other) { // NOPMD - identity is the point
+            return one.size();
+        }
+        if (one.isEmpty() || other.isEmpty()) {
+            return 0;
+        }
+        if (one instanceof LongBoundedNatBitSet && other instanceof LongBoundedNatBitSet) {
+            long word = ((LongBoundedNatBitSet) one).getStore() & ((LongBoundedNatBitSet) other).getStore();
+            return Long.bitCount(word);
+        }
+        if (one instanceof LongArrayBoundedNatBitSet && other instanceof LongArrayBoundedNatBitSet) {
+            return LongArrayBoundedNatBitSet.andCardinality(
+                    (LongArrayBoundedNatBitSet) one, (LongArrayBoundedNatBitSet) other);
+        }
+        RoaringBitmap oneBitmap = NatBitSetsUtil.bitmap(one);
+        RoaringBitmap otherBitmap = NatBitSetsUtil.bitmap(other);
+        if (oneBitmap != null && otherBitmap != null) {
+            return RoaringBitmap.andCardinality(oneBitmap, otherBitmap);
+        }
+        HybridNatBitSet oneArray = arrayBacked(one);
+        HybridNatBitSet otherArray = arrayBacked(other);
+        if (oneArray != null && otherArray != null) {
+            return oneArray.size() <= otherArray.size()
+                    ? mergeCount(oneArray, otherArray)
+                    : mergeCount(otherArray, oneArray);
+        }
+        if (oneArray != null || otherArray != null) {
+            return probeCount(oneArray == null ? otherArray : oneArray, oneArray == null ? one : other);
+        }
+        BitSet oneWords = NatBitSetsUtil.words(one);
+        BitSet otherWords = NatBitSetsUtil.words(other);
+        if (oneWords != null && otherWords != null) {
+            return BitSets.andCardinality(oneWords, otherWords);
+        }
+        return leapfrogCount(one, other);
+    }
+
+    static int or(NatBitSet one, NatBitSet other) {
+        return saturate((long) one.size() + other.size() - and(one, other));
+    }
+
+    static int andNot(NatBitSet one, NatBitSet other) {
+        return one.size() - and(one, other);
+    }
+
+    static int xor(NatBitSet one, NatBitSet other) {
+        return saturate((long) one.size() + other.size() - 2L * and(one, other));
+    }
+
+    static double jaccard(NatBitSet one, NatBitSet other) {
+        long intersection = and(one, other);
+        long union = (long) one.size() + other.size() - intersection;
+        return union == 0L ? 1.0 : (double) intersection / union;
+    }
+
+    @Nullable
+    private static HybridNatBitSet arrayBacked(NatBitSet set) {
+        HybridNatBitSet hybrid;
+        if (set instanceof HybridNatBitSet) {
+            hybrid = (HybridNatBitSet) set;
+        } else if (set instanceof FrozenNatBitSet) {
+            hybrid = ((FrozenNatBitSet) set).delegate();
+        } else {
+            return null;
+        }
+        return hybrid.isArrayBacked() ? hybrid : null;
+    }
+
+    /** Walks the smaller array, galloping through the larger one, which need not be looked at in full. */
+    private static int mergeCount(HybridNatBitSet smaller, HybridNatBitSet larger) {
+        int[] elements = smaller.array();
+        int count = smaller.size();
+        int[] array = larger.array();
+        int size = larger.size();
+        int common = 0;
+        int position = 0;
+        for (int i = 0; i < count && position < size; i++) {
+            int found = Arrays2.gallopingSearch(array, position, size, elements[i]);
+            if (found >= 0) {
+                common += 1;
+                position = found + 1;
+            } else {
+                position = -(found + 1);
+            }
+        }
+        return common;
+    }
+
+    private static int probeCount(HybridNatBitSet arrayBacked, NatBitSet other) {
+        int[] elements = arrayBacked.array();
+        int size = arrayBacked.size();
+        int common = 0;
+        for (int i = 0; i < size; i++) {
+            if (other.contains(elements[i])) {
+                common += 1;
+            }
+        }
+        return common;
+    }
+
+    /**
+     * Alternates between the operands, each skipping to the next element of the other, and counts common
+     * runs as a whole. The cost is bounded by the runs the two have in common and the gaps between them,
+     * not by their elements.
+     */
+    private static int leapfrogCount(NatBitSet one, NatBitSet other) {
+        long common = 0L;
+        int index = one.nextPresentIndex(0);
+        while (index >= 0) {
+            int candidate = other.nextPresentIndex(index);
+            if (candidate < 0) {
+                break;
+            }
+            if (candidate != index) {
+                index = one.nextPresentIndex(candidate);
+                continue;
+            }
+            long end = Math.min(runEnd(one, index), runEnd(other, index));
+            common += end - index;
+            if (end == INFINITY) {
+                break;
+            }
+            index = one.nextPresentIndex((int) end);
+        }
+        return saturate(common);
+    }
+
+    /** The exclusive end of the run holding the present index; nextAbsentIndex cannot report past the ints. */
+    private static long runEnd(NatBitSet set, int index) {
+        int absent = set.nextAbsentIndex(index);
+        if (absent < 0 || absent == Integer.MAX_VALUE && set.contains(Integer.MAX_VALUE)) {
+            return INFINITY;
+        }
+        return absent;
+    }
+
+    private static int saturate(long count) {
+        return (int) Math.min(Integer.MAX_VALUE, count);
+    }
+}
@@ -0,0 +1,373 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.BitSet;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * A compact binary format for sets, which writes each representation of the sets from {@link NatBitSets}
+ * as it is.
+ *
+ * <p>An encoding starts with a header of one tag byte and the cardinality as a varint. The tag says how
+ * the body is laid out, and it is also the representation the reader constructs - nothing has to be
+ * rescanned to decide it:</p>
+ * <ul>
+ *   <li>{@link #ARRAY}: the sorted elements as varints, each but the first as the distance to its
+ *   predecessor minus one.</li>
+ *   <li>{@link #WORDS}: the number of words as a varint, then the words in the little-endian layout of
+ *   {@link BitSet#toByteArray()}.</li>
+ *   <li>{@link #ROARING}: Roaring's portable serialization format.</li>
+ * </ul>
+ *
+ * <p>The same bytes are produced and accepted through {@link ByteBuffer} and through
+ * {@link DataOutput} / {@link DataInput}, whatever the byte order of the buffer. Other sets are encoded
+ * as a word backed set if they have words, and through a copy otherwise.</p>
+ *
+ * <p>A {@link #WORDS} encoding can also be used in place: {@link #view(ByteBuffer)} reads the set straight
+ * off the buffer, which makes it the format of choice for sets precomputed into files and mapped back in
+ * with {@link NatBitSets#mapped(java.nio.file.Path)}. {@link #writeWords(NatBitSet, DataOutput)} writes
+ * any set in it.</p>
+ */
+public final class NatBitSetCodec {
+    public static final byte ARRAY = 0;
+    public static final byte WORDS = 1;
+    public static final byte ROARING = 2;
+
+    private NatBitSetCodec() {}
+
+    /** The number of bytes {@link #write(NatBitSet, ByteBuffer)} will write for the given set. */
+    public static int encodedSize(NatBitSet set) {
+        Object store = storeOf(set);
+        if (store instanceof int[]) {
+            int[] array = (int[]) store;
+            int size = set.size();
+            int bytes = 1 + varIntSize(size);
+            int previous = -1;
+            for (int i = 0; i < size; i++) {
+                bytes += varIntSize(array[i] - previous - 1);
+                previous = array[i];
+            }
+            return bytes;
+        }
+        if (store instanceof BitSet) {
+            int words = wordCount((BitSet) store);
+            return 1 + varIntSize(set.size()) + varIntSize(words) + Long.BYTES * words;
+        }
+        RoaringBitmap bitmap = (RoaringBitmap) store;
+        return 1 + varIntSize(set.size()) + bitmap.serializedSizeInBytes();
+    }
+
+    /**
+     * Writes the given set at the position of the buffer, advancing it.
+     *
+     * @throws java.nio.BufferOverflowException
+     *     if fewer than {@link #encodedSize(NatBitSet)} bytes remain.
+     */
+    public static void write(NatBitSet set, ByteBuffer buffer) {
+        try {
+            write(set, new BufferOutput(buffer));
+        } catch (IOException e) {
+            throw new AssertionError("Buffers do not throw", e);
+        }
+    }
+
+    /** Writes the given set to the given output. */
+    public static void write(NatBitSet set, DataOutput output) throws IOException {
+        write(set, new StreamOutput(output));
+    }
+
+    /**
+     * Writes the given set as {@link #WORDS}, whatever its representation, so that it can be read back with
+     * {@link #view(ByteBuffer)}.
+     */
+    public static void writeWords(NatBitSet set, DataOutput output) throws IOException {
+        BitSet words = NatBitSetsUtil.words(set);
+        StreamOutput stream = new StreamOutput(output);
+        stream.writeByte(WORDS);
+        writeVarInt(stream, set.size());
+        writeWords(stream, words == null ? NatBitSets.toBitSet(set) : words);
+    }
+
+    /**
+     * Returns an unmodifiable set reading the {@link #WORDS} encoding at the position of the buffer in
+     * place, and advances the buffer past it. Nothing is copied, so the buffer must not change while the set
+     * is in use.
+     *
+     * @throws IllegalArgumentException
+     *     if the buffer does not hold a {@link #WORDS} encoding.
+     */
+    public static NatBitSet view(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        if (tag != WORDS) {
+            throw new IllegalArgumentException(String.format("Expected word encoding, got tag %d", tag));
+        }
+        int size = readVarInt(buffer);
+        int words = readVarInt(buffer);
+        ByteBuffer body = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        body.limit(Long.BYTES * words);
+        buffer.position(buffer.position() + Long.BYTES * words);
+        return new MappedNatBitSet(body.asLongBuffer(), size);
+    }
+
+    /**
+     * Reads a set from the position of the buffer, advancing it past the encoding.
+     *
+     * @throws IllegalArgumentException
+     *     if the buffer does not hold an encoding.
+     */
+    public static NatBitSet read(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        int size = readVarInt(buffer);
+        switch (tag) {
+            case ARRAY: {
+                int[] array = new int[size];
+                int previous = -1;
+                for (int i = 0; i < size; i++) {
+                    previous += readVarInt(buffer) + 1;
+                    array[i] = previous;
+                }
+                return new HybridNatBitSet(array, size);
+            }
+            case WORDS: {
+                int words = readVarInt(buffer);
+                ByteBuffer body = buffer.slice();
+                body.limit(Long.BYTES * words);
+                buffer.position(buffer.position() + Long.BYTES * words);
+                // Reads the words straight out of the buffer into the set's own storage
+                return new HybridNatBitSet(BitSet.valueOf(body), size);
+            }
+            case ROARING: {
+                RoaringBitmap bitmap = new RoaringBitmap();
+                try {
+                    bitmap.deserialize(buffer);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Malformed bitmap", e);
+                }
+                // Roaring reads without advancing the buffer
+                buffer.position(buffer.position() + bitmap.serializedSizeInBytes());
+                return new HybridNatBitSet(bitmap, size);
+            }
+            default:
+                throw new IllegalArgumentException(String.format("Unknown encoding tag %d", tag));
+        }
+    }
+
+    /**
+     * Reads a set from the given input.
+     *
+     * @throws IllegalArgumentException
+     *     if the input does not hold an encoding.
+     */
+    public static NatBitSet read(DataInput input) throws IOException {
+        byte tag = input.readByte();
+        int size = readVarInt(input);
+        switch (tag) {
+            case ARRAY: {
+                int[] array = new int[size];
+                int previous = -1;
+                for (int i = 0; i < size; i++) {
+                    previous += readVarInt(input) + 1;
+                    array[i] = previous;
+                }
+                return new HybridNatBitSet(array, size);
+            }
+            case WORDS: {
+                long[] words = new long[readVarInt(input)];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = Long.reverseBytes(input.readLong());
+                }
+                return new HybridNatBitSet(BitSet.valueOf(words), size);
+            }
+            case ROARING: {
+                RoaringBitmap bitmap = new RoaringBitmap();
+                bitmap.deserialize(input);
+                return new HybridNatBitSet(bitmap, size);
+            }
+            default:
+                throw new IllegalArgumentException(String.format("Unknown encoding tag %d", tag));
+        }
+    }
+
+    private static void write(NatBitSet set, Output output) throws IOException {
+        Object store = storeOf(set);
+        int size = set.size();
+        if (store instanceof int[]) {
+            int[] array = (int[]) store;
+            output.writeByte(ARRAY);
+            writeVarInt(output, size);
+            int previous = -1;
+            for (int i = 0; i < size; i++) {
+                writeVarInt(output, array[i] - previous - 1);
+                previous = array[i];
+            }
+        } else if (store instanceof BitSet) {
+            BitSet bitSet = (BitSet) store;
+            output.writeByte(WORDS);
+            writeVarInt(output, size);
+            writeWords(output, bitSet);
+        } else {
+            output.writeByte(ROARING);
+            writeVarInt(output, size);
+            output.writeBitmap((RoaringBitmap) store);
+        }
+    }
+
+    /**
+     * Writes the words of the given bit set without copying them out first. BitSet does not give access to
+     * its words, but runs do: each word is assembled from the runs that touch it.
+     */
+    private static void writeWords(Output output, BitSet bitSet) throws IOException {
+        int words = wordCount(bitSet);
+        writeVarInt(output, words);
+        int word = 0;
+        long bits = 0L;
+        int start = bitSet.nextSetBit(0);
+        while (start >= 0) {
+            int end = bitSet.nextClearBit(start);
+            // The run is [start, end); flush all words before the one it starts in
+            while (word < start >>> 6) {
+                output.writeLong(bits);
+                bits = 0L;
+                word += 1;
+            }
+            while (word < (end - 1) >>> 6) {
+                bits |= -1L << start;
+                output.writeLong(bits);
+                bits = 0L;
+                word += 1;
+                start = word << 6;
+            }
+            bits |= (-1L << start) & (-1L >>> -end);
+            start = end == Integer.MAX_VALUE ? -1 : bitSet.nextSetBit(end);
+        }
+        if (word < words) {
+            output.writeLong(bits);
+        }
+    }
+
+    private static int wordCount(BitSet bitSet) {
+        return (bitSet.length() + Long.SIZE - 1) >>> 6;
+    }
+
+    private static Object storeOf(NatBitSet set) {
+        if (set instanceof HybridNatBitSet) {
+            return encodable(((HybridNatBitSet) set).store());
+        }
+        if (set instanceof FrozenNatBitSet) {
+            return encodable(((FrozenNatBitSet) set).delegate().store());
+        }
+        BitSet words = NatBitSetsUtil.words(set);
+        if (words != null) {
+            return words;
+        }
+        return ((HybridNatBitSet) NatBitSets.copyOf(set)).store();
+    }
+
+    /** Run lists have no encoding of their own; Roaring encodes runs natively, so they go out as a bitmap. */
+    private static Object encodable(Object store) {
+        return store instanceof Runs ? ((Runs) store).toBitmap() : store;
+    }
+
+    private static int varIntSize(int value) {
+        // Seven bits per byte, and zero still takes one
+        return (Integer.SIZE - Integer.numberOfLeadingZeros(value | 1) + 6) / 7;
+    }
+
+    private static void writeVarInt(Output output, int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            output.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        output.writeByte(remaining);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte next = buffer.get();
+            value |= (next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static int readVarInt(DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte next = input.readByte();
+            value |= (next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /** The little that writing needs, so that buffers and streams share one encoder. */
+    private interface Output {
+        void writeByte(int value) throws IOException;
+
+        /** Writes a word in little-endian order. */
+        void writeLong(long value) throws IOException;
+
+        void writeBitmap(RoaringBitmap bitmap) throws IOException;
+    }
+
+    private static final class BufferOutput implements Output {
+        private final ByteBuffer buffer;
+        private final boolean littleEndian;
+
+        BufferOutput(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.littleEndian = buffer.order() == ByteOrder.LITTLE_ENDIAN;
+        }
+
+        @Override
+        public void writeByte(int value) {
+            buffer.put((byte) value);
+        }
+
+        @Override
+        public void writeLong(long value) {
+            buffer.putLong(littleEndian ? value : Long.reverseBytes(value));
+        }
+
+        @Override
+        public void writeBitmap(RoaringBitmap bitmap) {
+            bitmap.serialize(buffer);
+        }
+    }
+
+    private static final class StreamOutput implements Output {
+        private final DataOutput output;
+
+        StreamOutput(DataOutput output) {
+            this.output = output;
+        }
+
+        @Override
+        public void writeByte(int value) throws IOException {
+            output.writeByte(value);
+        }
+
+        @Override
+        public void writeLong(long value) throws IOException {
+            // DataOutput is big-endian
+            output.writeLong(Long.reverseBytes(value));
+        }
+
+        @Override
+        public void writeBitmap(RoaringBitmap bitmap) throws IOException {
+            bitmap.serialize(output);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder events of {@link HybridNatBitSet}, to find out which sets change their representation how
+ * often, and what that costs in memory.
+ *
+ * <p>Callers create an event and fill it in only if {@link Event#shouldCommit()} holds. While no recording
+ * enables the event, that check is constant false once compiled and the unused event is never allocated, so
+ * the instrumentation may stay in place on hot paths.</p>
+ */
+final class NatBitSetEvents {
+    private static final String CATEGORY = "Naturals";
+
+    private NatBitSetEvents() {}
+
+    @Name("de.tum.in.naturals.set.Conversion")
+    @Label("NatBitSet Conversion")
+    @Category(CATEGORY)
+    @Description("A set changed its backing representation")
+    @StackTrace
+    static final class Conversion extends Event {
+        @Label("Old Mode")
+        String oldMode;
+
+        @Label("New Mode")
+        String newMode;
+
+        @Label("Cardinality")
+        @Description("The number of elements before the conversion")
+        int cardinality;
+
+        @Label("Last Element")
+        @Description("The largest element before the conversion, -1 if there was none")
+        int lastElement;
+
+        @Label("Bytes Before")
+        @DataAmount
+        long bytesBefore;
+
+        @Label("Bytes After")
+        @DataAmount
+        long bytesAfter;
+    }
+
+    @Name("de.tum.in.naturals.set.Optimize")
+    @Label("NatBitSet Optimize")
+    @Category(CATEGORY)
+    @Description("A call of optimize(), whether or not it changed anything")
+    @StackTrace
+    static final class Optimize extends Event {
+        @Label("Old Mode")
+        String oldMode;
+
+        @Label("New Mode")
+        String newMode;
+
+        @Label("Cardinality")
+        int cardinality;
+
+        @Label("Bytes Before")
+        @DataAmount
+        long bytesBefore;
+
+        @Label("Bytes After")
+        @DataAmount
+        long bytesAfter;
+
+        @Label("Reclaimed Bytes")
+        @Description("Bytes before less bytes after, negative if the set grew")
+        @DataAmount
+        long reclaimedBytes;
+    }
+}
@@ -0,0 +1,219 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.concurrent.locks.ReentrantLock;
+import org.jspecify.annotations.Nullable;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Hash-conses sets: {@link #intern(NatBitSet)} returns one canonical, unmodifiable instance per content, so
+ * that equal sets are stored once and compare by reference.
+ *
+ * <p>The canonical instances are only weakly held - once nothing else refers to one, it is dropped from the
+ * table. Interning a {@link NatBitSet} obtained from {@link NatBitSets} takes no copy of its contents: the
+ * canonical instance shares the store with its origin until the origin is modified. Callers who keep
+ * modifying their sets may want to {@link NatBitSet#optimize()} them before interning. All methods are
+ * thread-safe.</p>
+ */
+public final class NatBitSetInterner {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReferenceQueue<FrozenNatBitSet> queue = new ReferenceQueue<>();
+    private @Nullable Entry[] table = new Entry[INITIAL_CAPACITY];
+    private int count;
+    private long hits;
+    private long misses;
+
+    /**
+     * Returns the canonical instance with the same contents as the given set. If there is none yet, an
+     * unmodifiable copy of {@code set} becomes it.
+     */
+    public NatBitSet intern(NatBitSet set) {
+        // Only reads the caller's set, so there is no need to hold the lock for it
+        int hash = contentHash(set);
+        lock.lock();
+        try {
+            if (set instanceof FrozenNatBitSet && ((FrozenNatBitSet) set).interner() == this) { // NOPMD
+                hits += 1;
+                return set;
+            }
+            expungeStale();
+            for (Entry entry = table[bucket(hash, table.length)]; entry != null; entry = entry.next) {
+                if (entry.hash == hash) {
+                    FrozenNatBitSet canonical = entry.get();
+                    if (canonical != null && canonical.delegate().equals(set)) {
+                        hits += 1;
+                        return canonical;
+                    }
+                }
+            }
+            misses += 1;
+
+            HybridNatBitSet copy;
+            if (set instanceof HybridNatBitSet) {
+                copy = new HybridNatBitSet((HybridNatBitSet) set);
+            } else if (set instanceof FrozenNatBitSet) {
+                copy = new HybridNatBitSet(((FrozenNatBitSet) set).delegate());
+            } else {
+                copy = new HybridNatBitSet();
+                copy.or(set);
+            }
+            FrozenNatBitSet canonical = new FrozenNatBitSet(copy, this, hash);
+            if (count >= table.length - table.length / 4) {
+                resize();
+            }
+            int bucket = bucket(hash, table.length);
+            table[bucket] = new Entry(canonical, hash, table[bucket], queue);
+            count += 1;
+            return canonical;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The number of calls to {@link #intern(NatBitSet)} which found a canonical instance. */
+    public long hits() {
+        lock.lock();
+        try {
+            return hits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The number of calls to {@link #intern(NatBitSet)} which created a canonical instance. */
+    public long misses() {
+        lock.lock();
+        try {
+            return misses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The number of canonical instances currently held; ones about to be dropped may still be counted. */
+    public int size() {
+        lock.lock();
+        try {
+            expungeStale();
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return String.format("NatBitSetInterner{size=%d, hits=%d, misses=%d}", count, hits, misses);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A hash of the contents that does not depend on the representation, computed straight off the store
+     * of a set from {@link NatBitSets} and without boxing.
+     */
+    static int contentHash(NatBitSet set) {
+        if (set instanceof FrozenNatBitSet) {
+            return ((FrozenNatBitSet) set).contentHash();
+        }
+        Object store = set instanceof HybridNatBitSet ? ((HybridNatBitSet) set).store() : NatBitSetsUtil.words(set);
+        long hash = 0L;
+        if (store instanceof int[]) {
+            int[] array = (int[]) store;
+            int size = set.size();
+            for (int i = 0; i < size; i++) {
+                hash = (hash + array[i]) * HASH_MULTIPLIER;
+            }
+        } else if (store instanceof BitSet) {
+            BitSet words = (BitSet) store;
+            for (int i = words.nextSetBit(0); i >= 0; i = nextPresent(words, i)) {
+                hash = (hash + i) * HASH_MULTIPLIER;
+            }
+        } else if (store instanceof RoaringBitmap) {
+            PeekableIntIterator iterator = ((RoaringBitmap) store).getIntIterator();
+            while (iterator.hasNext()) {
+                hash = (hash + iterator.next()) * HASH_MULTIPLIER;
+            }
+        } else {
+            for (int i = set.isEmpty() ? -1 : set.firstInt(); i >= 0; i = nextPresent(set, i)) {
+                hash = (hash + i) * HASH_MULTIPLIER;
+            }
+        }
+        return Long.hashCode(hash ^ (hash >>> 29));
+    }
+
+    private static int nextPresent(NatBitSet set, int index) {
+        return index == Integer.MAX_VALUE ? -1 : set.nextPresentIndex(index + 1);
+    }
+
+    private static int nextPresent(BitSet words, int index) {
+        return index == Integer.MAX_VALUE ? -1 : words.nextSetBit(index + 1);
+    }
+
+    private static int bucket(int hash, int length) {
+        return (hash ^ (hash >>> 16)) & (length - 1);
+    }
+
+    private void resize() {
+        @Nullable Entry[] old = table;
+        @Nullable Entry[] resized = new Entry[2 * old.length];
+        for (Entry head : old) {
+            Entry entry = head;
+            while (entry != null) {
+                Entry next = entry.next;
+                int bucket = bucket(entry.hash, resized.length);
+                entry.next = resized[bucket];
+                resized[bucket] = entry;
+                entry = next;
+            }
+        }
+        table = resized;
+    }
+
+    private void expungeStale() {
+        for (Reference<? extends FrozenNatBitSet> stale = queue.poll(); stale != null; stale = queue.poll()) {
+            Entry dead = (Entry) stale;
+            int bucket = bucket(dead.hash, table.length);
+            Entry previous = null;
+            Entry entry = table[bucket];
+            while (entry != null) {
+                if (entry == dead) { // NOPMD - identity is the point
+                    if (previous == null) {
+                        table[bucket] = entry.next;
+                    } else {
+                        previous.next = entry.next;
+                    }
+                    count -= 1;
+                    break;
+                }
+                previous = entry;
+                entry = entry.next;
+            }
+        }
+    }
+
+    private static final class Entry extends WeakReference<FrozenNatBitSet> {
+        final int hash;
+
+        @Nullable
+        Entry next;
+
+        Entry(FrozenNatBitSet set, int hash, @Nullable Entry next, ReferenceQueue<FrozenNatBitSet> queue) {
+            super(set, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+}
@@ -28,7 +28,8 @@ class NatBitSetIterator implements IntIterator {
             throw new NoSuchElementException();
         }
         current = next;
-        next = set.nextPresentIndex(next + 1);
+        // The largest int has no successor to search from
+        next = next == Integer.MAX_VALUE ? -1 : set.nextPresentIndex(next + 1);
         return current;
     }
 
@@ -0,0 +1,98 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import de.tum.in.naturals.Thresholds;
+
+/**
+ * How a set returned by {@link NatBitSets} chooses its representation.
+ *
+ * <p>By default, sets adapt: they move between a sorted array, a run list, words and a Roaring bitmap as
+ * their content changes, trading memory for speed by {@link #memorySlack()}. That pays off for sets whose
+ * shape is not known in advance, but a set that is known to be a dense working buffer only loses by it -
+ * every pass over the threshold converts the whole store, and it typically converts back moments later.
+ * Such sets can be pinned to {@link #pinnedToWords() words} or a {@link #pinnedToRoaring() bitmap} instead,
+ * which they then never leave: not when they grow, not when they shrink, not when {@link NatBitSet#optimize()
+ * optimized} and not when {@link NatBitSet#clear() cleared}, which keeps their allocation.</p>
+ *
+ * <p>Arrays and run lists hold a bounded number of elements by design, so they cannot be pinned. Copies of
+ * a set keep its policy, the results of operations on several sets start out adaptive.</p>
+ */
+public final class NatBitSetPolicy {
+    /**
+     * How much larger than the smallest option a representation may be before its speed stops being
+     * worth it. Speed comes first here, but not at any price. Calibrated through
+     * {@link Thresholds#MEMORY_SLACK}.
+     */
+    static final int DEFAULT_MEMORY_SLACK = Thresholds.get(Thresholds.MEMORY_SLACK, 4, 1, 64);
+
+    static final NatBitSetPolicy ADAPTIVE = new NatBitSetPolicy(Pin.NONE, DEFAULT_MEMORY_SLACK);
+    private static final NatBitSetPolicy WORDS = new NatBitSetPolicy(Pin.WORDS, DEFAULT_MEMORY_SLACK);
+    private static final NatBitSetPolicy ROARING = new NatBitSetPolicy(Pin.ROARING, DEFAULT_MEMORY_SLACK);
+
+    private enum Pin {
+        NONE,
+        WORDS,
+        ROARING
+    }
+
+    private final Pin pin;
+    private final int memorySlack;
+
+    private NatBitSetPolicy(Pin pin, int memorySlack) {
+        this.pin = pin;
+        this.memorySlack = memorySlack;
+    }
+
+    /** The default: the representation follows the content. */
+    public static NatBitSetPolicy adaptive() {
+        return ADAPTIVE;
+    }
+
+    /**
+     * Adapts to the content, letting words cost up to {@code memorySlack} times as much as a Roaring bitmap
+     * before giving them up. Larger values favour the speed of words, 1 picks whichever is smaller.
+     *
+     * @throws IllegalArgumentException
+     *     if {@code memorySlack} is not positive.
+     */
+    public static NatBitSetPolicy adaptive(int memorySlack) {
+        if (memorySlack < 1) {
+            throw new IllegalArgumentException(String.format("Non-positive memory slack %d", memorySlack));
+        }
+        return memorySlack == DEFAULT_MEMORY_SLACK ? ADAPTIVE : new NatBitSetPolicy(Pin.NONE, memorySlack);
+    }
+
+    /** Always words, however sparse the set gets. */
+    public static NatBitSetPolicy pinnedToWords() {
+        return WORDS;
+    }
+
+    /** Always a Roaring bitmap, however small or dense the set gets. */
+    public static NatBitSetPolicy pinnedToRoaring() {
+        return ROARING;
+    }
+
+    /** The factor words may cost over a bitmap before an adaptive set gives them up. */
+    public int memorySlack() {
+        return memorySlack;
+    }
+
+    /** Whether sets under this policy keep a single representation. */
+    public boolean isPinned() {
+        return pin != Pin.NONE;
+    }
+
+    boolean pinsWords() {
+        return pin == Pin.WORDS;
+    }
+
+    boolean pinsRoaring() {
+        return pin == Pin.ROARING;
+    }
+
+    @Override
+    public String toString() {
+        return pin == Pin.NONE ? String.format("adaptive(%d)", memorySlack) : "pinned(" + pin + ")";
+    }
+}
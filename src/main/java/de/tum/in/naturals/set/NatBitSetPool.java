@@ -0,0 +1,75 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import java.util.ArrayDeque;
+
+/**
+ * Scratch sets for loops which need a temporary set per step. A released set is emptied but keeps its
+ * store, in the representation and with the capacity it has grown to, so once the pool has warmed up
+ * acquiring and refilling a set of similar shape allocates nothing.
+ *
+ * <p>A pool is not thread-safe, {@link #local()} gives each thread its own. Sets must not be used after
+ * being released, and the pool holds on to their memory until it is {@link #clear() cleared}.</p>
+ */
+public final class NatBitSetPool {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final ThreadLocal<NatBitSetPool> LOCAL = ThreadLocal.withInitial(NatBitSetPool::new);
+
+    private final ArrayDeque<HybridNatBitSet> free;
+    private final int capacity;
+
+    public NatBitSetPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** A pool retaining up to {@code capacity} released sets, further ones are left to the collector. */
+    public NatBitSetPool(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException(String.format("Negative capacity %d", capacity));
+        }
+        this.capacity = capacity;
+        this.free = new ArrayDeque<>(capacity);
+    }
+
+    /** The pool of the current thread. */
+    public static NatBitSetPool local() {
+        return LOCAL.get();
+    }
+
+    /** An empty set, the most recently released one if there is any. */
+    public NatBitSet acquire() {
+        HybridNatBitSet set = free.pollFirst();
+        return set == null ? new HybridNatBitSet() : set;
+    }
+
+    /**
+     * Hands the set back for reuse. Only sets {@link #acquire() acquired} from a pool can be released.
+     *
+     * @throws IllegalArgumentException
+     *     if the set does not come from a pool.
+     */
+    public void release(NatBitSet set) {
+        if (!(set instanceof HybridNatBitSet)) {
+            throw new IllegalArgumentException("Not a pooled set: " + set.getClass().getName());
+        }
+        HybridNatBitSet hybrid = (HybridNatBitSet) set;
+        assert free.stream().noneMatch(pooled -> pooled == hybrid) : "Released twice"; // NOPMD - identity is the point
+        if (free.size() < capacity) {
+            // Whoever acquires it next expects a set like any other
+            hybrid.policy(NatBitSetPolicy.ADAPTIVE);
+            hybrid.reset();
+            free.addFirst(hybrid);
+        }
+    }
+
+    /** The number of sets waiting to be acquired. */
+    public int available() {
+        return free.size();
+    }
+
+    /** Drops all waiting sets, and with them their memory. */
+    public void clear() {
+        free.clear();
+    }
+}
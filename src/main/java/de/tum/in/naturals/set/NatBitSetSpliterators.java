@@ -0,0 +1,404 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import it.unimi.dsi.fastutil.ints.IntSpliterator;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import org.jspecify.annotations.Nullable;
+import org.roaringbitmap.ContainerPointer;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Spliterators over the stores of {@link HybridNatBitSet} which split along the store itself, so that a
+ * parallel stream hands each worker a range of its own: arrays by index, runs by rank, words by word range
+ * and bitmaps by container. None of them tolerates modification of the set while it is traversed.
+ */
+final class NatBitSetSpliterators {
+    private static final int ORDERED_CHARACTERISTICS =
+            Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL;
+    private static final int EXACT_CHARACTERISTICS =
+            ORDERED_CHARACTERISTICS | Spliterator.SIZED | Spliterator.SUBSIZED;
+    /** Splitting fewer words than this hands out less work than a task costs. */
+    private static final int MINIMAL_SPLIT_WORDS = 1 << 6;
+
+    private NatBitSetSpliterators() {}
+
+    static IntSpliterator of(int[] array, int size) {
+        return new ArraySpliterator(array, 0, size);
+    }
+
+    static IntSpliterator of(Runs runs, int cardinality) {
+        return new RunSpliterator(runs, 0L, Runs.INFINITY, cardinality);
+    }
+
+    static IntSpliterator of(BitSet bitSet, int cardinality) {
+        long end = cardinality == 0 ? 0L : bitSet.previousSetBit(Integer.MAX_VALUE) + 1L;
+        return new WordSpliterator(bitSet, 0L, end, cardinality);
+    }
+
+    static IntSpliterator of(RoaringBitmap bitmap, int cardinality) {
+        return new BitmapSpliterator(bitmap, null, null, 0L, 1L << Integer.SIZE, cardinality);
+    }
+
+    private static final class ArraySpliterator implements IntSpliterator {
+        private final int[] array;
+        private int from;
+        private final int to;
+
+        ArraySpliterator(int[] array, int from, int to) {
+            this.array = array;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (from == to) {
+                return false;
+            }
+            action.accept(array[from]);
+            from += 1;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            for (int i = from; i < to; i++) {
+                action.accept(array[i]);
+            }
+            from = to;
+        }
+
+        @Override
+        public @Nullable IntSpliterator trySplit() {
+            int middle = (from + to) >>> 1;
+            if (middle == from) {
+                return null;
+            }
+            IntSpliterator prefix = new ArraySpliterator(array, from, middle);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return EXACT_CHARACTERISTICS;
+        }
+
+        @Override
+        public @Nullable IntComparator getComparator() {
+            return null;
+        }
+    }
+
+    /**
+     * Walks the elements in {@code [from, to)}. Ranks are a walk over the runs away, so splits happen at the
+     * element of middle rank - within a run if need be - and every part knows its exact size.
+     */
+    private static final class RunSpliterator implements IntSpliterator {
+        private final Runs runs;
+        private long from;
+        private final long to;
+        private long remaining;
+        // The end of the run holding from, if from is present
+        private long runEnd;
+
+        RunSpliterator(Runs runs, long from, long to, long remaining) {
+            this.runs = runs;
+            this.from = from;
+            this.to = to;
+            this.remaining = remaining;
+            this.runEnd = from;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (remaining == 0L) {
+                return false;
+            }
+            if (from >= runEnd) {
+                from = runs.nextPresent((int) from);
+                runEnd = runs.nextAbsent((int) from);
+            }
+            remaining -= 1L;
+            action.accept((int) from);
+            from += 1L;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            while (remaining > 0L) {
+                if (from >= runEnd) {
+                    from = runs.nextPresent((int) from);
+                    runEnd = runs.nextAbsent((int) from);
+                }
+                long end = Math.min(runEnd, from + remaining);
+                for (long value = from; value < end; value++) {
+                    action.accept((int) value);
+                }
+                remaining -= end - from;
+                from = end;
+            }
+        }
+
+        @Override
+        public @Nullable IntSpliterator trySplit() {
+            if (remaining < 2L) {
+                return null;
+            }
+            long half = remaining >>> 1;
+            long middle = runs.select(runs.rank(from) + half);
+            RunSpliterator prefix = new RunSpliterator(runs, from, middle, half);
+            prefix.runEnd = runEnd;
+            this.from = middle;
+            this.runEnd = middle;
+            this.remaining -= half;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return EXACT_CHARACTERISTICS;
+        }
+
+        @Override
+        public @Nullable IntComparator getComparator() {
+            return null;
+        }
+    }
+
+    /**
+     * Walks the set bits in {@code [from, to)}. Only the spliterator over the whole set knows its size, the
+     * cardinality of a word range would cost a scan of its own; the halves estimate theirs instead.
+     */
+    private static final class WordSpliterator implements IntSpliterator {
+        private final BitSet bitSet;
+        private long from;
+        private final long to;
+        // Exact for as long as nothing was split off, an estimate afterwards
+        private long remaining;
+        private boolean exact;
+
+        WordSpliterator(BitSet bitSet, long from, long to, long remaining) {
+            this.bitSet = bitSet;
+            this.from = from;
+            this.to = to;
+            this.remaining = remaining;
+            this.exact = true;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            int next = from >= to ? -1 : bitSet.nextSetBit((int) from);
+            if (next < 0 || next >= to) {
+                from = to;
+                remaining = 0L;
+                return false;
+            }
+            from = next + 1L;
+            if (remaining > 0L) {
+                remaining -= 1L;
+            }
+            action.accept(next);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            if (from < to) {
+                // The last index is the only one with no successor to search from
+                for (int i = bitSet.nextSetBit((int) from); i >= 0 && i < to; i = bitSet.nextSetBit(i + 1)) {
+                    action.accept(i);
+                    if (i == Integer.MAX_VALUE) {
+                        break;
+                    }
+                }
+            }
+            from = to;
+            remaining = 0L;
+        }
+
+        @Override
+        public @Nullable IntSpliterator trySplit() {
+            long fromWord = from >>> 6;
+            long toWord = (to + Long.SIZE - 1) >>> 6;
+            if (toWord - fromWord < 2 * MINIMAL_SPLIT_WORDS) {
+                return null;
+            }
+            long middle = ((fromWord + toWord) >>> 1) << 6;
+            long estimate = remaining >>> 1;
+            WordSpliterator prefix = new WordSpliterator(bitSet, from, middle, estimate);
+            prefix.exact = false;
+            this.from = middle;
+            this.remaining -= estimate;
+            this.exact = false;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return exact ? ORDERED_CHARACTERISTICS | Spliterator.SIZED : ORDERED_CHARACTERISTICS;
+        }
+
+        @Override
+        public @Nullable IntComparator getComparator() {
+            return null;
+        }
+    }
+
+    /**
+     * Walks the values in {@code [from, to)}. Splits happen at container boundaries, and the cardinality of
+     * each container is known, so every part knows its exact size. The container keys and cardinalities are
+     * only gathered on the first split - a sequential traversal never needs them - and then shared by all
+     * parts.
+     */
+    private static final class BitmapSpliterator implements IntSpliterator {
+        private final RoaringBitmap bitmap;
+        // The container keys (the upper 16 bits of their values) in ascending order
+        private int @Nullable [] keys;
+        // Element counts before each container, one more entry than keys
+        private long @Nullable [] before;
+        private long from;
+        private final long to;
+        private long remaining;
+        private @Nullable PeekableIntIterator iterator;
+
+        BitmapSpliterator(
+                RoaringBitmap bitmap,
+                int @Nullable [] keys,
+                long @Nullable [] before,
+                long from,
+                long to,
+                long remaining) {
+            this.bitmap = bitmap;
+            this.keys = keys;
+            this.before = before;
+            this.from = from;
+            this.to = to;
+            this.remaining = remaining;
+        }
+
+        private PeekableIntIterator iterator() {
+            PeekableIntIterator iterator = this.iterator;
+            if (iterator == null) {
+                iterator = bitmap.getIntIterator();
+                iterator.advanceIfNeeded((int) from);
+                this.iterator = iterator;
+            }
+            return iterator;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (remaining == 0L) {
+                return false;
+            }
+            remaining -= 1L;
+            action.accept(iterator().next());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            if (remaining == 0L) {
+                return;
+            }
+            PeekableIntIterator iterator = iterator();
+            for (long i = remaining; i > 0L; i--) {
+                action.accept(iterator.next());
+            }
+            remaining = 0L;
+        }
+
+        private void index() {
+            IntArrayList keyList = new IntArrayList();
+            LongArrayList beforeList = new LongArrayList();
+            long count = 0L;
+            ContainerPointer pointer = bitmap.getContainerPointer();
+            while (pointer.getContainer() != null) {
+                keyList.add(pointer.key());
+                beforeList.add(count);
+                count += pointer.getCardinality();
+                pointer.advance();
+            }
+            beforeList.add(count);
+            this.keys = keyList.toIntArray();
+            this.before = beforeList.toLongArray();
+        }
+
+        private static int containerIndex(int[] keys, long value) {
+            int position = Arrays.binarySearch(keys, (int) (value >>> 16));
+            return position >= 0 ? position : -(position + 1);
+        }
+
+        @Override
+        public @Nullable IntSpliterator trySplit() {
+            if (remaining == 0L) {
+                return null;
+            }
+            if (keys == null) {
+                index();
+            }
+            int[] keys = this.keys;
+            long[] before = this.before;
+            assert keys != null && before != null;
+
+            PeekableIntIterator iterator = this.iterator;
+            long start = iterator == null ? from : iterator.peekNext();
+            int first = containerIndex(keys, start);
+            int last = containerIndex(keys, to);
+            int middle = (first + last + 1) >>> 1;
+            if (middle <= first || middle >= last) {
+                return null;
+            }
+            // Nothing from the middle container on was consumed yet, so the prefix gets the rest
+            long suffix = before[last] - before[middle];
+            long middleValue = (long) keys[middle] << 16;
+            BitmapSpliterator prefix =
+                    new BitmapSpliterator(bitmap, keys, before, start, middleValue, remaining - suffix);
+            // The prefix continues where this one stopped - from a fresh iterator, as two cannot share one
+            this.from = middleValue;
+            this.remaining = suffix;
+            this.iterator = null;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return EXACT_CHARACTERISTICS;
+        }
+
+        @Override
+        public @Nullable IntComparator getComparator() {
+            return null;
+        }
+    }
+}
@@ -10,17 +10,23 @@ import it.unimi.dsi.fastutil.ints.IntCollection;
 import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntIterators;
 import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
-import java.util.function.IntConsumer;
 import java.util.function.Predicate;
 import javax.annotation.Nonnegative;
 import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
 
 public final class NatBitSets {
     public static final int UNKNOWN_LENGTH = -1;
@@ -87,6 +93,9 @@ public final class NatBitSets {
         if (indices instanceof HybridNatBitSet) {
             return new HybridNatBitSet((HybridNatBitSet) indices);
         }
+        if (indices instanceof FrozenNatBitSet) {
+            return new HybridNatBitSet(((FrozenNatBitSet) indices).delegate());
+        }
         BitSet words = words(indices);
         if (words != null) {
             return new HybridNatBitSet((BitSet) words.clone());
@@ -135,9 +144,32 @@ public final class NatBitSets {
      * correctness.
      */
     public static NatBitSet withExpectedShape(@Nonnegative int expectedSize, @Nonnegative int expectedLast) {
+        return withExpectedShape(expectedSize, expectedLast, NatBitSetPolicy.adaptive());
+    }
+
+    /**
+     * As {@link #withExpectedShape(int, int)}, for a set which chooses its representation by the given
+     * policy. A pinned set starts out in its representation, whatever the hints suggest.
+     */
+    public static NatBitSet withExpectedShape(
+            @Nonnegative int expectedSize, @Nonnegative int expectedLast, NatBitSetPolicy policy) {
         checkNonNegative(expectedSize);
         checkNonNegative(expectedLast);
-        return HybridNatBitSet.forShape(expectedSize, expectedLast);
+        return HybridNatBitSet.forShape(expectedSize, expectedLast, policy);
+    }
+
+    /**
+     * Puts a set created here under the given policy, see {@link NatBitSetPolicy}. A set pinned to a
+     * representation converts to it right away.
+     *
+     * @throws IllegalArgumentException
+     *     if the set does not adapt its representation, such as a bounded or a concurrent set.
+     */
+    public static void setPolicy(NatBitSet set, NatBitSetPolicy policy) {
+        if (!(set instanceof HybridNatBitSet)) {
+            throw new IllegalArgumentException("Fixed representation: " + set.getClass().getName());
+        }
+        ((HybridNatBitSet) set).policy(policy);
     }
 
     /**
@@ -165,11 +197,87 @@ public final class NatBitSets {
         return new HybridNatBitSet(elements, elements.length);
     }
 
+    /**
+     * An empty set which may be shared between threads without external locking. See
+     * {@link ConcurrentNatBitSet} for what is atomic and what is only weakly consistent.
+     */
+    public static ConcurrentNatBitSet concurrent() {
+        return new ConcurrentNatBitSet();
+    }
+
+    /**
+     * The empty persistent set. New versions are derived from it through
+     * {@link PersistentNatBitSet#with(int)} and friends, each sharing what it did not change.
+     */
+    public static PersistentNatBitSet persistent() {
+        return PersistentNatBitSet.EMPTY;
+    }
+
+    /**
+     * A persistent snapshot of the given indices. Persistent sets are returned as they are, word backed sets
+     * are copied a leaf at a time.
+     */
+    public static PersistentNatBitSet persistentCopyOf(Collection<Integer> indices) {
+        return PersistentNatBitSet.copyOf(indices);
+    }
+
+    // --- Long Sets ---
+
+    /** A new, empty set of non-negative longs, adapting its representation as {@link #of()} does. */
+    public static LongNatBitSet longSet() {
+        return new HybridLongNatBitSet();
+    }
+
+    /** A modifiable copy of the given non-negative longs. */
+    public static LongNatBitSet longCopyOf(Collection<Long> indices) {
+        if (indices instanceof HybridLongNatBitSet) {
+            return ((HybridLongNatBitSet) indices).clone();
+        }
+        HybridLongNatBitSet copy = new HybridLongNatBitSet();
+        if (indices instanceof LongCollection) {
+            copy.or((LongCollection) indices);
+        } else {
+            indices.forEach(copy::set);
+        }
+        return copy;
+    }
+
+    /** Wraps the given bitmap, which must not contain negative values (as unsigned: values of 2^63 or more). */
+    public static LongNatBitSet wrap(Roaring64Bitmap bitmap) {
+        return new HybridLongNatBitSet(bitmap);
+    }
+
+    /**
+     * Maps the given file, holding a set written by {@link NatBitSetCodec#writeWords(NatBitSet,
+     * java.io.DataOutput)}, into an unmodifiable set. Opening takes constant time: the set reads the
+     * mapping directly, and the operating system loads pages as they are touched.
+     *
+     * @throws IllegalArgumentException
+     *     if the file does not hold a word encoding or is too large to be mapped at once.
+     */
+    public static NatBitSet mapped(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(String.format("File %s too large to map (%d bytes)", path, size));
+            }
+            // The mapping stays valid after the channel is closed
+            return NatBitSetCodec.view(channel.map(FileChannel.MapMode.READ_ONLY, 0L, size));
+        }
+    }
+
     // --- Bounded Sets ---
 
+    /**
+     * An empty bounded set over the given domain, in the fastest representation for its size: a single word
+     * up to 64 values, a fixed array of words up to 512, and a {@link BitSet} beyond.
+     */
     public static BoundedNatBitSet boundedSet(int domainSize) {
-        return domainSize <= LongBoundedNatBitSet.maximalSize()
-                ? new LongBoundedNatBitSet(domainSize)
+        if (domainSize <= LongBoundedNatBitSet.maximalSize()) {
+            return new LongBoundedNatBitSet(domainSize);
+        }
+        return domainSize <= LongArrayBoundedNatBitSet.maximalSize()
+                ? new LongArrayBoundedNatBitSet(domainSize)
                 : new SimpleBoundedNatBitSet(new BitSet(domainSize), domainSize);
     }
 
@@ -183,6 +291,16 @@ public final class NatBitSets {
         return new LongBoundedNatBitSet(domainSize);
     }
 
+    /**
+     * An empty bounded set held in a fixed array of words.
+     *
+     * @throws IllegalArgumentException
+     *     unless {@code domainSize} is larger than 64 and at most 512.
+     */
+    public static BoundedNatBitSet boundedLongArraySet(int domainSize) {
+        return new LongArrayBoundedNatBitSet(domainSize);
+    }
+
     @SuppressWarnings("CollectionWithoutInitialCapacity")
     public static BoundedNatBitSet boundedSimpleSet(int domainSize) {
         return new SimpleBoundedNatBitSet(new BitSet(), domainSize);
@@ -224,9 +342,9 @@ public final class NatBitSets {
             }
             return boundedSet;
         }
-        BitSet words = words(set);
-        if (words != null) {
-            return new SimpleBoundedNatBitSet(words, domainSize);
+        if (set instanceof HybridNatBitSet && ((HybridNatBitSet) set).isWordBacked()) {
+            // The words are adopted, so they must not be shared with a copy of the set any more
+            return new SimpleBoundedNatBitSet(((HybridNatBitSet) set).exclusiveWords(), domainSize);
         }
 
         BoundedNatBitSet copy = boundedSet(domainSize);
@@ -317,9 +435,12 @@ public final class NatBitSets {
         if (bitmap != null) {
             return BitSets.of(bitmap, indices.lastInt() + 1);
         }
-        BitSet bitSet = new BitSet(indices.lastInt() + 1);
-        indices.forEach((IntConsumer) bitSet::set);
-        return bitSet;
+        if (indices instanceof PersistentNatBitSet) {
+            return BitSet.valueOf(((PersistentNatBitSet) indices).toLongArray());
+        }
+        long[] words = new long[(indices.lastInt() >>> 6) + 1];
+        indices.forEachWord((index, word) -> words[index] = word);
+        return BitSet.valueOf(words);
     }
 
     public static RoaringBitmap toRoaringBitmap(NatBitSet indices) {
@@ -335,7 +456,13 @@ public final class NatBitSets {
             return RoaringBitmaps.of(words);
         }
         RoaringBitmap copy = new RoaringBitmap();
-        indices.forEach((IntConsumer) copy::add);
+        indices.forEachRun((first, last) -> {
+            if (first == last) {
+                copy.add(first);
+            } else {
+                copy.add(first, last + 1L);
+            }
+        });
         return copy;
     }
 
@@ -425,6 +552,96 @@ public final class NatBitSets {
         return HybridNatBitSet.union(sets);
     }
 
+    /**
+     * Intersection of several sets at once. Cheaper than folding {@code retainAll} over them: the operands
+     * are taken smallest first and the work stops as soon as nothing is left. Small intermediate results
+     * gallop through array backed operands, bitmap backed operands are intersected in one n-ary pass.
+     *
+     * @throws IllegalArgumentException if there are no sets, as their intersection would be everything.
+     */
+    public static NatBitSet intersection(Collection<? extends IntCollection> sets) {
+        return HybridNatBitSet.intersection(sets);
+    }
+
+    // --- Cardinalities ---
+
+    /**
+     * The size of the intersection of the two sets, counted without building it. Nothing is allocated, except
+     * for a copy of the overlapping words when both sets are word backed. Counts beyond {@link Integer#MAX_VALUE} saturate, as {@link NatBitSet#size()} does.
+     */
+    public static int andCardinality(NatBitSet one, NatBitSet other) {
+        return NatBitSetCardinalities.and(one, other);
+    }
+
+    /** As {@link #andCardinality(NatBitSet, NatBitSet)}, for the union. */
+    public static int orCardinality(NatBitSet one, NatBitSet other) {
+        return NatBitSetCardinalities.or(one, other);
+    }
+
+    /** As {@link #andCardinality(NatBitSet, NatBitSet)}, for the elements of {@code one} not in {@code other}. */
+    public static int andNotCardinality(NatBitSet one, NatBitSet other) {
+        return NatBitSetCardinalities.andNot(one, other);
+    }
+
+    /** As {@link #andCardinality(NatBitSet, NatBitSet)}, for the symmetric difference. */
+    public static int xorCardinality(NatBitSet one, NatBitSet other) {
+        return NatBitSetCardinalities.xor(one, other);
+    }
+
+    /**
+     * The Jaccard similarity of the two sets, the size of their intersection over that of their union, from a
+     * single count of the intersection. Two empty sets are equal and thus have similarity 1.
+     */
+    public static double jaccard(NatBitSet one, NatBitSet other) {
+        return NatBitSetCardinalities.jaccard(one, other);
+    }
+
+    // --- Parallel Bulk Operations ---
+
+    /**
+     * {@link NatBitSet#and(IntCollection) Intersects} the target with the source. If both are large and word
+     * backed, the word range is split across the common {@link java.util.concurrent.ForkJoinPool}; otherwise,
+     * and always for small sets, this is just {@code target.and(source)}. Either way, the contents are the
+     * same. The source must not be modified concurrently.
+     */
+    public static void parallelAnd(NatBitSet target, IntCollection source) {
+        parallel(target, source, BitOperation.AND, NatBitSet::and);
+    }
+
+    /** As {@link #parallelAnd(NatBitSet, IntCollection)}, for {@link NatBitSet#andNot(IntCollection)}. */
+    public static void parallelAndNot(NatBitSet target, IntCollection source) {
+        parallel(target, source, BitOperation.AND_NOT, NatBitSet::andNot);
+    }
+
+    /** As {@link #parallelAnd(NatBitSet, IntCollection)}, for {@link NatBitSet#or(IntCollection)}. */
+    public static void parallelOr(NatBitSet target, IntCollection source) {
+        parallel(target, source, BitOperation.OR, NatBitSet::or);
+    }
+
+    /** As {@link #parallelAnd(NatBitSet, IntCollection)}, for {@link NatBitSet#xor(IntCollection)}. */
+    public static void parallelXor(NatBitSet target, IntCollection source) {
+        parallel(target, source, BitOperation.XOR, NatBitSet::xor);
+    }
+
+    private static void parallel(
+            NatBitSet target,
+            IntCollection source,
+            BitOperation operation,
+            BiConsumer<NatBitSet, IntCollection> sequential) {
+        if (target instanceof HybridNatBitSet && ((HybridNatBitSet) target).isWordBacked()) {
+            BitSet words = ((HybridNatBitSet) target).words();
+            BitSet otherWords = words(source);
+            // Identical operands are left to the sequential path, which settles them without looking at a word
+            if (otherWords != null
+                    && otherWords != words // NOPMD - identity is the point
+                    && ParallelWords.worthSplitting(words, otherWords, operation)) {
+                ((HybridNatBitSet) target).adoptWords(ParallelWords.combine(words, otherWords, operation));
+                return;
+            }
+        }
+        sequential.accept(target, source);
+    }
+
     public static NatBitSet lazyIntersection(NatBitSet one, NatBitSet other) {
         if (one.containsAll(other)) {
             return other;
@@ -436,4 +653,27 @@ public final class NatBitSets {
         copy.retainAll(other);
         return copy;
     }
+
+    /**
+     * A live view of the union of the two sets, see {@link NatSetView}. Each operand is a {@link NatBitSet} or
+     * another view, so that expressions compose without allocating intermediate results.
+     */
+    public static NatSetView unionView(NatSet one, NatSet other) {
+        return NatSetView.union(one, other);
+    }
+
+    /** As {@link #unionView(NatSet, NatSet)}, for the intersection. */
+    public static NatSetView intersectionView(NatSet one, NatSet other) {
+        return NatSetView.intersection(one, other);
+    }
+
+    /** As {@link #unionView(NatSet, NatSet)}, for the elements of {@code one} not in {@code other}. */
+    public static NatSetView differenceView(NatSet one, NatSet other) {
+        return NatSetView.difference(one, other);
+    }
+
+    /** As {@link #unionView(NatSet, NatSet)}, for the elements in exactly one of the two. */
+    public static NatSetView symmetricDifferenceView(NatSet one, NatSet other) {
+        return NatSetView.symmetricDifference(one, other);
+    }
 }
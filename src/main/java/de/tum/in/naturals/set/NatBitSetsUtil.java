@@ -28,6 +28,9 @@ public final class NatBitSetsUtil {
             HybridNatBitSet hybrid = (HybridNatBitSet) indices;
             return hybrid.isWordBacked() ? hybrid.words() : null;
         }
+        if (indices instanceof FrozenNatBitSet) {
+            return words(((FrozenNatBitSet) indices).delegate());
+        }
         return null;
     }
 
@@ -37,6 +40,21 @@ public final class NatBitSetsUtil {
             HybridNatBitSet hybrid = (HybridNatBitSet) indices;
             return hybrid.isBitmapBacked() ? hybrid.bitmap() : null;
         }
+        if (indices instanceof FrozenNatBitSet) {
+            return bitmap(((FrozenNatBitSet) indices).delegate());
+        }
+        return null;
+    }
+
+    @Nullable
+    static Runs runs(Object indices) {
+        if (indices instanceof HybridNatBitSet) {
+            HybridNatBitSet hybrid = (HybridNatBitSet) indices;
+            return hybrid.isRunBacked() ? hybrid.runs() : null;
+        }
+        if (indices instanceof FrozenNatBitSet) {
+            return runs(((FrozenNatBitSet) indices).delegate());
+        }
         return null;
     }
 
@@ -78,6 +96,12 @@ public final class NatBitSetsUtil {
         }
     }
 
+    public static void checkNonNegative(long index) {
+        if (index < 0L) {
+            throw new IndexOutOfBoundsException(String.format("Negative index %d ", index));
+        }
+    }
+
     public static void checkRange(int from, int to) {
         checkOrdered(from, to);
         if (from < 0) {
@@ -96,6 +120,31 @@ public final class NatBitSetsUtil {
         }
     }
 
+    public static void checkRange(long from, long to) {
+        checkOrdered(from, to);
+        if (from < 0L) {
+            throw new IndexOutOfBoundsException(String.format("Negative from index %d ", from));
+        }
+    }
+
+    public static void checkOrdered(long from, long to) {
+        if (to < from) {
+            throw new IndexOutOfBoundsException(String.format("From %d bigger than to %d", from, to));
+        }
+    }
+
+    /**
+     * Validates the arguments of a batch query: {@code [from, to)} must be a range of {@code queries}, and
+     * the output must have room for {@code to - from} answers.
+     */
+    static void checkBatch(int[] queries, int from, int to, long capacity) {
+        Objects.checkFromToIndex(from, to, queries.length);
+        if (capacity < to - from) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Output of capacity %d too short for %d queries", capacity, to - from));
+        }
+    }
+
     static IntCollection unbox(Collection<?> indices) {
         if (indices instanceof IntCollection) {
             return (IntCollection) indices;
@@ -121,4 +170,57 @@ public final class NatBitSetsUtil {
         }
         return UNKNOWN_LAST;
     }
+
+    /** The non-zero words of the first {@code size} entries of a sorted array of naturals. */
+    static void forEachWord(int[] array, int size, NatBitSet.LongWordConsumer consumer) {
+        int i = 0;
+        while (i < size) {
+            int wordIndex = array[i] >>> 6;
+            long word = 0L;
+            do {
+                word |= 1L << array[i];
+                i += 1;
+            } while (i < size && array[i] >>> 6 == wordIndex);
+            consumer.accept(wordIndex, word);
+        }
+    }
+
+    /** The runs of the entries {@code [from, to)} of a sorted array of naturals, which may repeat. */
+    static void forEachRun(int[] array, int from, int to, NatBitSet.IntIntConsumer consumer) {
+        int i = from;
+        while (i < to) {
+            int first = array[i];
+            do {
+                i += 1;
+            } while (i < to && array[i] - array[i - 1] <= 1);
+            consumer.accept(first, array[i - 1]);
+        }
+    }
+
+    /** The number of runs among the entries {@code [from, to)} of a sorted array of naturals, which may repeat. */
+    static int runCount(int[] array, int from, int to) {
+        int runs = from < to ? 1 : 0;
+        for (int i = from + 1; i < to; i++) {
+            if (array[i] - array[i - 1] > 1) {
+                runs += 1;
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Checks that {@code [from, to)} is a range of the array holding naturals in ascending order, equal ones
+     * allowed.
+     */
+    static void checkSorted(int[] elements, int from, int to) {
+        Objects.checkFromToIndex(from, to, elements.length);
+        if (from < to) {
+            checkNonNegative(elements[from]);
+        }
+        for (int i = from + 1; i < to; i++) {
+            if (elements[i] < elements[i - 1]) {
+                throw new IllegalArgumentException(String.format("Elements not sorted at index %d", i));
+            }
+        }
+    }
 }
@@ -0,0 +1,352 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static de.tum.in.naturals.set.NatBitSetsUtil.checkNonNegative;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntSet;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import java.util.NoSuchElementException;
+import javax.annotation.Nonnegative;
+
+/**
+ * An unmodifiable set computed from others on demand, such as the union of two sets. Views compose, so the
+ * union of two sets less a third can be iterated or tested for emptiness without any intermediate result
+ * being allocated. Every query is answered from the operands at that moment, so the view follows them as
+ * they change; {@link #materialize()} takes a snapshot.
+ *
+ * <p>Membership costs a probe per operand. Navigation skips through the operands run by run, so iteration
+ * and {@link #isEmpty()} stop at the first element without looking further, and {@link #size()} costs a
+ * walk over the runs of the result. The operands are {@link NatBitSet}s or other views.</p>
+ */
+public abstract class NatSetView extends AbstractIntSet implements NatSet {
+    // One past the largest index, where every set is absent
+    static final long INFINITY = Integer.MAX_VALUE + 1L;
+
+    NatSetView() {}
+
+    static NatSetView of(NatSet set) {
+        if (set instanceof NatSetView) {
+            return (NatSetView) set;
+        }
+        if (set instanceof NatBitSet) {
+            return new Leaf((NatBitSet) set);
+        }
+        throw new IllegalArgumentException("Cannot navigate " + set.getClass().getName());
+    }
+
+    static NatSetView union(NatSet one, NatSet other) {
+        return new Union(of(one), of(other));
+    }
+
+    static NatSetView intersection(NatSet one, NatSet other) {
+        return new Intersection(of(one), of(other));
+    }
+
+    static NatSetView difference(NatSet one, NatSet other) {
+        return new Difference(of(one), of(other));
+    }
+
+    static NatSetView symmetricDifference(NatSet one, NatSet other) {
+        return new SymmetricDifference(of(one), of(other));
+    }
+
+    /** The smallest element at least {@code index}, or -1 if there is none or the index is past the ints. */
+    abstract int nextPresent(long index);
+
+    /** The smallest non-element at least {@code index}, {@link #INFINITY} if only that one is left. */
+    abstract long nextAbsent(long index);
+
+    @Override
+    public abstract boolean contains(int index);
+
+    /**
+     * Returns the smallest element larger or equal to {@code index} or -1 if none.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if {@code index} is negative.
+     * @see NatBitSet#nextPresentIndex(int)
+     */
+    public int nextPresentIndex(@Nonnegative int index) {
+        checkNonNegative(index);
+        return nextPresent(index);
+    }
+
+    /**
+     * Returns the smallest index larger or equal to {@code index} which is not an element. As for
+     * {@link NatBitSet#nextAbsentIndex(int)}, this saturates at {@link Integer#MAX_VALUE}.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if {@code index} is negative.
+     */
+    public int nextAbsentIndex(@Nonnegative int index) {
+        checkNonNegative(index);
+        return (int) Math.min(Integer.MAX_VALUE, nextAbsent(index));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return nextPresent(0L) < 0;
+    }
+
+    @Override
+    public int size() {
+        long count = 0L;
+        int present = nextPresent(0L);
+        while (present >= 0) {
+            long absent = nextAbsent(present);
+            count += absent - present;
+            present = nextPresent(absent);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, count);
+    }
+
+    @Override
+    public IntIterator iterator() {
+        return new ViewIterator(this);
+    }
+
+    /** Descending iteration is not navigated, it goes through a {@link #materialize() snapshot}. */
+    @Override
+    public IntIterator reverseIterator() {
+        return materialize().reverseIterator();
+    }
+
+    /** A modifiable set holding the current elements of this view, built run by run. */
+    public NatBitSet materialize() {
+        NatBitSet set = NatBitSets.of();
+        int present = nextPresent(0L);
+        while (present >= 0) {
+            long absent = nextAbsent(present);
+            if (absent == INFINITY) {
+                set.set(present, Integer.MAX_VALUE);
+                set.set(Integer.MAX_VALUE);
+                break;
+            }
+            set.set(present, (int) absent);
+            present = nextPresent(absent);
+        }
+        return set;
+    }
+
+    private static final class Leaf extends NatSetView {
+        private final NatBitSet set;
+
+        Leaf(NatBitSet set) {
+            this.set = set;
+        }
+
+        @Override
+        int nextPresent(long index) {
+            return index >= INFINITY ? -1 : set.nextPresentIndex((int) index);
+        }
+
+        @Override
+        long nextAbsent(long index) {
+            if (index >= INFINITY) {
+                return INFINITY;
+            }
+            // Saturated, the largest index may be an element after all
+            int absent = set.nextAbsentIndex((int) index);
+            if (absent < 0 || absent == Integer.MAX_VALUE && set.contains(Integer.MAX_VALUE)) {
+                return INFINITY;
+            }
+            return absent;
+        }
+
+        @Override
+        public boolean contains(int index) {
+            return set.contains(index);
+        }
+    }
+
+    private static final class Union extends NatSetView {
+        private final NatSetView one;
+        private final NatSetView other;
+
+        Union(NatSetView one, NatSetView other) {
+            this.one = one;
+            this.other = other;
+        }
+
+        @Override
+        int nextPresent(long index) {
+            int first = one.nextPresent(index);
+            int second = other.nextPresent(index);
+            if (first < 0 || second < 0) {
+                return Math.max(first, second);
+            }
+            return Math.min(first, second);
+        }
+
+        @Override
+        long nextAbsent(long index) {
+            // Each operand skips past the runs of the other until both agree on a gap
+            long candidate = index;
+            while (true) {
+                long first = one.nextAbsent(candidate);
+                long second = other.nextAbsent(first);
+                if (second == first) {
+                    return first;
+                }
+                candidate = second;
+            }
+        }
+
+        @Override
+        public boolean contains(int index) {
+            return one.contains(index) || other.contains(index);
+        }
+    }
+
+    private static final class Intersection extends NatSetView {
+        private final NatSetView one;
+        private final NatSetView other;
+
+        Intersection(NatSetView one, NatSetView other) {
+            this.one = one;
+            this.other = other;
+        }
+
+        @Override
+        int nextPresent(long index) {
+            // Each operand skips past the gaps of the other until both agree on an element
+            int candidate = one.nextPresent(index);
+            while (candidate >= 0) {
+                int second = other.nextPresent(candidate);
+                if (second == candidate || second < 0) {
+                    return second;
+                }
+                candidate = one.nextPresent(second);
+            }
+            return -1;
+        }
+
+        @Override
+        long nextAbsent(long index) {
+            return Math.min(one.nextAbsent(index), other.nextAbsent(index));
+        }
+
+        @Override
+        public boolean contains(int index) {
+            return one.contains(index) && other.contains(index);
+        }
+    }
+
+    private static final class Difference extends NatSetView {
+        private final NatSetView one;
+        private final NatSetView removed;
+
+        Difference(NatSetView one, NatSetView removed) {
+            this.one = one;
+            this.removed = removed;
+        }
+
+        @Override
+        int nextPresent(long index) {
+            int candidate = one.nextPresent(index);
+            while (candidate >= 0 && removed.contains(candidate)) {
+                candidate = one.nextPresent(removed.nextAbsent(candidate));
+            }
+            return candidate;
+        }
+
+        @Override
+        long nextAbsent(long index) {
+            long absent = one.nextAbsent(index);
+            int removedPresent = removed.nextPresent(index);
+            return removedPresent < 0 ? absent : Math.min(absent, removedPresent);
+        }
+
+        @Override
+        public boolean contains(int index) {
+            return one.contains(index) && !removed.contains(index);
+        }
+    }
+
+    private static final class SymmetricDifference extends NatSetView {
+        private final NatSetView one;
+        private final NatSetView other;
+
+        SymmetricDifference(NatSetView one, NatSetView other) {
+            this.one = one;
+            this.other = other;
+        }
+
+        @Override
+        int nextPresent(long index) {
+            long candidate = index;
+            while (true) {
+                int first = one.nextPresent(candidate);
+                int second = other.nextPresent(candidate);
+                if (first < 0 || second < 0) {
+                    return Math.max(first, second);
+                }
+                if (first != second) {
+                    return Math.min(first, second);
+                }
+                // Both hold it, skip the part of the run they share
+                candidate = Math.min(one.nextAbsent(first), other.nextAbsent(first));
+            }
+        }
+
+        @Override
+        long nextAbsent(long index) {
+            long candidate = index;
+            while (candidate < INFINITY) {
+                boolean inOne = one.contains((int) candidate);
+                if (inOne == other.contains((int) candidate)) {
+                    return candidate;
+                }
+                // Only one holds it, until its run ends or the other one's starts
+                NatSetView holding = inOne ? one : other;
+                NatSetView missing = inOne ? other : one;
+                long end = holding.nextAbsent(candidate);
+                int start = missing.nextPresent(candidate);
+                candidate = start < 0 ? end : Math.min(end, start);
+            }
+            return INFINITY;
+        }
+
+        @Override
+        public boolean contains(int index) {
+            return one.contains(index) != other.contains(index);
+        }
+    }
+
+    /** Walks the elements run by run, asking the view only where a run starts and where it ends. */
+    private static final class ViewIterator implements IntIterator {
+        private final NatSetView view;
+        // -1 once done
+        private int next;
+        private long runEnd;
+
+        ViewIterator(NatSetView view) {
+            this.view = view;
+            this.next = view.nextPresent(0L);
+            this.runEnd = next < 0 ? 0L : view.nextAbsent(next);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public int nextInt() {
+            int current = next;
+            if (current < 0) {
+                throw new NoSuchElementException();
+            }
+            if (current + 1L < runEnd) {
+                next = current + 1;
+            } else {
+                next = view.nextPresent(runEnd);
+                if (next >= 0) {
+                    runEnd = view.nextAbsent(next);
+                }
+            }
+            return current;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bulk operations between two word backed sets, with the word range split across the common
+ * {@link ForkJoinPool}.
+ *
+ * <p>A {@link BitSet} neither exposes its words nor tolerates concurrent writers. So the words of both
+ * operands are copied out once, each task combines its slice of them in place into the copy which spans
+ * the result, and that copy becomes the new store once all tasks are done.</p>
+ */
+final class ParallelWords {
+    /** Below this many words, forking costs more than the operation itself. */
+    static final int SEQUENTIAL_WORDS = 1 << 16;
+    /** Words handled by one task; large enough that a slice outweighs the task overhead. */
+    private static final int SLICE_WORDS = 1 << 14;
+
+    private ParallelWords() {}
+
+    static int wordCount(BitSet bitSet) {
+        // length() wraps around to Integer.MIN_VALUE if the last index is set, the unsigned shift undoes that
+        return (bitSet.length() + Long.SIZE - 1) >>> 6;
+    }
+
+    static boolean worthSplitting(BitSet one, BitSet other, BitOperation operation) {
+        return operation.resultWords(wordCount(one), wordCount(other)) >= SEQUENTIAL_WORDS;
+    }
+
+    /** Computes {@code one operation other} into a new bit set. Neither operand is modified. */
+    static BitSet combine(BitSet one, BitSet other, BitOperation operation) {
+        long[] left = one.toLongArray();
+        long[] right = other.toLongArray();
+        // The result goes into the copy which spans it. Words past the other copy are left as they are, which
+        // is what or, xor and and-not with a zero word do; and spans only the shorter copy, and commutes.
+        boolean intoLeft = operation == BitOperation.AND_NOT
+                || left.length == operation.resultWords(left.length, right.length);
+        long[] target = intoLeft ? left : right;
+        long[] source = intoLeft ? right : left;
+        int common = Math.min(left.length, right.length);
+        ForkJoinPool.commonPool().invoke(new Slice(target, source, intoLeft, operation, 0, common));
+        // The target spans exactly the result; wrapping it copies it once more, without trailing zero words.
+        // Whole words are read and written, so the top index needs no special care, unlike with BitSet.get.
+        return BitSet.valueOf(target);
+    }
+
+    private static final class Slice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] target;
+        private final long[] source;
+        // Whether the target holds the first operand of the operation
+        private final boolean targetFirst;
+        private final BitOperation operation;
+        private final int from;
+        private final int to;
+
+        Slice(long[] target, long[] source, boolean targetFirst, BitOperation operation, int from, int to) {
+            this.target = target;
+            this.source = source;
+            this.targetFirst = targetFirst;
+            this.operation = operation;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SLICE_WORDS) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new Slice(target, source, targetFirst, operation, from, middle),
+                        new Slice(target, source, targetFirst, operation, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                target[i] = targetFirst
+                        ? operation.apply(target[i], source[i])
+                        : operation.apply(source[i], target[i]);
+            }
+        }
+    }
+}
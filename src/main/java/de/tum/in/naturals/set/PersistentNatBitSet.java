@@ -0,0 +1,908 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static de.tum.in.naturals.set.NatBitSetsUtil.checkNonNegative;
+
+import de.tum.in.naturals.MemoryFootprint;
+import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import javax.annotation.Nonnegative;
+import org.jspecify.annotations.Nullable;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * An immutable set whose modified versions share all untouched structure with the original.
+ *
+ * <p>The elements are kept in a trie of 4096-bit leaves. {@link #with(int)} and {@link #without(int)} copy
+ * only the path from the root to the one leaf they change, and {@link #union(IntCollection)},
+ * {@link #intersection(IntCollection)} and {@link #difference(IntCollection)} hand back the subtrees of an
+ * operand wherever the result coincides with it. Keeping many slightly different versions alive thus costs
+ * memory in proportion to their differences, not to their size.</p>
+ *
+ * <p>All inherited mutators throw an {@link UnsupportedOperationException}, and {@link #clone()} returns the
+ * set itself.</p>
+ */
+// Sharing is the point, so subtrees are compared by identity throughout
+@SuppressWarnings("PMD.CompareObjectsWithEquals")
+public final class PersistentNatBitSet extends AbstractNatBitSet {
+    /** Bits per leaf, as a power of two. */
+    private static final int LEAF_SHIFT = 12;
+
+    private static final int LEAF_WORDS = 1 << (LEAF_SHIFT - 6);
+    private static final int BRANCH_SHIFT = 5;
+    private static final int BRANCH = 1 << BRANCH_SHIFT;
+    private static final int SIZE_UNKNOWN = -1;
+
+    static final PersistentNatBitSet EMPTY = new PersistentNatBitSet(null, 0, 0);
+
+    // A leaf (long[]) at height zero, an inner node (Object[] of BRANCH children) otherwise; null if empty
+    private final @Nullable Object root;
+    private final int height;
+    // Lazy, and racy on purpose: every thread computes the same value
+    private int size;
+
+    private PersistentNatBitSet(@Nullable Object root, int height, int size) {
+        this.root = root;
+        this.height = height;
+        this.size = size;
+    }
+
+    /**
+     * Wraps a root, stripping inner nodes whose only child is the first one - so that equal sets always
+     * have equal height, whatever history produced them.
+     */
+    private static PersistentNatBitSet of(@Nullable Object root, int height, int size) {
+        if (root == null) {
+            return EMPTY;
+        }
+        Object node = root;
+        int level = height;
+        while (level > 0 && isOnlyFirstChild((@Nullable Object[]) node)) {
+            node = ((@Nullable Object[]) node)[0];
+            level -= 1;
+        }
+        return new PersistentNatBitSet(node, level, size);
+    }
+
+    @SuppressWarnings("NullAway")
+    private static boolean isOnlyFirstChild(@Nullable Object[] children) {
+        if (children[0] == null) {
+            return false;
+        }
+        for (int i = 1; i < BRANCH; i++) {
+            if (children[i] != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a persistent copy of the given indices, or the indices themselves if they already are
+     * persistent.
+     */
+    public static PersistentNatBitSet copyOf(IntCollection indices) {
+        if (indices instanceof PersistentNatBitSet) {
+            return (PersistentNatBitSet) indices;
+        }
+        if (indices.isEmpty()) {
+            return EMPTY;
+        }
+        Builder builder = new Builder();
+        BitSet words = NatBitSetsUtil.words(indices);
+        RoaringBitmap bitmap = NatBitSetsUtil.bitmap(indices);
+        if (words != null) {
+            builder.addWords(words.toLongArray());
+        } else if (bitmap != null) {
+            bitmap.forEach((org.roaringbitmap.IntConsumer) builder::add);
+        } else {
+            indices.forEach((IntConsumer) builder::add);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns a persistent copy of the given indices, built in place rather than a version per index. Persistent
+     * sets and primitive collections are handled as by {@link #copyOf(IntCollection)}.
+     */
+    public static PersistentNatBitSet copyOf(Iterable<Integer> indices) {
+        if (indices instanceof IntCollection) {
+            return copyOf((IntCollection) indices);
+        }
+        Builder builder = new Builder();
+        for (int index : indices) {
+            builder.add(index);
+        }
+        return builder.build();
+    }
+
+    private static int heightFor(int index) {
+        int height = 0;
+        int key = index >>> LEAF_SHIFT;
+        while (key != 0) {
+            key >>>= BRANCH_SHIFT;
+            height += 1;
+        }
+        return height;
+    }
+
+    /** The number of indices a node at the given level covers. */
+    private static long span(int level) {
+        return 1L << (LEAF_SHIFT + BRANCH_SHIFT * level);
+    }
+
+    private static int childIndex(int index, int level) {
+        return (index >>> (LEAF_SHIFT + BRANCH_SHIFT * (level - 1))) & (BRANCH - 1);
+    }
+
+    private static int wordIndex(int index) {
+        return (index >>> 6) & (LEAF_WORDS - 1);
+    }
+
+    @Nullable
+    private static Object lift(@Nullable Object node, int from, int to) {
+        if (node == null) {
+            return null;
+        }
+        Object lifted = node;
+        for (int level = from; level < to; level++) {
+            @Nullable Object[] parent = new Object[BRANCH];
+            parent[0] = lifted;
+            lifted = parent;
+        }
+        return lifted;
+    }
+
+    // Accessors
+
+    @Override
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    @Override
+    public int size() {
+        int size = this.size;
+        if (size == SIZE_UNKNOWN) {
+            size = count(root, height);
+            this.size = size;
+        }
+        return size;
+    }
+
+    @SuppressWarnings("NullAway")
+    private static int count(@Nullable Object node, int level) {
+        if (node == null) {
+            return 0;
+        }
+        int count = 0;
+        if (level == 0) {
+            for (long word : (long[]) node) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+        for (Object child : (@Nullable Object[]) node) {
+            count += count(child, level - 1);
+        }
+        return count;
+    }
+
+    @Override
+    public boolean contains(int index) {
+        if (index < 0 || heightFor(index) > height) {
+            return false;
+        }
+        Object node = root;
+        for (int level = height; level > 0 && node != null; level--) {
+            node = ((@Nullable Object[]) node)[childIndex(index, level)];
+        }
+        return node != null && (((long[]) node)[wordIndex(index)] & (1L << index)) != 0L;
+    }
+
+    @Override
+    public int nextPresentIndex(int index) {
+        checkNonNegative(index);
+        if (root == null || index >= span(height)) {
+            return -1;
+        }
+        return nextPresent(root, height, 0L, index);
+    }
+
+    @SuppressWarnings("NullAway")
+    private static int nextPresent(Object node, int level, long base, long from) {
+        if (level == 0) {
+            long[] leaf = (long[]) node;
+            int word = (int) ((from - base) >>> 6);
+            long current = leaf[word] & (-1L << from);
+            while (current == 0L) {
+                word += 1;
+                if (word == LEAF_WORDS) {
+                    return -1;
+                }
+                current = leaf[word];
+            }
+            return (int) (base + (word << 6) + Long.numberOfTrailingZeros(current));
+        }
+        @Nullable Object[] children = (@Nullable Object[]) node;
+        long childSpan = span(level - 1);
+        for (int child = (int) ((from - base) / childSpan); child < BRANCH; child++) {
+            Object subtree = children[child];
+            if (subtree != null) {
+                long childBase = base + child * childSpan;
+                int next = nextPresent(subtree, level - 1, childBase, Math.max(from, childBase));
+                if (next >= 0) {
+                    return next;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int nextAbsentIndex(int index) {
+        checkNonNegative(index);
+        if (root == null || index >= span(height)) {
+            return index;
+        }
+        long next = nextAbsent(root, height, 0L, index);
+        // A trie filled to the top of the int range saturates, as a full bitmap does
+        return next == -1 ? (int) Math.min(span(height), Integer.MAX_VALUE) : (int) Math.min(next, Integer.MAX_VALUE);
+    }
+
+    @SuppressWarnings("NullAway")
+    private static long nextAbsent(Object node, int level, long base, long from) {
+        if (level == 0) {
+            long[] leaf = (long[]) node;
+            int word = (int) ((from - base) >>> 6);
+            long current = ~leaf[word] & (-1L << from);
+            while (current == 0L) {
+                word += 1;
+                if (word == LEAF_WORDS) {
+                    return -1L;
+                }
+                current = ~leaf[word];
+            }
+            return base + (word << 6) + Long.numberOfTrailingZeros(current);
+        }
+        @Nullable Object[] children = (@Nullable Object[]) node;
+        long childSpan = span(level - 1);
+        for (int child = (int) ((from - base) / childSpan); child < BRANCH; child++) {
+            long childBase = base + child * childSpan;
+            Object subtree = children[child];
+            if (subtree == null) {
+                return Math.max(from, childBase);
+            }
+            long next = nextAbsent(subtree, level - 1, childBase, Math.max(from, childBase));
+            if (next >= 0) {
+                return next;
+            }
+        }
+        return -1L;
+    }
+
+    @Override
+    public int previousPresentIndex(int index) {
+        checkNonNegative(index);
+        if (root == null) {
+            return -1;
+        }
+        return previousPresent(root, height, 0L, Math.min(index, span(height) - 1));
+    }
+
+    @SuppressWarnings("NullAway")
+    private static int previousPresent(Object node, int level, long base, long from) {
+        if (level == 0) {
+            long[] leaf = (long[]) node;
+            int word = (int) ((from - base) >>> 6);
+            long current = leaf[word] & (-1L >>> (63 - (from & 63)));
+            while (current == 0L) {
+                if (word == 0) {
+                    return -1;
+                }
+                word -= 1;
+                current = leaf[word];
+            }
+            return (int) (base + (word << 6) + 63 - Long.numberOfLeadingZeros(current));
+        }
+        @Nullable Object[] children = (@Nullable Object[]) node;
+        long childSpan = span(level - 1);
+        for (int child = (int) ((from - base) / childSpan); child >= 0; child--) {
+            Object subtree = children[child];
+            if (subtree != null) {
+                long childBase = base + child * childSpan;
+                int previous =
+                        previousPresent(subtree, level - 1, childBase, Math.min(from, childBase + childSpan - 1));
+                if (previous >= 0) {
+                    return previous;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int previousAbsentIndex(int index) {
+        checkNonNegative(index);
+        if (root == null || index >= span(height)) {
+            return index;
+        }
+        return previousAbsent(root, height, 0L, index);
+    }
+
+    @SuppressWarnings("NullAway")
+    private static int previousAbsent(Object node, int level, long base, long from) {
+        if (level == 0) {
+            long[] leaf = (long[]) node;
+            int word = (int) ((from - base) >>> 6);
+            long current = ~leaf[word] & (-1L >>> (63 - (from & 63)));
+            while (current == 0L) {
+                if (word == 0) {
+                    return -1;
+                }
+                word -= 1;
+                current = ~leaf[word];
+            }
+            return (int) (base + (word << 6) + 63 - Long.numberOfLeadingZeros(current));
+        }
+        @Nullable Object[] children = (@Nullable Object[]) node;
+        long childSpan = span(level - 1);
+        for (int child = (int) ((from - base) / childSpan); child >= 0; child--) {
+            long childBase = base + child * childSpan;
+            long childFrom = Math.min(from, childBase + childSpan - 1);
+            Object subtree = children[child];
+            if (subtree == null) {
+                return (int) childFrom;
+            }
+            int previous = previousAbsent(subtree, level - 1, childBase, childFrom);
+            if (previous >= 0) {
+                return previous;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public IntIterator iterator() {
+        return new NatBitSetIterator(this);
+    }
+
+    @Override
+    public void forEach(IntConsumer consumer) {
+        forEach(root, height, 0L, consumer);
+    }
+
+    @SuppressWarnings("NullAway")
+    private static void forEach(@Nullable Object node, int level, long base, IntConsumer consumer) {
+        if (node == null) {
+            return;
+        }
+        if (level == 0) {
+            long[] leaf = (long[]) node;
+            for (int i = 0; i < LEAF_WORDS; i++) {
+                long word = leaf[i];
+                while (word != 0L) {
+                    consumer.accept((int) (base + (i << 6) + Long.numberOfTrailingZeros(word)));
+                    word &= word - 1;
+                }
+            }
+            return;
+        }
+        @Nullable Object[] children = (@Nullable Object[]) node;
+        long childSpan = span(level - 1);
+        for (int child = 0; child < BRANCH; child++) {
+            forEach(children[child], level - 1, base + child * childSpan, consumer);
+        }
+    }
+
+    /**
+     * Returns the words of this set, in the format of {@link BitSet#toLongArray()}.
+     */
+    public long[] toLongArray() {
+        if (root == null) {
+            return new long[0];
+        }
+        long[] words = new long[(lastInt() >>> 6) + 1];
+        copyWords(root, height, 0L, words);
+        return words;
+    }
+
+    @SuppressWarnings("NullAway")
+    private static void copyWords(@Nullable Object node, int level, long base, long[] words) {
+        if (node == null) {
+            return;
+        }
+        int offset = (int) (base >>> 6);
+        if (level == 0) {
+            System.arraycopy(node, 0, words, offset, Math.min(LEAF_WORDS, words.length - offset));
+            return;
+        }
+        @Nullable Object[] children = (@Nullable Object[]) node;
+        long childSpan = span(level - 1);
+        for (int child = 0; child < BRANCH; child++) {
+            long childBase = base + child * childSpan;
+            if ((childBase >>> 6) >= words.length) {
+                return;
+            }
+            copyWords(children[child], level - 1, childBase, words);
+        }
+    }
+
+    // Versions
+
+    /**
+     * Returns a set which additionally contains the given index, sharing everything but the path to it
+     * with this one.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if {@code index} is negative.
+     */
+    public PersistentNatBitSet with(@Nonnegative int index) {
+        checkNonNegative(index);
+        if (contains(index)) {
+            return this;
+        }
+        int height = Math.max(this.height, heightFor(index));
+        Object root = withBit(lift(this.root, this.height, height), height, index);
+        int size = this.size;
+        return new PersistentNatBitSet(root, height, size == SIZE_UNKNOWN ? SIZE_UNKNOWN : size + 1);
+    }
+
+    @SuppressWarnings("NullAway")
+    private static Object withBit(@Nullable Object node, int level, int index) {
+        if (level == 0) {
+            long[] leaf = node == null ? new long[LEAF_WORDS] : ((long[]) node).clone();
+            leaf[wordIndex(index)] |= 1L << index;
+            return leaf;
+        }
+        @Nullable Object[] children = node == null ? new Object[BRANCH] : ((@Nullable Object[]) node).clone();
+        int child = childIndex(index, level);
+        children[child] = withBit(children[child], level - 1, index);
+        return children;
+    }
+
+    /**
+     * Returns a set which does not contain the given index, sharing everything but the path to it with this
+     * one.
+     */
+    public PersistentNatBitSet without(int index) {
+        if (!contains(index)) {
+            return this;
+        }
+        int size = this.size;
+        return of(withoutBit(root, height, index), height, size == SIZE_UNKNOWN ? SIZE_UNKNOWN : size - 1);
+    }
+
+    @Nullable
+    @SuppressWarnings("NullAway")
+    private static Object withoutBit(@Nullable Object node, int level, int index) {
+        assert node != null;
+        if (level == 0) {
+            long[] leaf = ((long[]) node).clone();
+            leaf[wordIndex(index)] &= ~(1L << index);
+            return isZero(leaf) ? null : leaf;
+        }
+        @Nullable Object[] children = ((@Nullable Object[]) node).clone();
+        int child = childIndex(index, level);
+        children[child] = withoutBit(children[child], level - 1, index);
+        return isEmpty(children) ? null : children;
+    }
+
+    private static boolean isZero(long[] leaf) {
+        for (long word : leaf) {
+            if (word != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isEmpty(@Nullable Object[] children) {
+        for (Object child : children) {
+            if (child != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the union of this set and the given indices. Subtrees only one side has, or which the other
+     * side does not add to, are shared with the respective operand.
+     */
+    public PersistentNatBitSet union(IntCollection indices) {
+        PersistentNatBitSet other = copyOf(indices);
+        if (other.root == null || other.root == root) {
+            return this;
+        }
+        if (root == null) {
+            return other;
+        }
+        int height = Math.max(this.height, other.height);
+        Object union = union(lift(root, this.height, height), lift(other.root, other.height, height), height);
+        return wrap(union, height, other);
+    }
+
+    /**
+     * Returns the intersection of this set and the given indices, sharing all subtrees the result has in
+     * common with either operand.
+     */
+    public PersistentNatBitSet intersection(IntCollection indices) {
+        PersistentNatBitSet other = copyOf(indices);
+        if (root == null || other.root == root) {
+            return this;
+        }
+        if (other.root == null) {
+            return EMPTY;
+        }
+        int height = Math.min(this.height, other.height);
+        // Everything above the lower of the two lies outside the other operand's range
+        Object intersection =
+                intersection(lower(root, this.height, height), lower(other.root, other.height, height), height);
+        return wrap(intersection, height, other);
+    }
+
+    /**
+     * Returns this set without the given indices, sharing all subtrees the indices do not touch.
+     */
+    public PersistentNatBitSet difference(IntCollection indices) {
+        PersistentNatBitSet other = copyOf(indices);
+        if (root == null || other.root == null) {
+            return this;
+        }
+        if (other.root == root) {
+            return EMPTY;
+        }
+        int height = Math.max(this.height, other.height);
+        Object difference = difference(lift(root, this.height, height), lift(other.root, other.height, height), height);
+        return wrap(difference, height, other);
+    }
+
+    private PersistentNatBitSet wrap(@Nullable Object result, int height, PersistentNatBitSet other) {
+        if (result == root && height == this.height) {
+            return this;
+        }
+        if (result == other.root && height == other.height) {
+            return other;
+        }
+        return of(result, height, SIZE_UNKNOWN);
+    }
+
+    /** Descends along the first children to the given level, which covers the lower part of the range. */
+    @Nullable
+    @SuppressWarnings("NullAway")
+    private static Object lower(Object node, int from, int to) {
+        Object lowered = node;
+        for (int level = from; level > to && lowered != null; level--) {
+            lowered = ((@Nullable Object[]) lowered)[0];
+        }
+        return lowered;
+    }
+
+    @Nullable
+    @SuppressWarnings("NullAway")
+    private static Object union(@Nullable Object first, @Nullable Object second, int level) {
+        if (first == second || second == null) {
+            return first;
+        }
+        if (first == null) {
+            return second;
+        }
+        if (level == 0) {
+            long[] one = (long[]) first;
+            long[] other = (long[]) second;
+            boolean isFirst = true;
+            boolean isSecond = true;
+            for (int i = 0; i < LEAF_WORDS; i++) {
+                long word = one[i] | other[i];
+                isFirst &= word == one[i];
+                isSecond &= word == other[i];
+            }
+            if (isFirst) {
+                return first;
+            }
+            if (isSecond) {
+                return second;
+            }
+            long[] union = new long[LEAF_WORDS];
+            for (int i = 0; i < LEAF_WORDS; i++) {
+                union[i] = one[i] | other[i];
+            }
+            return union;
+        }
+        @Nullable Object[] one = (@Nullable Object[]) first;
+        @Nullable Object[] other = (@Nullable Object[]) second;
+        @Nullable Object[] union = new Object[BRANCH];
+        boolean isFirst = true;
+        boolean isSecond = true;
+        for (int i = 0; i < BRANCH; i++) {
+            Object child = union(one[i], other[i], level - 1);
+            union[i] = child;
+            isFirst &= child == one[i];
+            isSecond &= child == other[i];
+        }
+        if (isFirst) {
+            return first;
+        }
+        return isSecond ? second : union;
+    }
+
+    @Nullable
+    @SuppressWarnings("NullAway")
+    private static Object intersection(@Nullable Object first, @Nullable Object second, int level) {
+        if (first == null || second == null) {
+            return null;
+        }
+        if (first == second) {
+            return first;
+        }
+        if (level == 0) {
+            long[] one = (long[]) first;
+            long[] other = (long[]) second;
+            long[] intersection = new long[LEAF_WORDS];
+            boolean isFirst = true;
+            boolean isSecond = true;
+            boolean empty = true;
+            for (int i = 0; i < LEAF_WORDS; i++) {
+                long word = one[i] & other[i];
+                intersection[i] = word;
+                isFirst &= word == one[i];
+                isSecond &= word == other[i];
+                empty &= word == 0L;
+            }
+            if (empty) {
+                return null;
+            }
+            if (isFirst) {
+                return first;
+            }
+            return isSecond ? second : intersection;
+        }
+        @Nullable Object[] one = (@Nullable Object[]) first;
+        @Nullable Object[] other = (@Nullable Object[]) second;
+        @Nullable Object[] intersection = new Object[BRANCH];
+        boolean isFirst = true;
+        boolean isSecond = true;
+        boolean empty = true;
+        for (int i = 0; i < BRANCH; i++) {
+            Object child = intersection(one[i], other[i], level - 1);
+            intersection[i] = child;
+            isFirst &= child == one[i];
+            isSecond &= child == other[i];
+            empty &= child == null;
+        }
+        if (empty) {
+            return null;
+        }
+        if (isFirst) {
+            return first;
+        }
+        return isSecond ? second : intersection;
+    }
+
+    @Nullable
+    @SuppressWarnings("NullAway")
+    private static Object difference(@Nullable Object first, @Nullable Object second, int level) {
+        if (first == null || first == second) {
+            return null;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (level == 0) {
+            long[] one = (long[]) first;
+            long[] other = (long[]) second;
+            long[] difference = new long[LEAF_WORDS];
+            boolean unchanged = true;
+            boolean empty = true;
+            for (int i = 0; i < LEAF_WORDS; i++) {
+                long word = one[i] & ~other[i];
+                difference[i] = word;
+                unchanged &= word == one[i];
+                empty &= word == 0L;
+            }
+            if (empty) {
+                return null;
+            }
+            return unchanged ? first : difference;
+        }
+        @Nullable Object[] one = (@Nullable Object[]) first;
+        @Nullable Object[] other = (@Nullable Object[]) second;
+        @Nullable Object[] difference = new Object[BRANCH];
+        boolean unchanged = true;
+        boolean empty = true;
+        for (int i = 0; i < BRANCH; i++) {
+            Object child = difference(one[i], other[i], level - 1);
+            difference[i] = child;
+            unchanged &= child == one[i];
+            empty &= child == null;
+        }
+        if (empty) {
+            return null;
+        }
+        return unchanged ? first : difference;
+    }
+
+    // Mutators - unsupported
+
+    @Override
+    public void set(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void set(int index, boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void set(int from, int to) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear(int from, int to) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void flip(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void flip(int from, int to) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Counts the whole trie, including the subtrees shared with other versions. What a version adds on top
+     * of another is thus the difference of their estimates.
+     */
+    @Override
+    public long estimatedBytes() {
+        // The root, the height and the size
+        return MemoryFootprint.objectBytes(4L + 2L * Integer.BYTES) + nodeBytes(root, height);
+    }
+
+    @SuppressWarnings("NullAway")
+    private static long nodeBytes(@Nullable Object node, int level) {
+        if (node == null) {
+            return 0L;
+        }
+        if (level == 0) {
+            return MemoryFootprint.arrayBytes(LEAF_WORDS, Long.BYTES);
+        }
+        long bytes = MemoryFootprint.arrayBytes(BRANCH, 4);
+        for (Object child : (@Nullable Object[]) node) {
+            bytes += nodeBytes(child, level - 1);
+        }
+        return bytes;
+    }
+
+    // Clone and equality
+
+    @SuppressWarnings("MethodDoesntCallSuperMethod")
+    @Override
+    public PersistentNatBitSet clone() {
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Set)) {
+            return false;
+        }
+        if (o instanceof PersistentNatBitSet) {
+            // Both are normalised, so equal sets have equal height and shared subtrees need not be walked
+            PersistentNatBitSet other = (PersistentNatBitSet) o;
+            return height == other.height && nodeEquals(root, other.root, height);
+        }
+        return super.equals(o);
+    }
+
+    @SuppressWarnings("NullAway")
+    private static boolean nodeEquals(@Nullable Object first, @Nullable Object second, int level) {
+        if (first == second) {
+            return true;
+        }
+        if (first == null || second == null) {
+            return false;
+        }
+        if (level == 0) {
+            return Arrays.equals((long[]) first, (long[]) second);
+        }
+        @Nullable Object[] one = (@Nullable Object[]) first;
+        @Nullable Object[] other = (@Nullable Object[]) second;
+        for (int i = 0; i < BRANCH; i++) {
+            if (!nodeEquals(one[i], other[i], level - 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    /** Builds a fresh trie in place - nothing is shared yet, so nothing needs to be copied. */
+    private static final class Builder {
+        private @Nullable Object root;
+        private int height;
+
+        void add(int index) {
+            checkNonNegative(index);
+            int required = heightFor(index);
+            if (required > height) {
+                root = lift(root, height, required);
+                height = required;
+            }
+            root = addInPlace(root, height, index);
+        }
+
+        @SuppressWarnings("NullAway")
+        private static Object addInPlace(@Nullable Object node, int level, int index) {
+            if (level == 0) {
+                long[] leaf = node == null ? new long[LEAF_WORDS] : (long[]) node;
+                leaf[wordIndex(index)] |= 1L << index;
+                return leaf;
+            }
+            @Nullable Object[] children = node == null ? new Object[BRANCH] : (@Nullable Object[]) node;
+            int child = childIndex(index, level);
+            children[child] = addInPlace(children[child], level - 1, index);
+            return children;
+        }
+
+        /** Adds words in the format of {@link BitSet#toLongArray()}, a leaf at a time. */
+        void addWords(long[] words) {
+            for (int offset = 0; offset < words.length; offset += LEAF_WORDS) {
+                int end = Math.min(words.length, offset + LEAF_WORDS);
+                int nonZero = offset;
+                while (nonZero < end && words[nonZero] == 0L) {
+                    nonZero += 1;
+                }
+                if (nonZero == end) {
+                    continue;
+                }
+                // Seed the leaf through its first element, then fill in the rest of its words directly
+                int first = (nonZero << 6) + Long.numberOfTrailingZeros(words[nonZero]);
+                add(first);
+                long[] leaf = leafOf(first);
+                System.arraycopy(words, offset, leaf, 0, end - offset);
+            }
+        }
+
+        @SuppressWarnings("NullAway")
+        private long[] leafOf(int index) {
+            Object node = root;
+            for (int level = height; level > 0; level--) {
+                node = ((@Nullable Object[]) node)[childIndex(index, level)];
+            }
+            return (long[]) node;
+        }
+
+        PersistentNatBitSet build() {
+            return of(root, height, SIZE_UNKNOWN);
+        }
+    }
+}
@@ -0,0 +1,537 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import de.tum.in.naturals.MemoryFootprint;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+import org.jspecify.annotations.Nullable;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * A set of naturals as a sorted list of maximal runs {@code [start, end)}: no run is empty and any two are
+ * separated by at least one absent index. Start and end of each run sit next to each other in a single
+ * array. Navigation searches the starts, everything else walks the runs, so the list is meant to stay short.
+ *
+ * <p>The run holding {@link Integer#MAX_VALUE} ends at 2<sup>31</sup>, which an int cannot hold. Ends are
+ * thus stored as unsigned ints and only ever read through {@link #end(int)}.</p>
+ */
+final class Runs {
+    static final long INFINITY = Integer.MAX_VALUE + 1L;
+    private static final int[] EMPTY_BOUNDS = {};
+
+    private int[] bounds;
+    private int count;
+
+    Runs() {
+        this.bounds = EMPTY_BOUNDS;
+    }
+
+    Runs(int capacity) {
+        this.bounds = capacity == 0 ? EMPTY_BOUNDS : new int[2 * capacity];
+    }
+
+    private Runs(int[] bounds, int count) {
+        this.bounds = bounds;
+        this.count = count;
+    }
+
+    static Runs range(int from, long to) {
+        assert 0 <= from && from < to && to <= INFINITY;
+        return new Runs(new int[] {from, (int) to}, 1);
+    }
+
+    /** The runs of the first {@code size} entries of the given sorted array of distinct naturals. */
+    static Runs of(int[] array, int size) {
+        Runs runs = new Runs(count(array, size));
+        for (int i = 0; i < size; i++) {
+            runs.append(array[i]);
+        }
+        return runs;
+    }
+
+    /** The runs of the given bitmap, or {@code null} if there are more than {@code limit} of them. */
+    static @Nullable Runs of(RoaringBitmap bitmap, int limit) {
+        Runs runs = new Runs();
+        long start = bitmap.nextValue(0);
+        while (start >= 0) {
+            if (runs.count == limit) {
+                return null;
+            }
+            long end = bitmap.nextAbsentValue((int) start);
+            runs.append((int) start, Math.min(end, INFINITY));
+            start = end >= INFINITY ? -1 : bitmap.nextValue((int) end);
+        }
+        return runs;
+    }
+
+    /** The number of runs in the first {@code size} entries of the given sorted array of distinct naturals. */
+    static int count(int[] array, int size) {
+        int runs = size == 0 ? 0 : 1;
+        for (int i = 1; i < size; i++) {
+            if (array[i] != array[i - 1] + 1) {
+                runs += 1;
+            }
+        }
+        return runs;
+    }
+
+    Runs copy() {
+        return new Runs(bounds.clone(), count);
+    }
+
+    /** This list, or a copy of it without spare capacity if there is any. */
+    Runs trimmed() {
+        return bounds.length == 2 * count ? this : new Runs(Arrays.copyOf(bounds, 2 * count), count);
+    }
+
+    int count() {
+        return count;
+    }
+
+    int start(int run) {
+        return bounds[2 * run];
+    }
+
+    long end(int run) {
+        return Integer.toUnsignedLong(bounds[2 * run + 1]);
+    }
+
+    /** The start of the run if even, its end if odd. */
+    private long bound(int index) {
+        return (index & 1) == 0 ? bounds[index] : Integer.toUnsignedLong(bounds[index]);
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    long cardinality() {
+        long cardinality = 0L;
+        for (int run = 0; run < count; run++) {
+            cardinality += end(run) - start(run);
+        }
+        return cardinality;
+    }
+
+    /** The bytes the bounds take as allocated. */
+    long bytes() {
+        return 4L * bounds.length;
+    }
+
+    /** The heap taken by the list, with the object and the array around the bounds. */
+    long estimatedBytes() {
+        return MemoryFootprint.objectBytes(4L + Integer.BYTES)
+                + MemoryFootprint.arrayBytes(bounds.length, Integer.BYTES);
+    }
+
+    int first() {
+        if (count == 0) {
+            throw new NoSuchElementException();
+        }
+        return bounds[0];
+    }
+
+    int last() {
+        if (count == 0) {
+            throw new NoSuchElementException();
+        }
+        return (int) (end(count - 1) - 1L);
+    }
+
+    /** The last run starting at or before the given index, -1 if there is none. */
+    private int find(long index) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (bounds[2 * middle] <= index) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    boolean contains(int index) {
+        int run = find(index);
+        return run >= 0 && index < end(run);
+    }
+
+    int nextPresent(int index) {
+        int run = find(index);
+        if (run >= 0 && index < end(run)) {
+            return index;
+        }
+        return run + 1 < count ? start(run + 1) : -1;
+    }
+
+    /** The first absent index at or after the given one, which is {@link #INFINITY} for the top run. */
+    long nextAbsent(int index) {
+        int run = find(index);
+        return run >= 0 && index < end(run) ? end(run) : index;
+    }
+
+    int previousPresent(int index) {
+        int run = find(index);
+        if (run < 0) {
+            return -1;
+        }
+        return index < end(run) ? index : (int) (end(run) - 1L);
+    }
+
+    int previousAbsent(int index) {
+        int run = find(index);
+        return run >= 0 && index < end(run) ? start(run) - 1 : index;
+    }
+
+    /** The number of elements smaller than the given index. */
+    long rank(long index) {
+        long rank = 0L;
+        for (int run = 0; run < count && start(run) < index; run++) {
+            rank += Math.min(end(run), index) - start(run);
+        }
+        return rank;
+    }
+
+    /** The element with the given rank, which must be smaller than the cardinality. */
+    int select(long rank) {
+        long remaining = rank;
+        for (int run = 0; ; run++) {
+            long length = end(run) - start(run);
+            if (remaining < length) {
+                return (int) (start(run) + remaining);
+            }
+            remaining -= length;
+        }
+    }
+
+    /** Adds the given index, growing, joining or inserting a run. Returns whether it was absent. */
+    boolean add(int index) {
+        int run = find(index);
+        if (run >= 0 && index < end(run)) {
+            return false;
+        }
+        boolean extendsLeft = run >= 0 && end(run) == index;
+        boolean extendsRight = run + 1 < count && start(run + 1) == index + 1L;
+        if (extendsLeft && extendsRight) {
+            bounds[2 * run + 1] = bounds[2 * run + 3];
+            delete(run + 1);
+        } else if (extendsLeft) {
+            bounds[2 * run + 1] = (int) (index + 1L);
+        } else if (extendsRight) {
+            bounds[2 * run + 2] = index;
+        } else {
+            insert(run + 1, index, index + 1L);
+        }
+        return true;
+    }
+
+    /** Removes the given index, shrinking, dropping or splitting its run. Returns whether it was present. */
+    boolean remove(int index) {
+        int run = find(index);
+        if (run < 0 || index >= end(run)) {
+            return false;
+        }
+        int start = start(run);
+        long end = end(run);
+        if (start == index && end == index + 1L) {
+            delete(run);
+        } else if (start == index) {
+            bounds[2 * run] = index + 1;
+        } else if (end == index + 1L) {
+            bounds[2 * run + 1] = index;
+        } else {
+            bounds[2 * run + 1] = index;
+            insert(run + 1, index + 1, end);
+        }
+        return true;
+    }
+
+    private void insert(int run, int start, long end) {
+        if (2 * count == bounds.length) {
+            bounds = Arrays.copyOf(bounds, Math.max(4, 2 * bounds.length));
+        }
+        System.arraycopy(bounds, 2 * run, bounds, 2 * run + 2, 2 * (count - run));
+        bounds[2 * run] = start;
+        bounds[2 * run + 1] = (int) end;
+        count += 1;
+    }
+
+    private void delete(int run) {
+        System.arraycopy(bounds, 2 * run + 2, bounds, 2 * run, 2 * (count - run - 1));
+        count -= 1;
+    }
+
+    /** Removes all runs, keeping the capacity. */
+    void clear() {
+        count = 0;
+    }
+
+    /** Adds an index larger than all present ones. */
+    void append(int index) {
+        append(index, index + 1L);
+    }
+
+    /** Adds a range starting after the last present index, joining the last run if it ends right there. */
+    void append(int start, long end) {
+        assert count == 0 || end(count - 1) <= start;
+        if (count > 0 && end(count - 1) == start) {
+            bounds[2 * count - 1] = (int) end;
+        } else {
+            insert(count, start, end);
+        }
+    }
+
+    /**
+     * Computes {@code one operation other} into a new list in a single sweep over the bounds of both:
+     * membership only changes at a bound, so the result does too.
+     */
+    static Runs combine(Runs one, Runs other, BitOperation operation) {
+        int oneBounds = 2 * one.count;
+        int otherBounds = 2 * other.count;
+        // Every run of the result starts at a bound of either operand and ends at another one
+        int[] bounds = new int[oneBounds + otherBounds];
+        int count = 0;
+        boolean inOne = false;
+        boolean inOther = false;
+        boolean inResult = false;
+        long start = 0L;
+        int i = 0;
+        int j = 0;
+        while (i < oneBounds || j < otherBounds) {
+            long onePosition = i < oneBounds ? one.bound(i) : Long.MAX_VALUE;
+            long otherPosition = j < otherBounds ? other.bound(j) : Long.MAX_VALUE;
+            long position = Math.min(onePosition, otherPosition);
+            if (onePosition == position) {
+                inOne = !inOne;
+                i += 1;
+            }
+            if (otherPosition == position) {
+                inOther = !inOther;
+                j += 1;
+            }
+            boolean in = operation.apply(inOne ? 1L : 0L, inOther ? 1L : 0L) != 0L;
+            if (in != inResult) {
+                if (in) {
+                    start = position;
+                } else {
+                    bounds[2 * count] = (int) start;
+                    bounds[2 * count + 1] = (int) position;
+                    count += 1;
+                }
+                inResult = in;
+            }
+        }
+        return new Runs(bounds, count);
+    }
+
+    boolean intersects(Runs other) {
+        int i = 0;
+        int j = 0;
+        while (i < count && j < other.count) {
+            if (end(i) <= other.start(j)) {
+                i += 1;
+            } else if (other.end(j) <= start(i)) {
+                j += 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean intersects(BitSet bitSet) {
+        for (int run = 0; run < count; run++) {
+            int next = bitSet.nextSetBit(start(run));
+            if (next < 0) {
+                return false;
+            }
+            if (next < end(run)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean intersects(RoaringBitmap bitmap) {
+        for (int run = 0; run < count; run++) {
+            if (bitmap.intersects(start(run), end(run))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the bit set by {@code bitSet operation this} in place: {@code AND} clears the gaps between
+     * the runs, the others set, clear or flip the runs themselves.
+     */
+    void applyTo(BitSet bitSet, BitOperation operation) {
+        if (operation == BitOperation.AND) {
+            long previous = 0L;
+            for (int run = 0; run < count; run++) {
+                apply(bitSet, previous, start(run), operation);
+                previous = end(run);
+            }
+            apply(bitSet, previous, INFINITY, operation);
+        } else {
+            for (int run = 0; run < count; run++) {
+                apply(bitSet, start(run), end(run), operation);
+            }
+        }
+    }
+
+    private static void apply(BitSet bitSet, long from, long to, BitOperation operation) {
+        if (from >= to) {
+            return;
+        }
+        // BitSet takes int ranges, which cannot reach past the top index - that one is handled on its own
+        int start = (int) from;
+        int end = (int) Math.min(to, Integer.MAX_VALUE);
+        boolean top = to == INFINITY;
+        switch (operation) {
+            case AND:
+            case AND_NOT:
+                bitSet.clear(start, end);
+                if (top) {
+                    bitSet.clear(Integer.MAX_VALUE);
+                }
+                break;
+            case OR:
+                bitSet.set(start, end);
+                if (top) {
+                    bitSet.set(Integer.MAX_VALUE);
+                }
+                break;
+            default:
+                bitSet.flip(start, end);
+                if (top) {
+                    bitSet.flip(Integer.MAX_VALUE);
+                }
+                break;
+        }
+    }
+
+    /** Replaces the bitmap by {@code bitmap operation this} in place, as for bit sets. */
+    void applyTo(RoaringBitmap bitmap, BitOperation operation) {
+        switch (operation) {
+            case AND: {
+                long previous = 0L;
+                for (int run = 0; run < count; run++) {
+                    bitmap.remove(previous, start(run));
+                    previous = end(run);
+                }
+                bitmap.remove(previous, INFINITY);
+                break;
+            }
+            case AND_NOT:
+                for (int run = 0; run < count; run++) {
+                    bitmap.remove(start(run), end(run));
+                }
+                break;
+            case OR:
+                for (int run = 0; run < count; run++) {
+                    bitmap.add(start(run), end(run));
+                }
+                break;
+            default:
+                for (int run = 0; run < count; run++) {
+                    bitmap.flip(start(run), end(run));
+                }
+                break;
+        }
+    }
+
+    void forEach(IntConsumer consumer) {
+        for (int run = 0; run < count; run++) {
+            long end = end(run);
+            // Counted in long, the top run would otherwise wrap around
+            for (long value = start(run); value < end; value++) {
+                consumer.accept((int) value);
+            }
+        }
+    }
+
+    void forEachRun(NatBitSet.IntIntConsumer consumer) {
+        for (int run = 0; run < count; run++) {
+            consumer.accept(start(run), (int) (end(run) - 1L));
+        }
+    }
+
+    void forEachWord(NatBitSet.LongWordConsumer consumer) {
+        int wordIndex = -1;
+        long word = 0L;
+        for (int run = 0; run < count; run++) {
+            long end = end(run);
+            for (long from = start(run); from < end; ) {
+                int index = (int) (from >>> 6);
+                long to = Math.min(end, (index + 1L) << 6);
+                if (index != wordIndex) {
+                    if (word != 0L) {
+                        consumer.accept(wordIndex, word);
+                    }
+                    wordIndex = index;
+                    word = 0L;
+                }
+                // The bits [from, to) of the word; shifts only look at their lowest six bits
+                word |= (-1L << from) & (-1L >>> (Long.SIZE - (to - ((long) index << 6))));
+                from = to;
+            }
+        }
+        if (word != 0L) {
+            consumer.accept(wordIndex, word);
+        }
+    }
+
+    BitSet toBitSet(int last) {
+        BitSet bitSet = new BitSet(last == Integer.MAX_VALUE ? last : last + 1);
+        applyTo(bitSet, BitOperation.OR);
+        return bitSet;
+    }
+
+    RoaringBitmap toBitmap() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        applyTo(bitmap, BitOperation.OR);
+        bitmap.runOptimize();
+        return bitmap;
+    }
+
+    int[] toArray(int cardinality) {
+        int[] array = new int[cardinality];
+        int i = 0;
+        for (int run = 0; run < count; run++) {
+            long end = end(run);
+            for (long value = start(run); value < end; value++) {
+                array[i] = (int) value;
+                i += 1;
+            }
+        }
+        assert i == cardinality;
+        return array;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Runs)) {
+            return false;
+        }
+        Runs other = (Runs) o;
+        return count == other.count && Arrays.equals(bounds, 0, 2 * count, other.bounds, 0, 2 * count);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = count;
+        for (int i = 0; i < 2 * count; i++) {
+            hash = 31 * hash + bounds[i];
+        }
+        return hash;
+    }
+}
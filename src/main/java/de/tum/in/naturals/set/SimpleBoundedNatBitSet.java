@@ -6,6 +6,7 @@ import static de.tum.in.naturals.set.NatBitSetsUtil.checkNonNegative;
 import static de.tum.in.naturals.set.NatBitSetsUtil.checkOrdered;
 import static de.tum.in.naturals.set.NatBitSetsUtil.checkRange;
 
+import de.tum.in.naturals.MemoryFootprint;
 import de.tum.in.naturals.bitset.BitSets;
 import it.unimi.dsi.fastutil.ints.IntCollection;
 import it.unimi.dsi.fastutil.ints.IntIterator;
@@ -119,6 +120,16 @@ class SimpleBoundedNatBitSet extends AbstractBoundedNatBitSet {
         BitSets.forEach(bitSet, consumer);
     }
 
+    @Override
+    public void forEachWord(LongWordConsumer consumer) {
+        BitSets.forEachWord(bitSet, consumer);
+    }
+
+    @Override
+    public void forEachRun(IntIntConsumer consumer) {
+        BitSets.forEachRun(bitSet, consumer);
+    }
+
     @Override
     public void set(int index) {
         checkInDomain(index);
@@ -145,6 +156,17 @@ class SimpleBoundedNatBitSet extends AbstractBoundedNatBitSet {
         bitSet.set(from, to);
     }
 
+    @Override
+    public void addAllSorted(int[] elements, int from, int to) {
+        NatBitSetsUtil.checkSorted(elements, from, to);
+        if (from == to) {
+            return;
+        }
+        // Sorted, so the last element is the only one that can leave the domain
+        checkInDomain(elements[to - 1]);
+        NatBitSetsUtil.forEachRun(elements, from, to, (first, last) -> bitSet.set(first, last + 1));
+    }
+
     @Override
     public void clear() {
         bitSet.clear();
@@ -270,6 +292,12 @@ class SimpleBoundedNatBitSet extends AbstractBoundedNatBitSet {
         assert checkConsistency();
     }
 
+    @Override
+    public long estimatedBytes() {
+        // The bit set and the domain size
+        return MemoryFootprint.objectBytes(4L + Integer.BYTES) + MemoryFootprint.bitSetBytes(bitSet);
+    }
+
     @SuppressWarnings("MethodDoesntCallSuperMethod")
     @Override
     public SimpleBoundedNatBitSet clone() {
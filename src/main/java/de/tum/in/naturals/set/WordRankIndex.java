@@ -0,0 +1,127 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import de.tum.in.naturals.MemoryFootprint;
+import java.util.BitSet;
+
+/**
+ * A sampled rank / select index over a {@link BitSet}: the number of set bits before every block of
+ * {@link #BLOCK_WORDS} words, and the number of set bits in every word. BitSet does not give access to its
+ * words, but knowing how many bits a word holds lets the index step through exactly those with
+ * {@link BitSet#nextSetBit(int)} and never search past the word. So {@link #rank(int)} and {@link #select(int)}
+ * sum at most {@value #BLOCK_WORDS} counts and take at most 64 steps within a word, without allocating. The
+ * counts take about a fifth of the heap of the words.
+ *
+ * <p>The counts describe the bit set as it was when built, so the owner has to drop the index on any write to
+ * the bit set. The index itself is immutable and may be shared between threads once published, as long as the
+ * bit set is not written.</p>
+ */
+final class WordRankIndex {
+    private static final int BLOCK_SHIFT = 3;
+    private static final int BLOCK_WORDS = 1 << BLOCK_SHIFT;
+
+    private final BitSet source;
+    // The number of set bits in each word, at most 64
+    private final byte[] counts;
+    // The number of set bits before each block, and the total as the last entry
+    private final int[] before;
+
+    WordRankIndex(BitSet source) {
+        this.source = source;
+        // length() wraps around to Integer.MIN_VALUE if the last index is set, the unsigned shift undoes that
+        int words = (source.length() + Long.SIZE - 1) >>> 6;
+        this.counts = new byte[words];
+        // One pass over the runs, so that long runs are neither searched nor counted bit by bit
+        int index = source.nextSetBit(0);
+        while (index >= 0) {
+            int clear = source.nextClearBit(index);
+            // Past the last index, the search wraps around
+            long end = clear < 0 ? Integer.MAX_VALUE + 1L : clear;
+            long bit = index;
+            while (bit < end) {
+                int word = (int) (bit >>> 6);
+                long wordEnd = Math.min(end, (word + 1L) << 6);
+                counts[word] = (byte) (counts[word] + wordEnd - bit);
+                bit = wordEnd;
+            }
+            if (end > Integer.MAX_VALUE) {
+                break;
+            }
+            index = source.nextSetBit((int) end);
+        }
+
+        int blocks = (words + BLOCK_WORDS - 1) >>> BLOCK_SHIFT;
+        this.before = new int[blocks + 1];
+        int count = 0;
+        for (int block = 0; block < blocks; block++) {
+            before[block] = count;
+            int last = Math.min(words, (block + 1) << BLOCK_SHIFT);
+            for (int i = block << BLOCK_SHIFT; i < last; i++) {
+                count += counts[i];
+            }
+        }
+        before[blocks] = count;
+    }
+
+    /** The heap taken by the index, not counting the bit set it was built over. */
+    long estimatedBytes() {
+        return MemoryFootprint.objectBytes(3L * 4L)
+                + MemoryFootprint.arrayBytes(counts.length, Byte.BYTES)
+                + MemoryFootprint.arrayBytes(before.length, Integer.BYTES);
+    }
+
+    /** Whether this index was built over the given bit set. */
+    boolean describes(BitSet bitSet) {
+        return source == bitSet; // NOPMD - identity is the point
+    }
+
+    /** The number of set bits below the given non-negative index. */
+    int rank(int index) {
+        int word = index >>> 6;
+        if (word >= counts.length) {
+            return before[before.length - 1];
+        }
+        int rank = before[word >>> BLOCK_SHIFT];
+        for (int i = word & -BLOCK_WORDS; i < word; i++) {
+            rank += counts[i];
+        }
+        // Only as many steps as the word has bits, so the search never leaves the word
+        int bit = word << 6;
+        for (int seen = 0; seen < counts[word]; seen++) {
+            bit = source.nextSetBit(bit);
+            if (bit >= index) {
+                break;
+            }
+            rank += 1;
+            bit += 1;
+        }
+        return rank;
+    }
+
+    /** The set bit with the given rank, which must be smaller than the cardinality. */
+    int select(int rank) {
+        // The last block which starts at or before the rank
+        int low = 0;
+        int high = before.length - 2;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (before[middle] <= rank) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        int remaining = rank - before[low];
+        int word = low << BLOCK_SHIFT;
+        while (remaining >= counts[word]) {
+            remaining -= counts[word];
+            word += 1;
+        }
+        int bit = source.nextSetBit(word << 6);
+        for (; remaining > 0; remaining--) {
+            bit = source.nextSetBit(bit + 1);
+        }
+        return bit;
+    }
+}
@@ -2,6 +2,7 @@
 
 package de.tum.in.naturals.unionfind;
 
+import de.tum.in.naturals.MemoryFootprint;
 import java.util.Arrays;
 
 public class IntArrayUnionFind implements IntUnionFind {
@@ -42,6 +43,14 @@ public class IntArrayUnionFind implements IntUnionFind {
         return componentCount;
     }
 
+    @Override
+    public long estimatedBytes() {
+        // The component count and the two arrays
+        return MemoryFootprint.objectBytes(Integer.BYTES + 2L * 4L)
+                + MemoryFootprint.arrayBytes(parent.length, Integer.BYTES)
+                + MemoryFootprint.arrayBytes(size.length, Integer.BYTES);
+    }
+
     @Override
     public int find(int p) {
         assert isValid(p);
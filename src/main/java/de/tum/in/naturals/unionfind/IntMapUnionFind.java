@@ -2,6 +2,9 @@
 
 package de.tum.in.naturals.unionfind;
 
+import de.tum.in.naturals.MemoryFootprint;
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.HashCommon;
 import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 
@@ -32,6 +35,23 @@ public class IntMapUnionFind implements IntUnionFind {
         return elements - parent.size();
     }
 
+    /**
+     * Estimates the maps from the entries they hold now. Hash maps do not shrink when entries are removed,
+     * and do not tell their capacity, so after many unions of large components this may fall short.
+     */
+    @Override
+    public long estimatedBytes() {
+        // The element count and the two maps
+        return MemoryFootprint.objectBytes(Integer.BYTES + 2L * 4L) + mapBytes(parent.size()) + mapBytes(size.size());
+    }
+
+    private static long mapBytes(int entries) {
+        // The tables, their mask, fill bounds, load factor and null key flag, and the default and lazy views
+        int capacity = HashCommon.arraySize(Math.max(entries, Hash.DEFAULT_INITIAL_SIZE), Hash.DEFAULT_LOAD_FACTOR);
+        return MemoryFootprint.objectBytes(5L * 4L + 6L * Integer.BYTES + Float.BYTES + 1L)
+                + 2L * MemoryFootprint.arrayBytes(capacity + 1, Integer.BYTES);
+    }
+
     @Override
     public int find(int p) {
         assert isValid(p);
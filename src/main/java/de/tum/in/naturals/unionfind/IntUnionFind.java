@@ -2,9 +2,10 @@
 
 package de.tum.in.naturals.unionfind;
 
+import de.tum.in.naturals.MemoryFootprint;
 import java.util.function.IntUnaryOperator;
 
-public interface IntUnionFind extends IntUnaryOperator {
+public interface IntUnionFind extends IntUnaryOperator, MemoryFootprint {
     /**
      * Extends the size of the domain by 1 element.
      *
@@ -41,6 +42,16 @@ public interface IntUnionFind extends IntUnaryOperator {
         return find(p) == find(q);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>By default, this assumes an array of parents and one of ranks, an int per element each.</p>
+     */
+    @Override
+    default long estimatedBytes() {
+        return MemoryFootprint.objectBytes(2L * 4L) + 2L * MemoryFootprint.arrayBytes(size(), Integer.BYTES);
+    }
+
     /**
      * Returns the component identifier for the component containing site {@code p}.
      */
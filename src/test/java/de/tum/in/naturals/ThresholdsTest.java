@@ -0,0 +1,44 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ThresholdsTest {
+    @Test
+    void calibratedValuesReplaceTheDefault(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("thresholds.properties");
+        Properties calibrated = new Properties();
+        calibrated.setProperty(Thresholds.MAXIMAL_ARRAY_SIZE, "128");
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            calibrated.store(writer, null);
+        }
+
+        Properties loaded = Thresholds.load(file.toString());
+        assertThat(Thresholds.get(loaded, Thresholds.MAXIMAL_ARRAY_SIZE, 64, 4, 4096), is(128));
+        assertThat(Thresholds.get(loaded, Thresholds.MEMORY_SLACK, 4, 1, 64), is(4));
+    }
+
+    @Test
+    void brokenValuesKeepTheDefault(@TempDir Path directory) {
+        Properties broken = new Properties();
+        broken.setProperty(Thresholds.MAXIMAL_ARRAY_SIZE, "many");
+        broken.setProperty(Thresholds.MEMORY_SLACK, "0");
+        broken.setProperty(Thresholds.LINEAR_SEARCH_WINDOW, " 16 ");
+
+        assertThat(Thresholds.get(broken, Thresholds.MAXIMAL_ARRAY_SIZE, 64, 4, 4096), is(64));
+        assertThat(Thresholds.get(broken, Thresholds.MEMORY_SLACK, 4, 1, 64), is(4));
+        assertThat(Thresholds.get(broken, Thresholds.LINEAR_SEARCH_WINDOW, 32, 1, 1024), is(16));
+        assertThat(Thresholds.load(directory.resolve("missing.properties").toString()).isEmpty(), is(true));
+        assertThat(Thresholds.load(null).isEmpty(), is(true));
+    }
+}
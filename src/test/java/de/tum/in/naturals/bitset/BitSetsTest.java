@@ -185,6 +185,28 @@ class BitSetsTest {
         assertThat(BitSets.isSubset(complete, dense), is(false));
     }
 
+    @Test
+    void testAndCardinalityOfDenseRandomSets() {
+        int domainSize = 1_000_000;
+        Random random = new Random(2026L);
+        BitSet first = new BitSet(domainSize);
+        BitSet second = new BitSet(domainSize / 2);
+        for (int i = 0; i < domainSize; i++) {
+            if (random.nextBoolean()) {
+                first.set(i);
+            }
+            if (i < domainSize / 2 && random.nextBoolean()) {
+                second.set(i);
+            }
+        }
+        BitSet expected = (BitSet) first.clone();
+        expected.and(second);
+
+        assertThat(BitSets.andCardinality(first, second), is(expected.cardinality()));
+        assertThat(BitSets.andCardinality(second, first), is(expected.cardinality()));
+        assertThat(BitSets.andCardinality(first, new BitSet()), is(0));
+    }
+
     /**
      * {@link BitSets#iterator} walks a run at a time until the runs it has seen say that is not paying, so
      * the shapes that matter are the ones that change character around that decision.
@@ -0,0 +1,4 @@
+@NullMarked
+package de.tum.in.naturals;
+
+import org.jspecify.annotations.NullMarked;
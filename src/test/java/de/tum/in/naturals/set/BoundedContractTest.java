@@ -11,18 +11,19 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 /**
- * A bounded set rejects an operation exactly when it would have to write outside its domain. The two
- * domain sizes select the two implementations ({@code long} word and {@link java.util.BitSet}).
+ * A bounded set rejects an operation exactly when it would have to write outside its domain. The three
+ * domain sizes select the three implementations ({@code long} word, array of words and
+ * {@link java.util.BitSet}).
  */
 class BoundedContractTest {
-    private static final int[] DOMAIN_SIZES = {10, 500};
+    private static final int[] DOMAIN_SIZES = {10, 200, 1000};
 
     private static NatBitSet beyond(int domainSize) {
         return NatBitSets.ofVar(domainSize + 5, domainSize + 6);
     }
 
     @ParameterizedTest
-    @ValueSource(ints = {10, 500})
+    @ValueSource(ints = {10, 200, 1000})
     void addingBeyondTheDomainThrows(int domainSize) {
         assertThrows(
                 IndexOutOfBoundsException.class,
@@ -51,7 +52,7 @@ class BoundedContractTest {
     }
 
     @ParameterizedTest
-    @ValueSource(ints = {10, 500})
+    @ValueSource(ints = {10, 200, 1000})
     void removingBeyondTheDomainIsAllowed(int domainSize) {
         BoundedNatBitSet set = NatBitSets.boundedSet(domainSize);
         set.set(0, domainSize);
@@ -64,7 +65,7 @@ class BoundedContractTest {
     }
 
     @ParameterizedTest
-    @ValueSource(ints = {10, 500})
+    @ValueSource(ints = {10, 200, 1000})
     void emptyRangesBeyondTheDomainAreAllowed(int domainSize) {
         BoundedNatBitSet set = NatBitSets.boundedSet(domainSize);
         set.set(domainSize + 1, domainSize + 1);
@@ -73,7 +74,7 @@ class BoundedContractTest {
     }
 
     @ParameterizedTest
-    @ValueSource(ints = {10, 500})
+    @ValueSource(ints = {10, 200, 1000})
     void intersectingWithAnOversizedOperandIsAllowed(int domainSize) {
         NatBitSet mixed = NatBitSets.ofVar(1, 3, domainSize + 5);
 
@@ -93,7 +94,7 @@ class BoundedContractTest {
     }
 
     @ParameterizedTest
-    @ValueSource(ints = {10, 500})
+    @ValueSource(ints = {10, 200, 1000})
     void readingBeyondTheDomainIsAllowed(int domainSize) {
         BoundedNatBitSet set = NatBitSets.boundedSet(domainSize);
         set.set(0, 5);
@@ -108,7 +109,7 @@ class BoundedContractTest {
 
     /** A negative index is outside every domain, so it behaves exactly like one past the domain. */
     @ParameterizedTest
-    @ValueSource(ints = {10, 500})
+    @ValueSource(ints = {10, 200, 1000})
     void negativeIndicesBehaveLikeAnyOtherIndexOutsideTheDomain(int domainSize) {
         assertThrows(
                 IndexOutOfBoundsException.class,
@@ -132,7 +133,7 @@ class BoundedContractTest {
     }
 
     @ParameterizedTest
-    @ValueSource(ints = {10, 500})
+    @ValueSource(ints = {10, 200, 1000})
     void unboundedSetsTreatNegativeIndicesTheSameWay(int domainSize) {
         NatBitSet set = NatBitSets.of();
         set.set(0, domainSize);
@@ -149,7 +150,7 @@ class BoundedContractTest {
     }
 
     @ParameterizedTest
-    @ValueSource(ints = {10, 500})
+    @ValueSource(ints = {10, 200, 1000})
     void invertedRangesThrowEvenWhenClearing(int domainSize) {
         assertThrows(
                 IndexOutOfBoundsException.class,
@@ -158,13 +159,14 @@ class BoundedContractTest {
                 IndexOutOfBoundsException.class, () -> NatBitSets.ofVar(1, 2, 3).clear(3, 1));
     }
 
-    /** Guards against the domain sizes above drifting away from the two implementations they select. */
+    /** Guards against the domain sizes above drifting away from the three implementations they select. */
     @ParameterizedTest
-    @ValueSource(ints = {0, 1})
-    void theTwoDomainSizesSelectDistinctImplementations(int index) {
+    @ValueSource(ints = {0, 1, 2})
+    void theDomainSizesSelectDistinctImplementations(int index) {
         assertThat(
                 NatBitSets.boundedSet(DOMAIN_SIZES[index]).getClass()
-                        == NatBitSets.boundedSet(DOMAIN_SIZES[1 - index]).getClass(),
+                        == NatBitSets.boundedSet(DOMAIN_SIZES[(index + 1) % DOMAIN_SIZES.length])
+                                .getClass(),
                 is(false));
     }
 }
@@ -0,0 +1,116 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentNatBitSetTest {
+    private static final int THREADS = 8;
+
+    /** Runs the action on {@link #THREADS} threads at once, passing each its number. */
+    private static void runConcurrently(IntConsumer action) throws InterruptedException {
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            threads[i] = new Thread(() -> action.accept(thread));
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    @Test
+    void testAndSetClaimsEachIndexOnce() throws InterruptedException {
+        ConcurrentNatBitSet set = NatBitSets.concurrent();
+        int elements = 200_000;
+        AtomicInteger claimed = new AtomicInteger();
+        runConcurrently(thread -> {
+            for (int i = 0; i < elements; i++) {
+                if (set.testAndSet(i)) {
+                    claimed.incrementAndGet();
+                }
+            }
+        });
+        assertThat(claimed.get(), is(elements));
+        assertThat(set.size(), is(elements));
+        assertThat(set.nextAbsentIndex(0), is(elements));
+    }
+
+    @Test
+    void concurrentWritersToDisjointIndicesLoseNothing() throws InterruptedException {
+        ConcurrentNatBitSet set = NatBitSets.concurrent();
+        int perThread = 50_000;
+        // Interleaved, so that every word and every freshly allocated segment is contended
+        runConcurrently(thread -> {
+            for (int i = 0; i < perThread; i++) {
+                set.set(i * THREADS + thread);
+            }
+        });
+        assertThat(set.size(), is(perThread * THREADS));
+        assertThat(set.lastInt(), is(perThread * THREADS - 1));
+    }
+
+    @Test
+    void testAndClearReportsRemoval() {
+        ConcurrentNatBitSet set = NatBitSets.concurrent();
+        set.set(70);
+        assertThat(set.testAndClear(70), is(true));
+        assertThat(set.testAndClear(70), is(false));
+        assertThat(set.testAndClear(1_000_000), is(false));
+        assertThat(set.testAndClear(-1), is(false));
+    }
+
+    @Test
+    void navigationCrossesSegments() {
+        ConcurrentNatBitSet set = NatBitSets.concurrent();
+        int far = 100_000_000;
+        set.set(3);
+        set.set(far);
+        set.set(Integer.MAX_VALUE);
+
+        assertThat(set, contains(3, far, Integer.MAX_VALUE));
+        assertThat(set.nextPresentIndex(4), is(far));
+        assertThat(set.nextPresentIndex(far + 1), is(Integer.MAX_VALUE));
+        assertThat(set.previousPresentIndex(far - 1), is(3));
+        assertThat(set.previousPresentIndex(Integer.MAX_VALUE - 1), is(far));
+        assertThat(set.previousAbsentIndex(3), is(2));
+        assertThat(set.nextAbsentIndex(far), is(far + 1));
+
+        set.clear(far);
+        assertThat(set.nextPresentIndex(4), is(Integer.MAX_VALUE));
+        set.clearFrom(4);
+        assertThat(set, contains(3));
+    }
+
+    @Test
+    void rangesAgreeWithBitSet() {
+        ConcurrentNatBitSet set = NatBitSets.concurrent();
+        BitSet reference = new BitSet();
+        int[][] ranges = {{0, 1}, {5, 200}, {63, 65}, {4000, 9000}, {100_000, 100_001}};
+        for (int[] range : ranges) {
+            set.set(range[0], range[1]);
+            reference.set(range[0], range[1]);
+        }
+        set.clear(100, 4100);
+        reference.clear(100, 4100);
+        set.flip(60, 8000);
+        reference.flip(60, 8000);
+
+        assertThat(set, is(NatBitSets.wrap(reference)));
+        assertThat(set.size(), is(reference.cardinality()));
+
+        ConcurrentNatBitSet clone = set.clone();
+        assertThat(clone, is(set));
+        clone.clear();
+        assertThat(clone.isEmpty(), is(true));
+        assertThat(set.isEmpty(), is(false));
+    }
+}
@@ -83,6 +83,12 @@ class ForwardingNatBitSet extends AbstractNatBitSet {
         return delegate.equals(o);
     }
 
+    @Override
+    public long estimatedBytes() {
+        // Only the reference matters for the theories, not the tree behind it
+        return 16L;
+    }
+
     @Override
     public int firstInt() {
         return delegate.firstInt();
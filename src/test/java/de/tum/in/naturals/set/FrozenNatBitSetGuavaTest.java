@@ -0,0 +1,17 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import junit.framework.TestSuite;
+import org.junit.runner.RunWith;
+import org.junit.runners.AllTests;
+
+@SuppressWarnings({"PMD.JUnit4SuitesShouldUseSuiteAnnotation", "PMD.UseUtilityClass"})
+@RunWith(AllTests.class)
+public class FrozenNatBitSetGuavaTest {
+    public static TestSuite suite() {
+        NatBitSetInterner interner = new NatBitSetInterner();
+        return GuavaSetTest.createImmutableNatSet(
+                elements -> interner.intern(NatBitSets.copyOf(elements)), "FrozenNatBitSetGuavaTest");
+    }
+}
@@ -3,6 +3,7 @@
 package de.tum.in.naturals.set;
 
 import com.google.common.collect.testing.SetTestSuiteBuilder;
+import com.google.common.collect.testing.TestIntegerSetGenerator;
 import com.google.common.collect.testing.features.CollectionFeature;
 import com.google.common.collect.testing.features.CollectionSize;
 import com.google.common.collect.testing.features.Feature;
@@ -13,7 +14,11 @@ import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import junit.framework.TestSuite;
 
 public final class GuavaSetTest {
@@ -60,5 +65,44 @@ public final class GuavaSetTest {
                 .createTestSuite();
     }
 
+    public static TestSuite createLongNatSet(
+            Supplier<? extends LongNatBitSet> supplier, String name, Collection<? extends Feature<?>> removeFeatures) {
+        Collection<Feature<?>> features = new HashSet<>(Arrays.asList(
+                CollectionFeature.SUPPORTS_ADD,
+                CollectionFeature.SUPPORTS_REMOVE,
+                CollectionFeature.SUPPORTS_ITERATOR_REMOVE,
+                CollectionFeature.KNOWN_ORDER,
+                CollectionFeature.NON_STANDARD_TOSTRING,
+                CollectionSize.ANY));
+        features.removeAll(removeFeatures);
+
+        return SetTestSuiteBuilder.using(new LongSetGenerator(supplier))
+                .named(name)
+                .withFeatures(features)
+                .suppressing(suppression)
+                .createTestSuite();
+    }
+
+    /** A suite for sets which cannot be modified, and hence are created from their elements at once. */
+    public static TestSuite createImmutableNatSet(
+            Function<? super Collection<Integer>, ? extends NatBitSet> factory, String name) {
+        return SetTestSuiteBuilder.using(new TestIntegerSetGenerator() {
+                    @Override
+                    protected Set<Integer> create(Integer[] elements) {
+                        return factory.apply(Arrays.asList(elements));
+                    }
+
+                    @Override
+                    public List<Integer> order(List<Integer> insertionOrder) {
+                        return insertionOrder.stream().sorted().collect(Collectors.toList());
+                    }
+                })
+                .named(name)
+                .withFeatures(
+                        CollectionFeature.KNOWN_ORDER, CollectionFeature.NON_STANDARD_TOSTRING, CollectionSize.ANY)
+                .suppressing(suppression)
+                .createTestSuite();
+    }
+
     private GuavaSetTest() {}
 }
@@ -0,0 +1,26 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import java.util.Set;
+import junit.framework.TestSuite;
+import org.junit.runner.RunWith;
+import org.junit.runners.AllTests;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+/**
+ * Guava suites for a hybrid long set started in each of its modes.
+ */
+@SuppressWarnings({"PMD.JUnit4SuitesShouldUseSuiteAnnotation", "PMD.UseUtilityClass"})
+@RunWith(AllTests.class)
+public class HybridLongNatBitSetGuavaTest {
+    public static TestSuite suite() {
+        TestSuite suite = new TestSuite("HybridLongNatBitSetGuavaTest");
+        suite.addTest(GuavaSetTest.createLongNatSet(NatBitSets::longSet, "ArrayMode", Set.of()));
+        suite.addTest(
+                GuavaSetTest.createLongNatSet(() -> new HybridLongNatBitSet(new long[0][]), "WordsMode", Set.of()));
+        suite.addTest(GuavaSetTest.createLongNatSet(
+                () -> new HybridLongNatBitSet(new Roaring64Bitmap()), "RoaringMode", Set.of()));
+        return suite;
+    }
+}
@@ -0,0 +1,239 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+class HybridLongNatBitSetTest {
+    private static final long BEYOND_INT = 1L << 40;
+
+    private static NavigableSet<Long> shape(String shape, Random random) {
+        NavigableSet<Long> elements = new TreeSet<>();
+        switch (shape) {
+            case "array":
+                for (int i = 0; i < 20; i++) {
+                    elements.add((random.nextLong() >>> 1));
+                }
+                break;
+            case "words":
+                // Dense, but far beyond the int range
+                for (int i = 0; i < 3000; i++) {
+                    elements.add((1L << 33) + random.nextInt(20_000));
+                }
+                for (long i = 0; i < 200; i++) {
+                    elements.add((1L << 33) + 30_000 + i);
+                }
+                break;
+            default:
+                for (int i = 0; i < 3000; i++) {
+                    elements.add((random.nextLong() >>> 1) >>> random.nextInt(40));
+                }
+                for (long i = 0; i < 200; i++) {
+                    elements.add(BEYOND_INT + i);
+                }
+                elements.add(Long.MAX_VALUE);
+                break;
+        }
+        return elements;
+    }
+
+    private static HybridLongNatBitSet of(NavigableSet<Long> elements) {
+        HybridLongNatBitSet set = new HybridLongNatBitSet();
+        elements.forEach(set::set);
+        return set;
+    }
+
+    private static long ceilingOrMissing(NavigableSet<Long> set, long index) {
+        Long ceiling = set.ceiling(index);
+        return ceiling == null ? -1L : ceiling;
+    }
+
+    private static long floorOrMissing(NavigableSet<Long> set, long index) {
+        Long floor = set.floor(index);
+        return floor == null ? -1L : floor;
+    }
+
+    private static void assertMatches(HybridLongNatBitSet set, NavigableSet<Long> expected) {
+        assertThat(set.longSize(), is((long) expected.size()));
+        assertThat(set, is(expected));
+        assertThat(set.isEmpty(), is(expected.isEmpty()));
+        if (!expected.isEmpty()) {
+            assertThat(set.firstLong(), is(expected.first()));
+            assertThat(set.lastLong(), is(expected.last()));
+        }
+        LongList ascending = new LongArrayList();
+        set.iterator().forEachRemaining(ascending::add);
+        assertThat(ascending, is(new ArrayList<>(expected)));
+        LongList descending = new LongArrayList();
+        set.reverseIterator().forEachRemaining(descending::add);
+        assertThat(descending, is(new ArrayList<>(expected.descendingSet())));
+
+        List<Long> probes = new ArrayList<>();
+        probes.add(0L);
+        probes.add(Long.MAX_VALUE);
+        for (long element : expected) {
+            probes.add(element);
+            probes.add(element + 1 < 0 ? element : element + 1);
+            probes.add(element == 0 ? 0 : element - 1);
+        }
+        for (long probe : probes) {
+            assertThat(set.contains(probe), is(expected.contains(probe)));
+            assertThat(set.nextPresentIndex(probe), is(ceilingOrMissing(expected, probe)));
+            assertThat(set.previousPresentIndex(probe), is(floorOrMissing(expected, probe)));
+
+            long absent = probe;
+            while (absent < Long.MAX_VALUE && expected.contains(absent)) {
+                absent += 1;
+            }
+            assertThat(set.nextAbsentIndex(probe), is(absent));
+            long previousAbsent = probe;
+            while (previousAbsent >= 0 && expected.contains(previousAbsent)) {
+                previousAbsent -= 1;
+            }
+            assertThat(set.previousAbsentIndex(probe), is(previousAbsent));
+        }
+    }
+
+    @Test
+    void navigatesInEveryMode() {
+        for (String shape : List.of("array", "words", "roaring")) {
+            NavigableSet<Long> expected = shape(shape, new Random(42));
+            HybridLongNatBitSet set = of(expected);
+            assertThat(shape, set.isArrayBacked(), is("array".equals(shape)));
+            assertThat(shape, set.isWordBacked(), is("words".equals(shape)));
+            assertThat(shape, set.isBitmapBacked(), is("roaring".equals(shape)));
+            assertMatches(set, expected);
+        }
+    }
+
+    @Test
+    void mutatesInEveryMode() {
+        Random random = new Random(7);
+        for (String shape : List.of("array", "words", "roaring")) {
+            NavigableSet<Long> expected = shape(shape, random);
+            HybridLongNatBitSet set = of(expected);
+            List<Long> elements = new ArrayList<>(expected);
+            for (int i = 0; i < 100; i++) {
+                long element = elements.get(random.nextInt(elements.size()));
+                set.clear(element);
+                expected.remove(element);
+                long from = elements.get(random.nextInt(elements.size()));
+                long to = from + random.nextInt(300);
+                if (to < 0) {
+                    continue;
+                }
+                if (random.nextBoolean()) {
+                    set.set(from, to);
+                    for (long index = from; index < to; index++) {
+                        expected.add(index);
+                    }
+                } else {
+                    set.clear(from, to);
+                    expected.subSet(from, to).clear();
+                }
+            }
+            assertMatches(set, expected);
+
+            LongIterator iterator = set.iterator();
+            while (iterator.hasNext()) {
+                long next = iterator.nextLong();
+                if (next % 3 == 0) {
+                    iterator.remove();
+                    expected.remove(next);
+                }
+            }
+            assertMatches(set, expected);
+        }
+    }
+
+    @Test
+    void bulkOperationsAcrossModes() {
+        List<String> shapes = List.of("array", "words", "roaring");
+        for (String one : shapes) {
+            for (String other : shapes) {
+                NavigableSet<Long> left = shape(one, new Random(1));
+                NavigableSet<Long> right = shape(other, new Random(2));
+                // Make sure the operands overlap
+                right.addAll(List.copyOf(left).subList(0, left.size() / 2));
+
+                HybridLongNatBitSet and = of(left);
+                and.and(of(right));
+                NavigableSet<Long> expectedAnd = new TreeSet<>(left);
+                expectedAnd.retainAll(right);
+                assertMatches(and, expectedAnd);
+
+                HybridLongNatBitSet or = of(left);
+                or.or(of(right));
+                NavigableSet<Long> expectedOr = new TreeSet<>(left);
+                expectedOr.addAll(right);
+                assertMatches(or, expectedOr);
+
+                HybridLongNatBitSet andNot = of(left);
+                andNot.andNot(of(right));
+                NavigableSet<Long> expectedAndNot = new TreeSet<>(left);
+                expectedAndNot.removeAll(right);
+                assertMatches(andNot, expectedAndNot);
+
+                HybridLongNatBitSet xor = of(left);
+                xor.xor(of(right));
+                NavigableSet<Long> expectedXor = new TreeSet<>(expectedOr);
+                expectedXor.removeAll(expectedAnd);
+                assertMatches(xor, expectedXor);
+            }
+        }
+    }
+
+    @Test
+    void adaptsAndOptimizes() {
+        HybridLongNatBitSet set = new HybridLongNatBitSet();
+        set.set(BEYOND_INT, BEYOND_INT + 10_000);
+        assertThat(set.isWordBacked(), is(true));
+        set.set(Long.MAX_VALUE - 5);
+        assertThat(set.isBitmapBacked(), is(true));
+        set.clear(BEYOND_INT + 10, Long.MAX_VALUE);
+        assertThat(set.optimize(), is(true));
+        assertThat(set.isArrayBacked(), is(true));
+        assertThat(set.longSize(), is(10L));
+
+        // A huge range stays small
+        set.set(0L, 1L << 50);
+        assertThat(set.isBitmapBacked(), is(true));
+        assertThat(set.longSize(), is(1L << 50));
+        assertThat(set.nextAbsentIndex(5L), is(1L << 50));
+        assertThat(set.previousAbsentIndex(1L << 49), is(-1L));
+    }
+
+    @Test
+    void cloneIsIndependent() {
+        for (String shape : List.of("array", "words", "roaring")) {
+            NavigableSet<Long> expected = shape(shape, new Random(3));
+            HybridLongNatBitSet set = of(expected);
+            HybridLongNatBitSet copy = set.clone();
+            copy.clear(expected.first());
+            copy.set(4242L);
+            assertMatches(set, expected);
+        }
+    }
+
+    @Test
+    void rejectsNegativeIndices() {
+        LongNatBitSet set = NatBitSets.longSet();
+        assertThrows(IndexOutOfBoundsException.class, () -> set.set(-1L));
+        assertThrows(IndexOutOfBoundsException.class, () -> set.set(-1L, 5L));
+        assertThrows(IndexOutOfBoundsException.class, () -> set.nextPresentIndex(-1L));
+        set.clear(-1L);
+        assertThat(set.contains(-1L), is(false));
+    }
+}
@@ -6,25 +6,34 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import de.tum.in.naturals.Indices;
 import it.unimi.dsi.fastutil.ints.IntAVLTreeSet;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntCollection;
 import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntList;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import it.unimi.dsi.fastutil.ints.IntSortedSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 import java.util.Random;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import org.junit.jupiter.api.Test;
 import org.roaringbitmap.RoaringBitmap;
 
 /**
  * Targets the points where {@link HybridNatBitSet} changes its backing representation: the array cap at
- * {@code MAXIMAL_ARRAY_SIZE} elements, and the footprint comparison that decides between words and Roaring.
+ * {@code MAXIMAL_ARRAY_SIZE} elements, the run cap at {@code MAXIMAL_RUN_COUNT} runs, and the footprint
+ * comparison that decides between words and Roaring.
  * The constants here are chosen to sit immediately either side of those.
  */
 class HybridNatBitSetTest {
@@ -43,6 +52,12 @@ class HybridNatBitSetTest {
         return set;
     }
 
+    private static HybridNatBitSet runsMode(int... elements) {
+        int[] sorted = elements.clone();
+        Arrays.sort(sorted);
+        return new HybridNatBitSet(Runs.of(sorted, sorted.length));
+    }
+
     private static HybridNatBitSet bitSetMode(int... elements) {
         BitSet bitSet = new BitSet();
         for (int element : elements) {
@@ -107,17 +122,18 @@ class HybridNatBitSetTest {
     void rangeSetCrossesTransition() {
         HybridNatBitSet set = arrayMode(1, 2, 3);
         set.set(0, 100);
-        assertThat(set.store(), instanceOf(BitSet.class));
+        assertThat(set.store(), instanceOf(Runs.class));
         assertThat(set.size(), is(100));
         assertThat(set, is(reference(range(0, 100))));
     }
 
     @Test
-    void rangeSetFarAwayPromotesToRoaring() {
+    void rangeSetFarAwayKeepsRuns() {
         HybridNatBitSet set = arrayMode(1, 2, 3);
         set.set(1_000_000, 1_000_100);
-        assertThat(set.store(), instanceOf(RoaringBitmap.class));
+        assertThat(set.store(), instanceOf(Runs.class));
         assertThat(set.size(), is(103));
+        assertThat(set.lastInt(), is(1_000_099));
     }
 
     @Test
@@ -170,13 +186,13 @@ class HybridNatBitSetTest {
     // optimize()
 
     @Test
-    void optimizeKeepsRoaringForAContiguousRange() {
+    void optimizeTurnsAContiguousRangeIntoRuns() {
         HybridNatBitSet set = new HybridNatBitSet(new RoaringBitmap());
         for (int i = 0; i < 1000; i++) {
             set.set(i);
         }
         set.optimize();
-        assertThat(set.store(), instanceOf(RoaringBitmap.class));
+        assertThat(set.store(), instanceOf(Runs.class));
         assertThat(set.size(), is(1000));
         assertThat(set, is(reference(range(0, 1000))));
     }
@@ -205,7 +221,7 @@ class HybridNatBitSetTest {
         HybridNatBitSet set = new HybridNatBitSet(bitSet);
 
         set.optimize();
-        assertThat(set.store(), instanceOf(RoaringBitmap.class));
+        assertThat(set.store(), instanceOf(Runs.class));
         assertThat(set.size(), is(999_999));
         assertThat(set.contains(500_000), is(false));
         assertThat(set.contains(499_999), is(true));
@@ -241,12 +257,53 @@ class HybridNatBitSetTest {
         assertThat(set.isEmpty(), is(true));
     }
 
+    // Hysteresis
+
+    private static int[] every(int step, int count) {
+        int[] elements = new int[count];
+        for (int i = 0; i < count; i++) {
+            elements[i] = step * i;
+        }
+        return elements;
+    }
+
+    @Test
+    void wordsReturnToAnArrayOnlyWellBelowTheCap() {
+        HybridNatBitSet set = bitSetMode(every(2, HybridNatBitSet.MAXIMAL_ARRAY_SIZE + 1));
+        set.clear(0);
+        set.optimize();
+        assertThat(set.store(), instanceOf(BitSet.class));
+        set.clear(0, 2 * (HybridNatBitSet.MAXIMAL_ARRAY_SIZE / 2 + 1));
+        set.optimize();
+        assertThat(set.store(), instanceOf(int[].class));
+        assertThat(set.size(), is(HybridNatBitSet.MAXIMAL_ARRAY_SIZE / 2));
+    }
+
+    @Test
+    void roaringAndWordsKeepTheirPlaceNearTheThreshold() {
+        // Words cost about three times a bitmap here: inside the slack, but not by enough to convert
+        HybridNatBitSet bitmap = roaringMode(every(48, 10_000));
+        bitmap.optimize();
+        assertThat(bitmap.store(), instanceOf(RoaringBitmap.class));
+        HybridNatBitSet denser = roaringMode(every(16, 10_000));
+        denser.optimize();
+        assertThat(denser.store(), instanceOf(BitSet.class));
+
+        // Six times: past the slack, but again not by enough
+        HybridNatBitSet words = bitSetMode(every(96, 10_000));
+        words.optimize();
+        assertThat(words.store(), instanceOf(BitSet.class));
+        HybridNatBitSet sparser = bitSetMode(every(512, 10_000));
+        sparser.optimize();
+        assertThat(sparser.store(), instanceOf(RoaringBitmap.class));
+    }
+
     // Navigation across modes
 
     @Test
     void navigationAgreesAcrossModes() {
         int[] elements = {0, 1, 2, 17, 18, 500, 1000};
-        HybridNatBitSet[] sets = {arrayMode(elements), bitSetMode(elements), roaringMode(elements)};
+        HybridNatBitSet[] sets = {arrayMode(elements), runsMode(elements), bitSetMode(elements), roaringMode(elements)};
         for (HybridNatBitSet set : sets) {
             assertThat(set.firstInt(), is(0));
             assertThat(set.lastInt(), is(1000));
@@ -261,6 +318,69 @@ class HybridNatBitSetTest {
         }
     }
 
+    @Test
+    void rankAndSelectAgreeAcrossModes() {
+        int[] elements = {0, 1, 2, 17, 18, 500, 1000, 70_000};
+        HybridNatBitSet[] sets = {arrayMode(elements), runsMode(elements), bitSetMode(elements), roaringMode(elements)};
+        for (HybridNatBitSet set : sets) {
+            for (int i = 0; i < elements.length; i++) {
+                assertThat(set.select(i), is(elements[i]));
+                assertThat(set.rank(elements[i]), is(i));
+                assertThat(Indices.rankMap(set).applyAsInt(elements[i]), is(i));
+            }
+            assertThat(set.rank(-3), is(0));
+            assertThat(set.rank(3), is(3));
+            assertThat(set.rank(Integer.MAX_VALUE), is(elements.length));
+            assertThat(Indices.rankMap(set).applyAsInt(3), is(-1));
+            assertThrows(IndexOutOfBoundsException.class, () -> set.select(elements.length));
+            assertThrows(IndexOutOfBoundsException.class, () -> set.select(-1));
+        }
+    }
+
+    @Test
+    void rankIndexFollowsWrites() {
+        HybridNatBitSet set = bitSetMode(range(0, 1000));
+        assertThat(set.rank(500), is(500));
+        set.clear(10);
+        assertThat(set.rank(500), is(499));
+        assertThat(set.select(10), is(11));
+        HybridNatBitSet copy = set.clone();
+        copy.set(10);
+        assertThat(copy.rank(500), is(500));
+        assertThat(set.rank(500), is(499));
+    }
+
+    @Test
+    void containsBatchAgreesWithContains() {
+        int[] elements = {0, 1, 2, 17, 18, 500, 1000};
+        int[] sorted = {-5, 0, 2, 2, 3, 17, 19, 500, 999, 1000, 1001};
+        int[] unsorted = {1000, 0, 17, -1, 18, 1, 700, 2, 500, 3};
+        HybridNatBitSet[] sets = {arrayMode(elements), runsMode(elements), bitSetMode(elements), roaringMode(elements)};
+        for (HybridNatBitSet set : sets) {
+            for (int[] queries : List.of(sorted, unsorted)) {
+                // Leave out the first query and check the answers are shifted accordingly
+                int from = 1;
+                int to = queries.length;
+                boolean[] flags = new boolean[to - from];
+                long[] bits = {-1L, -1L};
+                int contained = 0;
+                for (int i = from; i < to; i++) {
+                    if (set.contains(queries[i])) {
+                        contained += 1;
+                    }
+                }
+                assertThat(set.containsBatch(queries, from, to, flags), is(contained));
+                assertThat(set.containsBatch(queries, from, to, bits), is(contained));
+                for (int i = from; i < to; i++) {
+                    boolean expected = set.contains(queries[i]);
+                    assertThat(flags[i - from], is(expected));
+                    assertThat((bits[0] & (1L << (i - from))) != 0L, is(expected));
+                }
+                assertThat(bits[1], is(-1L));
+            }
+        }
+    }
+
     // Iteration
 
     @Test
@@ -295,8 +415,8 @@ class HybridNatBitSetTest {
     @Test
     void cloneKeepsModeAndIsIndependent() {
         int[] elements = {1, 2, 3, 1_000_000};
-        for (HybridNatBitSet set :
-                new HybridNatBitSet[] {arrayMode(elements), bitSetMode(elements), roaringMode(elements)}) {
+        HybridNatBitSet[] sets = {arrayMode(elements), runsMode(elements), bitSetMode(elements), roaringMode(elements)};
+        for (HybridNatBitSet set : sets) {
             HybridNatBitSet clone = set.clone();
             assertThat(clone, is(set));
 
@@ -306,13 +426,41 @@ class HybridNatBitSetTest {
         }
     }
 
+    @Test
+    void concurrentClonesOfAReadSetStayIndependent() throws InterruptedException {
+        int[] elements = {1, 2, 3, 1_000_000};
+        HybridNatBitSet[] sets = {arrayMode(elements), runsMode(elements), bitSetMode(elements), roaringMode(elements)};
+        for (HybridNatBitSet set : sets) {
+            HybridNatBitSet[] clones = new HybridNatBitSet[8];
+            Thread[] threads = new Thread[clones.length];
+            for (int i = 0; i < threads.length; i++) {
+                int index = i;
+                threads[i] = new Thread(() -> clones[index] = set.clone());
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            set.set(7);
+            for (HybridNatBitSet clone : clones) {
+                assertThat(clone.contains(7), is(false));
+                assertThat(clone, is(reference(elements)));
+            }
+        }
+    }
+
     @Test
     void equalsHoldsAcrossModes() {
         int[] elements = {1, 2, 3, 1_000_000};
         HybridNatBitSet array = arrayMode(elements);
         HybridNatBitSet bitSet = bitSetMode(elements);
         HybridNatBitSet roaring = roaringMode(elements);
+        HybridNatBitSet runs = runsMode(elements);
 
+        assertThat(runs, is(runsMode(elements)));
+        assertThat(runs, is(array));
+        assertThat(bitSet, is(runs));
         assertThat(array, is(bitSet));
         assertThat(bitSet, is(array));
         assertThat(array, is(roaring));
@@ -321,6 +469,7 @@ class HybridNatBitSetTest {
         assertThat(roaring, is(bitSet));
         assertThat(array.hashCode(), is(bitSet.hashCode()));
         assertThat(array.hashCode(), is(roaring.hashCode()));
+        assertThat(array.hashCode(), is(runs.hashCode()));
     }
 
     // Bulk operations between modes
@@ -330,8 +479,8 @@ class HybridNatBitSetTest {
         int[] first = {1, 2, 3, 17, 600, 1_000_000};
         int[] second = {2, 3, 40, 600, 2_000_000};
 
-        for (int a = 0; a < 3; a++) {
-            for (int b = 0; b < 3; b++) {
+        for (int a = 0; a < 4; a++) {
+            for (int b = 0; b < 4; b++) {
                 assertThat(apply(a, b, first, second, "or"), is(expected(first, second, "or")));
                 assertThat(apply(a, b, first, second, "and"), is(expected(first, second, "and")));
                 assertThat(apply(a, b, first, second, "andNot"), is(expected(first, second, "andNot")));
@@ -346,6 +495,8 @@ class HybridNatBitSetTest {
                 return arrayMode(elements);
             case 1:
                 return bitSetMode(elements);
+            case 2:
+                return runsMode(elements);
             default:
                 return roaringMode(elements);
         }
@@ -401,11 +552,11 @@ class HybridNatBitSetTest {
         int[][] shapes = {
             {1, 2, 3}, {1_000_000, 1_000_001}, range(0, 12), {7}, {}, range(500, 512),
         };
-        for (int modes = 0; modes < 3; modes++) {
+        for (int modes = 0; modes < 4; modes++) {
             List<IntCollection> operands = new ArrayList<>();
             IntSortedSet expected = new IntAVLTreeSet();
             for (int i = 0; i < shapes.length; i++) {
-                operands.add(mode((i + modes) % 3, shapes[i]));
+                operands.add(mode((i + modes) % 4, shapes[i]));
                 expected.addAll(reference(shapes[i]));
             }
 
@@ -421,6 +572,86 @@ class HybridNatBitSetTest {
         assertThat(NatBitSets.union(List.of(new HybridNatBitSet())).isEmpty(), is(true));
     }
 
+    // n-ary intersection
+
+    @Test
+    void intersectionAgreesWithFoldingOverEachShape() {
+        int[][] shapes = {
+            range(0, 1000), {3, 5, 7, 500, 999, 1_000_000}, range(0, 600), {1, 3, 5, 7, 9, 500}, range(3, 900),
+        };
+        for (int modes = 0; modes < 4; modes++) {
+            List<IntCollection> operands = new ArrayList<>();
+            IntSortedSet expected = reference(shapes[0]);
+            for (int i = 0; i < shapes.length; i++) {
+                operands.add(mode((i + modes) % 4, shapes[i]));
+                expected.retainAll(reference(shapes[i]));
+            }
+
+            NatBitSet intersection = NatBitSets.intersection(operands);
+            assertThat(intersection, is(expected));
+            assertThat(intersection.size(), is(expected.size()));
+        }
+    }
+
+    @Test
+    void intersectionGallopsThroughLargeArrays() {
+        // Arrays of any length can be wrapped, the candidates have to skip most of them
+        int[] evens = new int[5000];
+        int[] multiplesOfThree = new int[5000];
+        for (int i = 0; i < 5000; i++) {
+            evens[i] = 2 * i;
+            multiplesOfThree[i] = 3 * i;
+        }
+        IntList repeating = IntArrayList.wrap(new int[] {9000, 6, 6, 12, 7, 0, 9000});
+
+        NatBitSet intersection = NatBitSets.intersection(
+                List.of(NatBitSets.wrap(evens), NatBitSets.wrap(multiplesOfThree), repeating));
+        assertThat(intersection, is(reference(0, 6, 12, 9000)));
+
+        NatBitSet large = NatBitSets.intersection(List.of(NatBitSets.wrap(evens), NatBitSets.wrap(multiplesOfThree)));
+        IntSortedSet expected = new IntAVLTreeSet();
+        for (int i = 0; i < 10_000; i += 6) {
+            expected.add(i);
+        }
+        assertThat(large, is(expected));
+    }
+
+    @Test
+    void intersectionOfBitmapsIsTakenAtOnce() {
+        HybridNatBitSet one = roaringMode(1, 100_000, 200_000, 300_000);
+        HybridNatBitSet other = roaringMode(100_000, 300_000, 400_000);
+        RoaringBitmap before = one.bitmap().clone();
+
+        NatBitSet intersection = NatBitSets.intersection(List.of(one, other, bitSetMode(range(0, 400_000))));
+        assertThat(intersection, is(reference(100_000, 300_000)));
+        assertThat(one.bitmap(), is(before));
+        // Two elements are left, which are better held as an array than as the bitmap they came from
+        assertThat(((HybridNatBitSet) intersection).isArrayBacked(), is(true));
+    }
+
+    @Test
+    void intersectionLeavesItsOperandsAlone() {
+        int[] elements = {1, 2, 3, 100_000, 1_000_000};
+        HybridNatBitSet[] sets = {runsMode(elements), bitSetMode(elements), roaringMode(elements)};
+        for (HybridNatBitSet set : sets) {
+            NatBitSet intersection = NatBitSets.intersection(List.of(set, bitSetMode(range(0, 200_000))));
+            assertThat(intersection, is(reference(1, 2, 3, 100_000)));
+            assertThat(set.isSharingStore(), is(false));
+        }
+        HybridNatBitSet one = roaringMode(elements);
+        HybridNatBitSet other = roaringMode(2, 3, 1_000_000, 2_000_000);
+        assertThat(NatBitSets.intersection(List.of(one, other)), is(reference(2, 3, 1_000_000)));
+        assertThat(one.isSharingStore(), is(false));
+        assertThat(other.isSharingStore(), is(false));
+    }
+
+    @Test
+    void intersectionStopsAtTheFirstEmptyOperand() {
+        assertThat(NatBitSets.intersection(List.of(arrayMode(1, 2), new HybridNatBitSet())).isEmpty(), is(true));
+        assertThat(NatBitSets.intersection(List.of(arrayMode(1, 2), roaringMode(3, 4))).isEmpty(), is(true));
+        assertThrows(IllegalArgumentException.class, () -> NatBitSets.intersection(List.of()));
+    }
+
     @Test
     void fullRangeOperandsProduceCorrectResults() {
         BoundedNatBitSet full = boundedFullSet(100);
@@ -451,7 +682,10 @@ class HybridNatBitSetTest {
     void intersectsAgreesAcrossModesAndDirections() {
         int[][] operands = {{}, {0}, {1, 3, 5}, {0, 2, 4}, {999_999}, {1_000_000}};
         List<Function<int[], HybridNatBitSet>> modes = List.of(
-                HybridNatBitSetTest::arrayMode, HybridNatBitSetTest::bitSetMode, HybridNatBitSetTest::roaringMode);
+                HybridNatBitSetTest::arrayMode,
+                HybridNatBitSetTest::runsMode,
+                HybridNatBitSetTest::bitSetMode,
+                HybridNatBitSetTest::roaringMode);
 
         for (int[] left : operands) {
             for (int[] right : operands) {
@@ -588,7 +822,10 @@ class HybridNatBitSetTest {
     void containsAllAgreesAcrossModes() {
         int[][] candidates = {{}, {0}, {1, 3}, {1, 3, 5}, {1, 3, 5, 200_001}, {200_001}};
         List<Function<int[], HybridNatBitSet>> modes = List.of(
-                HybridNatBitSetTest::arrayMode, HybridNatBitSetTest::bitSetMode, HybridNatBitSetTest::roaringMode);
+                HybridNatBitSetTest::arrayMode,
+                HybridNatBitSetTest::runsMode,
+                HybridNatBitSetTest::bitSetMode,
+                HybridNatBitSetTest::roaringMode);
 
         HybridNatBitSet odd = bitSetMode(1, 3, 5, 7);
         for (int[] candidate : candidates) {
@@ -597,6 +834,7 @@ class HybridNatBitSetTest {
                 assertThat(odd.containsAll(mode.apply(candidate)), is(contained));
                 assertThat(roaringMode(1, 3, 5, 7).containsAll(mode.apply(candidate)), is(contained));
                 assertThat(arrayMode(1, 3, 5, 7).containsAll(mode.apply(candidate)), is(contained));
+                assertThat(runsMode(1, 3, 5, 7).containsAll(mode.apply(candidate)), is(contained));
             }
         }
     }
@@ -629,24 +867,278 @@ class HybridNatBitSetTest {
     // A filled range must not be materialised element by element
 
     @Test
-    void fillingARangeUsesRunContainers() {
+    void fillingARangeKeepsASingleRun() {
         HybridNatBitSet set = new HybridNatBitSet();
         set.set(0, 1_000_000);
 
-        assertThat(set.store(), instanceOf(RoaringBitmap.class));
+        assertThat(set.store(), instanceOf(Runs.class));
+        assertThat(((Runs) set.store()).count(), is(1));
         assertThat(set.size(), is(1_000_000));
         assertThat(set.firstInt(), is(0));
         assertThat(set.lastInt(), is(999_999));
+    }
+
+    @Test
+    void fillingARangeOfABitmapUsesRunContainers() {
+        HybridNatBitSet set = roaringMode(5_000_000);
+        set.set(0, 1_000_000);
+
+        assertThat(set.store(), instanceOf(RoaringBitmap.class));
+        assertThat(set.size(), is(1_000_001));
         // A run encoded range costs a few bytes per container, not one bit per element
         assertThat(((RoaringBitmap) set.store()).getSizeInBytes(), lessThan(1_000));
     }
 
+    // Run lists
+
+    @Test
+    void arrayOfRunsOverflowsIntoRuns() {
+        HybridNatBitSet set = new HybridNatBitSet();
+        for (int i = 0; i < 100; i++) {
+            set.set(i < 50 ? i : 1000 + i);
+        }
+        assertThat(set.store(), instanceOf(Runs.class));
+        assertThat(((Runs) set.store()).count(), is(2));
+        assertThat(set.size(), is(100));
+    }
+
+    @Test
+    void runsSpillPastTheRunCap() {
+        HybridNatBitSet set = new HybridNatBitSet();
+        IntSortedSet expected = new IntAVLTreeSet();
+        for (int i = 0; i <= HybridNatBitSet.MAXIMAL_RUN_COUNT; i++) {
+            assertThat(set.size() <= HybridNatBitSet.MAXIMAL_ARRAY_SIZE || set.isRunBacked(), is(true));
+            set.set(100 * i, 100 * i + 10);
+            expected.addAll(reference(range(100 * i, 100 * i + 10)));
+        }
+        assertThat(set.store(), not(instanceOf(Runs.class)));
+        assertThat(set, is(expected));
+
+        // A single element splitting a run spills as well
+        HybridNatBitSet split = new HybridNatBitSet();
+        for (int i = 0; i < HybridNatBitSet.MAXIMAL_RUN_COUNT; i++) {
+            split.set(100 * i, 100 * i + 10);
+        }
+        assertThat(split.store(), instanceOf(Runs.class));
+        split.clear(5);
+        assertThat(split.store(), not(instanceOf(Runs.class)));
+        assertThat(split.contains(4), is(true));
+        assertThat(split.contains(5), is(false));
+        assertThat(split.contains(6), is(true));
+        assertThat(split.size(), is(10 * HybridNatBitSet.MAXIMAL_RUN_COUNT - 1));
+    }
+
     @Test
-    void fillingASmallRangeStaysInWords() {
+    void runsReachTheLargestIndex() {
         HybridNatBitSet set = new HybridNatBitSet();
-        set.set(0, 1_000);
+        set.set(Integer.MAX_VALUE - 100, Integer.MAX_VALUE);
+        set.set(Integer.MAX_VALUE);
+        assertThat(set.store(), instanceOf(Runs.class));
+        assertThat(set.size(), is(101));
+        assertThat(set.lastInt(), is(Integer.MAX_VALUE));
+        assertThat(set.previousAbsentIndex(Integer.MAX_VALUE), is(Integer.MAX_VALUE - 101));
+
+        set.flip(Integer.MAX_VALUE - 1, Integer.MAX_VALUE);
+        assertThat(set.contains(Integer.MAX_VALUE - 1), is(false));
+        assertThat(set.contains(Integer.MAX_VALUE), is(true));
+        assertThat(set.size(), is(100));
+
+        IntList tail = new IntArrayList();
+        set.forEach((IntConsumer) tail::add);
+        assertThat(tail.getInt(tail.size() - 1), is(Integer.MAX_VALUE));
+        assertThat(new IntArrayList(set.iterator()), is(tail));
+        assertThat(set, is(new IntAVLTreeSet(tail)));
+    }
+
+    @Test
+    void iteratorRemoveInRunsMode() {
+        HybridNatBitSet set = runsMode(range(0, 20));
+        IntIterator iterator = set.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.nextInt() % 4 == 1) {
+                iterator.remove();
+            }
+        }
+        assertThat(set.size(), is(15));
+        assertThat(set.contains(1), is(false));
+        assertThat(set.contains(2), is(true));
+        assertThat(set.contains(17), is(false));
+    }
+
+    @Test
+    void removeIfFragmentingRunsLeavesThem() {
+        HybridNatBitSet set = runsMode(range(0, 1000));
+        set.removeIf(i -> i % 2 == 0);
+        assertThat(set.store(), not(instanceOf(Runs.class)));
+        set.optimize();
         assertThat(set.store(), instanceOf(BitSet.class));
-        assertThat(set.size(), is(1_000));
+        assertThat(set.size(), is(500));
+        assertThat(set.firstInt(), is(1));
+    }
+
+    // Sorted bulk insertion
+
+    @Test
+    void addAllSortedAgreesWithSettingEachElement() {
+        int[][] inputs = {
+            {}, {5, 5, 5}, {1, 2, 3, 40, 41}, range(0, 1000), range(60, 70), {7, 7, 70_000, 70_000, 1_000_000},
+        };
+        Random random = new Random(7L);
+        int[] scattered = random.ints(500, 0, 5_000_000).sorted().toArray();
+        for (int[] input : List.of(inputs[0], inputs[1], inputs[2], inputs[3], inputs[4], inputs[5], scattered)) {
+            for (int mode = 0; mode < 4; mode++) {
+                HybridNatBitSet set = mode(mode, 3, 4, 5, 64, 65, 999, 1000);
+                IntSortedSet expected = new IntAVLTreeSet(set);
+                // Pad both sides, which must be left alone
+                int[] padded = new int[input.length + 2];
+                System.arraycopy(input, 0, padded, 1, input.length);
+                padded[0] = Integer.MAX_VALUE;
+                padded[padded.length - 1] = -1;
+
+                set.addAllSorted(padded, 1, padded.length - 1);
+                for (int element : input) {
+                    expected.add(element);
+                }
+                assertThat(set, is(expected));
+                assertThat(set.size(), is(expected.size()));
+            }
+        }
+    }
+
+    @Test
+    void addAllSortedChoosesTheRepresentationOnce() {
+        HybridNatBitSet runs = arrayMode(1, 2, 3);
+        runs.addAllSorted(range(100, 1100), 0, 1000);
+        assertThat(runs.store(), instanceOf(Runs.class));
+
+        HybridNatBitSet words = arrayMode(1, 2, 3);
+        int[] even = new int[1000];
+        for (int i = 0; i < even.length; i++) {
+            even[i] = 2 * i;
+        }
+        words.addAllSorted(even, 0, even.length);
+        assertThat(words.store(), instanceOf(BitSet.class));
+        assertThat(words.size(), is(1002));
+
+        HybridNatBitSet bitmap = arrayMode(1, 2, 3);
+        int[] sparse = new int[100];
+        for (int i = 0; i < sparse.length; i++) {
+            sparse[i] = 100_000 * i;
+        }
+        bitmap.addAllSorted(sparse, 0, sparse.length);
+        assertThat(bitmap.store(), instanceOf(RoaringBitmap.class));
+
+        HybridNatBitSet array = arrayMode(1, 2, 3);
+        array.addAllSorted(new int[] {0, 2, 2, 4, 100}, 0, 5);
+        assertThat(array.store(), instanceOf(int[].class));
+        assertThat(array, is(reference(0, 1, 2, 3, 4, 100)));
+        assertThat(array.size(), is(6));
+    }
+
+    @Test
+    void addAllSortedRejectsBadInput() {
+        HybridNatBitSet set = arrayMode(1, 2, 3);
+        assertThrows(IllegalArgumentException.class, () -> set.addAllSorted(new int[] {1, 3, 2}, 0, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> set.addAllSorted(new int[] {-1, 3}, 0, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> set.addAllSorted(new int[] {1, 3}, 1, 3));
+        assertThat(set, is(reference(1, 2, 3)));
+        // Only the range is looked at
+        set.addAllSorted(new int[] {9, -1, 4, 8, 0}, 2, 4);
+        assertThat(set, is(reference(1, 2, 3, 4, 8)));
+    }
+
+    // Policies
+
+    @Test
+    void pinnedToWordsNeverLeavesThem() {
+        HybridNatBitSet set = (HybridNatBitSet) NatBitSets.withExpectedShape(0, 0, NatBitSetPolicy.pinnedToWords());
+        assertThat(set.isWordBacked(), is(true));
+        set.set(5);
+        set.set(10_000_000);
+        assertThat(set.isWordBacked(), is(true));
+        set.or(roaringMode(7, 19_999_999, 20_000_000));
+        assertThat(set.isWordBacked(), is(true));
+        assertThat(set, is(reference(5, 7, 10_000_000, 19_999_999, 20_000_000)));
+        set.xor(roaringMode(5, 20_000_000));
+        assertThat(set, is(reference(7, 10_000_000, 19_999_999)));
+        set.clear(0, 10_000_000);
+        set.optimize();
+        assertThat(set.isWordBacked(), is(true));
+        assertThat(set, is(reference(10_000_000, 19_999_999)));
+
+        BitSet words = set.words();
+        set.clear();
+        assertThat(set.words(), sameInstance(words));
+        set.optimize();
+        assertThat(set.isWordBacked(), is(true));
+        assertThat(set.isEmpty(), is(true));
+    }
+
+    @Test
+    void pinnedToRoaringNeverLeavesIt() {
+        NatBitSet set = NatBitSets.of(new int[] {1, 2, 3});
+        NatBitSets.setPolicy(set, NatBitSetPolicy.pinnedToRoaring());
+        HybridNatBitSet hybrid = (HybridNatBitSet) set;
+        assertThat(hybrid.isBitmapBacked(), is(true));
+        set.set(0, 10_000);
+        set.and(reference(range(0, 100)));
+        set.optimize();
+        assertThat(hybrid.isBitmapBacked(), is(true));
+        assertThat(set, is(reference(range(0, 100))));
+        set.clear();
+        set.optimize();
+        assertThat(hybrid.isBitmapBacked(), is(true));
+        // Copies keep the pin
+        set.set(4);
+        assertThat(((HybridNatBitSet) set.clone()).isBitmapBacked(), is(true));
+    }
+
+    @Test
+    void memorySlackMovesTheWordsThreshold() {
+        // Two thousand elements over a hundred thousand indices: words cost about three times a bitmap
+        NatBitSet lenient = NatBitSets.withExpectedShape(2_000, 100_000, NatBitSetPolicy.adaptive());
+        NatBitSet strict = NatBitSets.withExpectedShape(2_000, 100_000, NatBitSetPolicy.adaptive(1));
+        assertThat(((HybridNatBitSet) lenient).isWordBacked(), is(true));
+        assertThat(((HybridNatBitSet) strict).isBitmapBacked(), is(true));
+        assertThat(
+                NatBitSetPolicy.adaptive(NatBitSetPolicy.DEFAULT_MEMORY_SLACK),
+                sameInstance(NatBitSetPolicy.adaptive()));
+        assertThrows(IllegalArgumentException.class, () -> NatBitSetPolicy.adaptive(0));
+    }
+
+    @Test
+    void onlyAdaptiveSetsTakeAPolicy() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> NatBitSets.setPolicy(NatBitSets.boundedSet(10), NatBitSetPolicy.pinnedToWords()));
+        NatBitSetPool pool = new NatBitSetPool();
+        NatBitSet set = pool.acquire();
+        NatBitSets.setPolicy(set, NatBitSetPolicy.pinnedToWords());
+        pool.release(set);
+        assertThat(((HybridNatBitSet) pool.acquire()).policy(), sameInstance(NatBitSetPolicy.adaptive()));
+    }
+
+    // Memory footprint
+
+    @Test
+    void estimatedBytesFavourTheChosenRepresentation() {
+        int[] range = range(0, 10_000);
+        assertThat(runsMode(range).estimatedBytes(), lessThan(bitSetMode(range).estimatedBytes()));
+        assertThat(arrayMode(1, 5, 9_000).estimatedBytes(), lessThan(bitSetMode(1, 5, 9_000).estimatedBytes()));
+        int[] spread = {3, 1 << 18, 1 << 20, 1 << 22};
+        assertThat(roaringMode(spread).estimatedBytes(), lessThan(bitSetMode(spread).estimatedBytes()));
+    }
+
+    @Test
+    void estimatedBytesFollowTheStore() {
+        HybridNatBitSet set = new HybridNatBitSet();
+        long empty = set.estimatedBytes();
+        set.set(100_000);
+        assertThat(empty, lessThan(set.estimatedBytes()));
+        set.set(0, 50_000);
+        long filled = set.estimatedBytes();
+        set.clear();
+        assertThat(set.estimatedBytes(), lessThan(filled));
     }
 
     // Randomised cross-check, biased towards the thresholds
@@ -707,4 +1199,78 @@ class HybridNatBitSetTest {
             }
         }
     }
+
+    @Test
+    void cloneSharesStoreUntilWritten() {
+        for (HybridNatBitSet set :
+                List.of(
+                        arrayMode(1, 5, 9),
+                        runsMode(range(0, 200)),
+                        bitSetMode(range(0, 200)),
+                        roaringMode(3, 70_000, 1_000_000))) {
+            HybridNatBitSet clone = set.clone();
+            assertThat(clone.store(), sameInstance(set.store()));
+
+            clone.set(4242);
+            assertThat(clone.store(), not(sameInstance(set.store())));
+            assertThat(set.contains(4242), is(false));
+            assertThat(clone.contains(4242), is(true));
+
+            // The original still believes it shares, and must copy on its own first write as well
+            Object before = set.store();
+            set.clear(4242);
+            set.set(4243);
+            assertThat(set.store(), not(sameInstance(before)));
+            assertThat(clone.contains(4243), is(false));
+        }
+    }
+
+    @Test
+    void writesThroughEveryMutatorLeaveTheCopyIntact() {
+        List<Consumer<HybridNatBitSet>> mutators = List.of(
+                set -> set.set(4321),
+                set -> set.clear(2),
+                set -> set.set(100, 300),
+                set -> set.clear(50, 150),
+                set -> set.flip(0, 400),
+                set -> set.clearFrom(1000),
+                set -> set.and(bitSetMode(range(0, 2000))),
+                set -> set.andNot(arrayMode(1, 2, 3, 4)),
+                set -> set.or(roaringMode(7, 77, 777)),
+                set -> set.xor(bitSetMode(range(10, 90))),
+                set -> set.removeIf(i -> i % 3 == 0),
+                set -> set.removeAll((IntCollection) arrayMode(5, 6)),
+                HybridNatBitSet::optimize,
+                set -> {
+                    IntIterator iterator = set.iterator();
+                    // Roaring's iterator does not remove
+                    if (!set.isBitmapBacked() && iterator.hasNext()) {
+                        iterator.nextInt();
+                        iterator.remove();
+                    }
+                });
+        for (Consumer<HybridNatBitSet> mutator : mutators) {
+            for (HybridNatBitSet set : List.of(
+                    arrayMode(1, 2, 3, 400),
+                    runsMode(range(0, 300)),
+                    bitSetMode(range(0, 300)),
+                    roaringMode(range(0, 300)))) {
+                IntSortedSet expected = new IntAVLTreeSet(set);
+                HybridNatBitSet copy = (HybridNatBitSet) NatBitSets.copyOf(set);
+                mutator.accept(copy);
+                assertThat(set, is(expected));
+                mutator.accept(set);
+                assertThat(set, is(copy));
+            }
+        }
+    }
+
+    @Test
+    void adoptedWordsAreNotShared() {
+        HybridNatBitSet set = bitSetMode(range(0, 100));
+        HybridNatBitSet clone = set.clone();
+        BoundedNatBitSet bounded = NatBitSets.asBounded(set, 200);
+        bounded.set(150);
+        assertThat(clone.contains(150), is(false));
+    }
 }
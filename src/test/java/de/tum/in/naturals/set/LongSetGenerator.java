@@ -0,0 +1,44 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import com.google.common.collect.testing.SampleElements;
+import com.google.common.collect.testing.TestSetGenerator;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/** Generates long sets whose samples mostly lie beyond the int range. */
+class LongSetGenerator implements TestSetGenerator<Long> {
+    private final Supplier<? extends LongSet> constructor;
+
+    public LongSetGenerator(Supplier<? extends LongSet> constructor) {
+        this.constructor = constructor;
+    }
+
+    @Override
+    public SampleElements<Long> samples() {
+        return new SampleElements<>(3L, 1L << 33, 4242L, (1L << 34) + 1L, (1L << 31) + 7L);
+    }
+
+    @Override
+    public Set<Long> create(Object... elements) {
+        LongSet set = constructor.get();
+        for (Object element : elements) {
+            set.add((Long) element);
+        }
+        return set;
+    }
+
+    @Override
+    public Long[] createArray(int length) {
+        return new Long[length];
+    }
+
+    @Override
+    public List<Long> order(List<Long> insertionOrder) {
+        return insertionOrder.stream().sorted().collect(Collectors.toList());
+    }
+}
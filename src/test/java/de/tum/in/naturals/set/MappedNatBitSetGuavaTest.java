@@ -0,0 +1,31 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import junit.framework.TestSuite;
+import org.junit.runner.RunWith;
+import org.junit.runners.AllTests;
+
+@SuppressWarnings({"PMD.JUnit4SuitesShouldUseSuiteAnnotation", "PMD.UseUtilityClass"})
+@RunWith(AllTests.class)
+public class MappedNatBitSetGuavaTest {
+    public static TestSuite suite() {
+        return GuavaSetTest.createImmutableNatSet(MappedNatBitSetGuavaTest::view, "MappedNatBitSetGuavaTest");
+    }
+
+    private static NatBitSet view(Collection<Integer> elements) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            NatBitSetCodec.writeWords(NatBitSets.copyOf(elements), output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return NatBitSetCodec.view(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+}
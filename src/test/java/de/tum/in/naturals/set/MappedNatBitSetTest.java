@@ -0,0 +1,88 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedNatBitSetTest {
+    @TempDir
+    Path directory;
+
+    private static BitSet sample() {
+        Random random = new Random(42);
+        BitSet bitSet = new BitSet();
+        for (int i = 0; i < 3000; i++) {
+            bitSet.set(random.nextInt(50_000));
+        }
+        bitSet.set(60_000, 60_300);
+        bitSet.set(60_320, 60_384);
+        return bitSet;
+    }
+
+    private NatBitSet write(NatBitSet set) throws IOException {
+        Path file = directory.resolve("set.bin");
+        try (OutputStream stream = Files.newOutputStream(file);
+                DataOutputStream output = new DataOutputStream(stream)) {
+            NatBitSetCodec.writeWords(set, output);
+        }
+        return NatBitSets.mapped(file);
+    }
+
+    @Test
+    void readsTheMapping() throws IOException {
+        BitSet expected = sample();
+        NatBitSet mapped = write(NatBitSets.wrap(expected));
+
+        assertThat(mapped, is(NatBitSets.wrap(expected)));
+        assertThat(mapped.size(), is(expected.cardinality()));
+        assertThat(mapped.lastInt(), is(expected.length() - 1));
+        assertThat(mapped.firstInt(), is(expected.nextSetBit(0)));
+        for (int i = 0; i < expected.length() + 130; i++) {
+            assertThat(mapped.contains(i), is(expected.get(i)));
+            assertThat(mapped.nextPresentIndex(i), is(expected.nextSetBit(i)));
+            assertThat(mapped.nextAbsentIndex(i), is(expected.nextClearBit(i)));
+            assertThat(mapped.previousPresentIndex(i), is(expected.previousSetBit(i)));
+            assertThat(mapped.previousAbsentIndex(i), is(expected.previousClearBit(i)));
+        }
+        assertThat(mapped.contains(-1), is(false));
+    }
+
+    @Test
+    void mapsAnyRepresentation() throws IOException {
+        NatBitSet sparse = NatBitSets.ofVar(1, 70, 4000);
+        assertThat(write(sparse), is(sparse));
+        assertThat(write(NatBitSets.of()).isEmpty(), is(true));
+        NatBitSet persistent = NatBitSets.persistent().with(5).with(100_000);
+        assertThat(write(persistent), is(persistent));
+    }
+
+    @Test
+    void isUnmodifiable() throws IOException {
+        NatBitSet mapped = write(NatBitSets.ofVar(1, 2));
+        assertThrows(UnsupportedOperationException.class, () -> mapped.set(3));
+        assertThrows(UnsupportedOperationException.class, () -> mapped.clear(1));
+        assertThrows(UnsupportedOperationException.class, mapped::clear);
+    }
+
+    @Test
+    void viewRequiresWordEncoding() {
+        NatBitSet set = NatBitSets.ofVar(1, 2);
+        ByteBuffer buffer = ByteBuffer.allocate(NatBitSetCodec.encodedSize(set));
+        NatBitSetCodec.write(set, buffer);
+        buffer.flip();
+        assertThrows(IllegalArgumentException.class, () -> NatBitSetCodec.view(buffer));
+    }
+}
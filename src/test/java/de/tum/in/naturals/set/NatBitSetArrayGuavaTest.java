@@ -0,0 +1,25 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import java.util.Set;
+import junit.framework.TestSuite;
+import org.junit.runner.RunWith;
+import org.junit.runners.AllTests;
+
+@SuppressWarnings({"PMD.JUnit4SuitesShouldUseSuiteAnnotation", "PMD.UseUtilityClass"})
+@RunWith(AllTests.class)
+public class NatBitSetArrayGuavaTest {
+    public static TestSuite suite() {
+        return GuavaSetTest.createNatSet(
+                () -> {
+                    // A slot between two full ones, which must stay untouched
+                    NatBitSetArray array = new NatBitSetArray(3, 13);
+                    array.setWord(0, (1L << 13) - 1L);
+                    array.setWord(2, (1L << 13) - 1L);
+                    return array.get(1);
+                },
+                "NatBitSetArrayGuavaTest",
+                Set.of());
+    }
+}
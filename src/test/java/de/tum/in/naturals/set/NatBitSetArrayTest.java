@@ -0,0 +1,90 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class NatBitSetArrayTest {
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8, 20, 33, 64})
+    void slotsDoNotSeeTheirNeighbours(int domainSize) {
+        Random random = new Random(domainSize);
+        int length = 200;
+        NatBitSetArray array = new NatBitSetArray(length, domainSize);
+        BitSet[] expected = new BitSet[length];
+        for (int i = 0; i < length; i++) {
+            expected[i] = new BitSet();
+        }
+        for (int step = 0; step < 10_000; step++) {
+            int slot = random.nextInt(length);
+            int element = random.nextInt(domainSize);
+            if (random.nextBoolean()) {
+                array.set(slot, element);
+                expected[slot].set(element);
+            } else {
+                array.clear(slot, element);
+                expected[slot].clear(element);
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            assertThat(NatBitSets.toBitSet(array.get(i)), is(expected[i]));
+            assertThat(array.size(i), is(expected[i].cardinality()));
+        }
+    }
+
+    @Test
+    void slotOperationsCombineWords() {
+        NatBitSetArray array = new NatBitSetArray(4, 10);
+        array.setWord(0, 0b0110L);
+        array.setWord(1, 0b1100L);
+
+        array.and(0, 1);
+        assertThat(array.get(0), contains(2));
+        array.or(2, 1);
+        assertThat(array.get(2), contains(2, 3));
+        array.or(3, NatBitSets.ofVar(1, 9));
+        array.and(3, NatBitSets.ofVar(9, 40));
+        assertThat(array.get(3), contains(9));
+        assertThat(array.get(1), contains(2, 3));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> array.set(0, 10));
+        assertThrows(IndexOutOfBoundsException.class, () -> array.or(0, NatBitSets.ofVar(10)));
+        assertThrows(IndexOutOfBoundsException.class, () -> array.setWord(0, 1L << 10));
+        assertThrows(IndexOutOfBoundsException.class, () -> array.contains(4, 0));
+        assertThat(array.contains(0, 10), is(false));
+    }
+
+    @Test
+    void viewsWriteThrough() {
+        NatBitSetArray array = new NatBitSetArray(3, 12);
+        BoundedNatBitSet view = array.get(1);
+        view.set(2, 6);
+        view.clear(3);
+        view.complement();
+        assertThat(array.word(1), is(0b1111_1100_1011L));
+        assertThat(array.isEmpty(0), is(true));
+        assertThat(array.isEmpty(2), is(true));
+
+        BoundedNatBitSet copy = view.clone();
+        view.clear();
+        assertThat(array.isEmpty(1), is(true));
+        assertThat(copy.size(), is(9));
+    }
+
+    @Test
+    void packingBeatsASetPerSlot() {
+        int length = 100_000;
+        NatBitSetArray array = new NatBitSetArray(length, 8);
+        long perSlot = NatBitSets.boundedSet(8).estimatedBytes() + 4L;
+        assertThat(array.estimatedBytes() * 10 < length * perSlot, is(true));
+    }
+}
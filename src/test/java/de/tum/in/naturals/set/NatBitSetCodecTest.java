@@ -0,0 +1,119 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+class NatBitSetCodecTest {
+    private static List<NatBitSet> samples() {
+        Random random = new Random(42);
+        BitSet words = new BitSet();
+        for (int i = 0; i < 5000; i++) {
+            words.set(random.nextInt(20_000));
+        }
+        words.set(20_000, 20_200);
+        words.set(20_256, 20_320);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 5000; i++) {
+            bitmap.add(random.nextInt(Integer.MAX_VALUE));
+        }
+        bitmap.add(0L, 3000L);
+        BoundedNatBitSet bounded = NatBitSets.boundedSimpleSet(300);
+        bounded.set(5, 170);
+        return List.of(
+                NatBitSets.of(),
+                NatBitSets.ofVar(0, 1, 127, 128, 16_384, Integer.MAX_VALUE),
+                NatBitSets.wrap(words),
+                NatBitSets.wrap(bitmap),
+                bounded,
+                NatBitSets.persistent().with(3).with(1_000_000));
+    }
+
+    private static byte[] viaStream(NatBitSet set) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            NatBitSetCodec.write(set, output);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void roundTripsThroughBuffers() {
+        for (NatBitSet set : samples()) {
+            for (ByteOrder order : List.of(ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN)) {
+                ByteBuffer buffer =
+                        ByteBuffer.allocate(NatBitSetCodec.encodedSize(set) + 3).order(order);
+                buffer.put((byte) 1);
+                NatBitSetCodec.write(set, buffer);
+                assertThat(buffer.position(), is(1 + NatBitSetCodec.encodedSize(set)));
+                buffer.putShort((short) 7);
+
+                buffer.flip();
+                buffer.get();
+                NatBitSet read = NatBitSetCodec.read(buffer);
+                assertThat(read, is(set));
+                assertThat(read.size(), is(set.size()));
+                assertThat(buffer.getShort(), is((short) 7));
+            }
+        }
+    }
+
+    @Test
+    void roundTripsThroughStreamsWithTheSameBytes() throws IOException {
+        for (NatBitSet set : samples()) {
+            byte[] bytes = viaStream(set);
+            ByteBuffer buffer = ByteBuffer.allocate(NatBitSetCodec.encodedSize(set));
+            NatBitSetCodec.write(set, buffer);
+            assertThat(Arrays.equals(bytes, buffer.array()), is(true));
+
+            try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                assertThat(NatBitSetCodec.read(input), is(set));
+                assertThat(input.read(), is(-1));
+            }
+        }
+    }
+
+    @Test
+    void readerRestoresTheRepresentation() {
+        List<NatBitSet> samples = samples();
+        assertThat(store(samples.get(1)), instanceOf(int[].class));
+        assertThat(store(samples.get(2)), instanceOf(BitSet.class));
+        assertThat(store(samples.get(3)), instanceOf(RoaringBitmap.class));
+        assertThat(store(samples.get(4)), instanceOf(BitSet.class));
+    }
+
+    private static Object store(NatBitSet set) {
+        ByteBuffer buffer = ByteBuffer.allocate(NatBitSetCodec.encodedSize(set));
+        NatBitSetCodec.write(set, buffer);
+        buffer.flip();
+        return ((HybridNatBitSet) NatBitSetCodec.read(buffer)).store();
+    }
+
+    @Test
+    void smallSetsAreSmall() {
+        // Tag, count and one byte per close element
+        assertThat(NatBitSetCodec.encodedSize(NatBitSets.ofVar(10, 20, 30)), is(5));
+    }
+
+    @Test
+    void rejectsUnknownTag() {
+        assertThrows(IllegalArgumentException.class, () -> NatBitSetCodec.read(ByteBuffer.wrap(new byte[] {9, 0})));
+    }
+}
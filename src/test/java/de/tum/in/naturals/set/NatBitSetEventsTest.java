@@ -0,0 +1,119 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class NatBitSetEventsTest {
+    @TempDir
+    Path directory;
+
+    private List<RecordedEvent> record(Runnable action) throws IOException {
+        Path file = directory.resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(NatBitSetEvents.Conversion.class);
+            recording.enable(NatBitSetEvents.Optimize.class);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void conversionsAreRecordedOnceEach() throws IOException {
+        List<RecordedEvent> events = record(() -> {
+            HybridNatBitSet set = new HybridNatBitSet();
+            for (int i = 0; i <= HybridNatBitSet.MAXIMAL_ARRAY_SIZE; i++) {
+                set.set(3 * i);
+            }
+            set.set(10_000_000);
+            set.set(10_000_001);
+        });
+
+        List<RecordedEvent> conversions = named(events, "de.tum.in.naturals.set.Conversion");
+        assertThat(conversions, hasSize(2));
+
+        RecordedEvent words = conversions.get(0);
+        assertThat(words.getString("oldMode"), is("ARRAY"));
+        assertThat(words.getString("newMode"), is("BIT_SET"));
+        assertThat(words.getInt("cardinality"), is(HybridNatBitSet.MAXIMAL_ARRAY_SIZE));
+        assertThat(words.getInt("lastElement"), is(3 * (HybridNatBitSet.MAXIMAL_ARRAY_SIZE - 1)));
+        assertThat(words.getLong("bytesBefore"), is(4L * HybridNatBitSet.MAXIMAL_ARRAY_SIZE));
+
+        RecordedEvent bitmap = conversions.get(1);
+        assertThat(bitmap.getString("oldMode"), is("BIT_SET"));
+        assertThat(bitmap.getString("newMode"), is("ROARING"));
+        assertThat(bitmap.getInt("cardinality"), is(HybridNatBitSet.MAXIMAL_ARRAY_SIZE + 1));
+        assertThat(bitmap.getInt("lastElement"), is(3 * HybridNatBitSet.MAXIMAL_ARRAY_SIZE));
+    }
+
+    @Test
+    void arrayOverflowToRunsAndClearAreRecorded() throws IOException {
+        List<RecordedEvent> events = record(() -> {
+            HybridNatBitSet set = new HybridNatBitSet();
+            for (int i = 0; i <= HybridNatBitSet.MAXIMAL_ARRAY_SIZE; i++) {
+                set.set(i);
+            }
+            set.clear();
+        });
+
+        List<RecordedEvent> conversions = named(events, "de.tum.in.naturals.set.Conversion");
+        assertThat(conversions, hasSize(2));
+
+        RecordedEvent runs = conversions.get(0);
+        assertThat(runs.getString("oldMode"), is("ARRAY"));
+        assertThat(runs.getString("newMode"), is("RUNS"));
+        assertThat(runs.getInt("cardinality"), is(HybridNatBitSet.MAXIMAL_ARRAY_SIZE));
+        assertThat(runs.getInt("lastElement"), is(HybridNatBitSet.MAXIMAL_ARRAY_SIZE - 1));
+
+        RecordedEvent cleared = conversions.get(1);
+        assertThat(cleared.getString("oldMode"), is("RUNS"));
+        assertThat(cleared.getString("newMode"), is("ARRAY"));
+        assertThat(cleared.getInt("cardinality"), is(HybridNatBitSet.MAXIMAL_ARRAY_SIZE + 1));
+    }
+
+    @Test
+    void optimizeReportsTheReclaimedBytes() throws IOException {
+        // Words allocated for a far larger set than what is left
+        BitSet words = new BitSet();
+        words.set(0, 100_000);
+        words.clear(100, 100_000);
+        HybridNatBitSet set = new HybridNatBitSet(words);
+
+        List<RecordedEvent> events = record(set::optimize);
+
+        List<RecordedEvent> optimizations = named(events, "de.tum.in.naturals.set.Optimize");
+        assertThat(optimizations, hasSize(1));
+        RecordedEvent optimization = optimizations.get(0);
+        assertThat(optimization.getString("oldMode"), is("BIT_SET"));
+        assertThat(optimization.getString("newMode"), is("RUNS"));
+        assertThat(optimization.getInt("cardinality"), is(100));
+        assertThat(optimization.getLong("reclaimedBytes"), greaterThan(10_000L));
+        assertThat(
+                optimization.getLong("reclaimedBytes"),
+                is(optimization.getLong("bytesBefore") - optimization.getLong("bytesAfter")));
+        assertThat(named(events, "de.tum.in.naturals.set.Conversion"), hasSize(1));
+    }
+}
@@ -0,0 +1,93 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+class NatBitSetInternerTest {
+    @Test
+    void equalContentsShareOneInstance() {
+        NatBitSetInterner interner = new NatBitSetInterner();
+        NatBitSet first = interner.intern(NatBitSets.ofVar(1, 5, 9));
+        NatBitSet second = interner.intern(NatBitSets.ofVar(9, 5, 1));
+        NatBitSet other = interner.intern(NatBitSets.ofVar(1, 5));
+
+        assertThat(second, sameInstance(first));
+        assertThat(other, not(sameInstance(first)));
+        assertThat(other.equals(first), is(false));
+        assertThat(interner.intern(first), sameInstance(first));
+        assertThat(interner.hits(), is(2L));
+        assertThat(interner.misses(), is(2L));
+        assertThat(interner.size(), is(2));
+    }
+
+    @Test
+    void representationDoesNotMatter() {
+        NatBitSetInterner interner = new NatBitSetInterner();
+        BitSet words = new BitSet();
+        words.set(0, 500);
+        words.set(70_000);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.add(0L, 500L);
+        bitmap.add(70_000);
+        BoundedNatBitSet bounded = NatBitSets.boundedSimpleSet(100_000);
+        bounded.set(0, 500);
+        bounded.set(70_000);
+
+        NatBitSet canonical = interner.intern(NatBitSets.wrap(words));
+        assertThat(interner.intern(NatBitSets.wrap(bitmap)), sameInstance(canonical));
+        assertThat(interner.intern(bounded), sameInstance(canonical));
+        assertThat(
+                NatBitSetInterner.contentHash(NatBitSets.wrap(bitmap)),
+                is(NatBitSetInterner.contentHash(NatBitSets.wrap(words))));
+    }
+
+    @Test
+    void canonicalInstanceIsFrozenAndIndependent() {
+        NatBitSetInterner interner = new NatBitSetInterner();
+        NatBitSet origin = NatBitSets.ofVar(2, 4);
+        NatBitSet canonical = interner.intern(origin);
+        origin.set(6);
+
+        assertThat(canonical, contains(2, 4));
+        assertThrows(UnsupportedOperationException.class, () -> canonical.set(8));
+        assertThrows(UnsupportedOperationException.class, () -> canonical.or(NatBitSets.of(3)));
+        assertThat(canonical.equals(NatBitSets.ofVar(2, 4)), is(true));
+        assertThat(canonical.hashCode(), is(NatBitSets.ofVar(2, 4).hashCode()));
+
+        NatBitSet thawed = NatBitSets.copyOf(canonical);
+        thawed.set(10);
+        assertThat(canonical, contains(2, 4));
+    }
+
+    @Test
+    void unreferencedInstancesAreDropped() throws InterruptedException {
+        NatBitSetInterner interner = new NatBitSetInterner();
+        Set<NatBitSet> kept = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            NatBitSet canonical = interner.intern(NatBitSets.ofVar(i, i + 1));
+            if (i % 10 == 0) {
+                kept.add(canonical);
+            }
+        }
+        for (int attempt = 0; attempt < 50 && interner.size() > kept.size(); attempt++) {
+            System.gc(); // NOPMD - collection is what is being tested
+            Thread.sleep(10);
+        }
+        assertThat(interner.size(), is(kept.size()));
+        for (NatBitSet canonical : kept) {
+            assertThat(interner.intern(NatBitSets.copyOf(canonical)), sameInstance(canonical));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.BitSet;
+import org.junit.jupiter.api.Test;
+
+class NatBitSetPoolTest {
+    @Test
+    void releasedSetsComeBackEmptyWithTheirStore() {
+        NatBitSetPool pool = new NatBitSetPool();
+        NatBitSet set = pool.acquire();
+        // Too many runs for anything but words
+        for (int i = 0; i < 10_000; i += 2) {
+            set.set(i);
+        }
+        Object store = ((HybridNatBitSet) set).store();
+        assertThat(store, instanceOf(BitSet.class));
+
+        pool.release(set);
+        assertThat(pool.available(), is(1));
+        NatBitSet again = pool.acquire();
+        assertThat(again, sameInstance(set));
+        assertThat(again.isEmpty(), is(true));
+        assertThat(again.size(), is(0));
+        assertThat(((HybridNatBitSet) again).store(), sameInstance(store));
+
+        again.set(3);
+        assertThat(again, contains(3));
+    }
+
+    @Test
+    void storesSharedWithCopiesAreNotReused() {
+        NatBitSetPool pool = new NatBitSetPool();
+        NatBitSet set = pool.acquire();
+        set.set(0, 10_000);
+        NatBitSet copy = set.clone();
+
+        pool.release(set);
+        assertThat(copy.size(), is(10_000));
+        assertThat(((HybridNatBitSet) pool.acquire()).store(), not(sameInstance(((HybridNatBitSet) copy).store())));
+    }
+
+    @Test
+    void poolRetainsUpToItsCapacity() {
+        NatBitSetPool pool = new NatBitSetPool(1);
+        NatBitSet one = pool.acquire();
+        NatBitSet other = pool.acquire();
+        pool.release(one);
+        pool.release(other);
+        assertThat(pool.available(), is(1));
+        pool.clear();
+        assertThat(pool.available(), is(0));
+
+        assertThrows(IllegalArgumentException.class, () -> pool.release(NatBitSets.boundedSimpleSet(4)));
+        assertThrows(IllegalArgumentException.class, () -> new NatBitSetPool(-1));
+        assertThat(NatBitSetPool.local(), sameInstance(NatBitSetPool.local()));
+    }
+}
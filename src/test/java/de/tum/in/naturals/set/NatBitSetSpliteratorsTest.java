@@ -0,0 +1,122 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+class NatBitSetSpliteratorsTest {
+    private static List<HybridNatBitSet> sets() {
+        Random random = new Random(42);
+        int[] small = random.ints(40, 0, 1000).distinct().sorted().toArray();
+
+        BitSet bitSet = new BitSet();
+        for (int i = 0; i < 200_000; i++) {
+            if (random.nextInt(3) == 0) {
+                bitSet.set(i);
+            }
+        }
+        bitSet.set(50_000_000);
+
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 20_000; i++) {
+            bitmap.add(random.nextInt(Integer.MAX_VALUE));
+        }
+        bitmap.add(0L, 100_000L);
+        bitmap.add(Integer.MAX_VALUE);
+
+        Runs runs = new Runs();
+        for (int i = 0; i < 20; i++) {
+            int start = 1000 * i + random.nextInt(500);
+            runs.append(start, start + 1L + random.nextInt(400));
+        }
+        runs.append(Integer.MAX_VALUE - 50, Runs.INFINITY);
+
+        return List.of(
+                new HybridNatBitSet(small, small.length),
+                new HybridNatBitSet(bitSet),
+                new HybridNatBitSet(bitmap),
+                new HybridNatBitSet(runs),
+                new HybridNatBitSet());
+    }
+
+    /** Splits as far as possible and traverses the parts in order, checking the sizes they report. */
+    private static void splitAndCollect(Spliterator.OfInt spliterator, IntConsumer sink, int depth) {
+        long reported = spliterator.getExactSizeIfKnown();
+        Spliterator.OfInt prefix = depth < 20 ? spliterator.trySplit() : null;
+        IntList seen = new IntArrayList();
+        if (prefix == null) {
+            // Mix both ways of traversal
+            if (spliterator.tryAdvance((IntConsumer) seen::add)) {
+                spliterator.forEachRemaining((IntConsumer) seen::add);
+            }
+        } else {
+            splitAndCollect(prefix, seen::add, depth + 1);
+            splitAndCollect(spliterator, seen::add, depth + 1);
+        }
+        if (reported >= 0) {
+            assertThat((long) seen.size(), is(reported));
+        }
+        seen.forEach(sink);
+    }
+
+    @Test
+    void splitsCoverTheSetInOrder() {
+        for (HybridNatBitSet set : sets()) {
+            IntList elements = new IntArrayList();
+            splitAndCollect(set.spliterator(), elements::add, 0);
+            IntList expected = new IntArrayList(set.iterator());
+            assertThat(elements, is(expected));
+        }
+    }
+
+    @Test
+    void largeSetsSplit() {
+        for (HybridNatBitSet set : sets()) {
+            if (set.size() > 1000) {
+                Spliterator.OfInt spliterator = set.spliterator();
+                assertThat(spliterator.hasCharacteristics(Spliterator.SIZED), is(true));
+                assertThat(spliterator.estimateSize(), is((long) set.size()));
+                Spliterator.OfInt prefix = spliterator.trySplit();
+                assertThat(prefix != null, is(true));
+                assertThat(prefix.estimateSize(), greaterThan(0L));
+            }
+        }
+    }
+
+    @Test
+    void parallelStreamsAgreeWithSequential() {
+        for (HybridNatBitSet set : sets()) {
+            assertThat(set.intStream().parallel().count(), is((long) set.size()));
+            assertThat(
+                    set.intStream().parallel().asLongStream().sum(),
+                    is(set.intStream().asLongStream().sum()));
+            assertThat(
+                    new IntArrayList(set.intStream().parallel().toArray()),
+                    is(new IntArrayList(set.iterator())));
+        }
+    }
+
+    @Test
+    void partialTraversalThenSplit() {
+        HybridNatBitSet set = sets().get(2);
+        Spliterator.OfInt spliterator = set.spliterator();
+        IntList elements = new IntArrayList();
+        for (int i = 0; i < 100_050; i++) {
+            spliterator.tryAdvance((IntConsumer) elements::add);
+        }
+        splitAndCollect(spliterator, elements::add, 0);
+        assertThat(elements, is(new IntArrayList(set.iterator())));
+    }
+}
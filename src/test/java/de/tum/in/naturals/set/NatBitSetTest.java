@@ -9,6 +9,7 @@ import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
 import org.junit.jupiter.api.Test;
@@ -124,4 +125,172 @@ class NatBitSetTest {
         assertThrows(IndexOutOfBoundsException.class, () -> NatBitSets.filled(-1, 5));
         assertThrows(IndexOutOfBoundsException.class, () -> NatBitSets.filled(5, 4));
     }
+
+    private static List<NatBitSet> everyImplementation(int[] elements, int domainSize) {
+        BitSet bitSet = new BitSet();
+        for (int element : elements) {
+            bitSet.set(element);
+        }
+        List<NatBitSet> sets = new ArrayList<>(List.of(
+                NatBitSets.wrap(elements.clone()),
+                new HybridNatBitSet(Runs.of(elements, elements.length)),
+                NatBitSets.wrap((BitSet) bitSet.clone()),
+                NatBitSets.wrap(RoaringBitmap.bitmapOf(elements)),
+                NatBitSets.persistentCopyOf(NatBitSets.wrap(elements.clone())),
+                NatBitSets.boundedSimpleSet(domainSize)));
+        if (domainSize <= Long.SIZE) {
+            sets.add(NatBitSets.boundedLongSet(domainSize));
+        } else if (domainSize <= LongArrayBoundedNatBitSet.maximalSize()) {
+            sets.add(NatBitSets.boundedLongArraySet(domainSize));
+        }
+        for (NatBitSet set : sets) {
+            if (set instanceof BoundedNatBitSet) {
+                for (int element : elements) {
+                    set.set(element);
+                }
+            }
+        }
+        return sets;
+    }
+
+    @Test
+    void testWordsAndRunsAgreeAcrossImplementations() {
+        int[][] shapes = {
+            {}, {0}, {63}, {0, 1, 2, 5, 6, 7, 40, 62, 63}, {3, 64, 65, 66, 127, 128, 1000, 1001, 1002, 70_000},
+        };
+        for (int[] elements : shapes) {
+            BitSet expected = new BitSet();
+            for (int element : elements) {
+                expected.set(element);
+            }
+            List<Long> expectedWords = new ArrayList<>();
+            long[] words = expected.toLongArray();
+            for (int i = 0; i < words.length; i++) {
+                if (words[i] != 0L) {
+                    expectedWords.add((long) i);
+                    expectedWords.add(words[i]);
+                }
+            }
+            List<Integer> expectedRuns = new ArrayList<>();
+            for (int i = expected.nextSetBit(0); i >= 0; i = expected.nextSetBit(expected.nextClearBit(i))) {
+                expectedRuns.add(i);
+                expectedRuns.add(expected.nextClearBit(i) - 1);
+            }
+
+            int domainSize = elements.length == 0 ? 1 : elements[elements.length - 1] + 1;
+            for (NatBitSet set : everyImplementation(elements, domainSize)) {
+                List<Long> seenWords = new ArrayList<>();
+                set.forEachWord((index, word) -> {
+                    seenWords.add((long) index);
+                    seenWords.add(word);
+                });
+                List<Integer> seenRuns = new ArrayList<>();
+                set.forEachRun((first, last) -> {
+                    seenRuns.add(first);
+                    seenRuns.add(last);
+                });
+                assertThat(set.getClass().getSimpleName(), seenWords, is(expectedWords));
+                assertThat(set.getClass().getSimpleName(), seenRuns, is(expectedRuns));
+                assertThat(NatBitSets.toBitSet(set), is(expected));
+                assertThat(NatBitSets.toRoaringBitmap(set), is(RoaringBitmap.bitmapOf(elements)));
+            }
+        }
+    }
+
+    @Test
+    void testCardinalitiesAgreeWithMaterialisedResults() {
+        int[][] shapes = {{}, {0, 1, 2, 3, 40, 63}, {2, 3, 4, 5, 6, 7, 8, 63}, {1, 3, 500, 501, 502, 503, 2000}};
+        for (int[] left : shapes) {
+            for (int[] right : shapes) {
+                int domainSize = 1;
+                for (int element : left) {
+                    domainSize = Math.max(domainSize, element + 1);
+                }
+                for (int element : right) {
+                    domainSize = Math.max(domainSize, element + 1);
+                }
+                NatBitSet expectedAnd = NatBitSets.copyOf(NatBitSets.wrap(left.clone()));
+                expectedAnd.and(NatBitSets.wrap(right.clone()));
+                NatBitSet expectedOr = NatBitSets.copyOf(NatBitSets.wrap(left.clone()));
+                expectedOr.or(NatBitSets.wrap(right.clone()));
+                int and = expectedAnd.size();
+                int or = expectedOr.size();
+
+                for (NatBitSet one : everyImplementation(left, domainSize)) {
+                    for (NatBitSet other : everyImplementation(right, domainSize)) {
+                        String pair = one.getClass().getSimpleName() + " / " + other.getClass().getSimpleName();
+                        assertThat(pair, NatBitSets.andCardinality(one, other), is(and));
+                        assertThat(pair, NatBitSets.orCardinality(one, other), is(or));
+                        assertThat(pair, NatBitSets.andNotCardinality(one, other), is(left.length - and));
+                        assertThat(pair, NatBitSets.xorCardinality(one, other), is(or - and));
+                        assertThat(pair, NatBitSets.jaccard(one, other), is(or == 0 ? 1.0 : (double) and / or));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCardinalitiesCountRunsUpToTheLargestIndex() {
+        NatBitSet top = NatBitSets.wrap(RoaringBitmap.bitmapOf(Integer.MAX_VALUE - 2, Integer.MAX_VALUE));
+        int[] elements = {Integer.MAX_VALUE - 3, Integer.MAX_VALUE - 2, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+        NatBitSet filled = new HybridNatBitSet(Runs.of(elements, elements.length));
+
+        assertThat(NatBitSets.andCardinality(top, filled), is(2));
+        assertThat(NatBitSets.andCardinality(filled, new HybridNatBitSet(Runs.of(elements, 4))), is(4));
+        assertThat(NatBitSets.orCardinality(top, filled), is(4));
+    }
+
+    @Test
+    void testAddAllSortedOutsideHybrid() {
+        int[] elements = {0, 0, 1, 2, 10, 11, 40, 40, 63};
+        List<NatBitSet> sets =
+                List.of(NatBitSets.boundedSimpleSet(64), NatBitSets.boundedLongSet(64), NatBitSets.concurrent());
+        for (NatBitSet set : sets) {
+            set.set(5);
+            set.addAllSorted(elements, 1, elements.length);
+            assertThat(set, contains(0, 1, 2, 5, 10, 11, 40, 63));
+        }
+        BoundedNatBitSet bounded = NatBitSets.boundedSimpleSet(10);
+        assertThrows(IndexOutOfBoundsException.class, () -> bounded.addAllSorted(new int[] {3, 10}, 0, 2));
+        assertThrows(IllegalArgumentException.class, () -> bounded.addAllSorted(new int[] {3, 2}, 0, 2));
+    }
+
+    @Test
+    void testEstimatedBytesGrowWithContent() {
+        List<NatBitSet> sets = List.of(NatBitSets.of(), NatBitSets.boundedSimpleSet(100_000), NatBitSets.concurrent());
+        for (NatBitSet set : sets) {
+            long empty = set.estimatedBytes();
+            assertThat(empty > 0L, is(true));
+            for (int i = 0; i < 100_000; i += 3) {
+                set.set(i);
+            }
+            assertThat(set.estimatedBytes() > empty, is(true));
+        }
+
+        // A single word, whatever it holds
+        BoundedNatBitSet word = NatBitSets.boundedLongSet(64);
+        long wordBytes = word.estimatedBytes();
+        word.set(0, 64);
+        assertThat(word.estimatedBytes(), is(wordBytes));
+
+        // Persistent versions count what they share with each other
+        PersistentNatBitSet version = NatBitSets.persistent();
+        for (int i = 0; i < 100_000; i += 3) {
+            version = version.with(i);
+        }
+        assertThat(version.with(99_998).estimatedBytes(), is(version.estimatedBytes()));
+        assertThat(version.estimatedBytes() > NatBitSets.persistent().estimatedBytes(), is(true));
+    }
+
+    @Test
+    void testRunsReachTheLargestIndex() {
+        HybridNatBitSet set = new HybridNatBitSet(RoaringBitmap.bitmapOf(7, Integer.MAX_VALUE - 1, Integer.MAX_VALUE));
+        List<Integer> runs = new ArrayList<>();
+        set.forEachRun((first, last) -> {
+            runs.add(first);
+            runs.add(last);
+        });
+        assertThat(runs, contains(7, 7, Integer.MAX_VALUE - 1, Integer.MAX_VALUE));
+    }
 }
@@ -151,6 +151,14 @@ class NatBitSetTheories {
             implementations.add(new Pair(complementOf(longSet)));
         }
 
+        for (int i = 0; i < NUMBER_OF_SUBSETS_PER_IMPLEMENTATION; i++) {
+            int size = generator.nextInt(MAXIMAL_SUBSET_SIZE - Long.SIZE) + Long.SIZE + 1;
+            BoundedNatBitSet wordsSet = NatBitSets.boundedLongArraySet(size);
+            wordsSet.addAll(generateSet(size, size));
+            implementations.add(new Pair(wordsSet));
+            implementations.add(new Pair(complementOf(wordsSet)));
+        }
+
         for (int i = 0; i < NUMBER_OF_SUBSETS_PER_IMPLEMENTATION; i++) {
             int size = generator.nextInt(MAXIMAL_SUBSET_SIZE - 1) + 1;
             BoundedNatBitSet simpleSet = NatBitSets.boundedSimpleSet(size);
@@ -0,0 +1,95 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import it.unimi.dsi.fastutil.ints.IntCollection;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiConsumer;
+import org.junit.jupiter.api.Test;
+
+class ParallelWordsTest {
+    // Enough words to be split into several slices
+    private static final int WORDS = ParallelWords.SEQUENTIAL_WORDS * 3;
+
+    private static HybridNatBitSet randomWords(Random random, int words, boolean sparse) {
+        long[] array = new long[words];
+        for (int i = 0; i < words; i++) {
+            array[i] = sparse ? random.nextLong() & random.nextLong() : random.nextLong();
+        }
+        BitSet bitSet = BitSet.valueOf(array);
+        // A run crossing slice boundaries
+        bitSet.set(words * Long.SIZE / 3 - 100, words * Long.SIZE / 3 + 100);
+        return new HybridNatBitSet(bitSet);
+    }
+
+    private static void assertAgrees(
+            BiConsumer<NatBitSet, IntCollection> parallel, BiConsumer<NatBitSet, IntCollection> sequential) {
+        Random random = new Random(42);
+        List<int[]> shapes = List.of(new int[] {WORDS, WORDS}, new int[] {WORDS, WORDS / 2}, new int[] {WORDS / 2, WORDS});
+        for (int[] lengths : shapes) {
+            HybridNatBitSet target = randomWords(random, lengths[0], true);
+            HybridNatBitSet source = randomWords(random, lengths[1], false);
+            NatBitSet expected = target.clone();
+            sequential.accept(expected, source);
+
+            HybridNatBitSet copy = target.clone();
+            BitSet before = (BitSet) target.words().clone();
+            parallel.accept(target, source);
+            assertThat(target, is(expected));
+            assertThat(target.size(), is(expected.size()));
+            assertThat(target.isWordBacked(), is(true));
+            // The copy shared the old store and must not have seen any of this
+            assertThat(copy.words(), is(before));
+        }
+    }
+
+    @Test
+    void parallelAndAgreesWithSequential() {
+        assertAgrees(NatBitSets::parallelAnd, NatBitSet::and);
+    }
+
+    @Test
+    void parallelAndNotAgreesWithSequential() {
+        assertAgrees(NatBitSets::parallelAndNot, NatBitSet::andNot);
+    }
+
+    @Test
+    void parallelOrAgreesWithSequential() {
+        assertAgrees(NatBitSets::parallelOr, NatBitSet::or);
+    }
+
+    @Test
+    void parallelXorAgreesWithSequential() {
+        assertAgrees(NatBitSets::parallelXor, NatBitSet::xor);
+    }
+
+    @Test
+    void topIndexSurvives() {
+        BitSet one = new BitSet();
+        one.set(Integer.MAX_VALUE);
+        one.set(5);
+        BitSet other = new BitSet();
+        other.set(Integer.MAX_VALUE - 1);
+        BitSet union = ParallelWords.combine(one, other, BitOperation.OR);
+        assertThat(union.get(Integer.MAX_VALUE), is(true));
+        assertThat(union.get(Integer.MAX_VALUE - 1), is(true));
+        assertThat(union.get(5), is(true));
+        assertThat(union.cardinality(), is(3));
+    }
+
+    @Test
+    void smallAndMixedOperandsFallBack() {
+        NatBitSet target = NatBitSets.ofVar(1, 2, 3);
+        NatBitSets.parallelOr(target, NatBitSets.ofVar(3, 4));
+        assertThat(target, is(NatBitSets.ofVar(1, 2, 3, 4)));
+        NatBitSets.parallelAnd(target, target);
+        assertThat(target, is(NatBitSets.ofVar(1, 2, 3, 4)));
+        NatBitSets.parallelXor(target, target);
+        assertThat(target.isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,15 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import junit.framework.TestSuite;
+import org.junit.runner.RunWith;
+import org.junit.runners.AllTests;
+
+@SuppressWarnings({"PMD.JUnit4SuitesShouldUseSuiteAnnotation", "PMD.UseUtilityClass"})
+@RunWith(AllTests.class)
+public class PersistentNatBitSetGuavaTest {
+    public static TestSuite suite() {
+        return GuavaSetTest.createImmutableNatSet(NatBitSets::persistentCopyOf, "PersistentNatBitSetGuavaTest");
+    }
+}
@@ -0,0 +1,119 @@
+// SPDX-License-Identifier: Apache-2.0
+
+package de.tum.in.naturals.set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class PersistentNatBitSetTest {
+    @Test
+    void versionsAreIndependent() {
+        PersistentNatBitSet empty = NatBitSets.persistent();
+        PersistentNatBitSet one = empty.with(5);
+        PersistentNatBitSet two = one.with(100_000);
+        PersistentNatBitSet three = two.without(5);
+
+        assertThat(empty.isEmpty(), is(true));
+        assertThat(one, contains(5));
+        assertThat(two, contains(5, 100_000));
+        assertThat(three, contains(100_000));
+        assertThat(three.without(100_000), sameInstance(empty));
+        assertThat(two.with(5), sameInstance(two));
+        assertThat(two.without(6), sameInstance(two));
+    }
+
+    @Test
+    void operationsShareOperands() {
+        PersistentNatBitSet base = NatBitSets.persistentCopyOf(NatBitSets.filled(0, 20_000));
+        PersistentNatBitSet subset = base.without(17);
+
+        assertThat(base.union(subset), sameInstance(base));
+        assertThat(base.intersection(subset), sameInstance(subset));
+        assertThat(subset.union(NatBitSets.persistent()), sameInstance(subset));
+        assertThat(base.difference(base), sameInstance(NatBitSets.persistent()));
+        assertThat(base.difference(subset), contains(17));
+        assertThat(subset.union(base.difference(subset)), is(base));
+    }
+
+    @Test
+    void copiesBoxedCollections() {
+        List<Integer> indices = List.of(3, 70_000, 5, 3, 1_000_000_000);
+        PersistentNatBitSet copy = NatBitSets.persistentCopyOf(indices);
+
+        assertThat(copy, contains(3, 5, 70_000, 1_000_000_000));
+        assertThat(copy.size(), is(4));
+        assertThat(NatBitSets.persistentCopyOf(Set.of()), sameInstance(NatBitSets.persistent()));
+        assertThrows(IndexOutOfBoundsException.class, () -> NatBitSets.persistentCopyOf(List.of(1, -1)));
+    }
+
+    @Test
+    void agreesWithBitSet() {
+        Random random = new Random(42);
+        PersistentNatBitSet set = NatBitSets.persistent();
+        PersistentNatBitSet other = NatBitSets.persistent();
+        BitSet reference = new BitSet();
+        BitSet otherReference = new BitSet();
+        for (int i = 0; i < 2000; i++) {
+            int index = random.nextInt(1 << (4 + random.nextInt(20)));
+            if (random.nextBoolean()) {
+                set = set.with(index);
+                reference.set(index);
+            } else {
+                other = other.with(index);
+                otherReference.set(index);
+            }
+            if (random.nextInt(4) == 0) {
+                set = set.without(index);
+                reference.clear(index);
+            }
+        }
+        assertThat(set, is(NatBitSets.wrap(reference)));
+        assertThat(set.size(), is(reference.cardinality()));
+        assertThat(NatBitSets.toBitSet(set), is(reference));
+
+        BitSet union = (BitSet) reference.clone();
+        union.or(otherReference);
+        assertThat(set.union(other), is(NatBitSets.wrap(union)));
+        BitSet intersection = (BitSet) reference.clone();
+        intersection.and(otherReference);
+        assertThat(set.intersection(other), is(NatBitSets.wrap(intersection)));
+        BitSet difference = (BitSet) reference.clone();
+        difference.andNot(otherReference);
+        assertThat(set.difference(NatBitSets.wrap(otherReference)), is(NatBitSets.wrap(difference)));
+
+        for (int i = 0; i < 1000; i++) {
+            int index = random.nextInt(reference.length() + 10);
+            assertThat(set.nextPresentIndex(index), is(reference.nextSetBit(index)));
+            assertThat(set.nextAbsentIndex(index), is(reference.nextClearBit(index)));
+            assertThat(set.previousPresentIndex(index), is(reference.previousSetBit(index)));
+            assertThat(set.previousAbsentIndex(index), is(reference.previousClearBit(index)));
+        }
+    }
+
+    @Test
+    void reachesLargestIndex() {
+        PersistentNatBitSet set = NatBitSets.persistent().with(3).with(Integer.MAX_VALUE);
+        assertThat(set, contains(3, Integer.MAX_VALUE));
+        assertThat(set.lastInt(), is(Integer.MAX_VALUE));
+        assertThat(set.previousPresentIndex(Integer.MAX_VALUE - 1), is(3));
+        assertThat(set.nextAbsentIndex(Integer.MAX_VALUE), is(Integer.MAX_VALUE));
+        assertThat(set.without(Integer.MAX_VALUE), is(NatBitSets.persistent().with(3)));
+    }
+
+    @Test
+    void rejectsMutation() {
+        PersistentNatBitSet set = NatBitSets.persistent().with(1);
+        assertThrows(UnsupportedOperationException.class, () -> set.set(2));
+        assertThrows(UnsupportedOperationException.class, () -> set.clear(1));
+        assertThrows(UnsupportedOperationException.class, set::clear);
+    }
+}
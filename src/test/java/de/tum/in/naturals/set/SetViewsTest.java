@@ -10,13 +10,14 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.IntConsumer;
 import org.junit.jupiter.api.Test;
 
-/** The power-set, cartesian-product and complement views, none of which had coverage. */
+/** The power-set, cartesian-product, complement and set-expression views. */
 class SetViewsTest {
     private static IntList drain(IntIterator iterator) {
         IntList list = new IntArrayList();
@@ -114,4 +115,44 @@ class SetViewsTest {
         single.remove();
         assertThat(singleton.isEmpty(), is(true));
     }
+
+    @Test
+    void expressionViewsAgreeWithMaterialisedOperations() {
+        NatBitSet one = NatBitSets.filled(0, 100);
+        NatBitSet other = NatBitSets.wrap(new int[] {5, 50, 150, 1_000_000});
+        BitSet words = new BitSet();
+        words.set(40, 60);
+        NatBitSet removed = NatBitSets.wrap(words);
+
+        // (one | other) \ removed, and the rest
+        NatSetView difference = NatBitSets.differenceView(NatBitSets.unionView(one, other), removed);
+        NatBitSet expected = NatBitSets.copyOf(one);
+        expected.or(other);
+        expected.andNot(removed);
+        assertThat(difference, is(expected));
+        assertThat(difference.size(), is(expected.size()));
+        assertThat(difference.materialize(), is(expected));
+        assertThat(drain(difference.reverseIterator()).getInt(0), is(1_000_000));
+        assertThat(difference.nextPresentIndex(40), is(60));
+        assertThat(difference.nextAbsentIndex(0), is(40));
+
+        assertThat(drain(NatBitSets.intersectionView(one, other).iterator()), is(IntList.of(5, 50)));
+        assertThat(
+                drain(NatBitSets.symmetricDifferenceView(removed, other).iterator()),
+                is(IntList.of(5, 40, 41, 42, 43, 44, 45, 46, 47, 48, 49, 51, 52, 53, 54, 55, 56, 57, 58, 59, 150,
+                        1_000_000)));
+    }
+
+    @Test
+    void expressionViewsFollowTheirOperands() {
+        NatBitSet one = NatBitSets.ofVar(1, 2);
+        NatBitSet other = NatBitSets.ofVar(3);
+        NatSetView intersection = NatBitSets.intersectionView(one, other);
+        assertThat(intersection.isEmpty(), is(true));
+
+        other.set(2);
+        assertThat(intersection.isEmpty(), is(false));
+        assertThat(intersection, contains(2));
+        assertThrows(UnsupportedOperationException.class, () -> intersection.add(5));
+    }
 }